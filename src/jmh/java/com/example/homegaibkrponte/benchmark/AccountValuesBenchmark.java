@@ -0,0 +1,82 @@
+package com.example.homegaibkrponte.benchmark;
+
+import com.example.homegaibkrponte.data.account.AccountValueStore;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uma consulta de /api/ibkr/account/values com {@code accounts} contas (30 tags + ledger em 3 moedas cada):
+ *
+ * - notModified: If-None-Match igual à versão atual (o caso de quem consulta a cada segundo sem mudança);
+ * - unchangedBody: sem ETag, snapshot já montado + serialização;
+ * - changedBody: um valor muda antes da leitura (snapshot remontado + serialização).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccountValuesBenchmark {
+
+    private static final int REQ_ID = 9001;
+    private static final String[] CURRENCIES = {"BASE", "USD", "EUR"};
+
+    @Param({"1", "10"})
+    public int accounts;
+
+    private AccountValueStore store;
+    private ObjectWriter writer;
+    private String clientEtag;
+    private long tick;
+
+    @Setup
+    public void setUp() {
+        store = new AccountValueStore();
+        store.bind(REQ_ID);
+        for (int a = 0; a < accounts; a++) {
+            String account = "DU" + (1_000_000 + a);
+            for (int t = 0; t < 30; t++) {
+                store.put(REQ_ID, account, "Tag" + t, Double.toString(100_000 + t * 1.5), "USD");
+            }
+            for (String currency : CURRENCIES) {
+                store.put(REQ_ID, account, "CashBalance", "50000.00", currency);
+                store.put(REQ_ID, account, "TotalCashBalance", "50000.00", currency);
+                store.put(REQ_ID, account, "NetLiquidationByCurrency", "150000.00", currency);
+            }
+        }
+        store.end(REQ_ID);
+        writer = JsonMapper.builder().findAndAddModules().build().writer();
+        clientEtag = store.currentEtag();
+    }
+
+    @Benchmark
+    public boolean notModified() {
+        return clientEtag.equals(store.currentEtag());
+    }
+
+    @Benchmark
+    public byte[] unchangedBody() throws IOException {
+        return writer.writeValueAsBytes(store.snapshot());
+    }
+
+    @Benchmark
+    public byte[] changedBody() throws IOException {
+        store.put(REQ_ID, "DU1000000", "NetLiquidation", Long.toString(tick++), "USD");
+        return writer.writeValueAsBytes(store.snapshot());
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.homegaibkrponte.benchmark;
+
+import com.example.homegaibkrponte.accounting.AccountingMode;
+import com.example.homegaibkrponte.model.Portfolio;
+import com.example.homegaibkrponte.model.TradeExecutedEvent;
+import com.example.homegaibkrponte.monitoring.LivePortfolioService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BigDecimal x ponto fixo no LivePortfolioService, em execuções por segundo (a alocação por execução
+ * sai do profiler de GC do perfil benchmarks). Cada operação aumenta uma posição existente (preço
+ * médio ponderado, a conta mais cara) e vende a mesma quantidade de volta.
+ *
+ * A equivalência dos dois motores é coberta pelo AccountingEquivalenceTest (src/test).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccountingBenchmark {
+
+    @Param({"BIG_DECIMAL", "FIXED_POINT"})
+    public AccountingMode mode;
+
+    @Param({"5000"})
+    public int positions;
+
+    private LivePortfolioService portfolioService;
+    private TradeExecutedEvent buy;
+    private TradeExecutedEvent sell;
+
+    @Setup
+    public void setUp() {
+        portfolioService = BenchmarkFixtures.portfolioService(mode);
+        portfolioService.updatePortfolioPositions(BenchmarkFixtures.positions(positions));
+        String symbol = BenchmarkFixtures.symbol(positions / 2);
+        buy = new TradeExecutedEvent(symbol, "BOT", new BigDecimal("37"), new BigDecimal("181.2537"), LocalDateTime.now(), "LIVE", "bench-buy");
+        sell = new TradeExecutedEvent(symbol, "SLD", new BigDecimal("37"), new BigDecimal("181.3100"), LocalDateTime.now(), "LIVE", "bench-sell");
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public void onTradeExecuted() {
+        portfolioService.onTradeExecuted(buy);
+        portfolioService.onTradeExecuted(sell);
+    }
+
+    /**
+     * Leitura da fronteira REST logo após uma execução: no ponto fixo inclui montar o snapshot BigDecimal.
+     */
+    @Benchmark
+    public Portfolio tradeThenSnapshot() {
+        portfolioService.onTradeExecuted(buy);
+        portfolioService.onTradeExecuted(sell);
+        return portfolioService.getLivePortfolioSnapshot();
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.homegaibkrponte.benchmark;
+
+import com.example.homegaibkrponte.accounting.AccountingMode;
+import com.example.homegaibkrponte.connector.IBKRConnector;
+import com.example.homegaibkrponte.connector.dispatch.CallbackDispatcher;
+import com.example.homegaibkrponte.data.account.AccountValueStore;
+import com.example.homegaibkrponte.data.bars.BarAggregator;
+import com.example.homegaibkrponte.data.contract.ContractCache;
+import com.example.homegaibkrponte.data.depth.OrderBookStore;
+import com.example.homegaibkrponte.data.executions.ExecutionJournal;
+import com.example.homegaibkrponte.data.history.CandleStore;
+import com.example.homegaibkrponte.data.history.HistoricalBarSize;
+import com.example.homegaibkrponte.data.pnl.PnlEngine;
+import com.example.homegaibkrponte.data.pnl.PnlMarkSource;
+import com.example.homegaibkrponte.data.quote.QuoteStore;
+import com.example.homegaibkrponte.data.ticks.TickJournal;
+import com.example.homegaibkrponte.dto.OrderDTO;
+import com.example.homegaibkrponte.model.OrderType;
+import com.example.homegaibkrponte.model.PositionDTO;
+import com.example.homegaibkrponte.monitoring.LivePortfolioService;
+import com.example.homegaibkrponte.properties.IBKRProperties;
+import com.example.homegaibkrponte.service.OrderIdManager;
+import com.ib.client.Contract;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Monta os componentes reais da ponte sem Spring e sem conexão com o TWS: os diretórios de dados
+ * apontam para uma pasta temporária e, fora o journal de execuções (gravado a cada execDetails),
+ * nenhum @PostConstruct que abra arquivos é chamado.
+ */
+public final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    public static LivePortfolioService portfolioService() {
+        return portfolioService(AccountingMode.BIG_DECIMAL);
+    }
+
+    public static LivePortfolioService portfolioService(AccountingMode accountingMode) {
+        LivePortfolioService service = new LivePortfolioService(event -> { }, accountingMode, "USD");
+        service.init();
+        return service;
+    }
+
+    public static IBKRConnector connector(LivePortfolioService portfolioService) {
+        String dir = tempDirectory();
+        IBKRProperties props = new IBKRProperties("127.0.0.1", null, null, 4002, 999);
+        return connector(props, portfolioService, new CallbackDispatcher(List.of(), new SimpleMeterRegistry(), 1024),
+                new OrderIdManager(props, dir, 1000), new ContractCache(dir, 30), dir);
+    }
+
+    /**
+     * Conector com dispatcher, IDs e cache de contratos fornecidos (ex.: já inicializados para falar
+     * com um FakeTwsGateway).
+     */
+    public static IBKRConnector connector(IBKRProperties props, LivePortfolioService portfolioService,
+                                          CallbackDispatcher dispatcher, OrderIdManager orderIdManager,
+                                          ContractCache contractCache, String dir) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ExecutionJournal executionJournal = new ExecutionJournal(dir, 4, 65_536, registry);
+        executionJournal.init();
+        QuoteStore quoteStore = new QuoteStore(64);
+        return new IBKRConnector(props, portfolioService, dispatcher, orderIdManager,
+                new CandleStore(dir),
+                50, 120, true, 60, 600, 5, 15,
+                quoteStore, 1, new PnlEngine(quoteStore, PnlMarkSource.LAST),
+                new BarAggregator(event -> { }, List.of(HistoricalBarSize.ONE_MIN), 10), false,
+                new OrderBookStore(8, 10), true,
+                new TickJournal(dir, 1, 1000, registry),
+                executionJournal, 60, "America/New_York",
+                contractCache, List.of(), 5000,
+                new AccountValueStore(), "NetLiquidation,BuyingPower,$LEDGER");
+    }
+
+    public static OrderDTO simpleOrder() {
+        return new OrderDTO("NVDA", OrderType.BUY_LIMIT, new BigDecimal("100"), new BigDecimal("181.25"), null,
+                null, null, null, null, "benchmark", "bench-simple", null);
+    }
+
+    public static OrderDTO bracketOrder() {
+        OrderDTO stopLoss = new OrderDTO("NVDA", OrderType.SELL_STOP_LOSS, new BigDecimal("100"), null, null,
+                null, null, new BigDecimal("175.00"), null, "benchmark", "bench-bracket-sl", null);
+        OrderDTO takeProfit = new OrderDTO("NVDA", OrderType.SELL_TAKE_PROFIT, new BigDecimal("100"), null, null,
+                null, null, null, new BigDecimal("195.00"), "benchmark", "bench-bracket-tp", null);
+        return new OrderDTO("NVDA", OrderType.BUY_LIMIT, new BigDecimal("100"), new BigDecimal("181.25"), null,
+                null, null, new BigDecimal("175.00"), new BigDecimal("195.00"), "benchmark", "bench-bracket",
+                List.of(stopLoss, takeProfit));
+    }
+
+    public static Contract stock(String symbol) {
+        Contract contract = new Contract();
+        contract.symbol(symbol);
+        contract.secType("STK");
+        contract.exchange("SMART");
+        contract.currency("USD");
+        return contract;
+    }
+
+    /**
+     * Tickers sintéticos distintos (SYM0, SYM1, ...).
+     */
+    public static String symbol(int index) {
+        return "SYM" + index;
+    }
+
+    public static List<PositionDTO> positions(int count) {
+        List<PositionDTO> positions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            PositionDTO dto = new PositionDTO();
+            dto.setTicker(symbol(i));
+            dto.setPosition(BigDecimal.valueOf(10L + i % 90));
+            dto.setMktPrice(BigDecimal.valueOf(50L + i % 400, 0).add(new BigDecimal("0.25")));
+            positions.add(dto);
+        }
+        return positions;
+    }
+
+    public static String tempDirectory() {
+        try {
+            Path dir = Files.createTempDirectory("homega-jmh");
+            dir.toFile().deleteOnExit();
+            return dir.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.homegaibkrponte.benchmark;
+
+import com.example.homegaibkrponte.connector.IBKRConnector;
+import com.example.homegaibkrponte.connector.dispatch.CallbackDispatcher;
+import com.example.homegaibkrponte.data.contract.ContractCache;
+import com.example.homegaibkrponte.dto.OrderDTO;
+import com.example.homegaibkrponte.dto.OrderStatusDTO;
+import com.example.homegaibkrponte.factory.ContractFactory;
+import com.example.homegaibkrponte.factory.OrderFactory;
+import com.example.homegaibkrponte.monitoring.OrderLatencyMetrics;
+import com.example.homegaibkrponte.order.OrderAwait;
+import com.example.homegaibkrponte.order.OrderLifecycleEngine;
+import com.example.homegaibkrponte.properties.IBKRProperties;
+import com.example.homegaibkrponte.service.OrderIdManager;
+import com.example.homegaibkrponte.service.OrderService;
+import com.example.homegaibkrponte.simulator.FakeTwsGateway;
+import com.example.homegaibkrponte.simulator.FakeTwsSettings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ida e volta completa de uma ordem contra o FakeTwsGateway, sem TWS real: OrderService ->
+ * EClientSocket -> socket local -> TWS simulado -> EReader -> CallbackDispatcher -> OrderLifecycleEngine.
+ * O simulador executa sem atraso, então o tempo medido é todo da ponte e da pilha de rede local.
+ * Para carga concorrente, rode com {@code -t <threads>}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class EndToEndOrderBenchmark {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private FakeTwsGateway gateway;
+    private CallbackDispatcher dispatcher;
+    private IBKRConnector connector;
+    private OrderService orderService;
+    private OrderDTO order;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        gateway = new FakeTwsGateway(FakeTwsSettings.defaults().toBuilder()
+                .fillLatency(Duration.ZERO)
+                .tickInterval(Duration.ZERO)
+                .build());
+        int port = gateway.start();
+
+        String dir = BenchmarkFixtures.tempDirectory();
+        IBKRProperties props = new IBKRProperties("127.0.0.1", null, null, port, 998);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        OrderLatencyMetrics metrics = new OrderLatencyMetrics(registry);
+        OrderLifecycleEngine lifecycle = new OrderLifecycleEngine(100_000, 5_000, metrics);
+        dispatcher = new CallbackDispatcher(List.of(lifecycle), registry, 4096);
+        dispatcher.start();
+        OrderIdManager orderIds = new OrderIdManager(props, dir, 100_000);
+        orderIds.init();
+        ContractCache contracts = new ContractCache(dir, 30);
+        contracts.init();
+
+        connector = BenchmarkFixtures.connector(props, BenchmarkFixtures.portfolioService(), dispatcher, orderIds, contracts, dir);
+        connector.connect();
+        orderService = new OrderService(connector, orderIds, new ContractFactory(contracts, connector, 5_000),
+                new OrderFactory(connector), lifecycle, metrics);
+        order = BenchmarkFixtures.simpleOrder();
+        // Resolve o contrato (reqContractDetails) fora da medição.
+        orderService.placeOrder(order, OrderAwait.FILL, TIMEOUT).join();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        connector.disconnect();
+        dispatcher.stop();
+        gateway.close();
+    }
+
+    @Benchmark
+    public OrderStatusDTO untilAck() {
+        return orderService.placeOrder(order, OrderAwait.ACK, TIMEOUT).join();
+    }
+
+    @Benchmark
+    public OrderStatusDTO untilFill() {
+        return orderService.placeOrder(order, OrderAwait.FILL, TIMEOUT).join();
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.homegaibkrponte.benchmark;
+
+import com.example.homegaibkrponte.dto.OrderDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Desserialização do corpo de /place-order (o mesmo JSON que o Spring MVC recebe).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderDtoJsonBenchmark {
+
+    // Corpos como a aplicação principal os envia.
+    private static final String SIMPLE = """
+            {"symbol":"NVDA","type":"BUY_LIMIT","quantity":100,"price":181.25,
+             "rationale":"benchmark","clientOrderId":"bench-simple"}""";
+    private static final String BRACKET = """
+            {"symbol":"NVDA","type":"BUY_LIMIT","quantity":100,"price":181.25,
+             "stopLossPrice":175.00,"takeProfitPrice":195.00,"rationale":"benchmark","clientOrderId":"bench-bracket",
+             "childOrders":[
+               {"symbol":"NVDA","type":"SELL_STOP_LOSS","quantity":100,"stopLossPrice":175.00,"clientOrderId":"bench-bracket-sl"},
+               {"symbol":"NVDA","type":"SELL_TAKE_PROFIT","quantity":100,"takeProfitPrice":195.00,"clientOrderId":"bench-bracket-tp"}]}""";
+
+    private ObjectReader reader;
+    private byte[] simpleJson;
+    private byte[] bracketJson;
+
+    @Setup
+    public void setUp() {
+        reader = new ObjectMapper().readerFor(OrderDTO.class);
+        simpleJson = SIMPLE.getBytes(StandardCharsets.UTF_8);
+        bracketJson = BRACKET.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public OrderDTO simple() throws IOException {
+        return reader.readValue(simpleJson);
+    }
+
+    @Benchmark
+    public OrderDTO bracket() throws IOException {
+        return reader.readValue(bracketJson);
+    }
+}
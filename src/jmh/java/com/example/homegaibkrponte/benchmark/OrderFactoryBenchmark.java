@@ -0,0 +1,50 @@
+package com.example.homegaibkrponte.benchmark;
+
+import com.example.homegaibkrponte.dto.OrderDTO;
+import com.example.homegaibkrponte.factory.OrderFactory;
+import com.ib.client.Order;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conversão OrderDTO -> com.ib.client.Order (uma perna).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderFactoryBenchmark {
+
+    private OrderFactory orderFactory;
+    private OrderDTO limitOrder;
+    private OrderDTO stopLoss;
+
+    @Setup
+    public void setUp() {
+        orderFactory = new OrderFactory(BenchmarkFixtures.connector(BenchmarkFixtures.portfolioService()));
+        limitOrder = BenchmarkFixtures.simpleOrder();
+        stopLoss = BenchmarkFixtures.bracketOrder().childOrders().get(0);
+    }
+
+    @Benchmark
+    public Order createLimit() {
+        return orderFactory.create(limitOrder, "1001");
+    }
+
+    @Benchmark
+    public Order createStopLoss() {
+        return orderFactory.create(stopLoss, "1002");
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.homegaibkrponte.benchmark;
+
+import com.example.homegaibkrponte.data.pnl.PnlEngine;
+import com.example.homegaibkrponte.data.pnl.PnlMarkSource;
+import com.example.homegaibkrponte.data.quote.QuoteStore;
+import com.example.homegaibkrponte.model.Portfolio;
+import com.example.homegaibkrponte.model.Position;
+import com.example.homegaibkrponte.model.PositionDirection;
+import com.example.homegaibkrponte.monitoring.LivePortfolioService;
+import com.ib.client.TickType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * P&L com {@code positions} posições, todas com linha de cotação:
+ *
+ * - tick: um LAST chega (QuoteStore + PnlEngine), em rodízio pelas posições;
+ * - readPortfolioPnl: o que um painel de risco lê a cada consulta (O(1));
+ * - fullRevaluation: a alternativa sem o engine, somando quantidade × (último - custo) de todas as
+ *   posições do Portfolio a cada leitura.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PnlBenchmark {
+
+    private static final int LAST = TickType.LAST.index();
+
+    @Param({"100", "2000"})
+    public int positions;
+
+    private QuoteStore quoteStore;
+    private PnlEngine pnlEngine;
+    private LivePortfolioService portfolioService;
+    private double[] prices;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        quoteStore = new QuoteStore(positions);
+        pnlEngine = new PnlEngine(quoteStore, PnlMarkSource.LAST);
+        portfolioService = BenchmarkFixtures.portfolioService();
+        portfolioService.updatePortfolioPositions(BenchmarkFixtures.positions(positions));
+        for (Position position : portfolioService.getLivePortfolioSnapshot().openPositions().values()) {
+            int slot = quoteStore.register(position.getSymbol());
+            quoteStore.bind(slot, slot);
+            quoteStore.onPrice(slot, LAST, position.getAverageEntryPrice().doubleValue());
+            pnlEngine.update(position.getSymbol(), position.getQuantity().doubleValue(), position.getAverageEntryPrice().doubleValue());
+        }
+        prices = new double[1024];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = 100 + (i % 97) * 0.01;
+        }
+    }
+
+    @Benchmark
+    public void tick() {
+        int i = next++;
+        int reqId = i % positions;
+        double price = prices[i & (prices.length - 1)];
+        quoteStore.onPrice(reqId, LAST, price);
+        pnlEngine.onPrice(reqId, LAST, price);
+    }
+
+    @Benchmark
+    public double readPortfolioPnl() {
+        return pnlEngine.getUnrealizedPnl();
+    }
+
+    @Benchmark
+    public double fullRevaluation() {
+        Portfolio portfolio = portfolioService.getLivePortfolioSnapshot();
+        double total = 0;
+        for (Position position : portfolio.openPositions().values()) {
+            double last = quoteStore.last(quoteStore.slotOf(position.getSymbol()));
+            double quantity = position.getQuantity().doubleValue();
+            double signed = position.getDirection() == PositionDirection.SHORT ? -quantity : quantity;
+            total += signed * (last - position.getAverageEntryPrice().doubleValue());
+        }
+        return total;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.homegaibkrponte.benchmark;
+
+import com.example.homegaibkrponte.model.PositionDTO;
+import com.example.homegaibkrponte.model.TradeExecutedEvent;
+import com.example.homegaibkrponte.monitoring.LivePortfolioService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LivePortfolioService com {@code positions} posições abertas: sincronização completa
+ * (updatePortfolioPositions) e execuções (onTradeExecuted), em execuções por segundo. Com o mapa
+ * persistente o custo de uma execução cresce com log32 do tamanho do portfólio, não com o tamanho.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PortfolioBenchmark {
+
+    @Param({"10", "100", "1000", "5000", "10000", "50000"})
+    public int positions;
+
+    private LivePortfolioService portfolioService;
+    private List<PositionDTO> snapshot;
+    private TradeExecutedEvent buy;
+    private TradeExecutedEvent sell;
+
+    @Setup
+    public void setUp() {
+        portfolioService = BenchmarkFixtures.portfolioService();
+        snapshot = BenchmarkFixtures.positions(positions);
+        portfolioService.updatePortfolioPositions(snapshot);
+        String symbol = BenchmarkFixtures.symbol(positions / 2);
+        buy = new TradeExecutedEvent(symbol, "BUY", BigDecimal.ONE, new BigDecimal("100.50"), LocalDateTime.now(), "LIVE", "bench-buy");
+        sell = new TradeExecutedEvent(symbol, "SELL", BigDecimal.ONE, new BigDecimal("100.75"), LocalDateTime.now(), "LIVE", "bench-sell");
+    }
+
+    @Benchmark
+    public void updatePortfolioPositions() {
+        portfolioService.updatePortfolioPositions(snapshot);
+    }
+
+    /**
+     * Compra e venda da mesma quantidade: o portfólio volta ao tamanho inicial a cada operação.
+     */
+    @Benchmark
+    @OperationsPerInvocation(2)
+    public void onTradeExecuted() {
+        portfolioService.onTradeExecuted(buy);
+        portfolioService.onTradeExecuted(sell);
+    }
+
+    /**
+     * O mesmo com 4 threads disputando o CAS do estado: cada nova tentativa refaz só o caminho do símbolo.
+     */
+    @Benchmark
+    @Threads(4)
+    @OperationsPerInvocation(2)
+    public void onTradeExecutedContended() {
+        portfolioService.onTradeExecuted(buy);
+        portfolioService.onTradeExecuted(sell);
+    }
+}
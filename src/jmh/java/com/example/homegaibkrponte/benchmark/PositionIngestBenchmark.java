@@ -0,0 +1,60 @@
+package com.example.homegaibkrponte.benchmark;
+
+import com.example.homegaibkrponte.connector.IBKRConnector;
+import com.ib.client.Contract;
+import com.ib.client.Decimal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Um ciclo reqPositions completo como o leitor do TWS o entrega: {@code positions} chamadas a
+ * IBKRConnector.position seguidas de positionEnd (que sincroniza o LivePortfolioService).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PositionIngestBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int positions;
+
+    private IBKRConnector connector;
+    private Contract[] contracts;
+    private Decimal[] quantities;
+    private double[] averageCosts;
+
+    @Setup
+    public void setUp() {
+        connector = BenchmarkFixtures.connector(BenchmarkFixtures.portfolioService());
+        contracts = new Contract[positions];
+        quantities = new Decimal[positions];
+        averageCosts = new double[positions];
+        for (int i = 0; i < positions; i++) {
+            contracts[i] = BenchmarkFixtures.stock(BenchmarkFixtures.symbol(i));
+            quantities[i] = Decimal.get(10L + i % 90);
+            averageCosts[i] = 50.25 + i % 400;
+        }
+    }
+
+    @Benchmark
+    public void positionCycle() {
+        for (int i = 0; i < positions; i++) {
+            connector.position("DU000000", contracts[i], quantities[i], averageCosts[i]);
+        }
+        connector.positionEnd();
+    }
+}
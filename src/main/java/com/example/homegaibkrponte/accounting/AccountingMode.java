@@ -0,0 +1,11 @@
+package com.example.homegaibkrponte.accounting;
+
+/**
+ * Motor de contabilidade do portfólio LIVE (ibkr.portfolio.accounting).
+ */
+public enum AccountingMode {
+    /** Portfolio/Position em BigDecimal, recalculados a cada execução (comportamento original). */
+    BIG_DECIMAL,
+    /** {@link FixedPointLedger}: longs com escala por moeda; BigDecimal só na leitura (REST/webhook). */
+    FIXED_POINT
+}
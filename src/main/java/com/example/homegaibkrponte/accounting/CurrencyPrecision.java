@@ -0,0 +1,51 @@
+package com.example.homegaibkrponte.accounting;
+
+import java.util.Map;
+
+/**
+ * Escalas (casas decimais) do livro de ponto fixo numa moeda.
+ *
+ * O caixa usa {@code quantityScale + max(priceScale, averagePriceScale)}: assim quantidade × preço e
+ * quantidade × preço médio cabem nele sem arredondar, e o resultado bate com o caminho BigDecimal.
+ * O preço médio usa 4 casas, as mesmas do {@code divide(totalQty, 4, HALF_UP)} do LivePortfolioService.
+ *
+ * Com caixa em 8 casas, um long comporta ±92 bilhões na moeda; além disso as operações estouram
+ * (ArithmeticException) em vez de perder precisão.
+ */
+public record CurrencyPrecision(String currency, int quantityScale, int priceScale, int averagePriceScale) {
+
+    private static final Map<String, CurrencyPrecision> KNOWN = Map.of(
+            "USD", new CurrencyPrecision("USD", 4, 4, 4),
+            "EUR", new CurrencyPrecision("EUR", 4, 4, 4),
+            "GBP", new CurrencyPrecision("GBP", 4, 4, 4),
+            "CHF", new CurrencyPrecision("CHF", 4, 4, 4),
+            "CAD", new CurrencyPrecision("CAD", 4, 4, 4),
+            "AUD", new CurrencyPrecision("AUD", 4, 4, 4),
+            "BRL", new CurrencyPrecision("BRL", 4, 4, 4),
+            // Ações japonesas cotam em ienes inteiros ou décimos.
+            "JPY", new CurrencyPrecision("JPY", 4, 2, 4)
+    );
+
+    public CurrencyPrecision {
+        if (quantityScale < 0 || priceScale < 0 || averagePriceScale < 0
+                || quantityScale + Math.max(priceScale, averagePriceScale) > FixedPoint.MAX_SCALE) {
+            throw new IllegalArgumentException("Escalas inválidas para " + currency + ": quantidade " + quantityScale
+                    + ", preço " + priceScale + ", preço médio " + averagePriceScale);
+        }
+    }
+
+    /**
+     * Precisão de uma moeda conhecida; moedas fora da tabela precisam ser acrescentadas explicitamente.
+     */
+    public static CurrencyPrecision of(String currency) {
+        CurrencyPrecision precision = KNOWN.get(currency.toUpperCase());
+        if (precision == null) {
+            throw new IllegalArgumentException("Moeda sem precisão de ponto fixo definida: " + currency + ". Conhecidas: " + KNOWN.keySet());
+        }
+        return precision;
+    }
+
+    public int cashScale() {
+        return quantityScale + Math.max(priceScale, averagePriceScale);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.homegaibkrponte.accounting;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Aritmética de ponto fixo sobre longs: um valor é o par (unscaled, scale), como num BigDecimal,
+ * mas a escala fica implícita em quem guarda o long (ver {@link CurrencyPrecision}).
+ *
+ * Toda operação que pode estourar usa as variantes *Exact do Math e lança ArithmeticException
+ * em vez de dar a volta em silêncio. Arredondamento sempre HALF_UP, o mesmo do caminho BigDecimal.
+ */
+public final class FixedPoint {
+
+    private static final long[] POW10 = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L,
+            1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L,
+            10_000_000_000_000L, 100_000_000_000_000L, 1_000_000_000_000_000L,
+            10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L
+    };
+
+    public static final int MAX_SCALE = POW10.length - 1;
+
+    private FixedPoint() {
+    }
+
+    public static long pow10(int exponent) {
+        if (exponent < 0 || exponent > MAX_SCALE) {
+            throw new ArithmeticException("Escala fora do intervalo de um long: " + exponent);
+        }
+        return POW10[exponent];
+    }
+
+    /**
+     * Fronteira de entrada: arredonda para a escala (HALF_UP) e devolve o valor sem escala.
+     *
+     * @throws ArithmeticException se não couber num long.
+     */
+    public static long toScaled(BigDecimal value, int scale) {
+        return value.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Fronteira de entrada sem arredondamento, para execuções: um valor com mais casas que a escala
+     * (zeros à direita não contam) não cabe no livro e é recusado, em vez de divergir do caminho BigDecimal.
+     *
+     * @throws ArithmeticException se tiver mais casas que {@code scale} ou não couber num long.
+     */
+    public static long toScaledExact(BigDecimal value, int scale) {
+        try {
+            return value.setScale(scale, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        } catch (ArithmeticException e) {
+            if (value.stripTrailingZeros().scale() > scale) {
+                throw new ArithmeticException(value.toPlainString() + " tem mais de " + scale + " casas decimais");
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Fronteira de saída (REST, webhook, log).
+     */
+    public static BigDecimal toBigDecimal(long unscaled, int scale) {
+        return BigDecimal.valueOf(unscaled, scale);
+    }
+
+    /**
+     * Muda a escala: para cima é exato (ou estoura), para baixo arredonda HALF_UP.
+     */
+    public static long rescale(long value, int fromScale, int toScale) {
+        if (toScale >= fromScale) {
+            return Math.multiplyExact(value, pow10(toScale - fromScale));
+        }
+        return divideHalfUp(value, pow10(fromScale - toScale));
+    }
+
+    /**
+     * {@code a * b} com o resultado em {@code resultScale} ({@code a} em {@code aScale}, {@code b} em {@code bScale}).
+     */
+    public static long multiply(long a, int aScale, long b, int bScale, int resultScale) {
+        return rescale(Math.multiplyExact(a, b), aScale + bScale, resultScale);
+    }
+
+    /**
+     * Divisão inteira arredondada HALF_UP (metade se afasta do zero), como BigDecimal.divide(..., HALF_UP).
+     */
+    public static long divideHalfUp(long dividend, long divisor) {
+        if (divisor == 0) {
+            throw new ArithmeticException("Divisão por zero");
+        }
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (remainder == 0) {
+            return quotient;
+        }
+        long absRemainder = Math.abs(remainder);
+        // |resto| >= |divisor| / 2, sem dobrar o resto (que poderia estourar).
+        if (absRemainder >= Math.abs(divisor) - absRemainder) {
+            return (dividend ^ divisor) < 0 ? quotient - 1 : quotient + 1;
+        }
+        return quotient;
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.homegaibkrponte.accounting;
+
+import com.example.homegaibkrponte.model.Portfolio;
+import com.example.homegaibkrponte.model.Position;
+import com.example.homegaibkrponte.model.PositionDirection;
+import com.example.homegaibkrponte.util.PersistentHashMap;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Livro imutável do portfólio em ponto fixo: caixa e posições como longs nas escalas de
+ * {@link CurrencyPrecision}. Cada execução devolve um livro novo (posições num {@link PersistentHashMap});
+ * a regra é a mesma do caminho BigDecimal do LivePortfolioService, só que sem alocar BigDecimal.
+ *
+ * BigDecimal aparece só nas fronteiras: {@link #withCash}/{@link #withPositions} na entrada e
+ * {@link #toPortfolio()} na saída (REST/webhook), calculado uma vez por livro. O snapshot é incremental:
+ * cada livro carrega o último Portfolio montado e os símbolos alterados desde então, e só esses são
+ * convertidos de novo.
+ *
+ * As entradas de sincronização (saldo e posições da corretora) arredondam HALF_UP para a escala;
+ * {@link #buy}/{@link #sell} esperam valores convertidos com {@link FixedPoint#toScaledExact}, que recusa
+ * casas além da escala em vez de arredondar.
+ *
+ * Estouros de long lançam ArithmeticException; o livro original continua válido.
+ */
+public final class FixedPointLedger {
+
+    private final String name;
+    private final CurrencyPrecision precision;
+    private final long cash;
+    private final PersistentHashMap<String, FixedPosition> positions;
+    // Último snapshot montado (deste livro ou de um anterior; null = montar do zero) e os símbolos alterados desde ele.
+    private final Portfolio base;
+    private final PersistentHashMap<String, Boolean> changedSinceBase;
+    // Snapshot BigDecimal, montado na primeira leitura (corrida benigna: o resultado é sempre o mesmo).
+    private volatile Portfolio portfolio;
+
+    private FixedPointLedger(String name, CurrencyPrecision precision, long cash, PersistentHashMap<String, FixedPosition> positions,
+                             Portfolio base, PersistentHashMap<String, Boolean> changedSinceBase) {
+        this.name = name;
+        this.precision = precision;
+        this.cash = cash;
+        this.positions = positions;
+        this.base = base;
+        this.changedSinceBase = changedSinceBase;
+    }
+
+    public static FixedPointLedger open(String name, CurrencyPrecision precision, BigDecimal cash) {
+        return new FixedPointLedger(name, precision, FixedPoint.toScaled(cash, precision.cashScale()), PersistentHashMap.empty(),
+                null, PersistentHashMap.empty());
+    }
+
+    public FixedPointLedger withCash(BigDecimal newCash) {
+        return derive(FixedPoint.toScaled(newCash, precision.cashScale()), positions, null);
+    }
+
+    /**
+     * Substitui todas as posições (sincronização com o reqPositions).
+     */
+    public FixedPointLedger withPositions(Collection<Position> newPositions) {
+        PersistentHashMap<String, FixedPosition> converted = PersistentHashMap.empty();
+        for (Position position : newPositions) {
+            converted = converted.plus(position.getSymbol(), FixedPosition.fromPosition(position, precision));
+        }
+        return new FixedPointLedger(name, precision, cash, converted, null, PersistentHashMap.empty());
+    }
+
+    /**
+     * Compra: debita quantidade × preço e aumenta (preço médio ponderado) ou abre a posição.
+     */
+    public FixedPointLedger buy(String symbol, long quantity, long price) {
+        int cashScale = precision.cashScale();
+        long cost = FixedPoint.multiply(quantity, precision.quantityScale(), price, precision.priceScale(), cashScale);
+        long newCash = Math.subtractExact(cash, cost);
+
+        FixedPosition existing = positions.get(symbol);
+        FixedPosition updated;
+        if (existing != null) {
+            long totalQuantity = Math.addExact(existing.quantity(), quantity);
+            long totalCost = Math.addExact(FixedPoint.multiply(existing.averagePrice(), precision.averagePriceScale(),
+                    existing.quantity(), precision.quantityScale(), cashScale), cost);
+            // totalCost (escala do caixa) / totalQuantity (escala de quantidade) -> escala do preço médio, um só arredondamento.
+            long divisor = Math.multiplyExact(totalQuantity,
+                    FixedPoint.pow10(cashScale - precision.quantityScale() - precision.averagePriceScale()));
+            long averagePrice = FixedPoint.divideHalfUp(totalCost, divisor);
+            updated = new FixedPosition(symbol, totalQuantity, averagePrice, LocalDateTime.now(), existing.direction(), "Aumento de Posição");
+        } else {
+            long averagePrice = FixedPoint.rescale(price, precision.priceScale(), precision.averagePriceScale());
+            updated = new FixedPosition(symbol, quantity, averagePrice, LocalDateTime.now(), PositionDirection.LONG, "Nova Posição");
+        }
+        return derive(newCash, positions.plus(symbol, updated), symbol);
+    }
+
+    /**
+     * Venda: credita quantidade × preço e reduz ou fecha a posição (o preço médio não muda).
+     *
+     * @throws IllegalStateException se não houver posição no símbolo.
+     */
+    public FixedPointLedger sell(String symbol, long quantity, long price) {
+        FixedPosition existing = positions.get(symbol);
+        if (existing == null) {
+            throw new IllegalStateException("Posição " + symbol + " não encontrada.");
+        }
+        long revenue = FixedPoint.multiply(quantity, precision.quantityScale(), price, precision.priceScale(), precision.cashScale());
+        long newCash = Math.addExact(cash, revenue);
+        if (quantity >= existing.quantity()) {
+            return derive(newCash, positions.minus(symbol), symbol);
+        }
+        FixedPosition updated = new FixedPosition(symbol, existing.quantity() - quantity, existing.averagePrice(),
+                existing.entryTime(), existing.direction(), "Venda Parcial");
+        return derive(newCash, positions.plus(symbol, updated), symbol);
+    }
+
+    private FixedPointLedger derive(long newCash, PersistentHashMap<String, FixedPosition> newPositions, String changedSymbol) {
+        Portfolio materialized = portfolio;
+        Portfolio newBase = materialized != null ? materialized : base;
+        PersistentHashMap<String, Boolean> changed = materialized != null ? PersistentHashMap.empty() : changedSinceBase;
+        if (changedSymbol != null) {
+            changed = changed.plus(changedSymbol, Boolean.TRUE);
+        }
+        return new FixedPointLedger(name, precision, newCash, newPositions, newBase, changed);
+    }
+
+    public FixedPosition position(String symbol) {
+        return positions.get(symbol);
+    }
+
+    public int positionCount() {
+        return positions.size();
+    }
+
+    public CurrencyPrecision precision() {
+        return precision;
+    }
+
+    /**
+     * Caixa sem escala, em {@link CurrencyPrecision#cashScale()}.
+     */
+    public long cash() {
+        return cash;
+    }
+
+    public BigDecimal cashAmount() {
+        return FixedPoint.toBigDecimal(cash, precision.cashScale());
+    }
+
+    /**
+     * Snapshot BigDecimal para a fronteira (REST/webhook), montado uma vez por livro.
+     */
+    public Portfolio toPortfolio() {
+        Portfolio snapshot = portfolio;
+        if (snapshot == null) {
+            PersistentHashMap<String, Position> converted;
+            if (base == null || changedSinceBase.size() > positions.size() / 2) {
+                converted = PersistentHashMap.empty();
+                for (FixedPosition position : positions.values()) {
+                    converted = converted.plus(position.symbol(), position.toPosition(precision));
+                }
+            } else {
+                converted = PersistentHashMap.copyOf(base.openPositions());
+                for (String symbol : changedSinceBase.keySet()) {
+                    FixedPosition position = positions.get(symbol);
+                    converted = position == null ? converted.minus(symbol) : converted.plus(symbol, position.toPosition(precision));
+                }
+            }
+            snapshot = new Portfolio(name, cashAmount(), converted, List.of());
+            portfolio = snapshot;
+        }
+        return snapshot;
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.homegaibkrponte.accounting;
+
+import com.example.homegaibkrponte.model.Position;
+import com.example.homegaibkrponte.model.PositionDirection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Posição do livro de ponto fixo: quantidade na escala de quantidade e preço médio na escala de
+ * preço médio da moeda do livro.
+ */
+public record FixedPosition(
+        String symbol,
+        long quantity,
+        long averagePrice,
+        LocalDateTime entryTime,
+        PositionDirection direction,
+        String rationale
+) {
+
+    static FixedPosition fromPosition(Position position, CurrencyPrecision precision) {
+        return new FixedPosition(position.getSymbol(),
+                FixedPoint.toScaled(position.getQuantity(), precision.quantityScale()),
+                FixedPoint.toScaled(position.getAverageEntryPrice(), precision.averagePriceScale()),
+                position.getEntryTime(), position.getDirection(), position.getRationale());
+    }
+
+    Position toPosition(CurrencyPrecision precision) {
+        return new Position(symbol,
+                FixedPoint.toBigDecimal(quantity, precision.quantityScale()),
+                FixedPoint.toBigDecimal(averagePrice, precision.averagePriceScale()),
+                entryTime, direction, null, null, rationale);
+    }
+}
@@ -1,30 +1,56 @@
 package com.example.homegaibkrponte.connector;
 
 
+import com.example.homegaibkrponte.connector.dispatch.CallbackDispatcher;
 import com.example.homegaibkrponte.connector.dto.AccountSummaryDTO;
 import com.example.homegaibkrponte.data.MarketDataProvider;
-import com.example.homegaibkrponte.dto.ExecutionReportDTO;
+import com.example.homegaibkrponte.data.account.AccountValueStore;
+import com.example.homegaibkrponte.data.bars.BarAggregator;
+import com.example.homegaibkrponte.data.contract.ContractCache;
+import com.example.homegaibkrponte.data.contract.ContractKey;
+import com.example.homegaibkrponte.data.depth.OrderBookStore;
+import com.example.homegaibkrponte.data.executions.ExecutionJournal;
+import com.example.homegaibkrponte.data.history.CandleStore;
+import com.example.homegaibkrponte.data.history.HistoricalBarSize;
+import com.example.homegaibkrponte.data.history.HistoricalBarTime;
+import com.example.homegaibkrponte.data.history.HistoricalDataEngine;
+import com.example.homegaibkrponte.data.history.HistoricalPacingException;
+import com.example.homegaibkrponte.data.history.HistoricalPriority;
+import com.example.homegaibkrponte.data.history.HistoricalRequestKey;
+import com.example.homegaibkrponte.data.history.HistoricalRequestScheduler;
+import com.example.homegaibkrponte.data.pnl.PnlEngine;
+import com.example.homegaibkrponte.data.quote.QuoteStore;
+import com.example.homegaibkrponte.data.ticks.TickCaptureType;
+import com.example.homegaibkrponte.data.ticks.TickJournal;
+import com.example.homegaibkrponte.dto.HistoricalTickDTO;
 import com.example.homegaibkrponte.model.Candle;
 import com.example.homegaibkrponte.model.PositionDTO;
-import com.example.homegaibkrponte.model.TradeExecutedEvent;
 import com.example.homegaibkrponte.monitoring.LivePortfolioService;
 import com.example.homegaibkrponte.properties.IBKRProperties;
 import com.example.homegaibkrponte.service.OrderIdManager;
-import com.example.homegaibkrponte.service.WebhookNotifierService;
+import com.example.homegaibkrponte.util.IntIntMap;
+import com.example.homegaibkrponte.util.RequestIds;
 import com.ib.client.*;
 import com.ib.client.protobuf.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -37,11 +63,10 @@ import java.util.concurrent.atomic.AtomicReference;
 public class IBKRConnector implements MarketDataProvider, EWrapper { // <<< IMPLEMENTAÇÃO DIRETA
 
     private final IBKRProperties ibkrProps;
-    private final WebhookNotifierService webhookNotifier; // Você declarou como final (ótimo!)
     private final AtomicReference<BigDecimal> buyingPowerCache = new AtomicReference<>(BigDecimal.ZERO); // Cache de Saldo
     private final List<PositionDTO> tempPositions = new ArrayList<>();
     private final LivePortfolioService portfolioService; // <-- Adicionado
-    private final ApplicationEventPublisher eventPublisher; // <-- Adicionado
+    private final CallbackDispatcher callbackDispatcher; // Ring buffer entre o leitor e os consumidores
     @Autowired
     private OrderIdManager orderIdManager;
 
@@ -49,31 +74,118 @@ public class IBKRConnector implements MarketDataProvider, EWrapper { // <<< IMPL
 
     private EClientSocket client;
     private EReaderSignal readerSignal;
-    private final AtomicInteger nextValidId = new AtomicInteger(1);
+    private final RequestIds requestIds = new RequestIds();
     private final ConcurrentHashMap<Integer, CompletableFuture<List<Candle>>> pendingHistoricalData = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, HistoricalBarBuffer> historicalBuffers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, HistoricalTickBuffer> historicalTickBuffers = new ConcurrentHashMap<>();
+    private final HistoricalRequestScheduler historicalScheduler;
+    private final HistoricalDataEngine historicalDataEngine;
+    private final int historicalUseRth;
+    private final QuoteStore quoteStore;
+    private final int marketDataType;
+    private final PnlEngine pnlEngine;
+    private final BarAggregator barAggregator;
+    private final boolean realtimeBarsUseRth;
+    private final OrderBookStore orderBookStore;
+    private final boolean smartDepth;
+    private final TickJournal tickJournal;
+    private final ExecutionJournal executionJournal;
+    private final ContractCache contractCache;
+    private final List<String> contractPreload;
+    private final long contractResolveTimeoutMillis;
+    private final AccountValueStore accountValueStore;
+    private final String accountSummaryTags;
+    private final ConcurrentHashMap<ContractKey, CompletableFuture<Contract>> pendingContractLookups = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, ContractDetailsBuffer> contractDetailsBuffers = new ConcurrentHashMap<>();
     private final CountDownLatch connectionLatch = new CountDownLatch(1);
+    private final AtomicBoolean subscriptionsRestored = new AtomicBoolean(true);
+    private final long catchUpOverlapSeconds;
+    // Fuso em que o TWS conta o dia das execuções; o ExecutionFilter e a checagem de cobertura usam o mesmo.
+    private final ZoneId twsZone;
+    private final DateTimeFormatter executionFilterTime;
+    private final AtomicBoolean positionsReconciled = new AtomicBoolean(false);
+    // Primeira conta do managedAccounts (chega antes do nextValidId); usada nos pedidos de P&L.
+    private volatile String managedAccount;
+    // Catch-up de execuções (reqExecutions); só a thread do leitor TWS altera.
+    private volatile int catchUpReqId = -1;
+    private int catchUpNew;
+    private int catchUpDuplicates;
+    private boolean catchUpCoversGap;
+
+    // Todas as tags do reqAccountSummary, mais o ledger por moeda ($LEDGER:ALL).
+    public static final String DEFAULT_SUMMARY_TAGS = "AccountType,NetLiquidation,TotalCashValue,SettledCash,AccruedCash,"
+            + "BuyingPower,EquityWithLoanValue,PreviousEquityWithLoanValue,GrossPositionValue,RegTEquity,RegTMargin,SMA,"
+            + "InitMarginReq,MaintMarginReq,AvailableFunds,ExcessLiquidity,Cushion,FullInitMarginReq,FullMaintMarginReq,"
+            + "FullAvailableFunds,FullExcessLiquidity,LookAheadNextChange,LookAheadInitMarginReq,LookAheadMaintMarginReq,"
+            + "LookAheadAvailableFunds,LookAheadExcessLiquidity,HighestSeverity,DayTradesRemaining,Leverage,$LEDGER:ALL";
+
 
 
     @Autowired
     public IBKRConnector(IBKRProperties props,
-                         WebhookNotifierService notifier,
                          LivePortfolioService portfolioService,
-                         ApplicationEventPublisher eventPublisher,
-                         OrderIdManager orderIdManager) { // <-- Adicionado aqui
+                         CallbackDispatcher callbackDispatcher,
+                         OrderIdManager orderIdManager, // <-- Adicionado aqui
+                         CandleStore candleStore,
+                         @Value("${ibkr.history.max-in-flight:50}") int historicalMaxInFlight,
+                         @Value("${ibkr.history.request-timeout-seconds:120}") long historicalTimeoutSeconds,
+                         @Value("${ibkr.history.use-rth:true}") boolean historicalUseRth,
+                         @Value("${ibkr.history.pacing.max-requests:60}") int pacingMaxRequests,
+                         @Value("${ibkr.history.pacing.window-seconds:600}") long pacingWindowSeconds,
+                         @Value("${ibkr.history.pacing.interactive-reserve:5}") int pacingInteractiveReserve,
+                         @Value("${ibkr.history.pacing.backoff-seconds:15}") long pacingBackoffSeconds,
+                         QuoteStore quoteStore,
+                         @Value("${ibkr.quotes.market-data-type:1}") int marketDataType,
+                         PnlEngine pnlEngine,
+                         BarAggregator barAggregator,
+                         @Value("${ibkr.bars.use-rth:false}") boolean realtimeBarsUseRth,
+                         OrderBookStore orderBookStore,
+                         @Value("${ibkr.depth.smart:true}") boolean smartDepth,
+                         TickJournal tickJournal,
+                         ExecutionJournal executionJournal,
+                         @Value("${ibkr.executions.catch-up-overlap-seconds:60}") long catchUpOverlapSeconds,
+                         @Value("${ibkr.executions.tws-time-zone:America/New_York}") String twsTimeZone,
+                         ContractCache contractCache,
+                         @Value("${ibkr.contracts.preload:}") List<String> contractPreload,
+                         @Value("${ibkr.contracts.resolve-timeout-millis:5000}") long contractResolveTimeoutMillis,
+                         AccountValueStore accountValueStore,
+                         @Value("${ibkr.account.summary-tags:" + DEFAULT_SUMMARY_TAGS + "}") String accountSummaryTags) {
         this.ibkrProps = props;
-        this.webhookNotifier = notifier;
         this.portfolioService = portfolioService;
-        this.eventPublisher = eventPublisher;
+        this.callbackDispatcher = callbackDispatcher;
         this.orderIdManager = orderIdManager; // <-- Adicionado aqui
 
         this.readerSignal = new EJavaSignal();
         this.client = new EClientSocket(this, readerSignal);
+        this.historicalUseRth = historicalUseRth ? 1 : 0;
+        this.historicalScheduler = new HistoricalRequestScheduler(historicalMaxInFlight, Duration.ofSeconds(historicalTimeoutSeconds),
+                pacingMaxRequests, Duration.ofSeconds(pacingWindowSeconds), pacingInteractiveReserve, Duration.ofSeconds(pacingBackoffSeconds));
+        this.historicalDataEngine = new HistoricalDataEngine(this::requestHistoricalChunk, candleStore);
+        this.quoteStore = quoteStore;
+        this.marketDataType = marketDataType;
+        this.pnlEngine = pnlEngine;
+        this.barAggregator = barAggregator;
+        this.realtimeBarsUseRth = realtimeBarsUseRth;
+        this.orderBookStore = orderBookStore;
+        this.smartDepth = smartDepth;
+        this.tickJournal = tickJournal;
+        this.executionJournal = executionJournal;
+        this.catchUpOverlapSeconds = catchUpOverlapSeconds;
+        this.twsZone = ZoneId.of(twsTimeZone);
+        this.executionFilterTime = DateTimeFormatter.ofPattern("yyyyMMdd HH:mm:ss VV").withZone(twsZone);
+        this.contractCache = contractCache;
+        this.contractPreload = contractPreload;
+        this.contractResolveTimeoutMillis = contractResolveTimeoutMillis;
+        this.accountValueStore = accountValueStore;
+        this.accountSummaryTags = accountSummaryTags;
     }
 
     // --- MÉTODOS AUXILIARES PÚBLICOS (Para o Controller REST) ---
-    public int getNextReqId() { return nextValidId.getAndIncrement(); }
+    public int getNextReqId() { return requestIds.next(); } // Faixa de dados, disjunta dos IDs de ordem
     public EClientSocket getClient() { return client; }
     public BigDecimal getBuyingPowerCache() { return buyingPowerCache.get(); }
+    public HistoricalDataEngine getHistoricalDataEngine() { return historicalDataEngine; }
+    public HistoricalRequestScheduler getHistoricalScheduler() { return historicalScheduler; }
 
     public String getAccountId() {
         // ⚠️ PONTO CRÍTICO: Idealmente, o ID da conta deve vir do seu arquivo de propriedades (ibkrProps).
@@ -92,7 +204,100 @@ public class IBKRConnector implements MarketDataProvider, EWrapper { // <<< IMPL
     }
 
     // --- MÉTODOS MarketDataProvider (Lógica) ---
-    @Override public List<Candle> getHistoricalData(String symbol, int years) { return List.of(); }
+    @Override
+    public List<Candle> getHistoricalData(String symbol, int years) {
+        LocalDateTime end = HistoricalBarTime.nowUtc();
+        return getHistoricalData(symbol, HistoricalBarSize.ONE_DAY, end.minusYears(years), end);
+    }
+
+    @Override
+    public List<Candle> getHistoricalData(String symbol, HistoricalBarSize barSize, LocalDateTime start, LocalDateTime end) {
+        try {
+            return historicalDataEngine.fetch(symbol, barSize, start, end).join();
+        } catch (CompletionException e) {
+            log.error("❌ Falha ao obter histórico de {} ({}): {}", symbol, barSize, e.getCause().getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Enfileira UM pedaço de histórico no escalonador de pacing; pedaços idênticos já na fila ou em voo
+     * compartilham a mesma requisição.
+     */
+    public CompletableFuture<List<Candle>> requestHistoricalChunk(String symbol, HistoricalBarSize barSize, LocalDateTime chunkEndUtc,
+                                                                  HistoricalPriority priority) {
+        String endDateTime = HistoricalBarTime.formatEndDateTime(chunkEndUtc);
+        return historicalScheduler.submit(HistoricalRequestKey.bars(symbol, barSize, endDateTime, "TRADES", historicalUseRth), priority,
+                () -> sendHistoricalChunk(symbol, barSize, chunkEndUtc));
+    }
+
+    /**
+     * Envia UM pedaço de histórico. O futuro é registrado em pendingHistoricalData e completado
+     * em historicalDataEnd (ou falha em error()). Só o HistoricalRequestScheduler deve chamar.
+     */
+    private CompletableFuture<List<Candle>> sendHistoricalChunk(String symbol, HistoricalBarSize barSize, LocalDateTime chunkEndUtc) {
+        if (!isConnected()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Não é possível pedir histórico: Desconectado do TWS/Gateway."));
+        }
+        int reqId = getNextReqId();
+        CompletableFuture<List<Candle>> future = new CompletableFuture<>();
+        historicalBuffers.put(reqId, new HistoricalBarBuffer(symbol, new ArrayList<>()));
+        pendingHistoricalData.put(reqId, future);
+        future.whenComplete((candles, error) -> {
+            pendingHistoricalData.remove(reqId);
+            historicalBuffers.remove(reqId);
+            // Timeout do escalonador (orTimeout neste mesmo futuro): sem o cancel, a IBKR mantém o pedido
+            // aberto e ele continua contando no pacing.
+            if (error instanceof TimeoutException && isConnected()) {
+                log.warn("⏱️ [TWS-OUT] cancelHistoricalData {}: {} {} até {} sem resposta.", reqId, symbol,
+                        barSize.getIbBarSize(), chunkEndUtc);
+                client.cancelHistoricalData(reqId);
+            }
+        });
+
+        log.debug("➡️  [TWS-OUT] reqHistoricalData {}: {} {} até {} ({})", reqId, symbol, barSize.getIbBarSize(),
+                chunkEndUtc, barSize.getIbChunkDuration());
+        client.reqHistoricalData(reqId, marketDataContract(symbol), HistoricalBarTime.formatEndDateTime(chunkEndUtc),
+                barSize.getIbChunkDuration(), barSize.getIbBarSize(), "TRADES", historicalUseRth, 2, false, null);
+        return future;
+    }
+
+    /**
+     * Ticks históricos (até 1000 por pedido) a partir de {@code startUtc} ou até {@code endUtc} (informe só um).
+     * whatToShow: TRADES, BID_ASK ou MIDPOINT. Passa pelo mesmo escalonador de pacing do histórico de barras.
+     */
+    public List<HistoricalTickDTO> getHistoricalTicks(String symbol, LocalDateTime startUtc, LocalDateTime endUtc,
+                                                      String whatToShow, int numberOfTicks) {
+        try {
+            return requestHistoricalTicks(symbol, startUtc, endUtc, whatToShow, numberOfTicks, HistoricalPriority.INTERACTIVE).join();
+        } catch (CompletionException e) {
+            log.error("❌ Falha ao obter ticks históricos de {} ({}): {}", symbol, whatToShow, e.getCause().getMessage());
+            return List.of();
+        }
+    }
+
+    public CompletableFuture<List<HistoricalTickDTO>> requestHistoricalTicks(String symbol, LocalDateTime startUtc, LocalDateTime endUtc,
+                                                                             String whatToShow, int numberOfTicks, HistoricalPriority priority) {
+        String start = startUtc != null ? HistoricalBarTime.formatEndDateTime(startUtc) : "";
+        String end = endUtc != null ? HistoricalBarTime.formatEndDateTime(endUtc) : "";
+        int count = Math.min(Math.max(numberOfTicks, 1), 1000);
+        return historicalScheduler.submit(HistoricalRequestKey.ticks(symbol, start, end, count, whatToShow, historicalUseRth), priority,
+                () -> sendHistoricalTicks(symbol, start, end, whatToShow, count));
+    }
+
+    private CompletableFuture<List<HistoricalTickDTO>> sendHistoricalTicks(String symbol, String start, String end, String whatToShow, int count) {
+        if (!isConnected()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Não é possível pedir ticks históricos: Desconectado do TWS/Gateway."));
+        }
+        int reqId = getNextReqId();
+        HistoricalTickBuffer buffer = new HistoricalTickBuffer(new ArrayList<>(), new CompletableFuture<>());
+        historicalTickBuffers.put(reqId, buffer);
+        buffer.future().whenComplete((ticks, error) -> historicalTickBuffers.remove(reqId));
+
+        log.debug("➡️  [TWS-OUT] reqHistoricalTicks {}: {} {} de '{}' até '{}' ({} ticks)", reqId, symbol, whatToShow, start, end, count);
+        client.reqHistoricalTicks(reqId, marketDataContract(symbol), start, end, count, whatToShow, historicalUseRth, true, null);
+        return buffer.future();
+    }
 
     @Override
     public void connect() {
@@ -105,6 +310,8 @@ public class IBKRConnector implements MarketDataProvider, EWrapper { // <<< IMPL
                     ibkrProps.host(), ibkrProps.port(), ibkrProps.clientId());
 
             client.eConnect(ibkrProps.host(), ibkrProps.port(), ibkrProps.clientId());
+            // Uma reconexão começa sem nenhuma assinatura do lado da IBKR.
+            subscriptionsRestored.set(false);
 
             final EReader reader = new EReader(client, readerSignal);
             reader.start();
@@ -140,47 +347,101 @@ public class IBKRConnector implements MarketDataProvider, EWrapper { // <<< IMPL
 
     @Override
     public void orderStatus(int orderId, String status, Decimal filled, Decimal remaining, double avgFillPrice, long permId, int parentId, double lastFillPrice, int clientId, String whyHeld, double mktCapPrice) {
-        // CORREÇÃO: Removida a chamada redundante ao webhookNotifier.
-        // Este método agora serve apenas para logar o status da ordem.
-        // A fonte de verdade para execuções é o callback execDetails.
-        log.warn("⬅️  [TWS-IN] STATUS Ordem {}: {} | Preenchido: {}/{} | Preço Médio: {}",
-                orderId, status.toUpperCase(), filled, filled.add(remaining), avgFillPrice);
+        // A fonte de verdade para execuções é o callback execDetails; aqui apenas encaminhamos o status.
+        callbackDispatcher.publishOrderStatus(orderId, status, filled, remaining, avgFillPrice, permId, parentId, lastFillPrice);
     }
 
     @Override public void openOrder(int orderId, Contract contract, Order order, OrderState orderState) {
-        // CORREÇÃO: Usando os parâmetros corretos: orderId, order, contract, orderState
-        log.info("ℹ️  [TWS-IN] OPEN Ordem {}: {} {} @ {} | Status: {}",
-                orderId, order.action(), order.totalQuantity(), contract.symbol(), orderState.status());
+        callbackDispatcher.publishOpenOrder(orderId, contract, order, orderState);
     }
 
     @Override
     public void execDetails(int reqId, Contract contract, Execution execution) {
-        log.info("💸 [TWS-IN] EXECUÇÃO Ordem {}: {} {} {} @ {} | Exec ID: {}",
-                execution.orderId(), execution.side(), execution.shares(), contract.symbol(), execution.price(), execution.execId());
-
-        // 1. Publica um evento de domínio para o sistema interno (LivePortfolioService)
-        TradeExecutedEvent event = new TradeExecutedEvent(
-                contract.symbol(),
-                execution.side(),
-                execution.shares().value(),
-                BigDecimal.valueOf(execution.price()),
-                LocalDateTime.now(),
-                "LIVE",
-                String.valueOf(execution.orderId())
-        );
-        eventPublisher.publishEvent(event);
-        log.debug("📢 Evento 'TradeExecutedEvent' publicado para a ordem {}.", execution.orderId());
-
-        // 2. Envia o relatório via webhook para o sistema H.O.M.E.
-        ExecutionReportDTO report = new ExecutionReportDTO(
-                execution.orderId(),
-                contract.symbol(),
-                execution.side(),
-                execution.shares().value(),
-                execution.price(),
-                "EXEC"
-        );
-        webhookNotifier.sendExecutionReport(report);
+        // Primeiro o journal (write-ahead): nenhum consumidor vê uma execução que não esteja gravada,
+        // e uma já gravada (reenviada pelo catch-up) não é contada de novo.
+        boolean catchUp = reqId == catchUpReqId;
+        if (!executionJournal.append(contract, execution)) {
+            if (catchUp) {
+                catchUpDuplicates++;
+            }
+            log.debug("🔁 [TWS-IN] Execução {} já processada; descartada.", execution.execId());
+            return;
+        }
+        if (catchUp) {
+            catchUpNew++;
+        }
+        // O leitor apenas copia os campos para o ring buffer; portfólio, webhook e logging
+        // consomem em suas próprias threads (ver CallbackDispatcher).
+        callbackDispatcher.publishExecution(contract, execution);
+    }
+
+    @Override
+    public void execDetailsEnd(int reqId) {
+        if (reqId != catchUpReqId) {
+            return;
+        }
+        catchUpReqId = -1;
+        log.info("✅ [TWS-IN] Catch-up de execuções concluído: {} nova(s), {} repetida(s) descartada(s).",
+                catchUpNew, catchUpDuplicates);
+        if (!catchUpCoversGap) {
+            log.warn("⚠️ [TWS-IN] O catch-up não alcança a última execução gravada (o TWS só devolve as do dia); reconciliando pelo reqPositions.");
+        }
+        reconcilePositions(!catchUpCoversGap);
+    }
+
+    /**
+     * O TWS recusou o reqExecutions do catch-up: o que foi executado durante a desconexão é desconhecido,
+     * então as posições vêm do reqPositions.
+     */
+    private void failExecutionCatchUp(int reqId, int errorCode, String errorMsg) {
+        catchUpReqId = -1;
+        log.warn("⚠️ [TWS-IN] Catch-up de execuções ({}) falhou: Código {}, Mensagem: '{}'. Reconciliando pelo reqPositions.",
+                reqId, errorCode, errorMsg);
+        reconcilePositions(true);
+    }
+
+    /**
+     * Pede ao TWS as execuções desde a última gravada no journal (menos uma margem para diferenças de
+     * relógio), para que uma reconexão processe só o que foi perdido. Termina em execDetailsEnd.
+     * Com o journal vazio não há de onde retomar, e a conexão segue direto para a reconciliação.
+     * O reqExecutions só devolve as execuções do dia corrente, contado no fuso do TWS: se a última gravada
+     * é de antes, o catch-up não cobre o buraco e o reqPositions roda de novo ao fim dele.
+     */
+    private void startExecutionCatchUp() {
+        Instant last = executionJournal.getLastExecutionTime();
+        if (last == null) {
+            reconcilePositions(false);
+            return;
+        }
+        Instant from = last.minusSeconds(catchUpOverlapSeconds);
+        ExecutionFilter filter = new ExecutionFilter();
+        filter.time(executionFilterTime.format(from));
+        int reqId = getNextReqId();
+        catchUpNew = 0;
+        catchUpDuplicates = 0;
+        catchUpCoversGap = coversExecutionGap(from, Instant.now(), twsZone);
+        catchUpReqId = reqId;
+        log.info("➡️  [TWS-OUT] reqExecutions {}: catch-up desde {}.", reqId, filter.time());
+        client.reqExecutions(reqId, filter);
+    }
+
+    /**
+     * @return true se {@code from} cai no dia corrente do TWS (em {@code twsZone}, não no fuso da JVM),
+     *         ou seja, se o reqExecutions ainda devolve tudo desde {@code from}.
+     */
+    static boolean coversExecutionGap(Instant from, Instant now, ZoneId twsZone) {
+        return !from.isBefore(now.atZone(twsZone).toLocalDate().atStartOfDay(twsZone).toInstant());
+    }
+
+    /**
+     * Reconcilia o portfólio com as posições reais (positionEnd). Sempre na primeira conexão (o portfólio veio
+     * do journal); nas seguintes, só com {@code always}, quando o catch-up de execuções não cobre o que mudou.
+     */
+    private void reconcilePositions(boolean always) {
+        if (positionsReconciled.compareAndSet(false, true) || always) {
+            log.info("➡️  [TWS-OUT] reqPositions: reconciliando o portfólio com o TWS.");
+            client.reqPositions();
+        }
     }
 
 
@@ -249,27 +510,173 @@ public class IBKRConnector implements MarketDataProvider, EWrapper { // <<< IMPL
 
     @Override
     public void updateAccountValue(String key, String value, String currency, String accountName) {
-        try {
-            // Logamos para observabilidade, mas só agimos em chaves específicas.
-            log.trace("[TWS-IN] AccountValue: key={}, value={}, currency={}", key, value, currency);
+        // Só chega com reqAccountUpdates, que a ponte não pede mais: o poder de compra vem apenas do
+        // reqAccountSummary (accountSummary), para não haver duas fontes escrevendo o mesmo saldo.
+        log.trace("[TWS-IN] AccountValue ignorado: key={}, value={}, currency={}", key, value, currency);
+    }
 
-            // Filtramos para agir APENAS na chave que representa o Poder de Compra.
-            if ("BuyingPower".equalsIgnoreCase(key)) {
-                BigDecimal buyingPower = new BigDecimal(value);
+    @Override public void disconnect() { if (client.isConnected()) { client.eDisconnect(); log.warn("🔌 Desconectado do TWS/IB Gateway."); } }
+    /**
+     * Assina o topo do livro (reqMktData) do símbolo. Os ticks vão direto para o QuoteStore.
+     * Idempotente: uma segunda chamada para o mesmo símbolo não abre outra linha.
+     */
+    @Override
+    public void subscribe(String symbol) {
+        if (!isConnected()) {
+            throw new IllegalStateException("Não é possível assinar " + symbol + ": Desconectado do TWS/Gateway.");
+        }
+        int slot = quoteStore.register(symbol);
+        int reqId = getNextReqId();
+        if (!quoteStore.bind(slot, reqId)) {
+            return;
+        }
+        log.info("➡️  [TWS-OUT] reqMktData {}: {}", reqId, quoteStore.symbolOf(slot));
+        client.reqMktData(reqId, marketDataContract(quoteStore.symbolOf(slot)), "", false, false, null);
+    }
+
+    @Override
+    public void unsubscribe(String symbol) {
+        int slot = quoteStore.slotOf(symbol);
+        if (slot < 0) {
+            return;
+        }
+        int reqId = quoteStore.unbind(slot);
+        if (reqId != IntIntMap.MISSING && isConnected()) {
+            log.info("➡️  [TWS-OUT] cancelMktData {}: {}", reqId, quoteStore.symbolOf(slot));
+            client.cancelMktData(reqId);
+        }
+    }
 
-                // ✅ PONTO DE SINERGIA: Chama o método granular no LivePortfolioService.
-                // Esta é a única linha que importa para a sincronização de saldo.
-                portfolioService.updateAccountValue(key, buyingPower);
+    /**
+     * Assina as barras de 5s (reqRealTimeBars) do símbolo; o BarAggregator as consolida
+     * em 1m/5m/15m/1h e publica um BarCompletedEvent a cada fechamento.
+     */
+    public void subscribeBars(String symbol) {
+        if (!isConnected()) {
+            throw new IllegalStateException("Não é possível assinar barras de " + symbol + ": Desconectado do TWS/Gateway.");
+        }
+        int reqId = getNextReqId();
+        if (!barAggregator.bind(symbol, reqId)) {
+            return;
+        }
+        log.info("➡️  [TWS-OUT] reqRealTimeBars {}: {}", reqId, symbol);
+        client.reqRealTimeBars(reqId, marketDataContract(barAggregator.symbolOfRequest(reqId)),
+                BarAggregator.REALTIME_BAR_SECONDS, "TRADES", realtimeBarsUseRth, null);
+    }
+
+    public void unsubscribeBars(String symbol) {
+        int reqId = barAggregator.unbind(symbol);
+        if (reqId != -1 && isConnected()) {
+            log.info("➡️  [TWS-OUT] cancelRealTimeBars {}: {}", reqId, symbol);
+            client.cancelRealTimeBars(reqId);
+        }
+    }
+
+    /**
+     * Assina o livro L2 (reqMktDepth) do símbolo; as atualizações são aplicadas no OrderBookStore.
+     * Com smart depth, a IBKR agrega as bolsas e o market maker de cada nível é a bolsa.
+     */
+    public void subscribeDepth(String symbol) {
+        if (!isConnected()) {
+            throw new IllegalStateException("Não é possível assinar o livro de " + symbol + ": Desconectado do TWS/Gateway.");
+        }
+        int slot = orderBookStore.register(symbol);
+        int reqId = getNextReqId();
+        if (!orderBookStore.bind(slot, reqId)) {
+            return;
+        }
+        String normalized = orderBookStore.book(slot).getSymbol();
+        log.info("➡️  [TWS-OUT] reqMktDepth {}: {} ({} níveis)", reqId, normalized, orderBookStore.getRows());
+        client.reqMktDepth(reqId, marketDataContract(normalized), orderBookStore.getRows(), smartDepth, null);
+    }
+
+    public void unsubscribeDepth(String symbol) {
+        int slot = orderBookStore.slotOf(symbol);
+        if (slot < 0) {
+            return;
+        }
+        int reqId = orderBookStore.unbind(slot);
+        if (reqId != IntIntMap.MISSING && isConnected()) {
+            log.info("➡️  [TWS-OUT] cancelMktDepth {}: {}", reqId, symbol);
+            client.cancelMktDepth(reqId, smartDepth);
+        }
+    }
+
+    /**
+     * Liga a captura tick-by-tick (reqTickByTickData, um pedido por tipo) do símbolo no TickJournal.
+     */
+    public void captureTicks(String symbol, Set<TickCaptureType> types) {
+        if (!isConnected()) {
+            throw new IllegalStateException("Não é possível capturar ticks de " + symbol + ": Desconectado do TWS/Gateway.");
+        }
+        if (tickJournal.isCapturing(symbol)) {
+            return;
+        }
+        for (TickCaptureType type : types) {
+            int reqId = getNextReqId();
+            tickJournal.bind(reqId, symbol);
+            log.info("➡️  [TWS-OUT] reqTickByTickData {}: {} {}", reqId, symbol, type.getIbTickType());
+            client.reqTickByTickData(reqId, marketDataContract(symbol.trim().toUpperCase()), type.getIbTickType(), 0, false);
+        }
+    }
+
+    public void stopTickCapture(String symbol) {
+        for (int reqId : tickJournal.unbind(symbol)) {
+            if (isConnected()) {
+                log.info("➡️  [TWS-OUT] cancelTickByTickData {}: {}", reqId, symbol);
+                client.cancelTickByTickData(reqId);
             }
-        } catch (NumberFormatException e) {
-            log.debug("Valor não numérico recebido para a tag '{}' no resumo da conta: {}", key, value);
-        } catch (Exception e) {
-            log.error("Erro inesperado ao processar updateAccountValue: key={}, value={}", key, value, e);
         }
     }
 
-    @Override public void disconnect() { if (client.isConnected()) { client.eDisconnect(); log.warn("🔌 Desconectado do TWS/IB Gateway."); } }
-    @Override public void subscribe(String symbol) { /* Vazio */ }
+    /**
+     * Assina o P&L diário/não realizado/realizado da conta (reqPnL). Idempotente; os valores vão para o PnlEngine.
+     * Chamado a cada maintain(): só aloca um reqId quando o pedido vai mesmo sair.
+     */
+    public void subscribeAccountPnl() {
+        if (!isConnected() || pnlEngine.getAccountRequest() != IntIntMap.MISSING) {
+            return;
+        }
+        int reqId = getNextReqId();
+        if (!pnlEngine.bindAccount(reqId)) {
+            return;
+        }
+        log.info("➡️  [TWS-OUT] reqPnL {}: conta {}", reqId, getPnlAccount());
+        client.reqPnL(reqId, getPnlAccount(), "");
+    }
+
+    /**
+     * Assina o P&L de uma posição (reqPnLSingle, pelo conId). Idempotente por símbolo.
+     */
+    public void subscribePositionPnl(String symbol, int conId) {
+        if (!isConnected() || pnlEngine.isPositionBound(symbol)) {
+            return;
+        }
+        int reqId = getNextReqId();
+        if (!pnlEngine.bindPosition(symbol, conId, reqId)) {
+            return;
+        }
+        log.info("➡️  [TWS-OUT] reqPnLSingle {}: {} (conId {})", reqId, symbol, conId);
+        client.reqPnLSingle(reqId, getPnlAccount(), "", conId);
+    }
+
+    public void unsubscribePositionPnl(String symbol) {
+        int reqId = pnlEngine.unbindPosition(symbol);
+        if (reqId != IntIntMap.MISSING && isConnected()) {
+            log.info("➡️  [TWS-OUT] cancelPnLSingle {}: {}", reqId, symbol);
+            client.cancelPnLSingle(reqId);
+        }
+    }
+
+    /**
+     * Conta dos pedidos de P&L (e do poder de compra lido do resumo): a primeira do managedAccounts, ou a
+     * fixa de getAccountId() antes dele.
+     */
+    public String getPnlAccount() {
+        String account = managedAccount;
+        return account != null ? account : getAccountId();
+    }
+
     @Override public boolean isConnected() { return client != null && client.isConnected(); }
 
     // ==========================================================
@@ -280,12 +687,76 @@ public class IBKRConnector implements MarketDataProvider, EWrapper { // <<< IMPL
     public void nextValidId(int orderId) {
         log.info("✅ Conexão estabelecida com sucesso. Próximo ID de Ordem Válido: {}", orderId);
         orderIdManager.initializeOrUpdate(orderId);
+        // 1 = tempo real; 3 = atrasado (contas sem assinatura de dados de mercado).
+        client.reqMarketDataType(marketDataType);
+        if (subscriptionsRestored.compareAndSet(false, true)) {
+            restoreQuoteSubscriptions();
+            restorePnlSubscriptions();
+            subscribeAccountSummary();
+            preloadContracts();
+            startExecutionCatchUp();
+        }
         connectionLatch.countDown(); // Libera a thread de conexão principal
     }
 
-    @Override
-    public void contractDetails(int i, ContractDetails contractDetails) {
+    // --- CONTRATOS (reqContractDetails -> ContractCache) ---
 
+    /**
+     * Contrato totalmente qualificado (conId) para a chave. Vem do ContractCache quando já resolvido;
+     * senão faz UM reqContractDetails, compartilhado por todas as chamadas concorrentes da mesma chave.
+     */
+    public CompletableFuture<Contract> resolveContract(ContractKey key) {
+        Contract cached = contractCache.get(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        if (!isConnected()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Não é possível resolver contrato: Desconectado do TWS/Gateway."));
+        }
+        CompletableFuture<Contract> created = new CompletableFuture<>();
+        CompletableFuture<Contract> existing = pendingContractLookups.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing.copy();
+        }
+        int reqId = getNextReqId();
+        contractDetailsBuffers.put(reqId, new ContractDetailsBuffer(key, new ArrayList<>(), created));
+        created.orTimeout(contractResolveTimeoutMillis, TimeUnit.MILLISECONDS).whenComplete((contract, error) -> {
+            contractDetailsBuffers.remove(reqId);
+            pendingContractLookups.remove(key, created);
+        });
+        log.debug("➡️  [TWS-OUT] reqContractDetails {}: {}", reqId, key);
+        client.reqContractDetails(reqId, key.toQuery());
+        return created.copy();
+    }
+
+    /**
+     * Contrato para pedidos de dados de mercado, montado na thread que chama: o qualificado
+     * se já estiver no cache, senão o parcial da chave (a IBKR resolve do lado dela).
+     */
+    private Contract marketDataContract(String symbol) {
+        ContractKey key = ContractKey.parse(symbol);
+        Contract cached = contractCache.get(key);
+        return cached != null ? cached : key.toQuery();
+    }
+
+    private void preloadContracts() {
+        for (String spec : contractPreload) {
+            if (spec.isBlank() || contractCache.contains(ContractKey.parse(spec))) {
+                continue;
+            }
+            resolveContract(ContractKey.parse(spec)).exceptionally(error -> {
+                log.warn("⚠️ Pré-carga do contrato {} falhou: {}", spec, error.getMessage());
+                return null;
+            });
+        }
+    }
+
+    @Override
+    public void contractDetails(int reqId, ContractDetails contractDetails) {
+        ContractDetailsBuffer buffer = contractDetailsBuffers.get(reqId);
+        if (buffer != null) {
+            buffer.details().add(contractDetails);
+        }
     }
 
     @Override
@@ -293,9 +764,33 @@ public class IBKRConnector implements MarketDataProvider, EWrapper { // <<< IMPL
 
     }
 
+    /**
+     * Fecha a consulta: exatamente um contrato (após filtrar pela bolsa primária, se informada)
+     * vai para o cache; zero ou vários é falha, com os candidatos na mensagem.
+     */
     @Override
-    public void contractDetailsEnd(int i) {
-
+    public void contractDetailsEnd(int reqId) {
+        ContractDetailsBuffer buffer = contractDetailsBuffers.get(reqId);
+        if (buffer == null) {
+            return;
+        }
+        ContractKey key = buffer.key();
+        List<Contract> candidates = buffer.details().stream()
+                .map(ContractDetails::contract)
+                .filter(c -> key.primaryExchange().isEmpty() || key.primaryExchange().equalsIgnoreCase(c.primaryExch()))
+                .toList();
+        if (candidates.size() == 1) {
+            Contract contract = candidates.get(0);
+            contractCache.put(key, contract);
+            log.info("📇 [TWS-IN] Contrato {} resolvido: conId {} ({}).", key, contract.conid(), contract.primaryExch());
+            buffer.future().complete(contract.clone());
+        } else if (candidates.isEmpty()) {
+            buffer.future().completeExceptionally(new IllegalStateException("Contrato não encontrado: " + key));
+        } else {
+            String options = candidates.stream().map(c -> c.conid() + "@" + c.primaryExch()).toList().toString();
+            buffer.future().completeExceptionally(new IllegalStateException(
+                    "Contrato ambíguo: " + key + " -> " + options + ". Informe a bolsa primária (ex: " + key.symbol() + ":STK:SMART/ARCA)."));
+        }
     }
 
 
@@ -303,13 +798,207 @@ public class IBKRConnector implements MarketDataProvider, EWrapper { // <<< IMPL
     // --- MÉTODOS DE ERRO (As três assinaturas mais comuns) ---
     @Override public void error(Exception e) { log.error("Exception IBKR: {}", e.getMessage(), e); }
     @Override public void error(String msg) { log.error("String Error IBKR: {}", msg); }
-    // Assinatura obsoleta (depende da sua versão do JAR)
-    @Override public void error(int var1, long var2, int var4, String var5, String var6) { /* Vazio */ }
+
+    // Assinatura efetivamente chamada pelo TwsApi 10.x
+    @Override
+    public void error(int id, long errorTime, int errorCode, String errorMsg, String advancedOrderRejectJson) {
+        if (RequestIds.isDataRequest(id)) {
+            if (failDataRequest(id, errorCode, errorMsg)) {
+                return;
+            }
+            // reqId de dados sem dono (pedido já encerrado): só o log abaixo, nunca a tabela de ordens.
+        } else if (RequestIds.isOrderId(id)) {
+            // Rejeição, cancelamento ou aviso de ordem: a tabela de ordens ignora ids que não conhece.
+            callbackDispatcher.publishOrderError(id, errorCode, errorMsg);
+        }
+        if (errorCode >= 2100 && errorCode < 2200) {
+            // Códigos 21xx são avisos informativos (ex: 2104 "Market data farm connection is OK").
+            log.info("ℹ️  [TWS-IN] Aviso {}: {}", errorCode, errorMsg);
+            return;
+        }
+        error(id, errorCode, errorMsg, null);
+    }
+
+    /**
+     * Entrega o erro ao dono do reqId de dados (histórico, contrato, cotação, barras, book, catch-up de
+     * execuções, P&L, resumo da conta ou captura de ticks).
+     *
+     * @return false se nenhum pedido ativo usa o reqId.
+     */
+    private boolean failDataRequest(int id, int errorCode, String errorMsg) {
+        if (failPendingHistorical(id, errorCode, errorMsg)
+                || failContractLookup(id, errorCode, errorMsg)
+                || failQuoteSubscription(id, errorCode, errorMsg)
+                || failBarSubscription(id, errorCode, errorMsg)
+                || failDepthSubscription(id, errorCode, errorMsg)) {
+            return true;
+        }
+        if (id == catchUpReqId) {
+            failExecutionCatchUp(id, errorCode, errorMsg);
+            return true;
+        }
+        if (pnlEngine.owns(id)) {
+            // Fica assinado: a reconexão reenvia o pedido, e a manutenção não entra em laço de reassinatura.
+            log.warn("⚠️ [TWS-IN] P&L de {} ({}): Código {}, Mensagem: '{}'", pnlEngine.describeRequest(id), id, errorCode, errorMsg);
+            return true;
+        }
+        if (accountValueStore.owns(id)) {
+            // Fica assinado: a reconexão reenvia o pedido com o mesmo reqId.
+            log.warn("⚠️ [TWS-IN] Resumo da conta ({}): Código {}, Mensagem: '{}'", id, errorCode, errorMsg);
+            return true;
+        }
+        if (tickJournal.owns(id)) {
+            log.warn("⚠️ [TWS-IN] Captura de ticks de {} ({}): Código {}, Mensagem: '{}'",
+                    tickJournal.symbolOfRequest(id), id, errorCode, errorMsg);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Encerra o futuro de histórico (barras ou ticks) associado ao reqId, se houver.
+     * "HMDS query returned no data" não é falha: o pedaço simplesmente não tem barras (ex: feriado).
+     * "pacing violation" vira HistoricalPacingException, que o escalonador reenvia após um backoff.
+     */
+    private boolean failPendingHistorical(int reqId, int errorCode, String errorMsg) {
+        CompletableFuture<List<Candle>> bars = pendingHistoricalData.get(reqId);
+        if (bars != null) {
+            failHistorical(bars, reqId, errorCode, errorMsg);
+            return true;
+        }
+        HistoricalTickBuffer ticks = historicalTickBuffers.get(reqId);
+        if (ticks != null) {
+            failHistorical(ticks.future(), reqId, errorCode, errorMsg);
+            return true;
+        }
+        return false;
+    }
+
+    private static <T> void failHistorical(CompletableFuture<List<T>> future, int reqId, int errorCode, String errorMsg) {
+        if (errorCode == 162 && errorMsg != null && errorMsg.contains("returned no data")) {
+            future.complete(List.of());
+        } else if (errorCode == 162 && errorMsg != null && errorMsg.toLowerCase().contains("pacing violation")) {
+            future.completeExceptionally(new HistoricalPacingException("IBKR erro " + errorCode + ": " + errorMsg));
+        } else {
+            log.warn("⚠️ [TWS-IN] Histórico {} falhou: Código {}, Mensagem: '{}'", reqId, errorCode, errorMsg);
+            future.completeExceptionally(new IllegalStateException("IBKR erro " + errorCode + ": " + errorMsg));
+        }
+    }
+
+    private boolean failContractLookup(int reqId, int errorCode, String errorMsg) {
+        ContractDetailsBuffer buffer = contractDetailsBuffers.get(reqId);
+        if (buffer == null) {
+            return false;
+        }
+        log.warn("⚠️ [TWS-IN] Consulta do contrato {} falhou: Código {}, Mensagem: '{}'", buffer.key(), errorCode, errorMsg);
+        buffer.future().completeExceptionally(new IllegalStateException("IBKR erro " + errorCode + ": " + errorMsg));
+        return true;
+    }
+
+    /**
+     * Após uma reconexão, reabre todas as linhas de cotação que estavam ativas, com os mesmos reqIds.
+     */
+    private void restoreQuoteSubscriptions() {
+        if (quoteStore.getLineCount() == 0) {
+            return;
+        }
+        log.info("🔁 Reabrindo {} assinaturas de cotação após reconexão.", quoteStore.getLineCount());
+        quoteStore.forEachBinding((reqId, slot) ->
+                client.reqMktData(reqId, marketDataContract(quoteStore.symbolOf(slot)), "", false, false, null));
+    }
+
+    /**
+     * Após uma reconexão, reabre os pedidos de P&L (conta e posições) com os mesmos reqIds.
+     */
+    private void restorePnlSubscriptions() {
+        int accountReqId = pnlEngine.getAccountRequest();
+        if (accountReqId != IntIntMap.MISSING) {
+            client.reqPnL(accountReqId, getPnlAccount(), "");
+        }
+        pnlEngine.forEachPositionRequest((reqId, slot) ->
+                client.reqPnLSingle(reqId, getPnlAccount(), "", pnlEngine.conIdOf(slot)));
+    }
+
+    /**
+     * Uma única assinatura de reqAccountSummary (grupo "All") para a vida da aplicação: aberta na primeira
+     * conexão e reaberta com o mesmo reqId após uma reconexão. Os valores vão para o AccountValueStore.
+     */
+    private void subscribeAccountSummary() {
+        int reqId = accountValueStore.getRequest();
+        if (reqId == IntIntMap.MISSING) {
+            reqId = getNextReqId();
+            accountValueStore.bind(reqId);
+        }
+        log.info("➡️  [TWS-OUT] reqAccountSummary {}: grupo All, tags {}", reqId, accountSummaryTags);
+        client.reqAccountSummary(reqId, "All", accountSummaryTags);
+    }
+
+    /**
+     * Trata erros de uma assinatura de cotação. Erros definitivos (contrato inexistente,
+     * sem permissão de dados) liberam o slot para que um novo subscribe tente de novo.
+     */
+    private boolean failQuoteSubscription(int reqId, int errorCode, String errorMsg) {
+        int slot = quoteStore.slotOfRequest(reqId);
+        if (slot == IntIntMap.MISSING) {
+            return false;
+        }
+        String symbol = quoteStore.symbolOf(slot);
+        if (errorCode == 10167) {
+            // "Displaying delayed market data": aviso, os ticks continuam chegando.
+            log.info("ℹ️  [TWS-IN] Cotação {} ({}): {}", reqId, symbol, errorMsg);
+        } else if (errorCode == 101 || errorCode == 200 || errorCode == 354 || errorCode == 10168) {
+            // 101 = "Max number of tickers has been reached": a linha não foi aberta.
+            log.warn("⚠️ [TWS-IN] Assinatura de {} recusada: Código {}, Mensagem: '{}'", symbol, errorCode, errorMsg);
+            quoteStore.unbind(slot);
+        } else {
+            log.warn("⚠️ [TWS-IN] Cotação {} ({}): Código {}, Mensagem: '{}'", reqId, symbol, errorCode, errorMsg);
+        }
+        return true;
+    }
+
+    private boolean failBarSubscription(int reqId, int errorCode, String errorMsg) {
+        String symbol = barAggregator.symbolOfRequest(reqId);
+        if (symbol == null) {
+            return false;
+        }
+        log.warn("⚠️ [TWS-IN] Barras de {} ({}): Código {}, Mensagem: '{}'", symbol, reqId, errorCode, errorMsg);
+        if (errorCode == 200 || errorCode == 354 || errorCode == 420 || errorCode == 10168) {
+            barAggregator.unbind(symbol);
+        }
+        return true;
+    }
+
+    private boolean failDepthSubscription(int reqId, int errorCode, String errorMsg) {
+        int slot = orderBookStore.slotOfRequest(reqId);
+        if (slot == IntIntMap.MISSING) {
+            return false;
+        }
+        String symbol = orderBookStore.book(slot).getSymbol();
+        if (errorCode == 317) {
+            // "Market depth data has been RESET": o livro será reenviado do zero.
+            log.info("ℹ️  [TWS-IN] Livro de {} reiniciado pela IBKR.", symbol);
+            orderBookStore.onReset(reqId);
+            return true;
+        }
+        log.warn("⚠️ [TWS-IN] Livro de {} ({}): Código {}, Mensagem: '{}'", symbol, reqId, errorCode, errorMsg);
+        if (errorCode == 200 || errorCode == 309 || errorCode == 354 || errorCode == 10092) {
+            orderBookStore.unbind(slot);
+        }
+        return true;
+    }
 
     // --- CALLBACKS VAZIOS RESTANTES (Necessário para Compilação) ---
 
     @Override public void historicalDataUpdate(int reqId, Bar bar) { /* Vazio */ }
-    @Override public void historicalData(int reqId, Bar bar) { /* Vazio */ }
+    @Override
+    public void historicalData(int reqId, Bar bar) {
+        HistoricalBarBuffer buffer = historicalBuffers.get(reqId);
+        if (buffer == null) {
+            return;
+        }
+        buffer.candles().add(new Candle(buffer.symbol(), HistoricalBarTime.parseBarTime(bar.time()),
+                bar.open(), bar.high(), bar.low(), bar.close(), bar.volume().longValue()));
+    }
 
     @Override
     public void scannerParameters(String s) {
@@ -327,8 +1016,8 @@ public class IBKRConnector implements MarketDataProvider, EWrapper { // <<< IMPL
     }
 
     @Override
-    public void realtimeBar(int i, long l, double v, double v1, double v2, double v3, Decimal decimal, Decimal decimal1, int i1) {
-
+    public void realtimeBar(int reqId, long time, double open, double high, double low, double close, Decimal volume, Decimal wap, int count) {
+        barAggregator.onRealtimeBar(reqId, time, open, high, low, close, Decimal.isValid(volume) ? volume.longValue() : 0L);
     }
 
     @Override
@@ -356,20 +1045,31 @@ public class IBKRConnector implements MarketDataProvider, EWrapper { // <<< IMPL
 
     }
 
-    @Override public void historicalDataEnd(int reqId, String startDateStr, String endDateStr) { /* Vazio */ }
+    @Override
+    public void historicalDataEnd(int reqId, String startDateStr, String endDateStr) {
+        HistoricalBarBuffer buffer = historicalBuffers.get(reqId);
+        CompletableFuture<List<Candle>> future = pendingHistoricalData.get(reqId);
+        if (buffer != null && future != null) {
+            future.complete(buffer.candles());
+        }
+    }
     @Override public void openOrderEnd() { /* Vazio */ }
     @Override public void updateAccountTime(String var1) { /* Vazio */ }
     @Override public void accountDownloadEnd(String var1) { /* Vazio */ }
-    @Override public void tickPrice(int var1, int var2, double var3, TickAttrib var5) { /* Vazio */ }
-
     @Override
-    public void updateMktDepth(int i, int i1, int i2, int i3, double v, Decimal decimal) {
-
+    public void tickPrice(int reqId, int field, double price, TickAttrib attrib) {
+        quoteStore.onPrice(reqId, field, price);
+        pnlEngine.onPrice(reqId, field, price);
     }
 
     @Override
-    public void updateMktDepthL2(int i, int i1, String s, int i2, int i3, double v, Decimal decimal, boolean b) {
+    public void updateMktDepth(int reqId, int position, int operation, int side, double price, Decimal size) {
+        orderBookStore.onUpdate(reqId, position, null, operation, side, price, Decimal.isValid(size) ? size.value().doubleValue() : 0.0);
+    }
 
+    @Override
+    public void updateMktDepthL2(int reqId, int position, String marketMaker, int operation, int side, double price, Decimal size, boolean isSmartDepth) {
+        orderBookStore.onUpdate(reqId, position, marketMaker, operation, side, price, Decimal.isValid(size) ? size.value().doubleValue() : 0.0);
     }
 
     @Override
@@ -378,9 +1078,30 @@ public class IBKRConnector implements MarketDataProvider, EWrapper { // <<< IMPL
     }
 
     @Override public void commissionAndFeesReport(CommissionAndFeesReport var1) { /* Vazio */ }
-    @Override public void accountSummary(int var1, String var2, String var3, String var4, String var5) { /* Vazio */ }
-    @Override public void accountSummaryEnd(int var1) { /* Vazio */ }
-    @Override public void execDetailsEnd(int i) {}
+    @Override
+    public void accountSummary(int reqId, String account, String tag, String value, String currency) {
+        if (!accountValueStore.put(reqId, account, tag, value, currency)) {
+            return;
+        }
+        log.trace("[TWS-IN] AccountSummary: account={}, tag={}, value={}, currency={}", account, tag, value, currency);
+        // Única fonte do poder de compra: o resumo da conta principal alimenta o cache e o portfólio.
+        if ("BuyingPower".equals(tag) && account.equals(getPnlAccount())) {
+            try {
+                BigDecimal buyingPower = new BigDecimal(value);
+                buyingPowerCache.set(buyingPower);
+                portfolioService.updateAccountValue(tag, buyingPower);
+            } catch (NumberFormatException e) {
+                log.debug("Valor não numérico recebido para a tag '{}' no resumo da conta: {}", tag, value);
+            }
+        }
+    }
+
+    @Override
+    public void accountSummaryEnd(int reqId) {
+        if (accountValueStore.end(reqId)) {
+            log.info("✅ [TWS-IN] Resumo da conta carregado (versão {}).", accountValueStore.getVersion());
+        }
+    }
     @Override
     public void verifyMessageAPI(String s) {
 
@@ -401,9 +1122,9 @@ public class IBKRConnector implements MarketDataProvider, EWrapper { // <<< IMPL
 
     }
 
-    @Override public void tickSize(int var1, int var2, Decimal var3) { /* Vazio */ }
+    @Override public void tickSize(int reqId, int field, Decimal size) { quoteStore.onSize(reqId, field, Decimal.isValid(size) ? size.value().doubleValue() : Double.NaN); }
     @Override public void tickOptionComputation(int var1, int var2, int var3, double var4, double var6, double var8, double var10, double var12, double var14, double var16, double var18) { /* Vazio */ }
-    @Override public void tickGeneric(int var1, int var2, double var3) { /* Vazio */ }
+    @Override public void tickGeneric(int reqId, int tickType, double value) { quoteStore.onGeneric(reqId, tickType, value); }
     @Override public void tickString(int var1, int var2, String var3) { /* Vazio */ }
     @Override public void tickEFP(int var1, int var2, double var3, String var5, double var6, int var8, String var9, double var10, double var12) { /* Vazio */ }
     @Override public void positionMulti(int var1, String var2, String var3, Contract var4, Decimal var5, double var6) { /* Vazio */ }
@@ -428,14 +1149,86 @@ public class IBKRConnector implements MarketDataProvider, EWrapper { // <<< IMPL
     @Override public void rerouteMktDataReq(int var1, int var2, String var3) { /* Vazio */ }
     @Override public void rerouteMktDepthReq(int var1, int var2, String var3) { /* Vazio */ }
     @Override public void marketRule(int var1, PriceIncrement[] var2) { /* Vazio */ }
-    @Override public void pnl(int var1, double var2, double var4, double var6) { /* Vazio */ }
-    @Override public void pnlSingle(int var1, Decimal var2, double var3, double var5, double var7, double var9) { /* Vazio */ }
-    @Override public void historicalTicks(int var1, List<HistoricalTick> var2, boolean var3) { /* Vazio */ }
-    @Override public void historicalTicksBidAsk(int var1, List<HistoricalTickBidAsk> var2, boolean var3) { /* Vazio */ }
-    @Override public void historicalTicksLast(int var1, List<HistoricalTickLast> var2, boolean var3) { /* Vazio */ }
-    @Override public void tickByTickAllLast(int var1, int var2, long var3, double var5, Decimal var7, TickAttribLast var8, String var9, String var10) { /* Vazio */ }
-    @Override public void tickByTickBidAsk(int var1, long var2, double var4, double var6, Decimal var8, Decimal var9, TickAttribBidAsk var10) { /* Vazio */ }
-    @Override public void tickByTickMidPoint(int var1, long var2, double var4) { /* Vazio */ }
+    @Override
+    public void pnl(int reqId, double dailyPnL, double unrealizedPnL, double realizedPnL) {
+        pnlEngine.onAccountPnl(reqId, dailyPnL, unrealizedPnL, realizedPnL);
+    }
+
+    @Override
+    public void pnlSingle(int reqId, Decimal pos, double dailyPnL, double unrealizedPnL, double realizedPnL, double value) {
+        // Decimal.INVALID (Long.MIN_VALUE) vira NaN: o PnlEngine trata a posição como desconhecida.
+        double position = Decimal.isValid(pos) ? pos.value().doubleValue() : Double.NaN;
+        pnlEngine.onPositionPnl(reqId, position, dailyPnL, unrealizedPnL, realizedPnL, value);
+    }
+
+    // TRADES chega em historicalTicksLast, BID_ASK em historicalTicksBidAsk e MIDPOINT em historicalTicks.
+    @Override
+    public void historicalTicks(int reqId, List<HistoricalTick> ticks, boolean done) {
+        HistoricalTickBuffer buffer = historicalTickBuffers.get(reqId);
+        if (buffer == null) {
+            return;
+        }
+        for (HistoricalTick tick : ticks) {
+            buffer.ticks().add(new HistoricalTickDTO(Instant.ofEpochSecond(tick.time()), tick.price(), decimalOrNull(tick.size()),
+                    null, null, null, null, null));
+        }
+        if (done) {
+            buffer.future().complete(buffer.ticks());
+        }
+    }
+
+    @Override
+    public void historicalTicksBidAsk(int reqId, List<HistoricalTickBidAsk> ticks, boolean done) {
+        HistoricalTickBuffer buffer = historicalTickBuffers.get(reqId);
+        if (buffer == null) {
+            return;
+        }
+        for (HistoricalTickBidAsk tick : ticks) {
+            buffer.ticks().add(new HistoricalTickDTO(Instant.ofEpochSecond(tick.time()), null, null, null,
+                    tick.priceBid(), tick.priceAsk(), decimalOrNull(tick.sizeBid()), decimalOrNull(tick.sizeAsk())));
+        }
+        if (done) {
+            buffer.future().complete(buffer.ticks());
+        }
+    }
+
+    @Override
+    public void historicalTicksLast(int reqId, List<HistoricalTickLast> ticks, boolean done) {
+        HistoricalTickBuffer buffer = historicalTickBuffers.get(reqId);
+        if (buffer == null) {
+            return;
+        }
+        for (HistoricalTickLast tick : ticks) {
+            buffer.ticks().add(new HistoricalTickDTO(Instant.ofEpochSecond(tick.time()), tick.price(), decimalOrNull(tick.size()),
+                    tick.exchange(), null, null, null, null));
+        }
+        if (done) {
+            buffer.future().complete(buffer.ticks());
+        }
+    }
+
+    private static Double decimalOrNull(Decimal value) {
+        return Decimal.isValid(value) ? value.value().doubleValue() : null;
+    }
+
+    @Override
+    public void tickByTickAllLast(int reqId, int tickType, long time, double price, Decimal size, TickAttribLast attribs, String exchange, String specialConditions) {
+        tickJournal.onLast(reqId, tickType, time, price, Decimal.isValid(size) ? size.value().doubleValue() : 0.0,
+                attribs != null && attribs.pastLimit(), attribs != null && attribs.unreported(), exchange);
+    }
+
+    @Override
+    public void tickByTickBidAsk(int reqId, long time, double bidPrice, double askPrice, Decimal bidSize, Decimal askSize, TickAttribBidAsk attribs) {
+        tickJournal.onBidAsk(reqId, time, bidPrice, askPrice,
+                Decimal.isValid(bidSize) ? bidSize.value().doubleValue() : 0.0,
+                Decimal.isValid(askSize) ? askSize.value().doubleValue() : 0.0,
+                attribs != null && attribs.bidPastLow(), attribs != null && attribs.askPastHigh());
+    }
+
+    @Override
+    public void tickByTickMidPoint(int reqId, long time, double midPoint) {
+        tickJournal.onMidPoint(reqId, time, midPoint);
+    }
     @Override public void orderBound(long var1, int var3, int var4) { /* Vazio */ }
     @Override public void completedOrder(Contract var1, Order var2, OrderState var3) { /* Vazio */ }
     @Override public void completedOrdersEnd() { /* Vazio */ }
@@ -458,7 +1251,14 @@ public class IBKRConnector implements MarketDataProvider, EWrapper { // <<< IMPL
     @Override public void execDetailsEndProtoBuf(ExecutionDetailsEndProto.ExecutionDetailsEnd var1) { /* Vazio */ }
     @Override public void connectionClosed() { log.error("🔌 Conexão fechada inesperadamente. Ativando reconexão."); }
     @Override public void connectAck() { log.info("Connect Ack received."); }
-    @Override public void managedAccounts(String accountsList) { log.info("Contas Gerenciadas recebidas: {}", accountsList); }
+    @Override
+    public void managedAccounts(String accountsList) {
+        log.info("Contas Gerenciadas recebidas: {}", accountsList);
+        String first = accountsList == null ? "" : accountsList.split(",")[0].trim();
+        if (!first.isEmpty()) {
+            managedAccount = first;
+        }
+    }
 
     @Override
     public void receiveFA(int i, String s) {
@@ -467,4 +1267,13 @@ public class IBKRConnector implements MarketDataProvider, EWrapper { // <<< IMPL
 
     @Override public void displayGroupList(int var1, String var2) { /* Vazio */ }
     @Override public void displayGroupUpdated(int var1, String var2) { /* Vazio */ }
-}
\ No newline at end of file
+
+    // Barras acumuladas de uma requisição de histórico até o historicalDataEnd.
+    private record HistoricalBarBuffer(String symbol, List<Candle> candles) {}
+
+    // Resultados de um reqContractDetails até o contractDetailsEnd; o futuro é compartilhado pelo resolveContract.
+    private record ContractDetailsBuffer(ContractKey key, List<ContractDetails> details, CompletableFuture<Contract> future) {}
+
+    // Ticks de uma requisição reqHistoricalTicks; podem chegar em vários callbacks até done=true.
+    private record HistoricalTickBuffer(List<HistoricalTickDTO> ticks, CompletableFuture<List<HistoricalTickDTO>> future) {}
+}
@@ -0,0 +1,169 @@
+package com.example.homegaibkrponte.connector.dispatch;
+
+import com.ib.client.Contract;
+import com.ib.client.Decimal;
+import com.ib.client.Execution;
+import com.ib.client.Order;
+import com.ib.client.OrderState;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Desacopla os callbacks do EWrapper da thread 'ibkr-msg-processor'.
+ * O leitor apenas copia os campos para um slot pré-alocado e segue para a próxima mensagem;
+ * cada CallbackEventHandler (portfólio, webhook, logging...) consome em sua própria thread.
+ * Métricas: profundidade da fila, lag por consumidor e esperas do produtor (ring cheio).
+ */
+@Component
+@Slf4j
+public class CallbackDispatcher {
+
+    private static final int SPIN_TRIES = 100;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final CallbackRingBuffer ringBuffer;
+    private final List<CallbackEventHandler> handlers;
+    private final List<AtomicLong> sequences = new ArrayList<>();
+    private final List<Thread> consumerThreads = new ArrayList<>();
+    private volatile boolean running = true;
+
+    public CallbackDispatcher(List<CallbackEventHandler> handlers,
+                              MeterRegistry meterRegistry,
+                              @Value("${ibkr.dispatch.ring-size:4096}") int ringSize) {
+        this.ringBuffer = new CallbackRingBuffer(ringSize);
+        this.handlers = List.copyOf(handlers);
+
+        Gauge.builder("ibkr.dispatch.queue.depth", ringBuffer, CallbackRingBuffer::getDepth)
+                .description("Eventos publicados e ainda não processados pelo consumidor mais lento")
+                .register(meterRegistry);
+        Gauge.builder("ibkr.dispatch.ring.capacity", ringBuffer, CallbackRingBuffer::getCapacity)
+                .register(meterRegistry);
+        FunctionCounter.builder("ibkr.dispatch.producer.waits", ringBuffer, CallbackRingBuffer::getProducerWaits)
+                .description("Vezes em que o leitor aguardou por ring buffer cheio")
+                .register(meterRegistry);
+
+        for (CallbackEventHandler handler : this.handlers) {
+            AtomicLong sequence = ringBuffer.addConsumer();
+            sequences.add(sequence);
+            Gauge.builder("ibkr.dispatch.consumer.lag", sequence, seq -> ringBuffer.getCursor() - seq.get())
+                    .tag("consumer", handler.name())
+                    .register(meterRegistry);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        for (int i = 0; i < handlers.size(); i++) {
+            CallbackEventHandler handler = handlers.get(i);
+            AtomicLong sequence = sequences.get(i);
+            Thread thread = new Thread(() -> consume(handler, sequence), "ibkr-dispatch-" + handler.name());
+            thread.setDaemon(true);
+            thread.start();
+            consumerThreads.add(thread);
+        }
+        log.info("🔁 Dispatcher de callbacks iniciado: ring de {} slots, consumidores {}.",
+                ringBuffer.getCapacity(), handlers.stream().map(CallbackEventHandler::name).toList());
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        for (Thread thread : consumerThreads) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // --- LADO DO PRODUTOR (somente a thread 'ibkr-msg-processor') ---
+
+    public void publishExecution(Contract contract, Execution execution) {
+        long sequence = ringBuffer.next();
+        try {
+            ringBuffer.get(sequence).setExecution(contract, execution, System.nanoTime());
+        } finally {
+            ringBuffer.publish(sequence);
+        }
+    }
+
+    public void publishOrderStatus(int orderId, String status, Decimal filled, Decimal remaining, double avgFillPrice,
+                                   long permId, int parentId, double lastFillPrice) {
+        long sequence = ringBuffer.next();
+        try {
+            ringBuffer.get(sequence).setOrderStatus(orderId, status, filled, remaining, avgFillPrice,
+                    permId, parentId, lastFillPrice, System.nanoTime());
+        } finally {
+            ringBuffer.publish(sequence);
+        }
+    }
+
+    public void publishOpenOrder(int orderId, Contract contract, Order order, OrderState orderState) {
+        long sequence = ringBuffer.next();
+        try {
+            ringBuffer.get(sequence).setOpenOrder(orderId, contract, order, orderState, System.nanoTime());
+        } finally {
+            ringBuffer.publish(sequence);
+        }
+    }
+
+    public void publishOrderError(int orderId, int errorCode, String errorMessage) {
+        long sequence = ringBuffer.next();
+        try {
+            ringBuffer.get(sequence).setOrderError(orderId, errorCode, errorMessage, System.nanoTime());
+        } finally {
+            ringBuffer.publish(sequence);
+        }
+    }
+
+    // --- LADO DOS CONSUMIDORES ---
+
+    public long getQueueDepth() {
+        return ringBuffer.getDepth();
+    }
+
+    private void consume(CallbackEventHandler handler, AtomicLong sequence) {
+        long next = sequence.get() + 1;
+        int idleCount = 0;
+        while (running || next <= ringBuffer.getCursor()) {
+            long available = ringBuffer.getCursor();
+            if (next > available) {
+                if (idleCount++ < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+                continue;
+            }
+            idleCount = 0;
+            // Processa em lote tudo o que já foi publicado e libera os slots de uma vez.
+            while (next <= available) {
+                CallbackEvent event = ringBuffer.get(next);
+                try {
+                    handler.onEvent(event);
+                } catch (Exception e) {
+                    log.error("💥 [DISPATCH] Consumidor '{}' falhou ao processar evento {} da ordem {}: {}",
+                            handler.name(), event.getType(), event.getOrderId(), e.getMessage(), e);
+                }
+                next++;
+            }
+            sequence.set(available);
+        }
+        log.info("⏹️ [DISPATCH] Consumidor '{}' finalizado na sequência {}.", handler.name(), sequence.get());
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.homegaibkrponte.connector.dispatch;
+
+import com.ib.client.Contract;
+import com.ib.client.Decimal;
+import com.ib.client.Execution;
+import com.ib.client.Order;
+import com.ib.client.OrderState;
+import lombok.Getter;
+
+/**
+ * Slot reutilizável do ring buffer (pré-alocado na inicialização).
+ * A thread 'ibkr-msg-processor' apenas COPIA os campos do callback para cá; nenhum objeto
+ * de domínio é criado no caminho do leitor. Os consumidores leem o slot e nunca o retêm
+ * além de onEvent(), pois ele será sobrescrito quando o ring der a volta.
+ */
+@Getter
+public final class CallbackEvent {
+
+    private CallbackEventType type;
+    private long receivedAtNanos;
+
+    // Campos comuns
+    private int orderId;
+    private String symbol;
+    private int conId;
+
+    // EXECUTION (execDetails)
+    private String execId;
+    private String side;
+    private Decimal shares;
+    private double price;
+    private Decimal cumQty;
+    private double avgPrice;
+    private String execTime;
+    private String account;
+    private String exchange;
+    private long permId;
+
+    // ORDER_STATUS (orderStatus)
+    private String status;
+    private Decimal filled;
+    private Decimal remaining;
+    private double avgFillPrice;
+    private double lastFillPrice;
+    private int parentId;
+
+    // OPEN_ORDER (openOrder)
+    private String action;
+    private Decimal totalQuantity;
+    private String orderType;
+
+    // ORDER_ERROR (error com orderId)
+    private int errorCode;
+    private String errorMessage;
+
+    /**
+     * Zera os campos do evento anterior que ocupou o slot: cada tipo só preenche os seus, e um consumidor
+     * não pode ler o símbolo ou o preço de uma execução antiga num ORDER_ERROR.
+     */
+    private void reset() {
+        orderId = 0;
+        symbol = null;
+        conId = 0;
+        execId = null;
+        side = null;
+        shares = null;
+        price = 0;
+        cumQty = null;
+        avgPrice = 0;
+        execTime = null;
+        account = null;
+        exchange = null;
+        permId = 0;
+        status = null;
+        filled = null;
+        remaining = null;
+        avgFillPrice = 0;
+        lastFillPrice = 0;
+        parentId = 0;
+        action = null;
+        totalQuantity = null;
+        orderType = null;
+        errorCode = 0;
+        errorMessage = null;
+    }
+
+    void setExecution(Contract contract, Execution execution, long nanos) {
+        reset();
+        this.type = CallbackEventType.EXECUTION;
+        this.receivedAtNanos = nanos;
+        this.orderId = execution.orderId();
+        this.symbol = contract.symbol();
+        this.conId = contract.conid();
+        this.execId = execution.execId();
+        this.side = execution.side();
+        this.shares = execution.shares();
+        this.price = execution.price();
+        this.cumQty = execution.cumQty();
+        this.avgPrice = execution.avgPrice();
+        this.execTime = execution.time();
+        this.account = execution.acctNumber();
+        this.exchange = execution.exchange();
+        this.permId = execution.permId();
+    }
+
+    void setOrderStatus(int orderId, String status, Decimal filled, Decimal remaining, double avgFillPrice,
+                        long permId, int parentId, double lastFillPrice, long nanos) {
+        reset();
+        this.type = CallbackEventType.ORDER_STATUS;
+        this.receivedAtNanos = nanos;
+        this.orderId = orderId;
+        this.status = status;
+        this.filled = filled;
+        this.remaining = remaining;
+        this.avgFillPrice = avgFillPrice;
+        this.permId = permId;
+        this.parentId = parentId;
+        this.lastFillPrice = lastFillPrice;
+    }
+
+    void setOpenOrder(int orderId, Contract contract, Order order, OrderState orderState, long nanos) {
+        reset();
+        this.type = CallbackEventType.OPEN_ORDER;
+        this.receivedAtNanos = nanos;
+        this.orderId = orderId;
+        this.symbol = contract.symbol();
+        this.conId = contract.conid();
+        this.action = order.getAction();
+        this.totalQuantity = order.totalQuantity();
+        this.orderType = order.getOrderType();
+        this.permId = order.permId();
+        this.parentId = order.parentId();
+        this.status = orderState.getStatus();
+    }
+
+    void setOrderError(int orderId, int errorCode, String errorMessage, long nanos) {
+        reset();
+        this.type = CallbackEventType.ORDER_ERROR;
+        this.receivedAtNanos = nanos;
+        this.orderId = orderId;
+        this.errorCode = errorCode;
+        this.errorMessage = errorMessage;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.homegaibkrponte.connector.dispatch;
+
+/**
+ * Consumidor de eventos do ring buffer. Cada implementação (bean Spring) ganha uma thread
+ * dedicada e uma sequência própria, de modo que um consumidor lento não atrasa os demais
+ * até que o ring inteiro esteja ocupado.
+ */
+public interface CallbackEventHandler {
+
+    /**
+     * Nome curto usado na thread e como tag das métricas (ex: "portfolio", "webhook").
+     */
+    String name();
+
+    /**
+     * Processa o evento. O slot é reutilizado após o retorno, portanto copie o que precisar reter.
+     */
+    void onEvent(CallbackEvent event);
+}
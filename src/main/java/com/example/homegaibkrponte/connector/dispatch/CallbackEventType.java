@@ -0,0 +1,11 @@
+package com.example.homegaibkrponte.connector.dispatch;
+
+/**
+ * Tipos de callback do EWrapper que trafegam pelo ring buffer de dispatch.
+ */
+public enum CallbackEventType {
+    EXECUTION,     // execDetails
+    ORDER_STATUS,  // orderStatus
+    OPEN_ORDER,    // openOrder
+    ORDER_ERROR    // error com orderId (rejeição, cancelamento, avisos)
+}
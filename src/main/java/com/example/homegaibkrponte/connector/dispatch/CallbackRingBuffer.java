@@ -0,0 +1,107 @@
+package com.example.homegaibkrponte.connector.dispatch;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ring buffer pré-alocado de PRODUTOR ÚNICO (thread 'ibkr-msg-processor') e múltiplos consumidores.
+ * Cada consumidor avança a sua própria sequência; o produtor só reutiliza um slot depois que
+ * o consumidor mais lento já o processou (backpressure em vez de descarte).
+ * Não é thread-safe para múltiplos produtores: next()/publish() devem ser chamados sempre pela mesma thread.
+ */
+public final class CallbackRingBuffer {
+
+    private static final long PRODUCER_WAIT_NANOS = 1_000L;
+
+    private final CallbackEvent[] slots;
+    private final int mask;
+
+    // Última sequência publicada (visível para os consumidores).
+    private final AtomicLong cursor = new AtomicLong(-1L);
+    private final List<AtomicLong> consumerSequences = new CopyOnWriteArrayList<>();
+    private final AtomicLong producerWaits = new AtomicLong();
+
+    // Estado exclusivo do produtor (sem volatile: só a thread produtora acessa).
+    private long nextSequence = 0L;
+    private long cachedMinimumSequence = -1L;
+
+    public CallbackRingBuffer(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("A capacidade do ring buffer deve ser potência de 2, recebido: " + capacity);
+        }
+        this.slots = new CallbackEvent[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new CallbackEvent();
+        }
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Registra um novo consumidor. A sequência retornada começa no cursor atual,
+     * portanto o consumidor só verá eventos publicados a partir deste momento.
+     */
+    public AtomicLong addConsumer() {
+        AtomicLong sequence = new AtomicLong(cursor.get());
+        consumerSequences.add(sequence);
+        return sequence;
+    }
+
+    /**
+     * Reserva a próxima sequência. Se o ring estiver cheio, aguarda o consumidor mais lento.
+     */
+    public long next() {
+        long sequence = nextSequence;
+        long wrapPoint = sequence - slots.length;
+        if (wrapPoint > cachedMinimumSequence) {
+            long minimum = minimumConsumerSequence(sequence - 1);
+            if (wrapPoint > minimum) {
+                producerWaits.incrementAndGet();
+                do {
+                    LockSupport.parkNanos(PRODUCER_WAIT_NANOS);
+                    minimum = minimumConsumerSequence(sequence - 1);
+                } while (wrapPoint > minimum);
+            }
+            cachedMinimumSequence = minimum;
+        }
+        nextSequence = sequence + 1;
+        return sequence;
+    }
+
+    public CallbackEvent get(long sequence) {
+        return slots[(int) (sequence & mask)];
+    }
+
+    public void publish(long sequence) {
+        cursor.set(sequence);
+    }
+
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    public long getProducerWaits() {
+        return producerWaits.get();
+    }
+
+    /**
+     * Quantidade de eventos publicados e ainda não processados pelo consumidor mais lento.
+     */
+    public long getDepth() {
+        long published = cursor.get();
+        return published - minimumConsumerSequence(published);
+    }
+
+    private long minimumConsumerSequence(long defaultValue) {
+        long minimum = defaultValue;
+        for (AtomicLong sequence : consumerSequences) {
+            minimum = Math.min(minimum, sequence.get());
+        }
+        return minimum;
+    }
+}
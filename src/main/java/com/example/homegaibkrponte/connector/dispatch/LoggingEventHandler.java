@@ -0,0 +1,30 @@
+package com.example.homegaibkrponte.connector.dispatch;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Consumidor "logging": registra os callbacks de ordem fora da thread do leitor.
+ */
+@Component
+@Slf4j
+public class LoggingEventHandler implements CallbackEventHandler {
+
+    @Override
+    public String name() {
+        return "logging";
+    }
+
+    @Override
+    public void onEvent(CallbackEvent event) {
+        switch (event.getType()) {
+            case EXECUTION -> log.info("💸 [TWS-IN] EXECUÇÃO Ordem {}: {} {} {} @ {} | Exec ID: {}",
+                    event.getOrderId(), event.getSide(), event.getShares(), event.getSymbol(), event.getPrice(), event.getExecId());
+            case ORDER_STATUS -> log.warn("⬅️  [TWS-IN] STATUS Ordem {}: {} | Preenchido: {}/{} | Preço Médio: {}",
+                    event.getOrderId(), String.valueOf(event.getStatus()).toUpperCase(), event.getFilled(),
+                    event.getFilled().add(event.getRemaining()), event.getAvgFillPrice());
+            case OPEN_ORDER -> log.info("ℹ️  [TWS-IN] OPEN Ordem {}: {} {} @ {} | Status: {}",
+                    event.getOrderId(), event.getAction(), event.getTotalQuantity(), event.getSymbol(), event.getStatus());
+        }
+    }
+}
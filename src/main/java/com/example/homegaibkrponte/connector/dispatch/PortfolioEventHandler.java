@@ -0,0 +1,44 @@
+package com.example.homegaibkrponte.connector.dispatch;
+
+import com.example.homegaibkrponte.model.TradeExecutedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Consumidor "portfolio": converte execuções em TradeExecutedEvent para o LivePortfolioService.
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class PortfolioEventHandler implements CallbackEventHandler {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public String name() {
+        return "portfolio";
+    }
+
+    @Override
+    public void onEvent(CallbackEvent event) {
+        if (event.getType() != CallbackEventType.EXECUTION) {
+            return;
+        }
+        TradeExecutedEvent tradeEvent = new TradeExecutedEvent(
+                event.getSymbol(),
+                event.getSide(),
+                event.getShares().value(),
+                BigDecimal.valueOf(event.getPrice()),
+                LocalDateTime.now(),
+                "LIVE",
+                String.valueOf(event.getOrderId())
+        );
+        eventPublisher.publishEvent(tradeEvent);
+        log.debug("📢 Evento 'TradeExecutedEvent' publicado para a ordem {}.", event.getOrderId());
+    }
+}
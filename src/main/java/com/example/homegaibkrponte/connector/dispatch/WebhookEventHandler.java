@@ -0,0 +1,50 @@
+package com.example.homegaibkrponte.connector.dispatch;
+
+import com.example.homegaibkrponte.dto.ExecutionReportDTO;
+import com.example.homegaibkrponte.dto.OrderStatusDTO;
+import com.example.homegaibkrponte.monitoring.OrderLatencyMetrics;
+import com.example.homegaibkrponte.monitoring.OrderLatencyStage;
+import com.example.homegaibkrponte.order.OrderLifecycleEngine;
+import com.example.homegaibkrponte.service.WebhookNotifierService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Consumidor "webhook": envia o relatório de execução para o sistema H.O.M.E.
+ * A latência (leitura do execDetails até a confirmação do webhook) vai para o timer da etapa WEBHOOK.
+ */
+@Component
+@RequiredArgsConstructor
+public class WebhookEventHandler implements CallbackEventHandler {
+
+    private final WebhookNotifierService webhookNotifier;
+    private final OrderLifecycleEngine orderLifecycle;
+    private final OrderLatencyMetrics latencyMetrics;
+
+    @Override
+    public String name() {
+        return "webhook";
+    }
+
+    @Override
+    public void onEvent(CallbackEvent event) {
+        if (event.getType() != CallbackEventType.EXECUTION) {
+            return;
+        }
+        ExecutionReportDTO report = new ExecutionReportDTO(
+                event.getExecId(),
+                event.getOrderId(),
+                event.getSymbol(),
+                event.getSide(),
+                event.getShares().value(),
+                event.getPrice(),
+                "EXEC"
+        );
+        long receivedAt = event.getReceivedAtNanos();
+        OrderStatusDTO order = orderLifecycle.get(event.getOrderId());
+        String orderType = order != null ? order.orderType() : null;
+        boolean bracket = order != null && order.bracket();
+        webhookNotifier.sendExecutionReport(report,
+                () -> latencyMetrics.record(OrderLatencyStage.WEBHOOK, orderType, bracket, System.nanoTime() - receivedAt));
+    }
+}
@@ -1,20 +1,28 @@
 package com.example.homegaibkrponte.data;
 
 
+import com.example.homegaibkrponte.data.history.HistoricalBarSize;
 import com.example.homegaibkrponte.model.Candle;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface MarketDataProvider {
 
     List<Candle> getHistoricalData(String symbol, int years);
 
+    // Série [start, end) em UTC no tamanho de barra pedido.
+    List<Candle> getHistoricalData(String symbol, HistoricalBarSize barSize, LocalDateTime start, LocalDateTime end);
+
     // AJUSTE: O método connect foi simplificado para o nosso modelo de eventos.
     void connect();
 
     void disconnect();
 
+    // Topo do livro em tempo real (reqMktData), lido pelo QuoteStore.
     void subscribe(String symbol);
 
+    void unsubscribe(String symbol);
+
     boolean isConnected();
 }
\ No newline at end of file
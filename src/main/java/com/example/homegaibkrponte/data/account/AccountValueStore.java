@@ -0,0 +1,196 @@
+package com.example.homegaibkrponte.data.account;
+
+import com.example.homegaibkrponte.connector.dto.AccountSummaryDTO;
+import com.example.homegaibkrponte.dto.AccountValuesDTO;
+import com.example.homegaibkrponte.util.IntIntMap;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Valores da conta (todas as tags do reqAccountSummary, por conta e por moeda) com uma versão que
+ * só cresce quando algum valor muda de fato. A IBKR reenvia o resumo inteiro periodicamente; valores
+ * repetidos não mexem na versão, então quem consulta em intervalo curto pode usar a versão como ETag
+ * e receber 304 sem que nada seja montado ou serializado.
+ *
+ * Escrita sob o monitor (thread 'ibkr-msg-processor'); a versão é lida sem lock. O snapshot é montado
+ * uma vez por versão, na primeira leitura depois da mudança, e compartilhado por todas as leituras.
+ */
+@Component
+public class AccountValueStore {
+
+    // Distingue as versões desta execução das de uma anterior (a versão recomeça do zero na partida).
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    // conta -> tag -> moeda -> valor, como veio da IBKR (algumas tags não são numéricas, ex: AccountType).
+    private final Map<String, Map<String, Map<String, String>>> values = new TreeMap<>();
+    private volatile long version;
+    private volatile String etag = etagOf(0);
+    private volatile Instant updatedAt;
+    private volatile boolean complete;
+    private AccountValuesDTO snapshot;
+
+    // reqId da assinatura do reqAccountSummary; mantido entre reconexões.
+    private volatile int summaryReqId = IntIntMap.MISSING;
+
+    // --- ASSINATURA ---
+
+    /**
+     * @return false se já existe uma assinatura (reqAccountSummary é limitado a duas simultâneas na IBKR).
+     */
+    public synchronized boolean bind(int reqId) {
+        if (summaryReqId != IntIntMap.MISSING) {
+            return false;
+        }
+        summaryReqId = reqId;
+        return true;
+    }
+
+    public int getRequest() {
+        return summaryReqId;
+    }
+
+    public boolean owns(int reqId) {
+        return reqId == summaryReqId;
+    }
+
+    // --- CALLBACKS (accountSummary / accountSummaryEnd) ---
+
+    /**
+     * @return true se o valor mudou (e a versão avançou).
+     */
+    public synchronized boolean put(int reqId, String account, String tag, String value, String currency) {
+        if (reqId != summaryReqId || account == null || tag == null) {
+            return false;
+        }
+        Map<String, String> byCurrency = values
+                .computeIfAbsent(account, a -> new TreeMap<>())
+                .computeIfAbsent(tag, t -> new TreeMap<>());
+        String previous = byCurrency.put(currency == null ? "" : currency, value);
+        if (Objects.equals(previous, value)) {
+            return false;
+        }
+        changed();
+        return true;
+    }
+
+    /**
+     * Fim da primeira carga: a partir daqui o snapshot tem todas as tags pedidas.
+     *
+     * @return true só na primeira vez.
+     */
+    public synchronized boolean end(int reqId) {
+        if (reqId != summaryReqId || complete) {
+            return false;
+        }
+        complete = true;
+        changed();
+        return true;
+    }
+
+    private void changed() {
+        version++;
+        etag = etagOf(version);
+        updatedAt = Instant.now();
+    }
+
+    // --- LEITURA ---
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * ETag (forte) da versão: "época-versão".
+     */
+    public String etagOf(long version) {
+        return "\"" + epoch + "-" + version + "\"";
+    }
+
+    // Montada só quando a versão muda: o caminho do 304 não aloca.
+    public String currentEtag() {
+        return etag;
+    }
+
+    /**
+     * Todas as contas, na versão atual. Montado uma vez por versão.
+     */
+    public synchronized AccountValuesDTO snapshot() {
+        if (snapshot == null || snapshot.version() != version) {
+            Map<String, Map<String, Map<String, String>>> accounts = new LinkedHashMap<>();
+            values.forEach((account, tags) -> accounts.put(account, copy(tags)));
+            snapshot = new AccountValuesDTO(version, updatedAt, complete, Collections.unmodifiableMap(accounts));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Só uma conta, na mesma versão do snapshot completo (a ETag é a mesma para todas as contas).
+     */
+    public AccountValuesDTO snapshot(String account) {
+        AccountValuesDTO all = snapshot();
+        Map<String, Map<String, String>> tags = all.accounts().get(account);
+        return new AccountValuesDTO(all.version(), all.updatedAt(), all.complete(),
+                tags == null ? Map.of() : Map.of(account, tags));
+    }
+
+    /**
+     * Resumo no formato do AccountSummaryDTO: uma entrada por moeda do ledger ($LEDGER), "BASE" com os
+     * agregados. Sem o ledger, só a entrada "BASE" com as tags de resumo.
+     */
+    public AccountSummaryDTO summary(String account) {
+        Map<String, Map<String, String>> tags = snapshot().accounts().getOrDefault(account, Map.of());
+        Map<String, AccountSummaryDTO.AccountValue> byCurrency = new TreeMap<>();
+        for (String currency : tags.getOrDefault("CashBalance", Map.of()).keySet()) {
+            AccountSummaryDTO.AccountValue value = new AccountSummaryDTO.AccountValue();
+            value.setCurrency(currency);
+            value.setCashbalance(decimal(tags, "CashBalance", currency));
+            value.setTotalcashbalance(decimal(tags, "TotalCashBalance", currency));
+            value.setNetliquidationvalue(decimal(tags, "NetLiquidationByCurrency", currency));
+            byCurrency.put(currency, value);
+        }
+        AccountSummaryDTO.AccountValue base = byCurrency.computeIfAbsent("BASE", c -> {
+            AccountSummaryDTO.AccountValue value = new AccountSummaryDTO.AccountValue();
+            value.setCurrency(c);
+            value.setCashbalance(anyCurrency(tags, "TotalCashValue"));
+            value.setTotalcashbalance(anyCurrency(tags, "TotalCashValue"));
+            value.setNetliquidationvalue(anyCurrency(tags, "NetLiquidation"));
+            return value;
+        });
+        base.setBuyingPower(anyCurrency(tags, "BuyingPower"));
+        return new AccountSummaryDTO(byCurrency);
+    }
+
+    private static Map<String, Map<String, String>> copy(Map<String, Map<String, String>> tags) {
+        Map<String, Map<String, String>> copy = new LinkedHashMap<>();
+        tags.forEach((tag, byCurrency) -> copy.put(tag, Collections.unmodifiableMap(new LinkedHashMap<>(byCurrency))));
+        return Collections.unmodifiableMap(copy);
+    }
+
+    private static BigDecimal decimal(Map<String, Map<String, String>> tags, String tag, String currency) {
+        return parse(tags.getOrDefault(tag, Map.of()).get(currency));
+    }
+
+    // Tags de resumo vêm numa única moeda (a base da conta).
+    private static BigDecimal anyCurrency(Map<String, Map<String, String>> tags, String tag) {
+        Map<String, String> byCurrency = tags.getOrDefault(tag, Map.of());
+        return byCurrency.isEmpty() ? null : parse(byCurrency.values().iterator().next());
+    }
+
+    private static BigDecimal parse(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
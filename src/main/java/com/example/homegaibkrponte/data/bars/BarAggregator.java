@@ -0,0 +1,181 @@
+package com.example.homegaibkrponte.data.bars;
+
+import com.example.homegaibkrponte.data.history.HistoricalBarSize;
+import com.example.homegaibkrponte.model.BarCompletedEvent;
+import com.example.homegaibkrponte.model.Candle;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Agrega as barras de 5s do reqRealTimeBars em barras de 1m/5m/15m/1h (configurável) por símbolo,
+ * em O(1) por atualização, mantendo um histórico limitado por timeframe.
+ * Cada barra fechada vira um {@link BarCompletedEvent}, publicado na thread do leitor TWS:
+ * listeners devem ser rápidos ou repassar o trabalho para outra thread.
+ */
+@Component
+@Slf4j
+public class BarAggregator {
+
+    // Tamanho da barra do reqRealTimeBars (a IBKR só aceita 5 segundos).
+    public static final int REALTIME_BAR_SECONDS = 5;
+
+    private final ApplicationEventPublisher eventPublisher;
+    private final List<HistoricalBarSize> timeframes;
+    private final int historySize;
+    private final Map<String, SymbolBars> bySymbol = new ConcurrentHashMap<>();
+    private final Map<Integer, SymbolBars> byReqId = new ConcurrentHashMap<>();
+
+    public BarAggregator(ApplicationEventPublisher eventPublisher,
+                         @Value("${ibkr.bars.timeframes:ONE_MIN,FIVE_MINS,FIFTEEN_MINS,ONE_HOUR}") List<HistoricalBarSize> timeframes,
+                         @Value("${ibkr.bars.history-size:500}") int historySize) {
+        for (HistoricalBarSize timeframe : timeframes) {
+            // Barras diárias dependem do pregão de cada bolsa, não de múltiplos fixos de 5s.
+            if (timeframe == HistoricalBarSize.ONE_DAY) {
+                throw new IllegalArgumentException("Timeframe não suportado pelo agregador em tempo real: " + timeframe);
+            }
+        }
+        this.eventPublisher = eventPublisher;
+        this.timeframes = List.copyOf(timeframes);
+        this.historySize = historySize;
+    }
+
+    // --- REGISTRO (chamado pelo IBKRConnector.subscribeBars/unsubscribeBars) ---
+
+    /**
+     * Associa o reqId do reqRealTimeBars ao símbolo.
+     *
+     * @return false se o símbolo já tem uma assinatura ativa (nada é alterado).
+     */
+    public synchronized boolean bind(String symbol, int reqId) {
+        SymbolBars bars = bySymbol.computeIfAbsent(normalize(symbol), this::newSymbolBars);
+        if (bars.reqId != -1) {
+            return false;
+        }
+        bars.reqId = reqId;
+        byReqId.put(reqId, bars);
+        return true;
+    }
+
+    /**
+     * Remove a assinatura ativa. O histórico já agregado continua legível.
+     *
+     * @return o reqId removido, ou -1 se não havia assinatura.
+     */
+    public synchronized int unbind(String symbol) {
+        SymbolBars bars = bySymbol.get(normalize(symbol));
+        if (bars == null || bars.reqId == -1) {
+            return -1;
+        }
+        int reqId = bars.reqId;
+        bars.reqId = -1;
+        byReqId.remove(reqId);
+        return reqId;
+    }
+
+    /**
+     * Símbolo da assinatura de barras, ou null se o reqId não pertence ao agregador.
+     */
+    public String symbolOfRequest(int reqId) {
+        SymbolBars bars = byReqId.get(reqId);
+        return bars != null ? bars.symbol : null;
+    }
+
+    public boolean isSubscribed(String symbol) {
+        SymbolBars bars = bySymbol.get(normalize(symbol));
+        return bars != null && bars.reqId != -1;
+    }
+
+    public List<HistoricalBarSize> getTimeframes() {
+        return timeframes;
+    }
+
+    public Set<String> getSymbols() {
+        return bySymbol.keySet();
+    }
+
+    // --- ATUALIZAÇÃO (thread do leitor TWS) ---
+
+    public void onRealtimeBar(int reqId, long time, double open, double high, double low, double close, long volume) {
+        SymbolBars bars = byReqId.get(reqId);
+        if (bars == null) {
+            return;
+        }
+        synchronized (bars) {
+            for (BarSeries series : bars.series) {
+                if (series.update(time, REALTIME_BAR_SECONDS, open, high, low, close, volume)) {
+                    eventPublisher.publishEvent(new BarCompletedEvent(series.getTimeframe(), series.latest(bars.symbol),
+                            series.isLatestPartial()));
+                }
+            }
+        }
+    }
+
+    // --- LEITURA ---
+
+    /**
+     * Até {@code limit} barras fechadas do timeframe, da mais antiga para a mais recente.
+     */
+    public List<Candle> history(String symbol, HistoricalBarSize timeframe, int limit) {
+        SymbolBars bars = bySymbol.get(normalize(symbol));
+        if (bars == null) {
+            return List.of();
+        }
+        synchronized (bars) {
+            return bars.series(timeframe).history(bars.symbol, limit);
+        }
+    }
+
+    /**
+     * Barra ainda em formação do timeframe (parcial).
+     */
+    public Optional<Candle> forming(String symbol, HistoricalBarSize timeframe) {
+        SymbolBars bars = bySymbol.get(normalize(symbol));
+        if (bars == null) {
+            return Optional.empty();
+        }
+        synchronized (bars) {
+            return bars.series(timeframe).forming(bars.symbol);
+        }
+    }
+
+    private SymbolBars newSymbolBars(String symbol) {
+        BarSeries[] series = new BarSeries[timeframes.size()];
+        for (int i = 0; i < series.length; i++) {
+            series[i] = new BarSeries(timeframes.get(i), historySize);
+        }
+        return new SymbolBars(symbol, series);
+    }
+
+    private static String normalize(String symbol) {
+        return symbol.trim().toUpperCase();
+    }
+
+    // Estado de um símbolo; o monitor do objeto protege as séries.
+    private static final class SymbolBars {
+        private final String symbol;
+        private final BarSeries[] series;
+        private volatile int reqId = -1;
+
+        private SymbolBars(String symbol, BarSeries[] series) {
+            this.symbol = symbol;
+            this.series = series;
+        }
+
+        private BarSeries series(HistoricalBarSize timeframe) {
+            for (BarSeries candidate : series) {
+                if (candidate.getTimeframe() == timeframe) {
+                    return candidate;
+                }
+            }
+            throw new IllegalArgumentException("Timeframe não agregado: " + timeframe + ". Veja ibkr.bars.timeframes.");
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.homegaibkrponte.data.bars;
+
+import com.example.homegaibkrponte.data.history.HistoricalBarSize;
+import com.example.homegaibkrponte.model.Candle;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Série de um timeframe para um símbolo: a barra em formação mais um ring buffer de tamanho fixo
+ * com as últimas barras fechadas, tudo em arrays primitivos. Cada barra de 5s custa O(1).
+ * Os períodos seguem múltiplos de epoch UTC; um período a que faltou a primeira ou a última barra de 5s
+ * (subscribe no meio, abertura do pregão às 09:30 no balde das 09:00, reconexão, buraco de dados) fecha
+ * mesmo assim, marcado como parcial.
+ * Não é thread-safe: o BarAggregator sincroniza por símbolo.
+ */
+final class BarSeries {
+
+    private static final long NONE = Long.MIN_VALUE;
+
+    @Getter
+    private final HistoricalBarSize timeframe;
+    private final long seconds;
+
+    // Barra em formação.
+    private long formingStart = NONE;
+    private boolean formingFromStart;
+    private double formingOpen;
+    private double formingHigh;
+    private double formingLow;
+    private double formingClose;
+    private long formingVolume;
+
+    // Barras fechadas (ring: 'head' é a próxima posição de escrita).
+    private final long[] starts;
+    private final double[] opens;
+    private final double[] highs;
+    private final double[] lows;
+    private final double[] closes;
+    private final long[] volumes;
+    private final boolean[] partials;
+    private int head;
+    private int count;
+
+    BarSeries(HistoricalBarSize timeframe, int historySize) {
+        this.timeframe = timeframe;
+        this.seconds = timeframe.getBarDuration().toSeconds();
+        this.starts = new long[historySize];
+        this.opens = new double[historySize];
+        this.highs = new double[historySize];
+        this.lows = new double[historySize];
+        this.closes = new double[historySize];
+        this.volumes = new long[historySize];
+        this.partials = new boolean[historySize];
+    }
+
+    /**
+     * Soma uma barra de 5s (time = início, epoch em segundos).
+     *
+     * @return true se uma barra deste timeframe fechou com esta atualização.
+     */
+    boolean update(long time, int barSeconds, double open, double high, double low, double close, long volume) {
+        long bucket = Math.floorDiv(time, seconds) * seconds;
+        boolean completed = false;
+        if (bucket != formingStart) {
+            // A última barra de 5s do período anterior não chegou: fecha com o que houver, como parcial.
+            if (formingStart != NONE && bucket > formingStart) {
+                push(true);
+                completed = true;
+            }
+            formingStart = bucket;
+            formingFromStart = time == bucket;
+            formingOpen = open;
+            formingHigh = high;
+            formingLow = low;
+            formingClose = close;
+            formingVolume = volume;
+        } else {
+            formingHigh = Math.max(formingHigh, high);
+            formingLow = Math.min(formingLow, low);
+            formingClose = close;
+            formingVolume += volume;
+        }
+        if (time + barSeconds >= bucket + seconds) {
+            // Um período que começou no meio (primeira barra após o subscribe ou um buraco) sai como parcial.
+            push(!formingFromStart);
+            completed = true;
+            formingStart = NONE;
+        }
+        return completed;
+    }
+
+    private void push(boolean partial) {
+        starts[head] = formingStart;
+        opens[head] = formingOpen;
+        highs[head] = formingHigh;
+        lows[head] = formingLow;
+        closes[head] = formingClose;
+        volumes[head] = formingVolume;
+        partials[head] = partial;
+        head = (head + 1) % starts.length;
+        count = Math.min(count + 1, starts.length);
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * Barra fechada mais recente (a que acabou de ser emitida).
+     */
+    Candle latest(String symbol) {
+        return candleAt(symbol, (head - 1 + starts.length) % starts.length);
+    }
+
+    /**
+     * Se a barra fechada mais recente não cobriu o período inteiro.
+     */
+    boolean isLatestPartial() {
+        return partials[(head - 1 + starts.length) % starts.length];
+    }
+
+    /**
+     * Até {@code limit} barras fechadas, da mais antiga para a mais recente.
+     */
+    List<Candle> history(String symbol, int limit) {
+        int n = Math.min(limit, count);
+        List<Candle> candles = new ArrayList<>(n);
+        for (int i = n; i > 0; i--) {
+            candles.add(candleAt(symbol, (head - i + starts.length) % starts.length));
+        }
+        return candles;
+    }
+
+    Optional<Candle> forming(String symbol) {
+        if (formingStart == NONE) {
+            return Optional.empty();
+        }
+        return Optional.of(new Candle(symbol, toDateTime(formingStart), formingOpen, formingHigh, formingLow, formingClose, formingVolume));
+    }
+
+    private Candle candleAt(String symbol, int index) {
+        return new Candle(symbol, toDateTime(starts[index]), opens[index], highs[index], lows[index], closes[index], volumes[index]);
+    }
+
+    private static LocalDateTime toDateTime(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+}
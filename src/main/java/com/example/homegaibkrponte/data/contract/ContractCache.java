@@ -0,0 +1,173 @@
+package com.example.homegaibkrponte.data.contract;
+
+import com.example.homegaibkrponte.dto.ContractDTO;
+import com.ib.client.Contract;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache persistente de contratos totalmente qualificados (conId, bolsa primária, localSymbol...),
+ * preenchido por reqContractDetails. Cada resolução vira uma linha em {@code contracts.tsv}
+ * (só de acréscimo); na partida o arquivo é relido e compactado, então um warm start não paga
+ * nenhuma ida à IBKR. Entradas mais velhas que {@code max-age-days} são descartadas e resolvidas de novo.
+ *
+ * A leitura (get) é um lookup num ConcurrentHashMap e pode ser feita de qualquer thread.
+ */
+@Component
+@Slf4j
+public class ContractCache {
+
+    private static final String FILE_NAME = "contracts.tsv";
+    private static final int FIELDS = 11;
+
+    private final Path directory;
+    private final Duration maxAge;
+    private final Map<ContractKey, Entry> entries = new ConcurrentHashMap<>();
+    private BufferedWriter writer;
+
+    public ContractCache(@Value("${ibkr.contracts.dir:./data/contracts}") String directory,
+                         @Value("${ibkr.contracts.max-age-days:30}") long maxAgeDays) {
+        this.directory = Path.of(directory);
+        this.maxAge = Duration.ofDays(maxAgeDays);
+    }
+
+    @PostConstruct
+    public void init() {
+        Path file = directory.resolve(FILE_NAME);
+        try {
+            Files.createDirectories(directory);
+            if (Files.exists(file)) {
+                load(file);
+                compact(file);
+            }
+            writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível abrir o cache de contratos: " + file, e);
+        }
+        log.info("📇 ContractCache em {}: {} contratos qualificados carregados.", file.toAbsolutePath(), entries.size());
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        try {
+            if (writer != null) {
+                writer.close();
+            }
+        } catch (IOException e) {
+            log.warn("⚠️ Falha ao fechar o cache de contratos: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Cópia do contrato qualificado, ou null se a chave ainda não foi resolvida.
+     */
+    public Contract get(ContractKey key) {
+        Entry entry = entries.get(key);
+        return entry != null ? entry.contract().clone() : null;
+    }
+
+    public boolean contains(ContractKey key) {
+        return entries.containsKey(key);
+    }
+
+    public synchronized void put(ContractKey key, Contract contract) {
+        Entry entry = new Entry(contract.clone(), Instant.now());
+        entries.put(key, entry);
+        try {
+            writer.write(format(key, entry));
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            log.warn("⚠️ Contrato {} resolvido mas não persistido: {}", key, e.getMessage());
+        }
+    }
+
+    public List<ContractDTO> snapshot() {
+        return entries.entrySet().stream()
+                .map(e -> toDto(e.getKey(), e.getValue()))
+                .sorted(Comparator.comparing(ContractDTO::key))
+                .toList();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // --- PERSISTÊNCIA ---
+
+    private void load(Path file) throws IOException {
+        Instant oldest = Instant.now().minus(maxAge);
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String[] f = line.split("\t", -1);
+            if (f.length != FIELDS) {
+                continue;
+            }
+            Instant resolvedAt = Instant.ofEpochMilli(Long.parseLong(f[10]));
+            if (resolvedAt.isBefore(oldest)) {
+                continue;
+            }
+            ContractKey key = ContractKey.parse(f[0]);
+            Contract contract = new Contract();
+            contract.conid(Integer.parseInt(f[1]));
+            contract.symbol(f[2]);
+            contract.secType(f[3]);
+            contract.exchange(f[4]);
+            contract.primaryExch(f[5]);
+            contract.currency(f[6]);
+            contract.localSymbol(f[7]);
+            contract.tradingClass(f[8]);
+            contract.multiplier(f[9]);
+            // A última linha de uma chave vence.
+            entries.put(key, new Entry(contract, resolvedAt));
+        }
+    }
+
+    private void compact(Path file) throws IOException {
+        Path tmp = directory.resolve(FILE_NAME + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (Map.Entry<ContractKey, Entry> entry : entries.entrySet()) {
+                out.write(format(entry.getKey(), entry.getValue()));
+                out.newLine();
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String format(ContractKey key, Entry entry) {
+        Contract c = entry.contract();
+        return String.join("\t", key.toString(), String.valueOf(c.conid()), nullToEmpty(c.symbol()),
+                c.secType() != null ? c.secType().name() : "", nullToEmpty(c.exchange()), nullToEmpty(c.primaryExch()),
+                nullToEmpty(c.currency()), nullToEmpty(c.localSymbol()), nullToEmpty(c.tradingClass()),
+                nullToEmpty(c.multiplier()), String.valueOf(entry.resolvedAt().toEpochMilli()));
+    }
+
+    private static ContractDTO toDto(ContractKey key, Entry entry) {
+        Contract c = entry.contract();
+        return new ContractDTO(key.toString(), c.conid(), c.symbol(), c.secType() != null ? c.secType().name() : null,
+                c.exchange(), c.primaryExch(), c.currency(), c.localSymbol(), c.tradingClass(), entry.resolvedAt());
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    private record Entry(Contract contract, Instant resolvedAt) {}
+}
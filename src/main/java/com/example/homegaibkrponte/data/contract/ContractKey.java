@@ -0,0 +1,48 @@
+package com.example.homegaibkrponte.data.contract;
+
+import com.ib.client.Contract;
+
+/**
+ * Chave do cache de contratos. Aceita a notação "SÍMBOLO[:SECTYPE[:BOLSA[:MOEDA]]]", em que a bolsa
+ * pode vir como "SMART/ARCA" (roteamento SMART com bolsa primária ARCA, para desambiguar ETFs).
+ * Campos omitidos seguem o padrão da ponte: STK / SMART / USD.
+ * Exemplos: "NVDA", "SAP:STK:IBIS:EUR", "SPY:STK:SMART/ARCA".
+ */
+public record ContractKey(String symbol, String secType, String exchange, String primaryExchange, String currency) {
+
+    public static ContractKey parse(String spec) {
+        String[] parts = spec.trim().toUpperCase().split(":");
+        String exchange = field(parts, 2, "SMART");
+        String primaryExchange = "";
+        int slash = exchange.indexOf('/');
+        if (slash >= 0) {
+            primaryExchange = exchange.substring(slash + 1);
+            exchange = exchange.substring(0, slash);
+        }
+        return new ContractKey(parts[0].trim(), field(parts, 1, "STK"), exchange, primaryExchange, field(parts, 3, "USD"));
+    }
+
+    private static String field(String[] parts, int index, String fallback) {
+        return parts.length > index && !parts[index].isBlank() ? parts[index].trim() : fallback;
+    }
+
+    /**
+     * Contrato parcial usado na consulta reqContractDetails (e como fallback enquanto não há conId).
+     */
+    public Contract toQuery() {
+        Contract contract = new Contract();
+        contract.symbol(symbol);
+        contract.secType(secType);
+        contract.exchange(exchange);
+        contract.currency(currency);
+        if (!primaryExchange.isEmpty()) {
+            contract.primaryExch(primaryExchange);
+        }
+        return contract;
+    }
+
+    @Override
+    public String toString() {
+        return symbol + ":" + secType + ":" + exchange + (primaryExchange.isEmpty() ? "" : "/" + primaryExchange) + ":" + currency;
+    }
+}
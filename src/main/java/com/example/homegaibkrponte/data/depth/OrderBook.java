@@ -0,0 +1,207 @@
+package com.example.homegaibkrponte.data.depth;
+
+import lombok.Getter;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+
+/**
+ * Livro de ofertas (L2) de um símbolo em arrays primitivos pré-dimensionados para {@code rows} níveis.
+ * As operações da IBKR (insert/update/delete por posição) são aplicadas no lugar, com System.arraycopy
+ * para deslocar os níveis; nenhuma alocação por atualização.
+ *
+ * Escritor único (thread do leitor TWS). Leitores usam o mesmo seqlock do QuoteStore:
+ * versão ímpar durante a escrita, e a leitura é repetida se a versão mudou no meio.
+ */
+public final class OrderBook {
+
+    // Valores de 'side' e 'operation' do updateMktDepth/updateMktDepthL2.
+    public static final int SIDE_ASK = 0;
+    public static final int SIDE_BID = 1;
+    static final int OP_INSERT = 0;
+    static final int OP_UPDATE = 1;
+    static final int OP_DELETE = 2;
+
+    private static final VarHandle VERSION;
+
+    static {
+        try {
+            VERSION = MethodHandles.lookup().findVarHandle(OrderBook.class, "version", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Getter
+    private final String symbol;
+    @Getter
+    private final int rows;
+
+    private final double[] bidPrices;
+    private final double[] bidSizes;
+    private final int[] bidMakers;
+    private final double[] askPrices;
+    private final double[] askSizes;
+    private final int[] askMakers;
+    private int bidCount;
+    private int askCount;
+    private long updatedAtMillis;
+
+    @SuppressWarnings("unused") // acessado via VarHandle
+    private long version;
+
+    OrderBook(String symbol, int rows) {
+        this.symbol = symbol;
+        this.rows = rows;
+        this.bidPrices = new double[rows];
+        this.bidSizes = new double[rows];
+        this.bidMakers = new int[rows];
+        this.askPrices = new double[rows];
+        this.askSizes = new double[rows];
+        this.askMakers = new int[rows];
+    }
+
+    // --- ESCRITA (thread do leitor TWS) ---
+
+    void apply(int side, int operation, int position, double price, double size, int maker) {
+        if (position < 0 || position >= rows) {
+            return;
+        }
+        beginWrite();
+        if (side == SIDE_BID) {
+            bidCount = applySide(bidPrices, bidSizes, bidMakers, bidCount, operation, position, price, size, maker);
+        } else {
+            askCount = applySide(askPrices, askSizes, askMakers, askCount, operation, position, price, size, maker);
+        }
+        updatedAtMillis = System.currentTimeMillis();
+        endWrite();
+    }
+
+    private int applySide(double[] prices, double[] sizes, int[] makers, int count,
+                          int operation, int position, double price, double size, int maker) {
+        switch (operation) {
+            case OP_INSERT -> {
+                // Desloca os níveis abaixo para baixo; o último cai fora se o livro estiver cheio.
+                int tail = Math.min(count, rows - 1) - position;
+                if (tail > 0) {
+                    System.arraycopy(prices, position, prices, position + 1, tail);
+                    System.arraycopy(sizes, position, sizes, position + 1, tail);
+                    System.arraycopy(makers, position, makers, position + 1, tail);
+                }
+                prices[position] = price;
+                sizes[position] = size;
+                makers[position] = maker;
+                return Math.min(Math.max(count, position) + 1, rows);
+            }
+            case OP_UPDATE -> {
+                prices[position] = price;
+                sizes[position] = size;
+                makers[position] = maker;
+                return Math.max(count, position + 1);
+            }
+            case OP_DELETE -> {
+                if (position >= count) {
+                    return count;
+                }
+                int tail = count - position - 1;
+                if (tail > 0) {
+                    System.arraycopy(prices, position + 1, prices, position, tail);
+                    System.arraycopy(sizes, position + 1, sizes, position, tail);
+                    System.arraycopy(makers, position + 1, makers, position, tail);
+                }
+                return count - 1;
+            }
+            default -> {
+                return count;
+            }
+        }
+    }
+
+    /**
+     * Esvazia o livro (erro 317 da IBKR: "Market depth data has been RESET").
+     */
+    void clear() {
+        beginWrite();
+        bidCount = 0;
+        askCount = 0;
+        Arrays.fill(bidSizes, 0.0);
+        Arrays.fill(askSizes, 0.0);
+        updatedAtMillis = System.currentTimeMillis();
+        endWrite();
+    }
+
+    private void beginWrite() {
+        long current = (long) VERSION.getOpaque(this);
+        VERSION.setOpaque(this, current + 1);
+        VarHandle.storeStoreFence();
+    }
+
+    private void endWrite() {
+        VERSION.setRelease(this, (long) VERSION.getOpaque(this) + 1);
+    }
+
+    // --- LEITURA (qualquer thread, sem lock) ---
+
+    /**
+     * Versão atual do livro; muda a cada atualização. Permite conflacionar leituras ("nada mudou").
+     */
+    public long version() {
+        return (long) VERSION.getAcquire(this);
+    }
+
+    /**
+     * Desequilíbrio (bid - ask) / (bid + ask) somando os tamanhos dos primeiros {@code levels} níveis.
+     * Vai de -1 (só oferta de venda) a +1 (só oferta de compra); NaN com o livro vazio. Não aloca.
+     */
+    public double imbalance(int levels) {
+        while (true) {
+            long before = (long) VERSION.getAcquire(this);
+            if ((before & 1L) == 0L) {
+                double bid = sum(bidSizes, Math.min(levels, bidCount));
+                double ask = sum(askSizes, Math.min(levels, askCount));
+                VarHandle.loadLoadFence();
+                if ((long) VERSION.getOpaque(this) == before) {
+                    double total = bid + ask;
+                    return total > 0 ? (bid - ask) / total : Double.NaN;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private static double sum(double[] sizes, int count) {
+        double total = 0;
+        for (int i = 0; i < count; i++) {
+            total += sizes[i];
+        }
+        return total;
+    }
+
+    /**
+     * Copia uma fotografia consistente para {@code into}, que pode ser reutilizada entre leituras.
+     */
+    public void read(OrderBookView into) {
+        into.ensureRows(rows);
+        while (true) {
+            long before = (long) VERSION.getAcquire(this);
+            if ((before & 1L) == 0L) {
+                int bids = Math.min(bidCount, rows);
+                int asks = Math.min(askCount, rows);
+                System.arraycopy(bidPrices, 0, into.bidPrices, 0, bids);
+                System.arraycopy(bidSizes, 0, into.bidSizes, 0, bids);
+                System.arraycopy(bidMakers, 0, into.bidMakers, 0, bids);
+                System.arraycopy(askPrices, 0, into.askPrices, 0, asks);
+                System.arraycopy(askSizes, 0, into.askSizes, 0, asks);
+                System.arraycopy(askMakers, 0, into.askMakers, 0, asks);
+                long updatedAt = updatedAtMillis;
+                VarHandle.loadLoadFence();
+                if ((long) VERSION.getOpaque(this) == before) {
+                    into.set(symbol, bids, asks, updatedAt, before);
+                    return;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+}
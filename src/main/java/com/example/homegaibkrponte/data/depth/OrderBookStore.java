@@ -0,0 +1,234 @@
+package com.example.homegaibkrponte.data.depth;
+
+import com.example.homegaibkrponte.dto.DepthSnapshotDTO;
+import com.example.homegaibkrponte.util.IntIntMap;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Livros L2 de todos os símbolos assinados (reqMktDepth). Cada símbolo ganha um slot fixo com um
+ * OrderBook pré-dimensionado; o market maker vira um id inteiro para o livro guardar só primitivos.
+ */
+@Component
+@Slf4j
+public class OrderBookStore {
+
+    private final int capacity;
+    @Getter
+    private final int rows;
+    private final OrderBook[] books;
+    private final int[] reqIdBySlot;
+    private final Map<String, Integer> slotsBySymbol = new ConcurrentHashMap<>();
+    private int slotCount;
+
+    // reqId -> slot, lido a cada atualização. Copy-on-write: só muda em subscribe/unsubscribe.
+    private volatile IntIntMap slotsByReqId = IntIntMap.empty();
+
+    // Market makers / bolsas vistos no L2. O id 0 é "sem market maker" (updateMktDepth).
+    private final Map<String, Integer> makerIds = new ConcurrentHashMap<>();
+    private final List<String> makerNames = new CopyOnWriteArrayList<>(List.of(""));
+
+    public OrderBookStore(@Value("${ibkr.depth.capacity:128}") int capacity,
+                          @Value("${ibkr.depth.rows:10}") int rows) {
+        this.capacity = capacity;
+        this.rows = rows;
+        this.books = new OrderBook[capacity];
+        this.reqIdBySlot = new int[capacity];
+        Arrays.fill(reqIdBySlot, IntIntMap.MISSING);
+    }
+
+    // --- REGISTRO (raro; chamado pelo IBKRConnector.subscribeDepth/unsubscribeDepth) ---
+
+    public synchronized int register(String symbol) {
+        String key = normalize(symbol);
+        Integer existing = slotsBySymbol.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        if (slotCount == capacity) {
+            throw new IllegalStateException("OrderBookStore cheio (" + capacity + " símbolos). Aumente ibkr.depth.capacity.");
+        }
+        int slot = slotCount++;
+        books[slot] = new OrderBook(key, rows);
+        slotsBySymbol.put(key, slot);
+        return slot;
+    }
+
+    /**
+     * @return false se o slot já tem uma assinatura ativa (nada é alterado).
+     */
+    public synchronized boolean bind(int slot, int reqId) {
+        if (reqIdBySlot[slot] != IntIntMap.MISSING) {
+            return false;
+        }
+        reqIdBySlot[slot] = reqId;
+        slotsByReqId = slotsByReqId.with(reqId, slot);
+        return true;
+    }
+
+    /**
+     * Remove a assinatura ativa. O livro não é limpo aqui: só a thread do leitor TWS escreve nele.
+     *
+     * @return o reqId removido, ou -1 se não havia assinatura.
+     */
+    public synchronized int unbind(int slot) {
+        int reqId = reqIdBySlot[slot];
+        if (reqId != IntIntMap.MISSING) {
+            reqIdBySlot[slot] = IntIntMap.MISSING;
+            slotsByReqId = slotsByReqId.without(reqId);
+        }
+        return reqId;
+    }
+
+    public synchronized int reqIdOf(int slot) {
+        return reqIdBySlot[slot];
+    }
+
+    public int slotOfRequest(int reqId) {
+        return slotsByReqId.get(reqId);
+    }
+
+    public int slotOf(String symbol) {
+        Integer slot = slotsBySymbol.get(normalize(symbol));
+        return slot != null ? slot : -1;
+    }
+
+    public boolean isSubscribed(String symbol) {
+        int slot = slotOf(symbol);
+        return slot >= 0 && reqIdOf(slot) != IntIntMap.MISSING;
+    }
+
+    public OrderBook book(int slot) {
+        return books[slot];
+    }
+
+    public Optional<OrderBook> book(String symbol) {
+        int slot = slotOf(symbol);
+        return slot >= 0 ? Optional.of(books[slot]) : Optional.empty();
+    }
+
+    public String marketMakerName(int makerId) {
+        return makerNames.get(makerId);
+    }
+
+    // --- ESCRITA (thread do leitor TWS) ---
+
+    public void onUpdate(int reqId, int position, String marketMaker, int operation, int side, double price, double size) {
+        int slot = slotsByReqId.get(reqId);
+        if (slot == IntIntMap.MISSING) {
+            return;
+        }
+        books[slot].apply(side, operation, position, price, size, makerId(marketMaker));
+    }
+
+    /**
+     * Erro 317: a IBKR vai reenviar o livro inteiro, então o atual é descartado.
+     */
+    public void onReset(int reqId) {
+        int slot = slotsByReqId.get(reqId);
+        if (slot != IntIntMap.MISSING) {
+            books[slot].clear();
+        }
+    }
+
+    private int makerId(String marketMaker) {
+        if (marketMaker == null || marketMaker.isEmpty()) {
+            return 0;
+        }
+        Integer id = makerIds.get(marketMaker);
+        return id != null ? id : newMakerId(marketMaker);
+    }
+
+    private synchronized int newMakerId(String marketMaker) {
+        return makerIds.computeIfAbsent(marketMaker, name -> {
+            makerNames.add(name);
+            return makerNames.size() - 1;
+        });
+    }
+
+    // --- LEITURA (REST / stream; aloca) ---
+
+    public Optional<DepthSnapshotDTO> snapshot(String symbol) {
+        return book(symbol).map(book -> {
+            OrderBookView view = new OrderBookView();
+            book.read(view);
+            return toDto(view);
+        });
+    }
+
+    /**
+     * Desequilíbrio dos primeiros {@code levels} níveis de cada símbolo assinado.
+     */
+    public Map<String, Double> imbalances(int levels) {
+        Map<String, Double> result = new TreeMap<>();
+        slotsBySymbol.forEach((symbol, slot) -> {
+            double imbalance = books[slot].imbalance(levels);
+            if (!Double.isNaN(imbalance)) {
+                result.put(symbol, imbalance);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Stream conflacionado do livro: a cada {@code interval}, emite uma fotografia se (e só se) o livro
+     * mudou desde a última emissão. Atualizações intermediárias são colapsadas, então um assinante lento
+     * recebe sempre o estado mais recente em vez de uma fila crescente.
+     */
+    public Flux<DepthSnapshotDTO> stream(String symbol, Duration interval) {
+        int slot = slotOf(symbol);
+        if (slot < 0) {
+            return Flux.empty();
+        }
+        OrderBook book = books[slot];
+        return Flux.defer(() -> {
+            long[] lastVersion = {-1L};
+            OrderBookView view = new OrderBookView();
+            return Flux.interval(interval)
+                    .onBackpressureDrop(ignored -> { })
+                    .handle((tick, sink) -> {
+                        if (book.version() != lastVersion[0]) {
+                            book.read(view);
+                            lastVersion[0] = view.getVersion();
+                            sink.next(toDto(view));
+                        }
+                    });
+        });
+    }
+
+    private DepthSnapshotDTO toDto(OrderBookView view) {
+        List<DepthSnapshotDTO.Level> bids = new ArrayList<>(view.getBidCount());
+        double bidTotal = 0;
+        for (int i = 0; i < view.getBidCount(); i++) {
+            bids.add(new DepthSnapshotDTO.Level(view.bidPrice(i), view.bidSize(i), marketMakerName(view.bidMaker(i))));
+            bidTotal += view.bidSize(i);
+        }
+        List<DepthSnapshotDTO.Level> asks = new ArrayList<>(view.getAskCount());
+        double askTotal = 0;
+        for (int i = 0; i < view.getAskCount(); i++) {
+            asks.add(new DepthSnapshotDTO.Level(view.askPrice(i), view.askSize(i), marketMakerName(view.askMaker(i))));
+            askTotal += view.askSize(i);
+        }
+        double total = bidTotal + askTotal;
+        return new DepthSnapshotDTO(view.getSymbol(), bids, asks, total > 0 ? (bidTotal - askTotal) / total : null,
+                Instant.ofEpochMilli(view.getUpdatedAtMillis()), view.getVersion() / 2);
+    }
+
+    private static String normalize(String symbol) {
+        return symbol.trim().toUpperCase();
+    }
+}
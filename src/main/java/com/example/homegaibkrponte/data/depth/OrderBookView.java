@@ -0,0 +1,72 @@
+package com.example.homegaibkrponte.data.depth;
+
+import lombok.Getter;
+
+/**
+ * Fotografia de um OrderBook. Mutável e reutilizável: quem lê em laço quente mantém uma
+ * instância própria e chama {@link OrderBook#read(OrderBookView)} sem alocar.
+ * O market maker é o id numérico do OrderBookStore (ver {@link OrderBookStore#marketMakerName(int)}).
+ */
+public final class OrderBookView {
+
+    @Getter
+    private String symbol;
+    @Getter
+    private int bidCount;
+    @Getter
+    private int askCount;
+    @Getter
+    private long updatedAtMillis;
+    @Getter
+    private long version;
+
+    double[] bidPrices = new double[0];
+    double[] bidSizes = new double[0];
+    int[] bidMakers = new int[0];
+    double[] askPrices = new double[0];
+    double[] askSizes = new double[0];
+    int[] askMakers = new int[0];
+
+    void ensureRows(int rows) {
+        if (bidPrices.length < rows) {
+            bidPrices = new double[rows];
+            bidSizes = new double[rows];
+            bidMakers = new int[rows];
+            askPrices = new double[rows];
+            askSizes = new double[rows];
+            askMakers = new int[rows];
+        }
+    }
+
+    void set(String symbol, int bidCount, int askCount, long updatedAtMillis, long version) {
+        this.symbol = symbol;
+        this.bidCount = bidCount;
+        this.askCount = askCount;
+        this.updatedAtMillis = updatedAtMillis;
+        this.version = version;
+    }
+
+    public double bidPrice(int level) {
+        return bidPrices[level];
+    }
+
+    public double bidSize(int level) {
+        return bidSizes[level];
+    }
+
+    public int bidMaker(int level) {
+        return bidMakers[level];
+    }
+
+    public double askPrice(int level) {
+        return askPrices[level];
+    }
+
+    public double askSize(int level) {
+        return askSizes[level];
+    }
+
+    public int askMaker(int level) {
+        return askMakers[level];
+    }
+}
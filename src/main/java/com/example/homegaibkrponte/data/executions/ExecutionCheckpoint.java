@@ -0,0 +1,98 @@
+package com.example.homegaibkrponte.data.executions;
+
+import com.example.homegaibkrponte.model.Position;
+import com.example.homegaibkrponte.model.PositionDirection;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Posições e caixa resultantes de todas as execuções do journal até {@code segment}/{@code offset}.
+ * O replay parte daqui e só relê os registros gravados depois.
+ *
+ * {@code cash} é o fluxo de caixa acumulado das execuções (parte de zero), não o saldo: o capital
+ * inicial é configuração e é somado no replay.
+ *
+ * Em disco (executions.checkpoint, texto separado por tab, trocado por rename atômico):
+ * <pre>
+ * segment  offset  createdAt(epoch ms)  cash
+ * symbol   quantity  averageEntryPrice  direction  entryTime    (uma linha por posição)
+ * </pre>
+ */
+public record ExecutionCheckpoint(
+        long segment,
+        int offset,
+        Instant createdAt,
+        BigDecimal cash,
+        List<Position> positions
+) {
+
+    static final String FILE_NAME = "executions.checkpoint";
+
+    /**
+     * @return o checkpoint gravado, ou null se não houver arquivo.
+     * @throws IOException se o arquivo existir mas não puder ser lido (o chamador volta ao replay completo).
+     */
+    static ExecutionCheckpoint load(Path directory) throws IOException {
+        Path file = directory.resolve(FILE_NAME);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        if (lines.isEmpty()) {
+            throw new IOException("Checkpoint vazio: " + file);
+        }
+        try {
+            String[] head = lines.get(0).split("\t", -1);
+            List<Position> positions = new ArrayList<>(lines.size() - 1);
+            for (String line : lines.subList(1, lines.size())) {
+                String[] f = line.split("\t", -1);
+                positions.add(new Position(f[0], new BigDecimal(f[1]), new BigDecimal(f[2]), LocalDateTime.parse(f[4]),
+                        PositionDirection.valueOf(f[3]), null, null, "Checkpoint do journal"));
+            }
+            return new ExecutionCheckpoint(Long.parseLong(head[0]), Integer.parseInt(head[1]),
+                    Instant.ofEpochMilli(Long.parseLong(head[2])), new BigDecimal(head[3]), List.copyOf(positions));
+        } catch (RuntimeException e) {
+            throw new IOException("Checkpoint ilegível: " + file + " (" + e.getMessage() + ")", e);
+        }
+    }
+
+    /**
+     * Grava num arquivo temporário, faz fsync e troca pelo atual com rename atômico: uma queda no meio
+     * deixa o checkpoint anterior intacto.
+     */
+    void store(Path directory) throws IOException {
+        Path tmp = directory.resolve(FILE_NAME + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            out.write(String.join("\t", String.valueOf(segment), String.valueOf(offset),
+                    String.valueOf(createdAt.toEpochMilli()), cash.toPlainString()));
+            out.newLine();
+            for (Position position : positions) {
+                out.write(String.join("\t", position.getSymbol(), position.getQuantity().toPlainString(),
+                        position.getAverageEntryPrice().toPlainString(), position.getDirection().name(),
+                        position.getEntryTime().toString()));
+                out.newLine();
+            }
+        }
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(tmp, directory.resolve(FILE_NAME), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static ExecutionCheckpoint of(long segment, int offset, BigDecimal cash, Collection<Position> positions) {
+        return new ExecutionCheckpoint(segment, offset, Instant.now(), cash, List.copyOf(positions));
+    }
+}
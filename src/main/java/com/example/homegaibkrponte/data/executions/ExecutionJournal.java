@@ -0,0 +1,424 @@
+package com.example.homegaibkrponte.data.executions;
+
+import com.example.homegaibkrponte.model.Position;
+import com.example.homegaibkrponte.util.BoundedLongSet;
+import com.ib.client.Contract;
+import com.ib.client.Execution;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead journal das execuções (execDetails). O IBKRConnector grava cada execução aqui ANTES de
+ * publicá-la no CallbackDispatcher, então nenhum consumidor (portfólio, webhook, ciclo de vida) vê uma
+ * execução que não esteja no journal.
+ *
+ * A gravação na thread do leitor TWS é só uma cópia para o segmento mapeado em memória (sobrevive a uma
+ * queda do processo). O fsync é feito em grupo pela thread "ibkr-exec-journal": um force() cobre todas as
+ * execuções acrescentadas enquanto o anterior rodava, e o leitor nunca espera por ele.
+ *
+ * Na partida, {@link #replay()} devolve o último checkpoint (posições e caixa dobrados até um ponto do
+ * journal, ver {@link ExecutionCheckpoint}) e só as execuções gravadas depois dele, uma vez por execId, para
+ * reconstruir o portfólio antes da primeira conexão; a reconciliação com o TWS vem depois, com o reqPositions.
+ * Quem dobra as execuções (o portfólio) grava checkpoints novos com {@link #checkpoint}, então o replay não
+ * cresce com o histórico.
+ *
+ * O próximo segmento é criado e mapeado de antemão pelo committer: ao encher o atual, o leitor TWS só troca
+ * de buffer. Um segmento vazio que sobrar no disco é retomado como o atual na próxima partida.
+ *
+ * O journal também descarta execuções repetidas (o TWS as reenvia no catch-up após uma reconexão):
+ * guarda a impressão digital de 64 bits dos últimos execIds num {@link BoundedLongSet}, semeado na partida.
+ */
+@Component
+@Slf4j
+public class ExecutionJournal {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final MeterRegistry meterRegistry;
+    private Thread committer;
+    private volatile boolean running;
+
+    // Estado do escritor (thread do leitor TWS). 'current' é volatile só para o committer enxergá-lo;
+    // é trocado sob o monitor, junto com 'spare', que o committer prepara (ver nextSegment/prepareSpare).
+    private volatile ExecutionJournalSegment current;
+    private ExecutionJournalSegment spare;
+    private int position;
+    private final CRC32 crc = new CRC32();
+    private final Queue<ExecutionJournalSegment> retired = new ConcurrentLinkedQueue<>();
+    private final AtomicLong inlineRolls = new AtomicLong();
+
+    // Marcas (segmento << 32 | offset): fim do que foi gravado e do que já passou pelo fsync.
+    private volatile long endMark;
+    private volatile long committedMark;
+    private volatile ExecutionCheckpoint checkpoint;
+
+    // execIds já gravados (impressões digitais), janela FIFO limitada. Só a thread do leitor TWS usa.
+    private final BoundedLongSet seenExecIds;
+    private final AtomicLong duplicates = new AtomicLong();
+    private volatile long lastReceivedMicros;
+
+    private final AtomicLong appended = new AtomicLong();
+    private volatile long committed;
+    private final AtomicLong commits = new AtomicLong();
+
+    // Relógio em microssegundos: âncora em epoch + deslocamento pelo nanoTime (monotônico e sem alocação).
+    private final long epochMicrosAnchor = System.currentTimeMillis() * 1_000L;
+    private final long nanoAnchor = System.nanoTime();
+
+    public ExecutionJournal(@Value("${ibkr.executions.dir:./data/executions}") String directory,
+                            @Value("${ibkr.executions.segment-size-mb:16}") long segmentSizeMb,
+                            @Value("${ibkr.executions.dedup-capacity:65536}") int dedupCapacity,
+                            MeterRegistry meterRegistry) {
+        this.directory = Path.of(directory);
+        this.segmentBytes = segmentSizeMb * 1024 * 1024;
+        this.seenExecIds = new BoundedLongSet(dedupCapacity);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível criar o diretório do ExecutionJournal: " + directory, e);
+        }
+        try {
+            checkpoint = ExecutionCheckpoint.load(directory);
+        } catch (IOException e) {
+            log.warn("⚠️ [EXECUÇÕES] {}. O replay relê o journal inteiro.", e.getMessage());
+        }
+        List<Path> segments = segmentFiles();
+        // Os execIds recentes bastam para o dedup: os segmentos já cobertos pelo checkpoint não são relidos.
+        long firstSegment = checkpoint == null ? 0 : checkpoint.segment();
+        for (Path file : segments) {
+            if (ExecutionJournalSegment.segmentIndex(file) < firstSegment) {
+                continue;
+            }
+            ExecutionJournalSegment.openReadOnly(file).forEach(record -> {
+                seenExecIds.add(fingerprint(record.execId()));
+                lastReceivedMicros = record.receivedMicros();
+            });
+        }
+        if (segments.isEmpty()) {
+            current = ExecutionJournalSegment.create(directory, 1, segmentBytes);
+            position = ExecutionJournalSegment.HEADER_BYTES;
+        } else {
+            // Continua no último segmento, logo após o último registro íntegro.
+            ExecutionJournalSegment last = ExecutionJournalSegment.openWritable(segments.get(segments.size() - 1));
+            position = last.forEach(null);
+            int cleared = last.truncate(position);
+            if (cleared > 0) {
+                log.warn("⚠️ [EXECUÇÕES] Registro incompleto no fim de {} descartado ({} bytes).", last.getFile().getFileName(), cleared);
+            }
+            // O que sobreviveu a uma queda do processo pode estar só no page cache: o checkpoint não pode cobri-lo antes do fsync.
+            last.force();
+            current = last;
+        }
+        endMark = mark(current.getIndex(), position);
+        committedMark = endMark;
+        if (checkpoint != null && mark(checkpoint.segment(), checkpoint.offset()) > endMark) {
+            log.warn("⚠️ [EXECUÇÕES] Checkpoint à frente do journal ({}:{}); descartado, o replay relê o journal inteiro.",
+                    checkpoint.segment(), checkpoint.offset());
+            checkpoint = null;
+        }
+
+        FunctionCounter.builder("ibkr.executions.records", appended, AtomicLong::get)
+                .description("Execuções gravadas no journal desde a partida")
+                .register(meterRegistry);
+        FunctionCounter.builder("ibkr.executions.commits", commits, AtomicLong::get)
+                .description("fsyncs em grupo do journal de execuções")
+                .register(meterRegistry);
+        FunctionCounter.builder("ibkr.executions.duplicates", duplicates, AtomicLong::get)
+                .description("Execuções descartadas por execId já gravado")
+                .register(meterRegistry);
+        FunctionCounter.builder("ibkr.executions.inline-rolls", inlineRolls, AtomicLong::get)
+                .description("Trocas de segmento em que o próximo ainda não estava pré-alocado")
+                .register(meterRegistry);
+        Gauge.builder("ibkr.executions.uncommitted", this, journal -> journal.appended.get() - journal.committed)
+                .description("Execuções gravadas no mapeamento e ainda sem fsync")
+                .register(meterRegistry);
+
+        running = true;
+        committer = new Thread(this::commitLoop, "ibkr-exec-journal");
+        committer.setDaemon(true);
+        committer.start();
+        log.info("🧾 ExecutionJournal em {} (segmentos de {} MB, {} segmento(s) existente(s), checkpoint {})",
+                directory.toAbsolutePath(), segmentBytes / (1024 * 1024), segments.size(),
+                checkpoint == null ? "nenhum" : checkpoint.segment() + ":" + checkpoint.offset());
+    }
+
+    @PreDestroy
+    public void close() {
+        running = false;
+        if (committer != null) {
+            LockSupport.unpark(committer);
+            try {
+                committer.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        commit();
+    }
+
+    // --- ESCRITA (thread do leitor TWS) ---
+
+    /**
+     * Acrescenta a execução ao journal. Chamado só pela thread do leitor TWS, antes da publicação no dispatcher.
+     *
+     * @return false se o execId já foi gravado: a execução é repetida e não deve ser publicada.
+     */
+    public boolean append(Contract contract, Execution execution) {
+        if (!seenExecIds.add(fingerprint(execution.execId()))) {
+            duplicates.incrementAndGet();
+            return false;
+        }
+        byte[][] text = {
+                ExecutionRecord.text(execution.execId()),
+                ExecutionRecord.text(contract.symbol()),
+                ExecutionRecord.text(execution.side()),
+                ExecutionRecord.text(execution.time()),
+                ExecutionRecord.text(execution.acctNumber()),
+                ExecutionRecord.text(execution.exchange())
+        };
+        int length = ExecutionRecord.lengthOf(text);
+        ExecutionJournalSegment segment = current;
+        if (position + length > segment.capacity()) {
+            segment = roll(segment, length);
+        }
+        long receivedMicros = epochMicrosAnchor + (System.nanoTime() - nanoAnchor) / 1_000L;
+        ExecutionRecord.write(segment.getBuffer(), position, crc, receivedMicros,
+                execution.orderId(), contract.conid(), execution.permId(),
+                ExecutionRecord.scaleSize(execution.shares()), ExecutionRecord.scalePrice(execution.price()),
+                ExecutionRecord.scaleSize(execution.cumQty()), ExecutionRecord.scalePrice(execution.avgPrice()), text);
+        position += length;
+        endMark = mark(segment.getIndex(), position);
+        lastReceivedMicros = receivedMicros;
+        appended.incrementAndGet();
+        LockSupport.unpark(committer);
+        return true;
+    }
+
+    private ExecutionJournalSegment roll(ExecutionJournalSegment full, int length) {
+        if (ExecutionJournalSegment.HEADER_BYTES + length > segmentBytes) {
+            throw new IllegalStateException("Execução de " + length + " bytes não cabe num segmento de " + segmentBytes + " bytes");
+        }
+        ExecutionJournalSegment next = nextSegment(full);
+        retired.add(full);
+        position = ExecutionJournalSegment.HEADER_BYTES;
+        return next;
+    }
+
+    // Sob o monitor, para que o committer nunca crie um segmento com o índice que o leitor está criando.
+    private synchronized ExecutionJournalSegment nextSegment(ExecutionJournalSegment full) {
+        ExecutionJournalSegment next = spare;
+        spare = null;
+        if (next == null) {
+            // O committer ainda não preparou o próximo (ex: falha de disco): cria aqui mesmo, na thread do leitor.
+            inlineRolls.incrementAndGet();
+            next = ExecutionJournalSegment.create(directory, full.getIndex() + 1, segmentBytes);
+        }
+        current = next;
+        return next;
+    }
+
+    private synchronized void prepareSpare() {
+        if (spare == null) {
+            spare = ExecutionJournalSegment.create(directory, current.getIndex() + 1, segmentBytes);
+        }
+    }
+
+    // --- THREAD "ibkr-exec-journal" (group commit) ---
+
+    private void commitLoop() {
+        while (running) {
+            try {
+                prepareSpare();
+            } catch (Exception e) {
+                log.error("💥 [EXECUÇÕES] Falha ao pré-alocar o próximo segmento: {}", e.getMessage(), e);
+            }
+            if (appended.get() == committed) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+            try {
+                commit();
+            } catch (Exception e) {
+                log.error("💥 [EXECUÇÕES] Falha no fsync do journal: {}", e.getMessage(), e);
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private void commit() {
+        long target = appended.get();
+        if (target == committed) {
+            return;
+        }
+        // Lida depois de 'target', a marca cobre pelo menos essas execuções; o force() abaixo cobre tudo até ela.
+        long mark = endMark;
+        // O segmento atual é lido antes de esvaziar 'retired': um segmento trocado no meio do caminho
+        // já estará na fila quando ela for percorrida.
+        ExecutionJournalSegment segment = current;
+        segment.force();
+        ExecutionJournalSegment full;
+        while ((full = retired.poll()) != null) {
+            full.force();
+        }
+        committed = target;
+        committedMark = mark;
+        commits.incrementAndGet();
+    }
+
+    // --- LEITURA ---
+
+    /**
+     * Execuções lidas do journal e a marca até onde a leitura foi (ponto de partida da próxima).
+     *
+     * @param checkpoint estado até o início da leitura; null se ela começou do primeiro registro (ou não veio de um replay).
+     */
+    public record Replay(ExecutionCheckpoint checkpoint, List<ExecutionRecord> records, long mark) {
+    }
+
+    /**
+     * O último checkpoint e as execuções gravadas depois dele, em ordem, uma por execId: uma execução
+     * reenviada pelo TWS e gravada de novo só aparece na primeira ocorrência. Sem checkpoint, o histórico inteiro.
+     */
+    public Replay replay() {
+        ExecutionCheckpoint from = checkpoint;
+        long start = from == null ? mark(0, 0) : mark(from.segment(), from.offset());
+        return new Replay(from, read(start, committedMark), committedMark);
+    }
+
+    /**
+     * Execuções que já passaram pelo fsync depois de {@code mark} (de um Replay anterior), para dobrar num novo checkpoint.
+     */
+    public Replay readSince(long mark) {
+        long end = committedMark;
+        return new Replay(null, read(mark, end), end);
+    }
+
+    /**
+     * Grava o estado dobrado até {@code mark}: a próxima partida começa o replay dali.
+     *
+     * @param cash fluxo de caixa acumulado das execuções (sem o capital inicial).
+     */
+    public void checkpoint(long mark, BigDecimal cash, Collection<Position> positions) {
+        ExecutionCheckpoint next = ExecutionCheckpoint.of(mark >>> 32, (int) mark, cash, positions);
+        try {
+            next.store(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao gravar o checkpoint do ExecutionJournal em " + directory, e);
+        }
+        checkpoint = next;
+    }
+
+    public ExecutionCheckpoint getCheckpoint() {
+        return checkpoint;
+    }
+
+    private List<ExecutionRecord> read(long from, long to) {
+        long fromSegment = from >>> 32;
+        long toSegment = to >>> 32;
+        List<ExecutionRecord> records = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (Path file : segmentFiles()) {
+            long index = ExecutionJournalSegment.segmentIndex(file);
+            if (index < fromSegment || index > toSegment) {
+                continue;
+            }
+            int start = index == fromSegment ? (int) from : ExecutionJournalSegment.HEADER_BYTES;
+            int end = index == toSegment ? (int) to : Integer.MAX_VALUE;
+            ExecutionJournalSegment.openReadOnly(file).forEach(start, end, record -> {
+                if (seen.add(record.execId())) {
+                    records.add(record);
+                }
+            });
+        }
+        return records;
+    }
+
+    /**
+     * Quando a última execução gravada chegou (relógio local), ou null se o journal está vazio.
+     */
+    public Instant getLastExecutionTime() {
+        long micros = lastReceivedMicros;
+        return micros == 0 ? null : Instant.EPOCH.plus(micros, ChronoUnit.MICROS);
+    }
+
+    public long getDuplicates() {
+        return duplicates.get();
+    }
+
+    public long getAppended() {
+        return appended.get();
+    }
+
+    public long getCommitted() {
+        return committed;
+    }
+
+    public long getInlineRolls() {
+        return inlineRolls.get();
+    }
+
+    private static long mark(long segment, int offset) {
+        return segment << 32 | offset;
+    }
+
+    /**
+     * FNV-1a de 64 bits do execId com a finalização do MurmurHash3; 0 é reservado pelo BoundedLongSet.
+     */
+    static long fingerprint(String execId) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < execId.length(); i++) {
+            h ^= execId.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    private List<Path> segmentFiles() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> ExecutionJournalSegment.segmentIndex(file) >= 0)
+                    .sorted(Comparator.comparingLong(ExecutionJournalSegment::segmentIndex))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao listar o diretório do ExecutionJournal: " + directory, e);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.homegaibkrponte.data.executions;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Um segmento do ExecutionJournal: arquivo pré-dimensionado e mapeado em memória.
+ * [cabeçalho 64B: magic, versão, criação, índice][registros de tamanho variável (ver {@link ExecutionRecord})].
+ * O arquivo nasce zerado, então um length 0 marca o fim dos dados.
+ */
+final class ExecutionJournalSegment {
+
+    static final int MAGIC = 0x45584543; // "EXEC"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    private static final int OFF_CREATED = 16;
+    private static final int OFF_INDEX = 24;
+
+    @Getter
+    private final long index;
+    @Getter
+    private final Path file;
+    @Getter
+    private final MappedByteBuffer buffer;
+
+    private ExecutionJournalSegment(long index, Path file, MappedByteBuffer buffer) {
+        this.index = index;
+        this.file = file;
+        this.buffer = buffer;
+    }
+
+    static Path fileFor(Path directory, long index) {
+        return directory.resolve(String.format("executions-%08d.wal", index));
+    }
+
+    /**
+     * Índice do segmento pelo nome do arquivo ("executions-00000042.wal" -> 42), ou -1 se não for um segmento.
+     */
+    static long segmentIndex(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith("executions-") || !name.endsWith(".wal")) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(name.substring(11, name.length() - 4));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    static ExecutionJournalSegment create(Path directory, long index, long bytes) {
+        Path file = fileFor(directory, index);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putLong(OFF_CREATED, System.currentTimeMillis());
+            buffer.putLong(OFF_INDEX, index);
+            return new ExecutionJournalSegment(index, file, buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao criar o segmento do ExecutionJournal: " + file, e);
+        }
+    }
+
+    static ExecutionJournalSegment openWritable(Path file) {
+        return open(file, FileChannel.MapMode.READ_WRITE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    static ExecutionJournalSegment openReadOnly(Path file) {
+        return open(file, FileChannel.MapMode.READ_ONLY, StandardOpenOption.READ);
+    }
+
+    private static ExecutionJournalSegment open(Path file, FileChannel.MapMode mode, StandardOpenOption... options) {
+        try (FileChannel channel = FileChannel.open(file, options)) {
+            MappedByteBuffer buffer = channel.map(mode, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IllegalStateException("Arquivo não é um segmento válido do ExecutionJournal: " + file);
+            }
+            return new ExecutionJournalSegment(buffer.getLong(OFF_INDEX), file, buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao abrir o segmento do ExecutionJournal: " + file, e);
+        }
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * Percorre os registros íntegros do segmento (consumer pode ser null).
+     *
+     * @return o offset logo após o último registro íntegro, onde o próximo deve ser gravado.
+     */
+    int forEach(Consumer<ExecutionRecord> consumer) {
+        return forEach(HEADER_BYTES, buffer.capacity(), consumer);
+    }
+
+    /**
+     * Percorre os registros íntegros que começam em {@code from} e terminam até {@code to}.
+     *
+     * @return o offset logo após o último registro lido.
+     */
+    int forEach(int from, int to, Consumer<ExecutionRecord> consumer) {
+        CRC32 crc = new CRC32();
+        int offset = Math.max(from, HEADER_BYTES);
+        int limit = Math.min(to, buffer.capacity());
+        while (offset + ExecutionRecord.PREFIX_BYTES <= limit) {
+            int length = buffer.getInt(offset);
+            if (length < ExecutionRecord.FIXED_BYTES - ExecutionRecord.PREFIX_BYTES + ExecutionRecord.TEXT_FIELDS
+                    || offset + ExecutionRecord.PREFIX_BYTES + length > limit
+                    || ExecutionRecord.checksum(buffer, offset, length, crc) != buffer.getInt(offset + 4)) {
+                break;
+            }
+            if (consumer != null) {
+                consumer.accept(ExecutionRecord.read(buffer, offset));
+            }
+            offset += ExecutionRecord.PREFIX_BYTES + length;
+        }
+        return offset;
+    }
+
+    /**
+     * Zera o segmento a partir de {@code offset}: descarta um registro rasgado por uma queda, para
+     * que restos dele nunca sejam confundidos com dados depois de novos acréscimos.
+     * Só as posições sujas são escritas, então o resto do arquivo continua esparso.
+     *
+     * @return quantos bytes foram zerados.
+     */
+    int truncate(int offset) {
+        int cleared = 0;
+        for (int i = offset; i < buffer.capacity(); i++) {
+            if (buffer.get(i) != 0) {
+                buffer.put(i, (byte) 0);
+                cleared++;
+            }
+        }
+        return cleared;
+    }
+
+    void force() {
+        buffer.force();
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.homegaibkrponte.data.executions;
+
+import com.example.homegaibkrponte.model.TradeExecutedEvent;
+import com.ib.client.Decimal;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Uma execução (execDetails) como gravada no {@link ExecutionJournal}, em registros de tamanho variável:
+ * <pre>
+ *  0 int   length          (bytes a partir do offset 8; 0 = fim dos dados no segmento)
+ *  4 int   crc32           (desses bytes: um registro rasgado por uma queda do SO encerra a leitura)
+ *  8 long  receivedMicros  (relógio local, epoch em microssegundos)
+ * 16 int   orderId
+ * 20 int   conId
+ * 24 long  permId
+ * 32 long  shares          (x SIZE_SCALE)
+ * 40 long  price           (x PRICE_SCALE)
+ * 48 long  cumQty          (x SIZE_SCALE)
+ * 56 long  avgPrice        (x PRICE_SCALE)
+ * 64 ...   execId, symbol, side, execTime, account, exchange (1 byte de tamanho + UTF-8 cada)
+ * </pre>
+ */
+public record ExecutionRecord(
+        String execId,
+        int orderId,
+        long permId,
+        int conId,
+        String symbol,
+        String side,
+        BigDecimal shares,
+        BigDecimal price,
+        BigDecimal cumQty,
+        BigDecimal avgPrice,
+        String execTime,
+        String account,
+        String exchange,
+        long receivedMicros
+) {
+
+    public static final int PRICE_DIGITS = 8;
+    public static final int SIZE_DIGITS = 4;
+
+    static final int PREFIX_BYTES = 8;
+    static final int FIXED_BYTES = 64;
+    static final int TEXT_FIELDS = 6;
+    private static final int MAX_TEXT_BYTES = 255;
+
+    /**
+     * Evento de domínio equivalente, para reconstruir o portfólio no replay.
+     */
+    public TradeExecutedEvent toTradeEvent() {
+        LocalDateTime timestamp = LocalDateTime.ofInstant(Instant.EPOCH.plus(receivedMicros, ChronoUnit.MICROS), ZoneId.systemDefault());
+        return new TradeExecutedEvent(symbol, side, shares, price, timestamp, "JOURNAL", String.valueOf(orderId));
+    }
+
+    // --- CODIFICAÇÃO (usada pelo ExecutionJournal e pelo ExecutionJournalSegment) ---
+
+    static byte[] text(String value) {
+        if (value == null) {
+            return new byte[0];
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_TEXT_BYTES) {
+            throw new IllegalArgumentException("Campo de texto com mais de " + MAX_TEXT_BYTES + " bytes: " + value);
+        }
+        return bytes;
+    }
+
+    /**
+     * Tamanho total do registro (prefixo incluso) para os campos de texto dados.
+     */
+    static int lengthOf(byte[][] text) {
+        int length = FIXED_BYTES + TEXT_FIELDS;
+        for (byte[] field : text) {
+            length += field.length;
+        }
+        return length;
+    }
+
+    static long scaleSize(Decimal size) {
+        return Decimal.isValid(size) ? size.value().movePointRight(SIZE_DIGITS).longValue() : 0L;
+    }
+
+    static long scalePrice(double price) {
+        return BigDecimal.valueOf(price).movePointRight(PRICE_DIGITS).longValue();
+    }
+
+    /**
+     * Grava o registro em {@code offset}. O campo length vai por último: para um leitor concorrente
+     * (ou após uma queda do processo) o registro só existe depois de completo.
+     */
+    static void write(ByteBuffer buffer, int offset, CRC32 crc, long receivedMicros, int orderId, int conId, long permId,
+                      long shares, long price, long cumQty, long avgPrice, byte[][] text) {
+        buffer.putLong(offset + 8, receivedMicros);
+        buffer.putInt(offset + 16, orderId);
+        buffer.putInt(offset + 20, conId);
+        buffer.putLong(offset + 24, permId);
+        buffer.putLong(offset + 32, shares);
+        buffer.putLong(offset + 40, price);
+        buffer.putLong(offset + 48, cumQty);
+        buffer.putLong(offset + 56, avgPrice);
+        int cursor = offset + FIXED_BYTES;
+        for (byte[] field : text) {
+            buffer.put(cursor++, (byte) field.length);
+            buffer.put(cursor, field);
+            cursor += field.length;
+        }
+        int length = cursor - offset - PREFIX_BYTES;
+        buffer.putInt(offset + 4, checksum(buffer, offset, length, crc));
+        buffer.putInt(offset, length);
+    }
+
+    /**
+     * CRC32 dos {@code length} bytes que seguem o prefixo do registro em {@code offset}.
+     */
+    static int checksum(ByteBuffer buffer, int offset, int length, CRC32 crc) {
+        crc.reset();
+        crc.update(buffer.slice(offset + PREFIX_BYTES, length));
+        return (int) crc.getValue();
+    }
+
+    static ExecutionRecord read(ByteBuffer buffer, int offset) {
+        int cursor = offset + FIXED_BYTES;
+        String[] text = new String[TEXT_FIELDS];
+        for (int i = 0; i < TEXT_FIELDS; i++) {
+            int length = buffer.get(cursor++) & 0xFF;
+            byte[] bytes = new byte[length];
+            buffer.get(cursor, bytes);
+            text[i] = new String(bytes, StandardCharsets.UTF_8);
+            cursor += length;
+        }
+        return new ExecutionRecord(text[0], buffer.getInt(offset + 16), buffer.getLong(offset + 24), buffer.getInt(offset + 20),
+                text[1], text[2],
+                BigDecimal.valueOf(buffer.getLong(offset + 32), SIZE_DIGITS),
+                BigDecimal.valueOf(buffer.getLong(offset + 40), PRICE_DIGITS),
+                BigDecimal.valueOf(buffer.getLong(offset + 48), SIZE_DIGITS),
+                BigDecimal.valueOf(buffer.getLong(offset + 56), PRICE_DIGITS),
+                text[3], text[4], text[5], buffer.getLong(offset + 8));
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.homegaibkrponte.data.history;
+
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+
+/**
+ * Visão zero-copy de um intervalo de uma série: cada buffer é uma fatia do arquivo mapeado
+ * em memória, indexada de 0 a size-1. Não copie para reter; as fatias continuam válidas
+ * mesmo se a série crescer depois (o mapeamento antigo permanece vivo).
+ */
+public record CandleColumns(
+        int size,
+        LongBuffer epochSeconds,
+        DoubleBuffer open,
+        DoubleBuffer high,
+        DoubleBuffer low,
+        DoubleBuffer close,
+        LongBuffer volume
+) {}
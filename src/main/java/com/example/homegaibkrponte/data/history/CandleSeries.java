@@ -0,0 +1,415 @@
+package com.example.homegaibkrponte.data.history;
+
+import com.example.homegaibkrponte.model.Candle;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Uma série (símbolo + tamanho de barra) em um único arquivo mapeado em memória, em colunas:
+ * [cabeçalho 64B][epochSeconds: cap x long][open][high][low][close: cap x double][volume: cap x long].
+ * O cabeçalho guarda quantidade, capacidade e o intervalo já coberto por downloads
+ * (para distinguir "sem barras" de "nunca buscado", ex: feriados).
+ * Um único escritor por vez (métodos synchronized); leitores trabalham sobre um snapshot imutável
+ * do estado e nunca bloqueiam. A única linha reescrita no lugar é a última (a barra "em formação"):
+ * ela é protegida por um seqlock ({@code tailVersion}), e os leitores a releem se a pegarem no meio.
+ */
+public final class CandleSeries {
+
+    private static final int MAGIC = 0x434E444C; // "CNDL"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int COLUMNS = 6;
+    private static final int MIN_CAPACITY = 1024;
+
+    private static final int COL_TIME = 0;
+    private static final int COL_OPEN = 1;
+    private static final int COL_HIGH = 2;
+    private static final int COL_LOW = 3;
+    private static final int COL_CLOSE = 4;
+    private static final int COL_VOLUME = 5;
+
+    private static final VarHandle TAIL_VERSION;
+
+    static {
+        try {
+            TAIL_VERSION = MethodHandles.lookup().findVarHandle(CandleSeries.class, "tailVersion", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    @Getter
+    private final String symbol;
+    @Getter
+    private final HistoricalBarSize barSize;
+    private final Path file;
+    private volatile State state;
+    // Ímpar enquanto a última linha visível é reescrita no lugar.
+    private long tailVersion;
+
+    /**
+     * Snapshot imutável: buffer mapeado + quantos registros são visíveis + cobertura.
+     */
+    private record State(MappedByteBuffer buffer, int capacity, int count, long coveredFrom, long coveredTo) {}
+
+    CandleSeries(Path file, String symbol, HistoricalBarSize barSize) {
+        this.file = file;
+        this.symbol = symbol;
+        this.barSize = barSize;
+        this.state = Files.exists(file) ? load(file) : createFile(file, MIN_CAPACITY, List.of(), 0L, 0L);
+    }
+
+    // --- LEITURA ---
+
+    public int size() {
+        return state.count();
+    }
+
+    public boolean isEmpty() {
+        return state.count() == 0;
+    }
+
+    public long getCoveredFrom() {
+        return state.coveredFrom();
+    }
+
+    public long getCoveredTo() {
+        return state.coveredTo();
+    }
+
+    public long getLastEpochSecond() {
+        State s = state;
+        return s.count() == 0 ? Long.MIN_VALUE : readLong(s, COL_TIME, s.count() - 1);
+    }
+
+    /**
+     * Varre [fromEpoch, toEpoch) sem alocar objetos por barra.
+     */
+    public int scan(long fromEpoch, long toEpoch, CandleVisitor visitor) {
+        State s = state;
+        int first = lowerBound(s, fromEpoch);
+        int end = lowerBound(s, toEpoch);
+        scanRows(s, first, end, visitor);
+        return end - first;
+    }
+
+    /**
+     * Fatias zero-copy das colunas para [fromEpoch, toEpoch). Se o intervalo inclui a última barra,
+     * que pode ser reescrita no lugar, as colunas são copiadas (com a última linha lida pelo seqlock).
+     */
+    public CandleColumns columns(long fromEpoch, long toEpoch) {
+        State s = state;
+        int first = lowerBound(s, fromEpoch);
+        int size = lowerBound(s, toEpoch) - first;
+        if (size > 0 && first + size == s.count()) {
+            return copyColumns(s, first, size);
+        }
+        return new CandleColumns(size,
+                slice(s, COL_TIME, first, size).asLongBuffer(),
+                slice(s, COL_OPEN, first, size).asDoubleBuffer(),
+                slice(s, COL_HIGH, first, size).asDoubleBuffer(),
+                slice(s, COL_LOW, first, size).asDoubleBuffer(),
+                slice(s, COL_CLOSE, first, size).asDoubleBuffer(),
+                slice(s, COL_VOLUME, first, size).asLongBuffer());
+    }
+
+    // A última linha visível passa pelo seqlock; as anteriores nunca mudam no lugar.
+    private void scanRows(State s, int first, int end, CandleVisitor visitor) {
+        int stable = Math.min(end, s.count() - 1);
+        for (int i = first; i < stable; i++) {
+            visitor.visit(readLong(s, COL_TIME, i), readDouble(s, COL_OPEN, i), readDouble(s, COL_HIGH, i),
+                    readDouble(s, COL_LOW, i), readDouble(s, COL_CLOSE, i), readLong(s, COL_VOLUME, i));
+        }
+        if (end == s.count() && end > first) {
+            readTail(s, visitor);
+        }
+    }
+
+    private CandleColumns copyColumns(State s, int first, int size) {
+        LongBuffer time = LongBuffer.allocate(size);
+        DoubleBuffer open = DoubleBuffer.allocate(size);
+        DoubleBuffer high = DoubleBuffer.allocate(size);
+        DoubleBuffer low = DoubleBuffer.allocate(size);
+        DoubleBuffer close = DoubleBuffer.allocate(size);
+        LongBuffer volume = LongBuffer.allocate(size);
+        scanRows(s, first, first + size, (epoch, o, h, l, c, v) -> {
+            time.put(epoch);
+            open.put(o);
+            high.put(h);
+            low.put(l);
+            close.put(c);
+            volume.put(v);
+        });
+        return new CandleColumns(size, time.flip(), open.flip(), high.flip(), low.flip(), close.flip(), volume.flip());
+    }
+
+    /**
+     * Lê a última linha visível de {@code s} sem pegá-la pela metade: repete enquanto o escritor a reescreve.
+     */
+    private void readTail(State s, CandleVisitor visitor) {
+        int row = s.count() - 1;
+        long epoch;
+        double open;
+        double high;
+        double low;
+        double close;
+        long volume;
+        while (true) {
+            long before = (long) TAIL_VERSION.getAcquire(this);
+            if ((before & 1L) == 0L) {
+                epoch = readLong(s, COL_TIME, row);
+                open = readDouble(s, COL_OPEN, row);
+                high = readDouble(s, COL_HIGH, row);
+                low = readDouble(s, COL_LOW, row);
+                close = readDouble(s, COL_CLOSE, row);
+                volume = readLong(s, COL_VOLUME, row);
+                VarHandle.loadLoadFence();
+                if ((long) TAIL_VERSION.getOpaque(this) == before) {
+                    break;
+                }
+            }
+            Thread.onSpinWait();
+        }
+        visitor.visit(epoch, open, high, low, close, volume);
+    }
+
+    /**
+     * Materializa [start, end) como Candle para a API pública (MarketDataProvider).
+     */
+    public List<Candle> read(LocalDateTime start, LocalDateTime end) {
+        List<Candle> candles = new ArrayList<>();
+        scan(toEpoch(start), toEpoch(end), (epoch, open, high, low, close, volume) ->
+                candles.add(new Candle(symbol, fromEpoch(epoch), open, high, low, close, volume)));
+        return candles;
+    }
+
+    // --- ESCRITA ---
+
+    /**
+     * Grava barras baixadas para o intervalo [coverFrom, coverTo).
+     * Caminho rápido: barras novas no fim são apenas anexadas (a última barra, se tiver o mesmo
+     * timestamp, é atualizada no lugar: é a barra "em formação" do download anterior).
+     * Caminho lento: barras anteriores ao fim existente reescrevem o arquivo mesclado.
+     *
+     * @return quantidade de barras recebidas.
+     */
+    public synchronized int write(List<Candle> candles, LocalDateTime coverFrom, LocalDateTime coverTo) {
+        State s = state;
+        long from = s.count() == 0 ? toEpoch(coverFrom) : Math.min(s.coveredFrom(), toEpoch(coverFrom));
+        long to = Math.max(s.coveredTo(), toEpoch(coverTo));
+
+        if (s.count() > 0 && !candles.isEmpty() && toEpoch(candles.get(0).timestamp()) < getLastEpochSecond()) {
+            state = rewrite(s, candles, from, to);
+            return candles.size();
+        }
+
+        int count = s.count();
+        long last = getLastEpochSecond();
+        State target = ensureCapacity(s, count + candles.size());
+        for (Candle candle : candles) {
+            long epoch = toEpoch(candle.timestamp());
+            if (epoch < last) {
+                continue;
+            }
+            int row = epoch == last ? count - 1 : count++;
+            if (target == s && row == s.count() - 1) {
+                writeTail(s, row, epoch, candle);
+            } else {
+                writeRow(target, row, epoch, candle);
+            }
+            last = epoch;
+        }
+        writeHeader(target.buffer(), count, target.capacity(), from, to);
+        target.buffer().force();
+        state = new State(target.buffer(), target.capacity(), count, from, to);
+        return candles.size();
+    }
+
+    /**
+     * Reescreve no lugar a última linha já visível aos leitores, dentro do seqlock.
+     */
+    private void writeTail(State s, int row, long epoch, Candle candle) {
+        long version = (long) TAIL_VERSION.getOpaque(this);
+        TAIL_VERSION.setOpaque(this, version + 1);
+        VarHandle.storeStoreFence();
+        writeRow(s, row, epoch, candle);
+        TAIL_VERSION.setRelease(this, version + 2);
+    }
+
+    // --- ARQUIVO ---
+
+    private State ensureCapacity(State s, int required) {
+        if (required <= s.capacity()) {
+            return s;
+        }
+        int capacity = Math.max(required, s.capacity() * 2);
+        List<Candle> existing = readAll(s);
+        return replaceFile(capacity, existing, s.coveredFrom(), s.coveredTo());
+    }
+
+    private State rewrite(State s, List<Candle> candles, long from, long to) {
+        List<Candle> existing = readAll(s);
+        List<Candle> merged = new ArrayList<>(existing.size() + candles.size());
+        int i = 0;
+        int j = 0;
+        while (i < existing.size() || j < candles.size()) {
+            if (j == candles.size() || (i < existing.size() && existing.get(i).timestamp().isBefore(candles.get(j).timestamp()))) {
+                merged.add(existing.get(i++));
+            } else {
+                Candle candle = candles.get(j++);
+                if (i < existing.size() && existing.get(i).timestamp().equals(candle.timestamp())) {
+                    i++; // O download novo prevalece
+                }
+                merged.add(candle);
+            }
+        }
+        return replaceFile(Math.max(MIN_CAPACITY, merged.size() * 2), merged, from, to);
+    }
+
+    /**
+     * Escreve um arquivo temporário completo e o troca atomicamente pelo atual.
+     * Leitores com snapshot antigo continuam usando o mapeamento anterior.
+     */
+    private State replaceFile(int capacity, List<Candle> candles, long from, long to) {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        createFile(tmp, capacity, candles, from, to);
+        try {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao substituir " + file, e);
+        }
+        return load(file);
+    }
+
+    private State createFile(Path target, int capacity, List<Candle> candles, long from, long to) {
+        MappedByteBuffer buffer = map(target, capacity, true);
+        State s = new State(buffer, capacity, candles.size(), from, to);
+        for (int row = 0; row < candles.size(); row++) {
+            Candle candle = candles.get(row);
+            writeRow(s, row, toEpoch(candle.timestamp()), candle);
+        }
+        writeHeader(buffer, candles.size(), capacity, from, to);
+        buffer.force();
+        return s;
+    }
+
+    private State load(Path source) {
+        try {
+            long size = Files.size(source);
+            MappedByteBuffer buffer = map(source, (int) ((size - HEADER_BYTES) / (COLUMNS * Long.BYTES)), false);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IllegalStateException("Arquivo de candles inválido: " + source);
+            }
+            return new State(buffer, (int) buffer.getLong(16), (int) buffer.getLong(8), buffer.getLong(24), buffer.getLong(32));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao abrir " + source, e);
+        }
+    }
+
+    private static MappedByteBuffer map(Path target, int capacity, boolean create) {
+        long bytes = HEADER_BYTES + (long) COLUMNS * Long.BYTES * capacity;
+        try (FileChannel channel = create
+                ? FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(target, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // O mapeamento continua válido depois que o canal é fechado.
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao mapear " + target, e);
+        }
+    }
+
+    private static void writeHeader(MappedByteBuffer buffer, int count, int capacity, long from, long to) {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(16, capacity);
+        buffer.putLong(24, from);
+        buffer.putLong(32, to);
+        buffer.putLong(8, count); // Por último: a quantidade "publica" as linhas no disco
+    }
+
+    private static void writeRow(State s, int row, long epoch, Candle candle) {
+        writeLong(s, COL_TIME, row, epoch);
+        writeDouble(s, COL_OPEN, row, candle.open());
+        writeDouble(s, COL_HIGH, row, candle.high());
+        writeDouble(s, COL_LOW, row, candle.low());
+        writeDouble(s, COL_CLOSE, row, candle.close());
+        writeLong(s, COL_VOLUME, row, candle.volume());
+    }
+
+    private List<Candle> readAll(State s) {
+        List<Candle> candles = new ArrayList<>(s.count());
+        for (int i = 0; i < s.count(); i++) {
+            candles.add(new Candle(symbol, fromEpoch(readLong(s, COL_TIME, i)), readDouble(s, COL_OPEN, i), readDouble(s, COL_HIGH, i),
+                    readDouble(s, COL_LOW, i), readDouble(s, COL_CLOSE, i), readLong(s, COL_VOLUME, i)));
+        }
+        return candles;
+    }
+
+    // --- ACESSO ÀS COLUNAS ---
+
+    private static int offset(State s, int column, int row) {
+        return HEADER_BYTES + (column * s.capacity() + row) * Long.BYTES;
+    }
+
+    private static long readLong(State s, int column, int row) {
+        return s.buffer().getLong(offset(s, column, row));
+    }
+
+    private static double readDouble(State s, int column, int row) {
+        return s.buffer().getDouble(offset(s, column, row));
+    }
+
+    private static void writeLong(State s, int column, int row, long value) {
+        s.buffer().putLong(offset(s, column, row), value);
+    }
+
+    private static void writeDouble(State s, int column, int row, double value) {
+        s.buffer().putDouble(offset(s, column, row), value);
+    }
+
+    private static ByteBuffer slice(State s, int column, int first, int size) {
+        return s.buffer().slice(offset(s, column, first), size * Long.BYTES);
+    }
+
+    /**
+     * Primeiro índice com timestamp >= epoch (busca binária na coluna de tempo).
+     */
+    private static int lowerBound(State s, long epoch) {
+        int low = 0;
+        int high = s.count();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (readLong(s, COL_TIME, mid) < epoch) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    static long toEpoch(LocalDateTime utc) {
+        return utc.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    static LocalDateTime fromEpoch(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+}
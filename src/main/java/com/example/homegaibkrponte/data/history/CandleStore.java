@@ -0,0 +1,49 @@
+package com.example.homegaibkrponte.data.history;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache local e persistente de histórico: uma CandleSeries mapeada em memória por
+ * símbolo/tamanho de barra. Sobrevive a reinícios, então um warm start não baixa nada de novo.
+ */
+@Component
+@Slf4j
+public class CandleStore {
+
+    private final Path directory;
+    private final Map<String, CandleSeries> series = new ConcurrentHashMap<>();
+
+    public CandleStore(@Value("${ibkr.history.store.dir:./data/candles}") String directory) {
+        this.directory = Path.of(directory);
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível criar o diretório do CandleStore: " + directory, e);
+        }
+        log.info("🗄️ CandleStore em {}", directory.toAbsolutePath());
+    }
+
+    public CandleSeries series(String symbol, HistoricalBarSize barSize) {
+        return series.computeIfAbsent(key(symbol, barSize),
+                key -> new CandleSeries(directory.resolve(key + ".candles"), symbol, barSize));
+    }
+
+    private static String key(String symbol, HistoricalBarSize barSize) {
+        // Símbolos como "BRK B" ou "BF.B" viram nomes de arquivo seguros.
+        return symbol.toUpperCase().replaceAll("[^A-Z0-9]", "_") + "_" + barSize.name();
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.homegaibkrponte.data.history;
+
+/**
+ * Visitante primitivo para varreduras sem alocação no CandleStore.
+ * O timestamp é epoch em segundos (UTC).
+ */
+@FunctionalInterface
+public interface CandleVisitor {
+
+    void visit(long epochSecond, double open, double high, double low, double close, long volume);
+}
@@ -0,0 +1,41 @@
+package com.example.homegaibkrponte.data.history;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * Tamanhos de barra suportados pelo motor de histórico, com o maior pedaço (duration)
+ * que a IBKR aceita para cada um em uma única chamada de reqHistoricalData.
+ * O passo (chunkStep) é menor ou igual à duração pedida para que os pedaços se sobreponham
+ * em vez de deixar buracos (ex: "1 M" pode ter 28 dias em fevereiro).
+ */
+@Getter
+public enum HistoricalBarSize {
+
+    ONE_MIN("1 min", Duration.ofMinutes(1), "1 D", Duration.ofDays(1)),
+    FIVE_MINS("5 mins", Duration.ofMinutes(5), "1 W", Duration.ofDays(7)),
+    FIFTEEN_MINS("15 mins", Duration.ofMinutes(15), "1 W", Duration.ofDays(7)),
+    THIRTY_MINS("30 mins", Duration.ofMinutes(30), "1 M", Duration.ofDays(28)),
+    ONE_HOUR("1 hour", Duration.ofHours(1), "1 M", Duration.ofDays(28)),
+    ONE_DAY("1 day", Duration.ofDays(1), "1 Y", Duration.ofDays(365));
+
+    private final String ibBarSize;      // barSizeSetting da API
+    private final Duration barDuration;
+    private final String ibChunkDuration; // durationStr máximo por requisição
+    private final Duration chunkStep;
+
+    HistoricalBarSize(String ibBarSize, Duration barDuration, String ibChunkDuration, Duration chunkStep) {
+        this.ibBarSize = ibBarSize;
+        this.barDuration = barDuration;
+        this.ibChunkDuration = ibChunkDuration;
+        this.chunkStep = chunkStep;
+    }
+
+    /**
+     * Barras intradiárias em pedaços de 1 dia podem pular fins de semana sem perder dados.
+     */
+    public boolean isDailyChunked() {
+        return chunkStep.equals(Duration.ofDays(1));
+    }
+}
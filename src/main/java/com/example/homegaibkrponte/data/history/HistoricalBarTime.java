@@ -0,0 +1,41 @@
+package com.example.homegaibkrponte.data.history;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Conversões de data/hora no formato da API de histórico da IBKR.
+ * Todas as datas do motor de histórico são LocalDateTime em UTC.
+ */
+public final class HistoricalBarTime {
+
+    // Formato "yyyyMMdd-HH:mm:ss" é interpretado pela IBKR como UTC.
+    private static final DateTimeFormatter END_DATE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HH:mm:ss");
+    private static final DateTimeFormatter DAILY_BAR = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private HistoricalBarTime() {
+    }
+
+    public static String formatEndDateTime(LocalDateTime utc) {
+        return END_DATE_TIME.format(utc);
+    }
+
+    /**
+     * Com formatDate=2 a IBKR devolve epoch em segundos para barras intradiárias
+     * e "yyyyMMdd" para barras diárias ou maiores.
+     */
+    public static LocalDateTime parseBarTime(String ibTime) {
+        String value = ibTime.trim();
+        if (value.length() == 8) {
+            return LocalDate.parse(value, DAILY_BAR).atStartOfDay();
+        }
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(Long.parseLong(value)), ZoneOffset.UTC);
+    }
+
+    public static LocalDateTime nowUtc() {
+        return LocalDateTime.now(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.homegaibkrponte.data.history;
+
+import com.example.homegaibkrponte.model.Candle;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Enfileira UMA requisição reqHistoricalData (um pedaço) no escalonador de pacing e devolve o futuro
+ * que será completado em historicalDataEnd. Implementado pelo IBKRConnector.
+ */
+@FunctionalInterface
+public interface HistoricalChunkRequester {
+
+    CompletableFuture<List<Candle>> request(String symbol, HistoricalBarSize barSize, LocalDateTime chunkEndUtc, HistoricalPriority priority);
+}
@@ -0,0 +1,232 @@
+package com.example.homegaibkrponte.data.history;
+
+import com.example.homegaibkrponte.dto.HistoricalJobRequest;
+import com.example.homegaibkrponte.model.Candle;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Motor de histórico: divide um intervalo longo em pedaços do tamanho aceito pela IBKR,
+ * dispara os pedaços em paralelo pelo HistoricalRequestScheduler (que respeita o teto de requisições
+ * abertas e as regras de pacing) e remonta a série ordenada e sem duplicatas.
+ * Pedidos avulsos (fetch) vão na fila INTERACTIVE; jobs em lote vão na BULK.
+ * O CandleStore local é consultado primeiro: só o trecho que falta (início e/ou fim) é pedido à IBKR.
+ * As continuações rodam no executor "ibkr-history", nunca na thread do leitor TWS.
+ * Jobs terminados ficam consultáveis por {@link #JOB_RETENTION} e são descartados no próximo submitJob.
+ */
+@Slf4j
+public class HistoricalDataEngine {
+
+    private final HistoricalChunkRequester requester;
+    private final CandleStore candleStore;
+    private final ExecutorService executor;
+
+    static final Duration JOB_RETENTION = Duration.ofHours(1);
+
+    private final Map<String, HistoricalJob> jobs = new ConcurrentHashMap<>();
+    private final long jobRetentionNanos;
+
+    public HistoricalDataEngine(HistoricalChunkRequester requester, CandleStore candleStore) {
+        this(requester, candleStore, JOB_RETENTION);
+    }
+
+    HistoricalDataEngine(HistoricalChunkRequester requester, CandleStore candleStore, Duration jobRetention) {
+        this.requester = requester;
+        this.candleStore = candleStore;
+        this.jobRetentionNanos = jobRetention.toNanos();
+        this.executor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "ibkr-history");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Devolve a série [start, end) de um símbolo, lida do CandleStore depois de baixar o que faltar.
+     */
+    public CompletableFuture<List<Candle>> fetch(String symbol, HistoricalBarSize barSize, LocalDateTime start, LocalDateTime end) {
+        CandleSeries series = candleStore.series(symbol, barSize);
+        return sync(series, start, end, null).thenApply(ignored -> series.read(start, end));
+    }
+
+    /**
+     * Garante que o CandleStore cubra [start, end), pedindo à IBKR apenas as lacunas.
+     *
+     * @return quantidade de barras baixadas (0 em um warm start completo).
+     */
+    private CompletableFuture<Integer> sync(CandleSeries series, LocalDateTime start, LocalDateTime end, HistoricalJob job) {
+        String symbol = series.getSymbol();
+        HistoricalBarSize barSize = series.getBarSize();
+        if (series.isEmpty() && series.getCoveredTo() == 0L) {
+            return fetchRemote(symbol, barSize, start, end, job)
+                    .thenApply(candles -> series.write(candles, start, end));
+        }
+
+        List<CompletableFuture<Integer>> gaps = new ArrayList<>();
+        LocalDateTime coveredFrom = CandleSeries.fromEpoch(series.getCoveredFrom());
+        LocalDateTime coveredTo = CandleSeries.fromEpoch(series.getCoveredTo());
+        if (start.isBefore(coveredFrom)) {
+            gaps.add(fetchRemote(symbol, barSize, start, coveredFrom, job)
+                    .thenApply(candles -> series.write(candles, start, coveredFrom)));
+        }
+        if (end.minus(barSize.getBarDuration()).isAfter(coveredTo)) {
+            // Rebaixa a partir da última barra salva: ela pode ter sido gravada ainda em formação.
+            LocalDateTime tailStart = series.isEmpty() ? coveredTo
+                    : CandleSeries.fromEpoch(Math.min(series.getCoveredTo(), series.getLastEpochSecond()));
+            // Sempre a partir do fim coberto, mesmo com start depois dele: a cobertura é um intervalo só,
+            // e gravar [start, end) marcaria [coveredTo, start) como coberto sem nunca tê-lo baixado.
+            gaps.add(fetchRemote(symbol, barSize, tailStart, end, job)
+                    .thenApply(candles -> series.write(candles, tailStart, end)));
+        }
+        return CompletableFuture.allOf(gaps.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> gaps.stream().mapToInt(CompletableFuture::join).sum());
+    }
+
+    /**
+     * Busca [start, end) diretamente na IBKR, sem passar pelo CandleStore.
+     */
+    private CompletableFuture<List<Candle>> fetchRemote(String symbol, HistoricalBarSize barSize,
+                                                        LocalDateTime start, LocalDateTime end, HistoricalJob job) {
+        List<CompletableFuture<List<Candle>>> chunks = new ArrayList<>();
+        HistoricalPriority priority = job != null ? HistoricalPriority.BULK : HistoricalPriority.INTERACTIVE;
+        for (LocalDateTime chunkEnd : planChunks(barSize, start, end)) {
+            if (job != null) {
+                job.onChunkRequested();
+            }
+            chunks.add(submitChunk(symbol, barSize, chunkEnd, priority));
+        }
+        return CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new))
+                .thenApplyAsync(ignored -> merge(chunks, start, end), executor);
+    }
+
+    /**
+     * Dispara um job em lote (todas as séries para todos os símbolos) e devolve imediatamente.
+     * As séries vão direto para o CandleStore; nada é mantido no heap além dos pedaços em voo.
+     */
+    public HistoricalJob submitJob(HistoricalJobRequest request) {
+        LocalDateTime now = HistoricalBarTime.nowUtc();
+        evictFinishedJobs();
+        HistoricalJob job = new HistoricalJob(UUID.randomUUID().toString(), request.symbols().size() * request.series().size());
+        jobs.put(job.getId(), job);
+
+        if (request.symbols().isEmpty() || request.series().isEmpty()) {
+            job.finishIfDone();
+            return job;
+        }
+
+        log.info("📚 [HISTÓRICO] Job {} iniciado: {} símbolos x {} séries.", job.getId(), request.symbols().size(), request.series().size());
+        for (String symbol : request.symbols()) {
+            for (HistoricalJobRequest.Series series : request.series()) {
+                LocalDateTime start = series.start().atStartOfDay();
+                LocalDateTime end = series.end() != null ? series.end().atStartOfDay() : now;
+                sync(candleStore.series(symbol, series.barSize()), start, end, job).whenComplete((downloaded, error) -> {
+                    if (error != null) {
+                        log.error("❌ [HISTÓRICO] Job {}: falha na série {} {}: {}", job.getId(), symbol, series.barSize(), error.getMessage());
+                        job.onSeriesFailed();
+                        return;
+                    }
+                    job.onSeriesCompleted(downloaded);
+                });
+            }
+        }
+        job.getCompletion().thenAccept(status -> log.info("✅ [HISTÓRICO] Job {} finalizado: {} barras em {} ms ({} barras/s).",
+                status.jobId(), status.bars(), status.elapsedMillis(), String.format("%.0f", status.barsPerSecond())));
+        return job;
+    }
+
+    public Optional<HistoricalJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    int getJobCount() {
+        return jobs.size();
+    }
+
+    // Sem isso, cada backfill ficaria no mapa para sempre numa ponte de longa duração.
+    private void evictFinishedJobs() {
+        long cutoff = System.nanoTime() - jobRetentionNanos;
+        jobs.values().removeIf(job -> job.finishedBefore(cutoff));
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // --- PLANEJAMENTO ---
+
+    /**
+     * Datas finais (UTC) de cada pedaço, da mais recente para a mais antiga.
+     */
+    List<LocalDateTime> planChunks(HistoricalBarSize barSize, LocalDateTime start, LocalDateTime end) {
+        List<LocalDateTime> chunkEnds = new ArrayList<>();
+        LocalDateTime chunkEnd = end;
+        while (chunkEnd.isAfter(start)) {
+            LocalDateTime chunkStart = chunkEnd.minus(barSize.getChunkStep());
+            if (!(barSize.isDailyChunked() && isWeekendOnly(chunkStart.isAfter(start) ? chunkStart : start, chunkEnd))) {
+                chunkEnds.add(chunkEnd);
+            }
+            chunkEnd = chunkStart;
+        }
+        return chunkEnds;
+    }
+
+    /**
+     * true se todo o intervalo [from, to) cai em sábado ou domingo. Com {@code end} fora da meia-noite
+     * (ex: agora), o pedaço que termina na segunda às 15:30 começa no domingo, mas cobre a manhã de segunda.
+     */
+    private static boolean isWeekendOnly(LocalDateTime from, LocalDateTime to) {
+        LocalDate last = to.minusNanos(1).toLocalDate();
+        for (LocalDate day = from.toLocalDate(); !day.isAfter(last); day = day.plusDays(1)) {
+            DayOfWeek dayOfWeek = day.getDayOfWeek();
+            if (dayOfWeek != DayOfWeek.SATURDAY && dayOfWeek != DayOfWeek.SUNDAY) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private CompletableFuture<List<Candle>> submitChunk(String symbol, HistoricalBarSize barSize, LocalDateTime chunkEnd,
+                                                        HistoricalPriority priority) {
+        try {
+            return requester.request(symbol, barSize, chunkEnd, priority);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Junta os pedaços, filtra para [start, end) e remove duplicatas das sobreposições.
+     */
+    private static List<Candle> merge(List<CompletableFuture<List<Candle>>> chunks, LocalDateTime start, LocalDateTime end) {
+        List<Candle> all = new ArrayList<>();
+        for (CompletableFuture<List<Candle>> chunk : chunks) {
+            for (Candle candle : chunk.join()) {
+                if (!candle.timestamp().isBefore(start) && candle.timestamp().isBefore(end)) {
+                    all.add(candle);
+                }
+            }
+        }
+        all.sort(Comparator.comparing(Candle::timestamp));
+        List<Candle> merged = new ArrayList<>(all.size());
+        for (Candle candle : all) {
+            if (merged.isEmpty() || !merged.get(merged.size() - 1).timestamp().equals(candle.timestamp())) {
+                merged.add(candle);
+            }
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.homegaibkrponte.data.history;
+
+import com.example.homegaibkrponte.dto.HistoricalJobStatus;
+import lombok.Getter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Estado mutável (thread-safe) de um job de histórico em lote.
+ */
+public final class HistoricalJob {
+
+    @Getter
+    private final String id;
+    private final int seriesTotal;
+    private final long startedAtNanos = System.nanoTime();
+    private final AtomicInteger seriesCompleted = new AtomicInteger();
+    private final AtomicInteger seriesFailed = new AtomicInteger();
+    private final AtomicLong chunksRequested = new AtomicLong();
+    private final AtomicLong bars = new AtomicLong();
+    private volatile long finishedAtNanos = -1L;
+    @Getter
+    private final CompletableFuture<HistoricalJobStatus> completion = new CompletableFuture<>();
+
+    HistoricalJob(String id, int seriesTotal) {
+        this.id = id;
+        this.seriesTotal = seriesTotal;
+    }
+
+    void onChunkRequested() {
+        chunksRequested.incrementAndGet();
+    }
+
+    void onSeriesCompleted(int barCount) {
+        bars.addAndGet(barCount);
+        seriesCompleted.incrementAndGet();
+        finishIfDone();
+    }
+
+    void onSeriesFailed() {
+        seriesFailed.incrementAndGet();
+        finishIfDone();
+    }
+
+    void finishIfDone() {
+        if (seriesCompleted.get() + seriesFailed.get() == seriesTotal) {
+            finishedAtNanos = System.nanoTime();
+            completion.complete(toStatus());
+        }
+    }
+
+    /**
+     * @return true se o job terminou antes de {@code nanoTime} (System.nanoTime()).
+     */
+    boolean finishedBefore(long nanoTime) {
+        long finished = finishedAtNanos;
+        return finished > 0 && finished - nanoTime < 0;
+    }
+
+    public HistoricalJobStatus toStatus() {
+        long end = finishedAtNanos > 0 ? finishedAtNanos : System.nanoTime();
+        long elapsedMillis = Math.max(1L, (end - startedAtNanos) / 1_000_000L);
+        long barCount = bars.get();
+        String state = finishedAtNanos < 0 ? "RUNNING" : (seriesFailed.get() > 0 ? "COMPLETED_WITH_ERRORS" : "COMPLETED");
+        return new HistoricalJobStatus(id, state, seriesTotal, seriesCompleted.get(), seriesFailed.get(),
+                chunksRequested.get(), barCount, elapsedMillis, barCount * 1000.0 / elapsedMillis);
+    }
+}
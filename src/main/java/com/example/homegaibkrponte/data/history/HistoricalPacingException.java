@@ -0,0 +1,12 @@
+package com.example.homegaibkrponte.data.history;
+
+/**
+ * A IBKR recusou o pedido por pacing (erro 162 "pacing violation"). O HistoricalRequestScheduler
+ * reenvia o pedido depois de um backoff, em vez de propagar a falha.
+ */
+public class HistoricalPacingException extends IllegalStateException {
+
+    public HistoricalPacingException(String message) {
+        super(message);
+    }
+}
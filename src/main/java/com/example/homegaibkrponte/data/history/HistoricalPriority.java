@@ -0,0 +1,10 @@
+package com.example.homegaibkrponte.data.history;
+
+/**
+ * Fila do HistoricalRequestScheduler. Pedidos interativos (REST, um usuário esperando) passam
+ * na frente dos pedidos em lote (jobs) e têm uma reserva de vagas que o lote não consome.
+ */
+public enum HistoricalPriority {
+    INTERACTIVE,
+    BULK
+}
@@ -0,0 +1,29 @@
+package com.example.homegaibkrponte.data.history;
+
+/**
+ * Identidade de um pedido de histórico para as regras de pacing da IBKR.
+ *
+ * @param contract    contrato + whatToShow: a IBKR limita a 6 pedidos por contrato a cada 2 segundos.
+ * @param identity    todos os parâmetros: pedidos idênticos são coalescidos e não podem se repetir em 15 segundos.
+ * @param cost        quantos pedidos ele conta nas janelas (BID_ASK conta como 2).
+ * @param rateLimited se entra na janela global (60 pedidos / 10 minutos), que a IBKR aplica a
+ *                    barras de 30 segundos ou menos e a ticks históricos.
+ */
+public record HistoricalRequestKey(String contract, String identity, int cost, boolean rateLimited) {
+
+    public static HistoricalRequestKey bars(String symbol, HistoricalBarSize barSize, String endDateTime, String whatToShow, int useRth) {
+        String contract = symbol + "|" + whatToShow;
+        boolean smallBars = barSize.getBarDuration().getSeconds() <= 30;
+        return new HistoricalRequestKey(contract,
+                "BARS|" + contract + "|" + barSize.getIbBarSize() + "|" + barSize.getIbChunkDuration() + "|" + endDateTime + "|" + useRth,
+                1, smallBars);
+    }
+
+    public static HistoricalRequestKey ticks(String symbol, String startDateTime, String endDateTime,
+                                             int numberOfTicks, String whatToShow, int useRth) {
+        String contract = symbol + "|" + whatToShow;
+        return new HistoricalRequestKey(contract,
+                "TICKS|" + contract + "|" + startDateTime + "|" + endDateTime + "|" + numberOfTicks + "|" + useRth,
+                "BID_ASK".equals(whatToShow) ? 2 : 1, true);
+    }
+}
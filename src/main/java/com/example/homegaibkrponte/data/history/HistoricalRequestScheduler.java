@@ -0,0 +1,284 @@
+package com.example.homegaibkrponte.data.history;
+
+import com.example.homegaibkrponte.dto.HistoricalSchedulerStatus;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Porta única de saída de reqHistoricalData/reqHistoricalTicks, modelando as regras de pacing da IBKR:
+ *
+ * - no máximo maxInFlight pedidos abertos ao mesmo tempo;
+ * - pedido idêntico só pode ser repetido depois de 15 segundos;
+ * - no máximo 6 pedidos do mesmo contrato/whatToShow a cada 2 segundos;
+ * - janela global (padrão 60 pedidos / 10 minutos) para barras de 30s ou menos e ticks.
+ *
+ * Pedidos idênticos enquanto o primeiro está na fila ou em voo são coalescidos no mesmo futuro.
+ * A fila INTERACTIVE sempre passa na frente da BULK, e o lote nunca consome as últimas
+ * {@code interactiveReserve} vagas (em voo e na janela global). Um pacing violation pausa todos
+ * os envios com backoff exponencial e devolve o pedido para o início da sua fila.
+ *
+ * Todo o estado de escalonamento é confinado à thread "ibkr-history-pacer".
+ */
+@Slf4j
+public class HistoricalRequestScheduler {
+
+    private static final long IDENTICAL_GAP_NANOS = TimeUnit.SECONDS.toNanos(15);
+    private static final int CONTRACT_BURST = 6;
+    private static final long CONTRACT_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(2);
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MINUTES.toNanos(10);
+    private static final int MAX_ATTEMPTS = 5;
+    // Pedidos examinados por fila a cada rodada: evita que um contrato no limite trave a fila inteira.
+    private static final int SCAN_LIMIT = 64;
+
+    private final int maxInFlight;
+    private final int interactiveReserve;
+    private final Duration requestTimeout;
+    private final long initialBackoffNanos;
+    private final ScheduledExecutorService executor;
+
+    private final Map<String, Pending<?>> active = new ConcurrentHashMap<>();
+    private final Deque<Pending<?>> interactive = new ConcurrentLinkedDeque<>();
+    private final Deque<Pending<?>> bulk = new ConcurrentLinkedDeque<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // Estado da thread "ibkr-history-pacer".
+    private final PacingWindow globalWindow;
+    private final Map<String, PacingWindow> contractWindows = new HashMap<>();
+    private final LinkedHashMap<String, Long> lastSentByIdentity = new LinkedHashMap<>();
+    private long backoffNanos;
+    private long backoffUntil;
+    private ScheduledFuture<?> wakeUp;
+
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong pacingViolations = new AtomicLong();
+
+    public HistoricalRequestScheduler(int maxInFlight, Duration requestTimeout, int windowLimit, Duration window,
+                                      int interactiveReserve, Duration initialBackoff) {
+        this.maxInFlight = maxInFlight;
+        this.interactiveReserve = Math.min(interactiveReserve, Math.max(0, Math.min(maxInFlight, windowLimit) - 1));
+        this.requestTimeout = requestTimeout;
+        this.initialBackoffNanos = initialBackoff.toNanos();
+        this.globalWindow = new PacingWindow(windowLimit, window.toNanos());
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ibkr-history-pacer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Enfileira um pedido. {@code sender} envia UMA requisição à IBKR e devolve o futuro completado
+     * pelo callback de fim; só é chamado quando as regras de pacing permitem. Se a resposta não vier
+     * em {@code requestTimeout}, esse mesmo futuro é completado com TimeoutException (para o sender
+     * cancelar o pedido na IBKR).
+     *
+     * @return futuro próprio do chamador (cancelá-lo não afeta outros pedidos coalescidos).
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> submit(HistoricalRequestKey key, HistoricalPriority priority, Supplier<CompletableFuture<T>> sender) {
+        boolean[] created = {false};
+        Pending<?> pending = active.computeIfAbsent(key.identity(), identity -> {
+            created[0] = true;
+            return new Pending<>(key, priority, sender);
+        });
+        if (created[0]) {
+            executor.execute(() -> {
+                lane(pending.priority).addLast(pending);
+                pump();
+            });
+        } else {
+            coalesced.incrementAndGet();
+            if (priority == HistoricalPriority.INTERACTIVE) {
+                executor.execute(() -> promote(pending));
+            }
+        }
+        return ((CompletableFuture<T>) pending.result).copy();
+    }
+
+    public HistoricalSchedulerStatus getStatus() {
+        return CompletableFuture.supplyAsync(() -> {
+            long now = System.nanoTime();
+            return new HistoricalSchedulerStatus(interactive.size(), bulk.size(), inFlight.get(), globalWindow.used(now),
+                    dispatched.get(), coalesced.get(), pacingViolations.get(),
+                    TimeUnit.NANOSECONDS.toMillis(Math.max(0L, backoffUntil - now)));
+        }, executor).join();
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // --- THREAD "ibkr-history-pacer" ---
+
+    private void promote(Pending<?> pending) {
+        if (pending.priority == HistoricalPriority.BULK && bulk.remove(pending)) {
+            pending.priority = HistoricalPriority.INTERACTIVE;
+            interactive.addLast(pending);
+            pump();
+        }
+    }
+
+    /**
+     * Envia tudo o que as regras permitem agora e agenda a próxima rodada para quando o primeiro
+     * pedido bloqueado ficar elegível.
+     */
+    private void pump() {
+        if (wakeUp != null && wakeUp.getDelay(TimeUnit.NANOSECONDS) <= 0L) {
+            wakeUp = null;
+        }
+        long now = System.nanoTime();
+        if (now < backoffUntil) {
+            wakeUpIn(backoffUntil - now);
+            return;
+        }
+        expireIdentities(now);
+        long earliest = Long.MAX_VALUE;
+        while (inFlight.get() < maxInFlight) {
+            long[] wait = {Long.MAX_VALUE};
+            Pending<?> next = pick(interactive, now, 0, wait);
+            if (next == null && inFlight.get() < maxInFlight - interactiveReserve) {
+                next = pick(bulk, now, interactiveReserve, wait);
+            }
+            if (next == null) {
+                earliest = wait[0];
+                break;
+            }
+            dispatch(next, now);
+        }
+        if (earliest != Long.MAX_VALUE) {
+            wakeUpIn(earliest);
+        }
+    }
+
+    private Pending<?> pick(Deque<Pending<?>> lane, long now, int reserve, long[] wait) {
+        Iterator<Pending<?>> iterator = lane.iterator();
+        for (int scanned = 0; scanned < SCAN_LIMIT && iterator.hasNext(); scanned++) {
+            Pending<?> candidate = iterator.next();
+            long delay = delay(candidate.key, now, reserve);
+            if (delay == 0L) {
+                iterator.remove();
+                return candidate;
+            }
+            wait[0] = Math.min(wait[0], delay);
+        }
+        return null;
+    }
+
+    private long delay(HistoricalRequestKey key, long now, int reserve) {
+        long delay = 0L;
+        Long lastSent = lastSentByIdentity.get(key.identity());
+        if (lastSent != null) {
+            delay = Math.max(0L, lastSent + IDENTICAL_GAP_NANOS - now);
+        }
+        PacingWindow contract = contractWindows.get(key.contract());
+        if (contract != null) {
+            delay = Math.max(delay, contract.delay(now, key.cost(), 0));
+        }
+        if (key.rateLimited()) {
+            delay = Math.max(delay, globalWindow.delay(now, key.cost(), reserve));
+        }
+        return delay;
+    }
+
+    private <T> void dispatch(Pending<T> pending, long now) {
+        HistoricalRequestKey key = pending.key;
+        lastSentByIdentity.remove(key.identity());
+        lastSentByIdentity.put(key.identity(), now);
+        contractWindows.computeIfAbsent(key.contract(), ignored -> new PacingWindow(CONTRACT_BURST, CONTRACT_WINDOW_NANOS))
+                .record(now, key.cost());
+        if (key.rateLimited()) {
+            globalWindow.record(now, key.cost());
+        }
+        inFlight.incrementAndGet();
+        dispatched.incrementAndGet();
+        pending.attempts++;
+
+        CompletableFuture<T> request;
+        try {
+            request = pending.sender.get();
+        } catch (Exception e) {
+            request = CompletableFuture.failedFuture(e);
+        }
+        request.orTimeout(requestTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenCompleteAsync((value, error) -> onCompleted(pending, value, error), executor);
+    }
+
+    private <T> void onCompleted(Pending<T> pending, T value, Throwable error) {
+        inFlight.decrementAndGet();
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof HistoricalPacingException && pending.attempts < MAX_ATTEMPTS) {
+            pacingViolations.incrementAndGet();
+            backoffNanos = backoffNanos == 0L ? initialBackoffNanos : Math.min(backoffNanos * 2, MAX_BACKOFF_NANOS);
+            backoffUntil = System.nanoTime() + backoffNanos;
+            log.warn("🐢 [HISTÓRICO] Pacing violation em '{}'. Pausando envios por {} s (tentativa {} de {}).",
+                    pending.key.identity(), TimeUnit.NANOSECONDS.toSeconds(backoffNanos), pending.attempts, MAX_ATTEMPTS);
+            lane(pending.priority).addFirst(pending);
+        } else {
+            if (error == null) {
+                backoffNanos = 0L;
+            }
+            active.remove(pending.key.identity(), pending);
+            if (error != null) {
+                pending.result.completeExceptionally(cause);
+            } else {
+                pending.result.complete(value);
+            }
+        }
+        pump();
+    }
+
+    private void expireIdentities(long now) {
+        Iterator<Long> sentAt = lastSentByIdentity.values().iterator();
+        while (sentAt.hasNext() && now - sentAt.next() >= IDENTICAL_GAP_NANOS) {
+            sentAt.remove();
+        }
+        contractWindows.values().removeIf(window -> window.isIdle(now));
+    }
+
+    private void wakeUpIn(long nanos) {
+        if (wakeUp != null) {
+            if (wakeUp.getDelay(TimeUnit.NANOSECONDS) <= nanos) {
+                return;
+            }
+            wakeUp.cancel(false);
+        }
+        wakeUp = executor.schedule(this::pump, nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Deque<Pending<?>> lane(HistoricalPriority priority) {
+        return priority == HistoricalPriority.INTERACTIVE ? interactive : bulk;
+    }
+
+    // Um pedido único (possivelmente compartilhado por vários chamadores coalescidos).
+    private static final class Pending<T> {
+        private final HistoricalRequestKey key;
+        private final Supplier<CompletableFuture<T>> sender;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private HistoricalPriority priority;
+        private int attempts;
+
+        private Pending(HistoricalRequestKey key, HistoricalPriority priority, Supplier<CompletableFuture<T>> sender) {
+            this.key = key;
+            this.priority = priority;
+            this.sender = sender;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.homegaibkrponte.data.history;
+
+/**
+ * Janela deslizante exata de "no máximo N pedidos em T": guarda o instante dos últimos N envios
+ * num anel de longs. Um token bucket clássico deixaria passar até 2N pedidos numa janela
+ * (o balde cheio mais a reposição), o que a IBKR pune com pacing violation.
+ *
+ * Não é thread-safe: usada só pela thread "ibkr-history-pacer".
+ */
+final class PacingWindow {
+
+    private final long[] sentAt;
+    private final long windowNanos;
+    private int head;
+    private int size;
+
+    PacingWindow(int limit, long windowNanos) {
+        this.sentAt = new long[limit];
+        this.windowNanos = windowNanos;
+    }
+
+    /**
+     * Quanto esperar (nanos) até caberem {@code cost} envios deixando {@code reserve} vagas livres; 0 se já cabem.
+     */
+    long delay(long now, int cost, int reserve) {
+        expire(now);
+        int needed = Math.min(cost + reserve, sentAt.length);
+        int free = sentAt.length - size;
+        if (free >= needed) {
+            return 0L;
+        }
+        // Espera o (needed - free)-ésimo envio mais antigo sair da janela.
+        long oldest = sentAt[(head + needed - free - 1) % sentAt.length];
+        return Math.max(1L, oldest + windowNanos - now);
+    }
+
+    void record(long now, int cost) {
+        expire(now);
+        for (int i = 0; i < cost; i++) {
+            if (size == sentAt.length) {
+                head = (head + 1) % sentAt.length;
+                size--;
+            }
+            sentAt[(head + size) % sentAt.length] = now;
+            size++;
+        }
+    }
+
+    int used(long now) {
+        expire(now);
+        return size;
+    }
+
+    boolean isIdle(long now) {
+        return used(now) == 0;
+    }
+
+    private void expire(long now) {
+        while (size > 0 && now - sentAt[head] >= windowNanos) {
+            head = (head + 1) % sentAt.length;
+            size--;
+        }
+    }
+}
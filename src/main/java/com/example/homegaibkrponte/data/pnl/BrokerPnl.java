@@ -0,0 +1,21 @@
+package com.example.homegaibkrponte.data.pnl;
+
+import java.time.Instant;
+
+/**
+ * Última leitura de P&L enviada pela IBKR (callbacks pnl/pnlSingle). Valores que a IBKR não
+ * informou (Double.MAX_VALUE na API) ficam NaN; position e value são NaN no P&L da conta.
+ */
+public record BrokerPnl(
+        double position,
+        double daily,
+        double unrealized,
+        double realized,
+        double value,
+        Instant updatedAt
+) {
+
+    static double normalize(double value) {
+        return value == Double.MAX_VALUE || Double.isInfinite(value) ? Double.NaN : value;
+    }
+}
@@ -0,0 +1,430 @@
+package com.example.homegaibkrponte.data.pnl;
+
+import com.example.homegaibkrponte.data.quote.QuoteStore;
+import com.example.homegaibkrponte.dto.PnlDTO;
+import com.example.homegaibkrponte.dto.PositionPnlDTO;
+import com.example.homegaibkrponte.util.IntIntMap;
+import com.ib.client.TickType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * P&L em tempo real das posições abertas, em duas fontes lado a lado:
+ *
+ * - Local: cada posição guarda quantidade, custo médio, preço de marcação e o não realizado.
+ *   Um tick só remarca a sua posição e soma ao total a diferença (novo - antigo); ler o total ou
+ *   uma posição é O(1), sem reavaliar o portfólio. O não realizado é guardado em ponto fixo
+ *   (1e-6 da moeda), então o total é sempre a soma exata das posições, por mais ticks que passem.
+ * - IBKR: a última leitura de reqPnL (conta) e de reqPnLSingle (por conId), como referência.
+ *
+ * Indexado pelo slot do QuoteStore. Escrita sob o monitor do engine (ticks na thread 'ibkr-msg-processor',
+ * posições na thread que aplicou a execução); leitura de uma posição por seqlock, como no QuoteStore.
+ */
+@Component
+@Slf4j
+public class PnlEngine {
+
+    private static final double UNITS = 1_000_000d;
+    private static final VarHandle VERSION = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private static final int LAST = TickType.LAST.index();
+    private static final int DELAYED_LAST = TickType.DELAYED_LAST.index();
+    private static final int BID = TickType.BID.index();
+    private static final int ASK = TickType.ASK.index();
+    private static final int DELAYED_BID = TickType.DELAYED_BID.index();
+    private static final int DELAYED_ASK = TickType.DELAYED_ASK.index();
+
+    private final QuoteStore quoteStore;
+    private final PnlMarkSource markSource;
+
+    // Por slot do QuoteStore.
+    private final double[] quantity;      // assinada: negativa = vendida
+    private final double[] averageCost;
+    private final double[] mark;          // NaN até o primeiro preço
+    private final long[] unrealized;      // em 1/UNITS da moeda
+    private final long[] versions;
+    private final boolean[] held;
+
+    // Totais: cada um é escrito sob o monitor e lido sem lock.
+    private volatile long totalUnrealized;
+    private volatile int positionCount;
+    private volatile int unmarkedCount;
+    private volatile long version;
+
+    // P&L da IBKR: reqId do reqPnL da conta; reqId -> slot dos reqPnLSingle (copy-on-write).
+    private volatile int accountReqId = IntIntMap.MISSING;
+    private volatile BrokerPnl accountPnl;
+    private final int[] reqIdBySlot;
+    private final int[] conIdBySlot;
+    private final AtomicReferenceArray<BrokerPnl> positionPnl;
+    private volatile IntIntMap slotsByReqId = IntIntMap.empty();
+
+    public PnlEngine(QuoteStore quoteStore,
+                     @Value("${ibkr.pnl.mark:LAST}") PnlMarkSource markSource) {
+        this.quoteStore = quoteStore;
+        this.markSource = markSource;
+        int capacity = quoteStore.getCapacity();
+        this.quantity = new double[capacity];
+        this.averageCost = new double[capacity];
+        this.mark = new double[capacity];
+        this.unrealized = new long[capacity];
+        this.versions = new long[capacity];
+        this.held = new boolean[capacity];
+        this.reqIdBySlot = new int[capacity];
+        this.conIdBySlot = new int[capacity];
+        this.positionPnl = new AtomicReferenceArray<>(capacity);
+        Arrays.fill(mark, Double.NaN);
+        Arrays.fill(reqIdBySlot, IntIntMap.MISSING);
+    }
+
+    // --- POSIÇÕES (LivePnlService, a cada mudança no portfólio) ---
+
+    /**
+     * Define a posição do símbolo. Uma posição nova começa marcada pelo último preço do QuoteStore
+     * (ou sem marcação, se ainda não houve tick); uma existente mantém a marcação atual.
+     *
+     * @return true se o símbolo passou a ter posição agora.
+     */
+    public synchronized boolean update(String symbol, double signedQuantity, double cost) {
+        if (signedQuantity == 0) {
+            close(symbol);
+            return false;
+        }
+        int slot = quoteStore.register(symbol);
+        boolean opened = !held[slot];
+        double currentMark = opened ? Double.NaN : mark[slot];
+        if (Double.isNaN(currentMark)) {
+            currentMark = quotedMark(slot);
+        }
+        if (opened) {
+            held[slot] = true;
+            positionCount++;
+        } else if (Double.isNaN(mark[slot])) {
+            unmarkedCount--;
+        }
+        if (Double.isNaN(currentMark)) {
+            unmarkedCount++;
+        }
+        write(slot, signedQuantity, cost, currentMark);
+        return opened;
+    }
+
+    /**
+     * Zera a posição do símbolo; o não realizado dela sai do total.
+     *
+     * @return true se havia posição.
+     */
+    public synchronized boolean close(String symbol) {
+        int slot = quoteStore.slotOf(symbol);
+        if (slot < 0 || !held[slot]) {
+            return false;
+        }
+        if (Double.isNaN(mark[slot])) {
+            unmarkedCount--;
+        }
+        write(slot, 0, 0, Double.NaN);
+        held[slot] = false;
+        positionCount--;
+        return true;
+    }
+
+    public boolean isOpen(String symbol) {
+        int slot = quoteStore.slotOf(symbol);
+        return slot >= 0 && held[slot];
+    }
+
+    /**
+     * Slots com posição aberta, para a manutenção (linhas de cotação e reqPnLSingle).
+     */
+    public synchronized int[] heldSlots() {
+        int[] slots = new int[positionCount];
+        int count = 0;
+        for (int slot = 0; slot < quoteStore.size() && count < slots.length; slot++) {
+            if (held[slot]) {
+                slots[count++] = slot;
+            }
+        }
+        return slots;
+    }
+
+    // --- TICKS (thread do leitor TWS, logo depois do QuoteStore) ---
+
+    /**
+     * Remarca a posição do reqId, se houver. Ticks de símbolos sem posição saem sem lock e sem alocação.
+     */
+    public void onPrice(int reqId, int tickType, double price) {
+        if (positionCount == 0) {
+            return;
+        }
+        int slot = quoteStore.slotOfRequest(reqId);
+        if (slot == IntIntMap.MISSING || !held[slot]) {
+            return;
+        }
+        double next;
+        if (markSource == PnlMarkSource.LAST) {
+            if ((tickType != LAST && tickType != DELAYED_LAST) || price <= 0) {
+                return;
+            }
+            next = price;
+        } else {
+            if (tickType != BID && tickType != ASK && tickType != DELAYED_BID && tickType != DELAYED_ASK) {
+                return;
+            }
+            next = quoteStore.mid(slot);
+            if (Double.isNaN(next)) {
+                return;
+            }
+        }
+        synchronized (this) {
+            if (held[slot] && mark[slot] != next) {
+                if (Double.isNaN(mark[slot])) {
+                    unmarkedCount--;
+                }
+                write(slot, quantity[slot], averageCost[slot], next);
+            }
+        }
+    }
+
+    private double quotedMark(int slot) {
+        double quoted = markSource == PnlMarkSource.LAST ? quoteStore.last(slot) : quoteStore.mid(slot);
+        return quoted > 0 ? quoted : Double.NaN;
+    }
+
+    // Sob o monitor: um escritor por vez, então o seqlock do slot tem um único escritor.
+    private void write(int slot, double signedQuantity, double cost, double markPrice) {
+        long before = unrealized[slot];
+        long after = Double.isNaN(markPrice) ? 0L : Math.round(signedQuantity * (markPrice - cost) * UNITS);
+        long slotVersion = (long) VERSION.getOpaque(versions, slot);
+        VERSION.setOpaque(versions, slot, slotVersion + 1);
+        VarHandle.storeStoreFence();
+        quantity[slot] = signedQuantity;
+        averageCost[slot] = cost;
+        mark[slot] = markPrice;
+        unrealized[slot] = after;
+        VERSION.setRelease(versions, slot, slotVersion + 2);
+        totalUnrealized += after - before;
+        version++;
+    }
+
+    // --- LEITURA (qualquer thread, O(1)) ---
+
+    /**
+     * Não realizado do portfólio: soma das posições marcadas. Posições sem preço contam zero.
+     */
+    public double getUnrealizedPnl() {
+        return totalUnrealized / UNITS;
+    }
+
+    public int getPositionCount() {
+        return positionCount;
+    }
+
+    public int getUnmarkedCount() {
+        return unmarkedCount;
+    }
+
+    /**
+     * Cresce a cada remarcação ou mudança de posição.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Não realizado de uma posição (0 sem posição ou sem preço).
+     */
+    public double getUnrealizedPnl(String symbol) {
+        int slot = quoteStore.slotOf(symbol);
+        if (slot < 0) {
+            return 0;
+        }
+        while (true) {
+            long before = (long) VERSION.getAcquire(versions, slot);
+            if ((before & 1L) == 0L) {
+                long value = unrealized[slot];
+                VarHandle.loadLoadFence();
+                if ((long) VERSION.getOpaque(versions, slot) == before) {
+                    return value / UNITS;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    // --- API DE CONVENIÊNCIA (REST; aloca) ---
+
+    public PnlDTO portfolioSnapshot(String account) {
+        BrokerPnl broker = accountPnl;
+        return new PnlDTO(account, getUnrealizedPnl(), positionCount, unmarkedCount,
+                broker == null ? null : boxed(broker.daily()),
+                broker == null ? null : boxed(broker.unrealized()),
+                broker == null ? null : boxed(broker.realized()),
+                broker == null ? null : broker.updatedAt(),
+                version);
+    }
+
+    public Optional<PositionPnlDTO> snapshot(String symbol) {
+        int slot = quoteStore.slotOf(symbol);
+        return slot < 0 ? Optional.empty() : Optional.ofNullable(read(slot));
+    }
+
+    public List<PositionPnlDTO> snapshotAll() {
+        List<PositionPnlDTO> positions = new ArrayList<>();
+        for (int slot : heldSlots()) {
+            PositionPnlDTO position = read(slot);
+            if (position != null) {
+                positions.add(position);
+            }
+        }
+        return positions;
+    }
+
+    private PositionPnlDTO read(int slot) {
+        double q;
+        double cost;
+        double markPrice;
+        long value;
+        boolean open;
+        while (true) {
+            long before = (long) VERSION.getAcquire(versions, slot);
+            if ((before & 1L) == 0L) {
+                q = quantity[slot];
+                cost = averageCost[slot];
+                markPrice = mark[slot];
+                value = unrealized[slot];
+                open = held[slot];
+                VarHandle.loadLoadFence();
+                if ((long) VERSION.getOpaque(versions, slot) == before) {
+                    break;
+                }
+            }
+            Thread.onSpinWait();
+        }
+        if (!open) {
+            return null;
+        }
+        BrokerPnl broker = positionPnl.get(slot);
+        return new PositionPnlDTO(quoteStore.symbolOf(slot), q, cost, boxed(markPrice), value / UNITS,
+                broker == null ? null : boxed(broker.daily()),
+                broker == null ? null : boxed(broker.unrealized()),
+                broker == null ? null : boxed(broker.realized()),
+                broker == null ? null : boxed(broker.value()),
+                broker == null ? null : broker.updatedAt());
+    }
+
+    private static Double boxed(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+
+    // --- ASSINATURAS reqPnL / reqPnLSingle (IBKRConnector) ---
+
+    /**
+     * @return false se a conta já tem um reqPnL ativo.
+     */
+    public synchronized boolean bindAccount(int reqId) {
+        if (accountReqId != IntIntMap.MISSING) {
+            return false;
+        }
+        accountReqId = reqId;
+        return true;
+    }
+
+    public int getAccountRequest() {
+        return accountReqId;
+    }
+
+    /**
+     * @return false se o símbolo já tem um reqPnLSingle ativo.
+     */
+    public synchronized boolean bindPosition(String symbol, int conId, int reqId) {
+        int slot = quoteStore.register(symbol);
+        if (reqIdBySlot[slot] != IntIntMap.MISSING) {
+            return false;
+        }
+        reqIdBySlot[slot] = reqId;
+        conIdBySlot[slot] = conId;
+        slotsByReqId = slotsByReqId.with(reqId, slot);
+        return true;
+    }
+
+    /**
+     * @return o reqId removido, ou -1 se o símbolo não tinha reqPnLSingle.
+     */
+    public synchronized int unbindPosition(String symbol) {
+        int slot = quoteStore.slotOf(symbol);
+        if (slot < 0 || reqIdBySlot[slot] == IntIntMap.MISSING) {
+            return IntIntMap.MISSING;
+        }
+        int reqId = reqIdBySlot[slot];
+        reqIdBySlot[slot] = IntIntMap.MISSING;
+        slotsByReqId = slotsByReqId.without(reqId);
+        positionPnl.set(slot, null);
+        return reqId;
+    }
+
+    public synchronized boolean isPositionBound(int slot) {
+        return reqIdBySlot[slot] != IntIntMap.MISSING;
+    }
+
+    public synchronized boolean isPositionBound(String symbol) {
+        int slot = quoteStore.slotOf(symbol);
+        return slot >= 0 && reqIdBySlot[slot] != IntIntMap.MISSING;
+    }
+
+    public boolean owns(int reqId) {
+        return reqId == accountReqId || slotsByReqId.containsKey(reqId);
+    }
+
+    /**
+     * Símbolo do reqPnLSingle, "conta" para o reqPnL, ou null se o reqId não é deste engine.
+     */
+    public String describeRequest(int reqId) {
+        if (reqId == accountReqId) {
+            return "conta";
+        }
+        int slot = slotsByReqId.get(reqId);
+        return slot == IntIntMap.MISSING ? null : quoteStore.symbolOf(slot);
+    }
+
+    /**
+     * Visita cada reqPnLSingle ativo (reqId, slot); o conId sai de {@link #conIdOf(int)}.
+     */
+    public void forEachPositionRequest(IntIntMap.Visitor visitor) {
+        slotsByReqId.forEach(visitor);
+    }
+
+    public synchronized int conIdOf(int slot) {
+        return conIdBySlot[slot];
+    }
+
+    public String symbolOf(int slot) {
+        return quoteStore.symbolOf(slot);
+    }
+
+    public void onAccountPnl(int reqId, double daily, double unrealizedPnl, double realized) {
+        if (reqId != accountReqId) {
+            return;
+        }
+        accountPnl = new BrokerPnl(Double.NaN, BrokerPnl.normalize(daily), BrokerPnl.normalize(unrealizedPnl),
+                BrokerPnl.normalize(realized), Double.NaN, Instant.now());
+    }
+
+    public void onPositionPnl(int reqId, double position, double daily, double unrealizedPnl, double realized, double value) {
+        int slot = slotsByReqId.get(reqId);
+        if (slot == IntIntMap.MISSING) {
+            return;
+        }
+        positionPnl.set(slot, new BrokerPnl(position, BrokerPnl.normalize(daily), BrokerPnl.normalize(unrealizedPnl),
+                BrokerPnl.normalize(realized), BrokerPnl.normalize(value), Instant.now()));
+    }
+}
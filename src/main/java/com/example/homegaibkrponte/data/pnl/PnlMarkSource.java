@@ -0,0 +1,11 @@
+package com.example.homegaibkrponte.data.pnl;
+
+/**
+ * Preço usado para marcar as posições a mercado no PnlEngine (ibkr.pnl.mark).
+ */
+public enum PnlMarkSource {
+    /** Último negócio (tickType LAST/DELAYED_LAST), como o marketPrice do updatePortfolio. */
+    LAST,
+    /** Ponto médio bid/ask: reage a cada mudança do topo do livro, mesmo sem negócios. */
+    MID
+}
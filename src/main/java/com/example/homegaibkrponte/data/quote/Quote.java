@@ -0,0 +1,56 @@
+package com.example.homegaibkrponte.data.quote;
+
+import lombok.Getter;
+
+/**
+ * Leitura consistente de um slot do QuoteStore. Objeto mutável e reutilizável: quem lê em laço
+ * quente mantém uma instância própria e chama {@link QuoteStore#read(int, Quote)} sem alocar.
+ * Preços ainda não recebidos (ou -1 da IBKR, "sem oferta") ficam como NaN.
+ */
+@Getter
+public final class Quote {
+
+    private String symbol;
+    private int slot = -1;
+    private long version;
+    private double bid;
+    private double ask;
+    private double last;
+    private double bidSize;
+    private double askSize;
+    private double lastSize;
+    private double volume;
+    private double open;
+    private double high;
+    private double low;
+    private double close;
+    private boolean halted;
+    private long updatedAtMillis;
+
+    void fill(String symbol, int slot, long version, double[] data, int offset, long updatedAtMillis) {
+        this.symbol = symbol;
+        this.slot = slot;
+        this.version = version;
+        this.bid = data[offset + QuoteStore.BID];
+        this.ask = data[offset + QuoteStore.ASK];
+        this.last = data[offset + QuoteStore.LAST];
+        this.bidSize = data[offset + QuoteStore.BID_SIZE];
+        this.askSize = data[offset + QuoteStore.ASK_SIZE];
+        this.lastSize = data[offset + QuoteStore.LAST_SIZE];
+        this.volume = data[offset + QuoteStore.VOLUME];
+        this.open = data[offset + QuoteStore.OPEN];
+        this.high = data[offset + QuoteStore.HIGH];
+        this.low = data[offset + QuoteStore.LOW];
+        this.close = data[offset + QuoteStore.CLOSE];
+        this.halted = data[offset + QuoteStore.HALTED] > 0;
+        this.updatedAtMillis = updatedAtMillis;
+    }
+
+    public double mid() {
+        return (bid + ask) / 2.0;
+    }
+
+    public double spread() {
+        return ask - bid;
+    }
+}
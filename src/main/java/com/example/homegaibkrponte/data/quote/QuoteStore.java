@@ -0,0 +1,346 @@
+package com.example.homegaibkrponte.data.quote;
+
+import com.example.homegaibkrponte.dto.QuoteDTO;
+import com.example.homegaibkrponte.util.IntIntMap;
+import com.ib.client.TickType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Topo do livro de todos os símbolos assinados, em layout fixo de arrays primitivos:
+ * cada instrumento ganha um slot inteiro e ocupa STRIDE doubles contíguos em {@code data}.
+ *
+ * Escrita: só a thread 'ibkr-msg-processor' (tickPrice/tickSize/tickGeneric), sem locks e sem alocação.
+ * Leitura: qualquer thread, via seqlock. O escritor deixa a versão do slot ímpar enquanto escreve
+ * e par ao terminar; o leitor copia os campos e repete se a versão mudou no meio.
+ */
+@Component
+@Slf4j
+public class QuoteStore {
+
+    // Layout de um slot (índices dentro do bloco de STRIDE doubles).
+    static final int BID = 0;
+    static final int ASK = 1;
+    static final int LAST = 2;
+    static final int BID_SIZE = 3;
+    static final int ASK_SIZE = 4;
+    static final int LAST_SIZE = 5;
+    static final int VOLUME = 6;
+    static final int OPEN = 7;
+    static final int HIGH = 8;
+    static final int LOW = 9;
+    static final int CLOSE = 10;
+    static final int HALTED = 11;
+    private static final int STRIDE = 16; // 128 bytes: um slot nunca divide linha de cache com o vizinho
+
+    private static final VarHandle VERSION = MethodHandles.arrayElementVarHandle(long[].class);
+
+    // tickType da IBKR -> campo do slot (-1 = ignorado). Os tipos "DELAYED_*" caem no mesmo campo.
+    private static final int[] FIELD_BY_TICK = new int[128];
+
+    static {
+        Arrays.fill(FIELD_BY_TICK, -1);
+        map(BID, TickType.BID, TickType.DELAYED_BID);
+        map(ASK, TickType.ASK, TickType.DELAYED_ASK);
+        map(LAST, TickType.LAST, TickType.DELAYED_LAST);
+        map(BID_SIZE, TickType.BID_SIZE, TickType.DELAYED_BID_SIZE);
+        map(ASK_SIZE, TickType.ASK_SIZE, TickType.DELAYED_ASK_SIZE);
+        map(LAST_SIZE, TickType.LAST_SIZE, TickType.DELAYED_LAST_SIZE);
+        map(VOLUME, TickType.VOLUME, TickType.DELAYED_VOLUME);
+        map(OPEN, TickType.OPEN, TickType.DELAYED_OPEN);
+        map(HIGH, TickType.HIGH, TickType.DELAYED_HIGH);
+        map(LOW, TickType.LOW, TickType.DELAYED_LOW);
+        map(CLOSE, TickType.CLOSE, TickType.DELAYED_CLOSE);
+        map(HALTED, TickType.HALTED, TickType.DELAYED_HALTED);
+    }
+
+    private static void map(int field, TickType live, TickType delayed) {
+        FIELD_BY_TICK[live.index()] = field;
+        FIELD_BY_TICK[delayed.index()] = field;
+    }
+
+    private final int capacity;
+    private final double[] data;
+    private final long[] versions;
+    private final long[] updatedAtMillis;
+    private final String[] symbols;
+    private final int[] reqIdBySlot;
+    private final Map<String, Integer> slotsBySymbol = new ConcurrentHashMap<>();
+    private int slotCount;
+
+    // reqId -> slot, lido a cada tick. Copy-on-write: só muda em subscribe/unsubscribe.
+    private volatile IntIntMap slotsByReqId = IntIntMap.empty();
+
+    public QuoteStore(@Value("${ibkr.quotes.capacity:4096}") int capacity) {
+        this.capacity = capacity;
+        this.data = new double[capacity * STRIDE];
+        this.versions = new long[capacity];
+        this.updatedAtMillis = new long[capacity];
+        this.symbols = new String[capacity];
+        this.reqIdBySlot = new int[capacity];
+        Arrays.fill(data, Double.NaN);
+        Arrays.fill(reqIdBySlot, IntIntMap.MISSING);
+    }
+
+    // --- REGISTRO (raro; chamado pelo IBKRConnector.subscribe/unsubscribe) ---
+
+    /**
+     * Slot fixo do símbolo, criado na primeira chamada. O slot nunca é reaproveitado por outro símbolo.
+     */
+    public synchronized int register(String symbol) {
+        String key = normalize(symbol);
+        Integer existing = slotsBySymbol.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        if (slotCount == capacity) {
+            throw new IllegalStateException("QuoteStore cheio (" + capacity + " símbolos). Aumente ibkr.quotes.capacity.");
+        }
+        int slot = slotCount++;
+        symbols[slot] = key;
+        slotsBySymbol.put(key, slot);
+        return slot;
+    }
+
+    /**
+     * Associa o reqId do reqMktData ao slot.
+     *
+     * @return false se o slot já tem uma assinatura ativa (nada é alterado).
+     */
+    public synchronized boolean bind(int slot, int reqId) {
+        if (reqIdBySlot[slot] != IntIntMap.MISSING) {
+            return false;
+        }
+        reqIdBySlot[slot] = reqId;
+        slotsByReqId = slotsByReqId.with(reqId, slot);
+        return true;
+    }
+
+    /**
+     * Remove a assinatura ativa do slot. Os últimos valores continuam legíveis.
+     *
+     * @return o reqId removido, ou -1 se não havia assinatura.
+     */
+    public synchronized int unbind(int slot) {
+        int reqId = reqIdBySlot[slot];
+        if (reqId != IntIntMap.MISSING) {
+            reqIdBySlot[slot] = IntIntMap.MISSING;
+            slotsByReqId = slotsByReqId.without(reqId);
+        }
+        return reqId;
+    }
+
+    public synchronized int reqIdOf(int slot) {
+        return reqIdBySlot[slot];
+    }
+
+    /**
+     * Slot do reqId, ou -1 se o reqId não é uma assinatura de cotação.
+     */
+    public int slotOfRequest(int reqId) {
+        return slotsByReqId.get(reqId);
+    }
+
+    /**
+     * Slot do símbolo, ou -1 se ele nunca foi registrado. Guarde o slot: ler por slot é o caminho rápido.
+     */
+    public int slotOf(String symbol) {
+        Integer slot = slotsBySymbol.get(normalize(symbol));
+        return slot != null ? slot : -1;
+    }
+
+    public String symbolOf(int slot) {
+        return symbols[slot];
+    }
+
+    // --- ESCRITA (thread do leitor TWS) ---
+
+    public void onPrice(int reqId, int tickType, double price) {
+        // A IBKR envia -1 quando não há oferta naquele lado do livro.
+        write(reqId, tickType, price < 0 ? Double.NaN : price);
+    }
+
+    public void onSize(int reqId, int tickType, double size) {
+        write(reqId, tickType, size);
+    }
+
+    public void onGeneric(int reqId, int tickType, double value) {
+        write(reqId, tickType, value);
+    }
+
+    private void write(int reqId, int tickType, double value) {
+        if (tickType < 0 || tickType >= FIELD_BY_TICK.length || FIELD_BY_TICK[tickType] < 0) {
+            return;
+        }
+        int slot = slotsByReqId.get(reqId);
+        if (slot == IntIntMap.MISSING) {
+            return;
+        }
+        long version = (long) VERSION.getOpaque(versions, slot);
+        VERSION.setOpaque(versions, slot, version + 1);
+        VarHandle.storeStoreFence();
+        data[slot * STRIDE + FIELD_BY_TICK[tickType]] = value;
+        updatedAtMillis[slot] = System.currentTimeMillis();
+        VERSION.setRelease(versions, slot, version + 2);
+    }
+
+    // --- LEITURA (qualquer thread, sem lock e sem alocação) ---
+
+    /**
+     * Copia uma fotografia consistente do slot para {@code into}.
+     *
+     * @return false se o slot ainda não recebeu nenhum tick.
+     */
+    public boolean read(int slot, Quote into) {
+        checkSlot(slot);
+        int offset = slot * STRIDE;
+        while (true) {
+            long before = (long) VERSION.getAcquire(versions, slot);
+            if ((before & 1L) == 0L) {
+                into.fill(symbols[slot], slot, before, data, offset, updatedAtMillis[slot]);
+                VarHandle.loadLoadFence();
+                if ((long) VERSION.getOpaque(versions, slot) == before) {
+                    return before != 0L;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    public double bid(int slot) {
+        return readField(slot, BID);
+    }
+
+    public double ask(int slot) {
+        return readField(slot, ASK);
+    }
+
+    public double last(int slot) {
+        return readField(slot, LAST);
+    }
+
+    /**
+     * Ponto médio calculado sobre um par bid/ask consistente (NaN se faltar um dos lados).
+     */
+    public double mid(int slot) {
+        checkSlot(slot);
+        int offset = slot * STRIDE;
+        while (true) {
+            long before = (long) VERSION.getAcquire(versions, slot);
+            if ((before & 1L) == 0L) {
+                double bid = data[offset + BID];
+                double ask = data[offset + ASK];
+                VarHandle.loadLoadFence();
+                if ((long) VERSION.getOpaque(versions, slot) == before) {
+                    return (bid + ask) / 2.0;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    /**
+     * Versão atual do slot; muda a cada tick. Permite detectar "nada mudou" sem copiar campos.
+     */
+    public long version(int slot) {
+        checkSlot(slot);
+        return (long) VERSION.getAcquire(versions, slot);
+    }
+
+    private double readField(int slot, int field) {
+        checkSlot(slot);
+        int index = slot * STRIDE + field;
+        while (true) {
+            long before = (long) VERSION.getAcquire(versions, slot);
+            if ((before & 1L) == 0L) {
+                double value = data[index];
+                VarHandle.loadLoadFence();
+                if ((long) VERSION.getOpaque(versions, slot) == before) {
+                    return value;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    // --- API DE CONVENIÊNCIA (REST; aloca) ---
+
+    public Optional<QuoteDTO> snapshot(String symbol) {
+        int slot = slotOf(symbol);
+        if (slot < 0) {
+            return Optional.empty();
+        }
+        Quote quote = new Quote();
+        return read(slot, quote) ? Optional.of(toDto(quote)) : Optional.empty();
+    }
+
+    public List<QuoteDTO> snapshotAll() {
+        List<QuoteDTO> quotes = new ArrayList<>();
+        Quote quote = new Quote();
+        for (int slot : slotsBySymbol.values()) {
+            if (read(slot, quote)) {
+                quotes.add(toDto(quote));
+            }
+        }
+        return quotes;
+    }
+
+    public boolean isSubscribed(String symbol) {
+        int slot = slotOf(symbol);
+        return slot >= 0 && reqIdOf(slot) != IntIntMap.MISSING;
+    }
+
+    public int size() {
+        return slotsBySymbol.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Linhas de dados de mercado abertas (assinaturas reqMktData ativas).
+     */
+    public int getLineCount() {
+        return slotsByReqId.size();
+    }
+
+    /**
+     * Visita cada assinatura ativa (reqId, slot).
+     */
+    public void forEachBinding(IntIntMap.Visitor visitor) {
+        slotsByReqId.forEach(visitor);
+    }
+
+    public static QuoteDTO toDto(Quote quote) {
+        return new QuoteDTO(quote.getSymbol(), boxed(quote.getBid()), boxed(quote.getAsk()), boxed(quote.getLast()),
+                boxed(quote.getBidSize()), boxed(quote.getAskSize()), boxed(quote.getLastSize()), boxed(quote.getVolume()),
+                boxed(quote.getOpen()), boxed(quote.getHigh()), boxed(quote.getLow()), boxed(quote.getClose()),
+                quote.isHalted(), Instant.ofEpochMilli(quote.getUpdatedAtMillis()), quote.getVersion() / 2);
+    }
+
+    private static Double boxed(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+
+    private void checkSlot(int slot) {
+        if (slot < 0 || slot >= capacity || symbols[slot] == null) {
+            throw new IllegalArgumentException("Slot de cotação inválido: " + slot);
+        }
+    }
+
+    private static String normalize(String symbol) {
+        return symbol.trim().toUpperCase();
+    }
+}
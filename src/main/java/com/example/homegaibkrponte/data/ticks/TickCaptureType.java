@@ -0,0 +1,21 @@
+package com.example.homegaibkrponte.data.ticks;
+
+import lombok.Getter;
+
+/**
+ * Tipos de reqTickByTickData que podem ser capturados no TickJournal.
+ */
+@Getter
+public enum TickCaptureType {
+
+    LAST("Last"),
+    ALL_LAST("AllLast"),
+    BID_ASK("BidAsk"),
+    MID_POINT("MidPoint");
+
+    private final String ibTickType; // tickType da API
+
+    TickCaptureType(String ibTickType) {
+        this.ibTickType = ibTickType;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.homegaibkrponte.data.ticks;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+/**
+ * Tabelas texto → id inteiro do TickJournal (símbolos e bolsas), persistidas em "dictionary.tsv"
+ * no diretório do journal: uma linha por entrada nova ("S|E \t id \t nome"), só acrescentada.
+ * O id 0 é reservado para "não informado".
+ *
+ * Uma entrada nova ganha o id na hora, em memória; a linha vai para uma fila que o {@code writer}
+ * (a thread "ibkr-tick-journal") grava depois, então a thread do leitor TWS nunca faz I/O de disco.
+ */
+@Slf4j
+final class TickDictionary {
+
+    static final String FILE_NAME = "dictionary.tsv";
+
+    private final Path file;
+    private final Map<String, Integer> symbolIds = new ConcurrentHashMap<>();
+    private final Map<String, Integer> exchangeIds = new ConcurrentHashMap<>();
+    private final List<String> symbols = new CopyOnWriteArrayList<>(List.of(""));
+    private final List<String> exchanges = new CopyOnWriteArrayList<>(List.of(""));
+    private final Queue<String> pending = new ConcurrentLinkedQueue<>();
+    // Só serializa quem grava o arquivo; o add() não o toma, então nunca espera pelo I/O.
+    private final Object fileLock = new Object();
+    private final Executor writer;
+
+    /**
+     * Dicionário só de leitura (TickJournalReader): entradas novas, se houver, são gravadas na hora.
+     */
+    TickDictionary(Path directory) {
+        this(directory, Runnable::run);
+    }
+
+    TickDictionary(Path directory, Executor writer) {
+        this.file = directory.resolve(FILE_NAME);
+        this.writer = writer;
+        if (Files.exists(file)) {
+            load();
+        }
+    }
+
+    int symbolId(String symbol) {
+        Integer id = symbolIds.get(symbol);
+        return id != null ? id : add('S', symbol, symbolIds, symbols);
+    }
+
+    /**
+     * Chamado pela thread do leitor TWS a cada negócio; a primeira ocorrência de uma bolsa só enfileira a linha.
+     */
+    int exchangeId(String exchange) {
+        if (exchange == null || exchange.isEmpty()) {
+            return 0;
+        }
+        Integer id = exchangeIds.get(exchange);
+        return id != null ? id : add('E', exchange, exchangeIds, exchanges);
+    }
+
+    String symbol(int id) {
+        return id > 0 && id < symbols.size() ? symbols.get(id) : null;
+    }
+
+    String exchange(int id) {
+        return id > 0 && id < exchanges.size() ? exchanges.get(id) : null;
+    }
+
+    private int add(char kind, String name, Map<String, Integer> ids, List<String> names) {
+        int id;
+        synchronized (this) {
+            Integer existing = ids.get(name);
+            if (existing != null) {
+                return existing;
+            }
+            id = names.size();
+            names.add(name);
+            ids.put(name, id);
+            pending.add(kind + "\t" + id + "\t" + name);
+        }
+        writer.execute(this::flush);
+        return id;
+    }
+
+    /**
+     * Acrescenta ao arquivo as linhas enfileiradas. Roda no {@code writer} e, no fechamento do journal,
+     * na thread que o fecha. Numa falha, as linhas ainda não gravadas ficam para a próxima chamada.
+     */
+    void flush() {
+        synchronized (fileLock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                String line;
+                while ((line = pending.peek()) != null) {
+                    out.write(line);
+                    out.newLine();
+                    pending.poll();
+                }
+            } catch (IOException e) {
+                log.error("💥 [TICKS] Falha ao gravar o dicionário do TickJournal {}: {}", file, e.getMessage(), e);
+            }
+        }
+    }
+
+    private void load() {
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                String[] parts = line.split("\t", 3);
+                if (parts.length < 3) {
+                    continue;
+                }
+                boolean symbol = "S".equals(parts[0]);
+                List<String> names = symbol ? symbols : exchanges;
+                Map<String, Integer> ids = symbol ? symbolIds : exchangeIds;
+                int id = Integer.parseInt(parts[1]);
+                while (names.size() <= id) {
+                    names.add("");
+                }
+                names.set(id, parts[2]);
+                ids.put(parts[2], id);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao ler o dicionário do TickJournal: " + file, e);
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.example.homegaibkrponte.data.ticks;
+
+import com.example.homegaibkrponte.util.IntIntMap;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Journal binário, só de acréscimo, dos callbacks tick-by-tick (AllLast/Last, BidAsk, MidPoint).
+ * Cada tick vira um registro de largura fixa (ver {@link TickRecord}) num segmento mapeado em memória;
+ * quando o segmento enche, o escritor passa para o próximo, já pré-alocado pela thread "ibkr-tick-journal".
+ *
+ * A thread do leitor TWS só copia primitivos para o mapeamento: o force() (fsync) acontece
+ * periodicamente na thread do journal, então uma queda perde no máximo o último intervalo de flush.
+ */
+@Component
+@Slf4j
+public class TickJournal {
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final long flushIntervalMillis;
+    private final MeterRegistry meterRegistry;
+    private TickDictionary dictionary;
+    private ScheduledExecutorService executor;
+
+    // Estado do escritor (thread do leitor TWS). 'current' é volatile só para o flush enxergá-lo.
+    private volatile TickJournalSegment current;
+    private int position;
+
+    private final Object segmentLock = new Object();
+    private TickJournalSegment prepared;
+    private long nextIndex;
+    private final Queue<TickJournalSegment> retired = new ConcurrentLinkedQueue<>();
+
+    // reqId -> symbolId; copy-on-write, lido a cada tick.
+    private volatile IntIntMap symbolByReqId = IntIntMap.empty();
+    private final Map<String, List<Integer>> reqIdsBySymbol = new ConcurrentHashMap<>();
+
+    private final AtomicLong recordsWritten = new AtomicLong();
+    private final AtomicLong segmentsRolled = new AtomicLong();
+    private final AtomicLong inlineAllocations = new AtomicLong();
+
+    // Relógio em microssegundos: âncora em epoch + deslocamento pelo nanoTime (monotônico e sem alocação).
+    private final long epochMicrosAnchor = System.currentTimeMillis() * 1_000L;
+    private final long nanoAnchor = System.nanoTime();
+
+    public TickJournal(@Value("${ibkr.ticks.dir:./data/ticks}") String directory,
+                       @Value("${ibkr.ticks.segment-size-mb:256}") long segmentSizeMb,
+                       @Value("${ibkr.ticks.flush-interval-millis:1000}") long flushIntervalMillis,
+                       MeterRegistry meterRegistry) {
+        this.directory = Path.of(directory);
+        long records = (segmentSizeMb * 1024 * 1024 - TickJournalSegment.HEADER_BYTES) / TickRecord.RECORD_BYTES;
+        this.segmentBytes = TickJournalSegment.HEADER_BYTES + records * TickRecord.RECORD_BYTES;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível criar o diretório do TickJournal: " + directory, e);
+        }
+        nextIndex = lastSegmentIndex(directory) + 1;
+
+        FunctionCounter.builder("ibkr.ticks.records", recordsWritten, AtomicLong::get)
+                .description("Ticks gravados no journal")
+                .register(meterRegistry);
+        FunctionCounter.builder("ibkr.ticks.segments", segmentsRolled, AtomicLong::get)
+                .register(meterRegistry);
+        FunctionCounter.builder("ibkr.ticks.inline.allocations", inlineAllocations, AtomicLong::get)
+                .description("Segmentos criados na thread do leitor por falta de um pré-alocado")
+                .register(meterRegistry);
+
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ibkr-tick-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Entradas novas do dicionário são gravadas na thread do journal, não na do leitor TWS.
+        dictionary = new TickDictionary(directory, executor);
+        executor.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        log.info("🎞️ TickJournal em {} (segmentos de {} MB, flush a cada {} ms)",
+                directory.toAbsolutePath(), segmentBytes / (1024 * 1024), flushIntervalMillis);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        TickJournalSegment segment = current;
+        if (segment != null) {
+            segment.seal(position);
+            segment.force();
+        }
+        flushRetired();
+        if (dictionary != null) {
+            // O shutdownNow descarta gravações enfileiradas: o que faltou vai aqui.
+            dictionary.flush();
+        }
+    }
+
+    // --- CAPTURA (chamado pelo IBKRConnector.captureTicks/stopTickCapture) ---
+
+    public void bind(int reqId, String symbol) {
+        String key = normalize(symbol);
+        int symbolId = dictionary.symbolId(key);
+        synchronized (this) {
+            symbolByReqId = symbolByReqId.with(reqId, symbolId);
+        }
+        reqIdsBySymbol.computeIfAbsent(key, ignored -> new CopyOnWriteArrayList<>()).add(reqId);
+        executor.execute(this::prepareNext);
+    }
+
+    /**
+     * Remove todas as capturas do símbolo.
+     *
+     * @return os reqIds a cancelar com cancelTickByTickData.
+     */
+    public List<Integer> unbind(String symbol) {
+        List<Integer> reqIds = reqIdsBySymbol.remove(normalize(symbol));
+        if (reqIds == null) {
+            return List.of();
+        }
+        synchronized (this) {
+            IntIntMap updated = symbolByReqId;
+            for (int reqId : reqIds) {
+                updated = updated.without(reqId);
+            }
+            symbolByReqId = updated;
+        }
+        return reqIds;
+    }
+
+    public boolean owns(int reqId) {
+        return symbolByReqId.containsKey(reqId);
+    }
+
+    public String symbolOfRequest(int reqId) {
+        return dictionary.symbol(symbolByReqId.get(reqId));
+    }
+
+    public boolean isCapturing(String symbol) {
+        return reqIdsBySymbol.containsKey(normalize(symbol));
+    }
+
+    public Map<String, List<Integer>> getCaptures() {
+        return Map.copyOf(reqIdsBySymbol);
+    }
+
+    public long getRecordsWritten() {
+        return recordsWritten.get();
+    }
+
+    /**
+     * Leitor sequencial de tudo o que já foi gravado neste diretório (inclusive o segmento em uso).
+     */
+    public TickJournalReader openReader() {
+        return new TickJournalReader(directory);
+    }
+
+    // --- ESCRITA (thread do leitor TWS) ---
+
+    public void onLast(int reqId, int tickType, long time, double price, double size,
+                       boolean pastLimit, boolean unreported, String exchange) {
+        int symbolId = symbolByReqId.get(reqId);
+        if (symbolId == IntIntMap.MISSING) {
+            return;
+        }
+        byte flags = (byte) ((pastLimit ? TickRecord.FLAG_PAST_LIMIT : 0) | (unreported ? TickRecord.FLAG_UNREPORTED : 0));
+        append(symbolId, tickType == 2 ? TickRecord.ALL_LAST : TickRecord.LAST, flags, time,
+                TickRecord.scalePrice(price), 0L, TickRecord.scaleSize(size), 0L, dictionary.exchangeId(exchange));
+    }
+
+    public void onBidAsk(int reqId, long time, double bidPrice, double askPrice, double bidSize, double askSize,
+                         boolean bidPastLow, boolean askPastHigh) {
+        int symbolId = symbolByReqId.get(reqId);
+        if (symbolId == IntIntMap.MISSING) {
+            return;
+        }
+        byte flags = (byte) ((bidPastLow ? TickRecord.FLAG_BID_PAST_LOW : 0) | (askPastHigh ? TickRecord.FLAG_ASK_PAST_HIGH : 0));
+        append(symbolId, TickRecord.BID_ASK, flags, time, TickRecord.scalePrice(bidPrice), TickRecord.scalePrice(askPrice),
+                TickRecord.scaleSize(bidSize), TickRecord.scaleSize(askSize), 0);
+    }
+
+    public void onMidPoint(int reqId, long time, double midPoint) {
+        int symbolId = symbolByReqId.get(reqId);
+        if (symbolId == IntIntMap.MISSING) {
+            return;
+        }
+        append(symbolId, TickRecord.MID_POINT, (byte) 0, time, TickRecord.scalePrice(midPoint), 0L, 0L, 0L, 0);
+    }
+
+    private void append(int symbolId, byte type, byte flags, long time,
+                        long price1, long price2, long size1, long size2, int exchangeId) {
+        TickJournalSegment segment = current;
+        if (segment == null || position == segment.getCapacity()) {
+            segment = roll(segment);
+        }
+        MappedByteBuffer buffer = segment.getBuffer();
+        int offset = TickJournalSegment.offsetOf(position);
+        buffer.putLong(offset + TickRecord.OFF_RECEIVED, epochMicrosAnchor + (System.nanoTime() - nanoAnchor) / 1_000L);
+        buffer.putLong(offset + TickRecord.OFF_TIME, time);
+        buffer.putInt(offset + TickRecord.OFF_SYMBOL, symbolId);
+        buffer.put(offset + TickRecord.OFF_FLAGS, flags);
+        buffer.putLong(offset + TickRecord.OFF_PRICE1, price1);
+        buffer.putLong(offset + TickRecord.OFF_PRICE2, price2);
+        buffer.putLong(offset + TickRecord.OFF_SIZE1, size1);
+        buffer.putLong(offset + TickRecord.OFF_SIZE2, size2);
+        buffer.putInt(offset + TickRecord.OFF_EXCHANGE, exchangeId);
+        // O tipo vai por último: um registro só "existe" para o leitor depois de completo.
+        buffer.put(offset + TickRecord.OFF_TYPE, type);
+        position++;
+        recordsWritten.lazySet(recordsWritten.get() + 1);
+    }
+
+    private TickJournalSegment roll(TickJournalSegment full) {
+        if (full != null) {
+            full.seal(position);
+            retired.add(full);
+        }
+        TickJournalSegment next;
+        synchronized (segmentLock) {
+            next = prepared;
+            prepared = null;
+            if (next == null) {
+                inlineAllocations.incrementAndGet();
+                next = TickJournalSegment.create(directory, nextIndex++, segmentBytes);
+            }
+        }
+        position = 0;
+        current = next;
+        segmentsRolled.incrementAndGet();
+        executor.execute(this::prepareNext);
+        return next;
+    }
+
+    // --- THREAD "ibkr-tick-journal" ---
+
+    private void prepareNext() {
+        synchronized (segmentLock) {
+            if (prepared == null && !symbolByReqId.isEmpty()) {
+                prepared = TickJournalSegment.create(directory, nextIndex++, segmentBytes);
+            }
+        }
+    }
+
+    private void flush() {
+        try {
+            TickJournalSegment segment = current;
+            if (segment != null) {
+                segment.force();
+            }
+            flushRetired();
+        } catch (Exception e) {
+            log.error("💥 [TICKS] Falha no flush do journal: {}", e.getMessage(), e);
+        }
+    }
+
+    private void flushRetired() {
+        TickJournalSegment segment;
+        while ((segment = retired.poll()) != null) {
+            segment.force();
+            log.info("🎞️ [TICKS] Segmento {} selado.", segment.getFile().getFileName());
+        }
+    }
+
+    private static long lastSegmentIndex(Path directory) {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(TickJournalReader::segmentIndex).filter(index -> index >= 0).max(Long::compare).orElse(0L);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao listar o diretório do TickJournal: " + directory, e);
+        }
+    }
+
+    private static String normalize(String symbol) {
+        return symbol.trim().toUpperCase();
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.homegaibkrponte.data.ticks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Leitura sequencial do TickJournal, segmento a segmento em ordem de índice, para análise offline.
+ * Uso:
+ * <pre>
+ * try (TickJournalReader reader = tickJournal.openReader()) {
+ *     TickRecord tick = new TickRecord();
+ *     while (reader.next(tick)) { ... }
+ * }
+ * </pre>
+ * O TickRecord é reutilizado a cada chamada (sem alocação por registro). Segmentos não selados
+ * (o que está em uso, ou o último antes de uma queda) são lidos até o primeiro registro vazio.
+ */
+public final class TickJournalReader implements AutoCloseable {
+
+    private final TickDictionary dictionary;
+    private final List<Path> segments;
+    private int segmentCursor;
+    private TickJournalSegment segment;
+    private long segmentLimit;
+    private int recordCursor;
+
+    TickJournalReader(Path directory) {
+        this.dictionary = new TickDictionary(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            this.segments = files.filter(file -> segmentIndex(file) >= 0)
+                    .sorted(Comparator.comparingLong(TickJournalReader::segmentIndex))
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao listar o diretório do TickJournal: " + directory, e);
+        }
+    }
+
+    /**
+     * Lê o próximo registro para {@code into}.
+     *
+     * @return false quando não há mais registros.
+     */
+    public boolean next(TickRecord into) {
+        while (true) {
+            if (segment == null && !openNextSegment()) {
+                return false;
+            }
+            if (recordCursor < segmentLimit) {
+                MappedByteBuffer buffer = segment.getBuffer();
+                int offset = TickJournalSegment.offsetOf(recordCursor);
+                byte type = buffer.get(offset + TickRecord.OFF_TYPE);
+                if (type != 0) {
+                    int symbolId = buffer.getInt(offset + TickRecord.OFF_SYMBOL);
+                    int exchangeId = buffer.getInt(offset + TickRecord.OFF_EXCHANGE);
+                    into.set(buffer.getLong(offset + TickRecord.OFF_RECEIVED),
+                            buffer.getLong(offset + TickRecord.OFF_TIME),
+                            symbolId, dictionary.symbol(symbolId), type,
+                            buffer.get(offset + TickRecord.OFF_FLAGS),
+                            buffer.getLong(offset + TickRecord.OFF_PRICE1),
+                            buffer.getLong(offset + TickRecord.OFF_PRICE2),
+                            buffer.getLong(offset + TickRecord.OFF_SIZE1),
+                            buffer.getLong(offset + TickRecord.OFF_SIZE2),
+                            exchangeId, dictionary.exchange(exchangeId));
+                    recordCursor++;
+                    return true;
+                }
+            }
+            segment = null;
+        }
+    }
+
+    /**
+     * Percorre todos os registros restantes.
+     */
+    public void forEach(Consumer<TickRecord> consumer) {
+        TickRecord record = new TickRecord();
+        while (next(record)) {
+            consumer.accept(record);
+        }
+    }
+
+    private boolean openNextSegment() {
+        if (segmentCursor >= segments.size()) {
+            return false;
+        }
+        segment = TickJournalSegment.openReadOnly(segments.get(segmentCursor++));
+        long sealed = segment.sealedCount();
+        segmentLimit = sealed >= 0 ? sealed : segment.getCapacity();
+        recordCursor = 0;
+        return true;
+    }
+
+    /**
+     * Índice do segmento pelo nome do arquivo ("ticks-00000042.seg" -> 42), ou -1 se não for um segmento.
+     */
+    static long segmentIndex(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith("ticks-") || !name.endsWith(".seg")) {
+            return -1L;
+        }
+        try {
+            return Long.parseLong(name.substring(6, name.length() - 4));
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+    @Override
+    public void close() {
+        // Os mapeamentos são liberados pelo GC; nada a fechar explicitamente.
+        segment = null;
+        segmentCursor = segments.size();
+    }
+}
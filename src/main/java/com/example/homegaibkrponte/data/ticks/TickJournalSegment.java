@@ -0,0 +1,93 @@
+package com.example.homegaibkrponte.data.ticks;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Um segmento do TickJournal: arquivo pré-dimensionado e mapeado em memória.
+ * [cabeçalho 64B: magic, versão, tamanho do registro, criação, índice, registros (gravado ao selar)][registros].
+ * O arquivo nasce zerado, então um registro com type 0 marca o fim dos dados de um segmento não selado.
+ */
+final class TickJournalSegment {
+
+    static final int MAGIC = 0x5449434B; // "TICK"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 64;
+    private static final int OFF_RECORD_SIZE = 8;
+    private static final int OFF_CREATED = 16;
+    private static final int OFF_INDEX = 24;
+    private static final int OFF_COUNT = 32;
+
+    @Getter
+    private final long index;
+    @Getter
+    private final Path file;
+    @Getter
+    private final MappedByteBuffer buffer;
+    @Getter
+    private final int capacity;
+
+    private TickJournalSegment(long index, Path file, MappedByteBuffer buffer) {
+        this.index = index;
+        this.file = file;
+        this.buffer = buffer;
+        this.capacity = (buffer.capacity() - HEADER_BYTES) / TickRecord.RECORD_BYTES;
+    }
+
+    static Path fileFor(Path directory, long index) {
+        return directory.resolve(String.format("ticks-%08d.seg", index));
+    }
+
+    static TickJournalSegment create(Path directory, long index, long bytes) {
+        Path file = fileFor(directory, index);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(OFF_RECORD_SIZE, TickRecord.RECORD_BYTES);
+            buffer.putLong(OFF_CREATED, System.currentTimeMillis());
+            buffer.putLong(OFF_INDEX, index);
+            buffer.putLong(OFF_COUNT, -1L);
+            return new TickJournalSegment(index, file, buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao criar o segmento do TickJournal: " + file, e);
+        }
+    }
+
+    static TickJournalSegment openReadOnly(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(OFF_RECORD_SIZE) != TickRecord.RECORD_BYTES) {
+                throw new IllegalStateException("Arquivo não é um segmento válido do TickJournal: " + file);
+            }
+            return new TickJournalSegment(buffer.getLong(OFF_INDEX), file, buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao abrir o segmento do TickJournal: " + file, e);
+        }
+    }
+
+    static int offsetOf(int record) {
+        return HEADER_BYTES + record * TickRecord.RECORD_BYTES;
+    }
+
+    /**
+     * Registros gravados, se o segmento foi selado; -1 se ainda está (ou ficou, após uma queda) aberto.
+     */
+    long sealedCount() {
+        return buffer.getLong(OFF_COUNT);
+    }
+
+    void seal(long count) {
+        buffer.putLong(OFF_COUNT, count);
+    }
+
+    void force() {
+        buffer.force();
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.homegaibkrponte.data.ticks;
+
+import lombok.Getter;
+
+/**
+ * Um registro do TickJournal, em largura fixa de {@link #RECORD_BYTES} bytes:
+ * <pre>
+ *  0 long  receivedMicros  (relógio local, epoch em microssegundos)
+ *  8 long  time            (horário do tick informado pela IBKR, epoch em segundos)
+ * 16 int   symbolId
+ * 20 byte  type            (LAST, ALL_LAST, BID_ASK, MID_POINT; 0 = fim dos dados no segmento)
+ * 21 byte  flags           (atributos do tick)
+ * 24 long  price1          (last / bid / mid, x PRICE_SCALE)
+ * 32 long  price2          (ask, x PRICE_SCALE)
+ * 40 long  size1           (last size / bid size, x SIZE_SCALE)
+ * 48 long  size2           (ask size, x SIZE_SCALE)
+ * 56 int   exchangeId      (bolsa do negócio; 0 = não informado)
+ * </pre>
+ * Instância mutável e reutilizável pelo {@link TickJournalReader}.
+ */
+@Getter
+public final class TickRecord {
+
+    public static final int RECORD_BYTES = 64;
+    public static final long PRICE_SCALE = 100_000_000L; // 8 casas decimais
+    public static final long SIZE_SCALE = 10_000L;       // 4 casas decimais (frações de ação / cripto)
+
+    public static final byte LAST = 1;
+    public static final byte ALL_LAST = 2;
+    public static final byte BID_ASK = 3;
+    public static final byte MID_POINT = 4;
+
+    public static final byte FLAG_PAST_LIMIT = 1;
+    public static final byte FLAG_UNREPORTED = 2;
+    public static final byte FLAG_BID_PAST_LOW = 4;
+    public static final byte FLAG_ASK_PAST_HIGH = 8;
+
+    static final int OFF_RECEIVED = 0;
+    static final int OFF_TIME = 8;
+    static final int OFF_SYMBOL = 16;
+    static final int OFF_TYPE = 20;
+    static final int OFF_FLAGS = 21;
+    static final int OFF_PRICE1 = 24;
+    static final int OFF_PRICE2 = 32;
+    static final int OFF_SIZE1 = 40;
+    static final int OFF_SIZE2 = 48;
+    static final int OFF_EXCHANGE = 56;
+
+    private long receivedMicros;
+    private long time;
+    private int symbolId;
+    private String symbol;
+    private byte type;
+    private byte flags;
+    private long price1;
+    private long price2;
+    private long size1;
+    private long size2;
+    private int exchangeId;
+    private String exchange;
+
+    void set(long receivedMicros, long time, int symbolId, String symbol, byte type, byte flags,
+             long price1, long price2, long size1, long size2, int exchangeId, String exchange) {
+        this.receivedMicros = receivedMicros;
+        this.time = time;
+        this.symbolId = symbolId;
+        this.symbol = symbol;
+        this.type = type;
+        this.flags = flags;
+        this.price1 = price1;
+        this.price2 = price2;
+        this.size1 = size1;
+        this.size2 = size2;
+        this.exchangeId = exchangeId;
+        this.exchange = exchange;
+    }
+
+    public static long scalePrice(double price) {
+        return Math.round(price * PRICE_SCALE);
+    }
+
+    public static long scaleSize(double size) {
+        return Math.round(size * SIZE_SCALE);
+    }
+
+    // --- Conveniências para análise (convertem de volta para double) ---
+
+    public double price() {
+        return (double) price1 / PRICE_SCALE;
+    }
+
+    public double askPrice() {
+        return (double) price2 / PRICE_SCALE;
+    }
+
+    public double size() {
+        return (double) size1 / SIZE_SCALE;
+    }
+
+    public double askSize() {
+        return (double) size2 / SIZE_SCALE;
+    }
+
+    public boolean hasFlag(byte flag) {
+        return (flags & flag) != 0;
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.homegaibkrponte.dto;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Valores da conta vindos do reqAccountSummary: conta -> tag -> moeda -> valor (texto, como enviado pela
+ * IBKR; tags sem moeda ficam sob ""). {@code complete} fica true depois do primeiro accountSummaryEnd.
+ */
+public record AccountValuesDTO(
+        long version,               // Cresce só quando algum valor muda; é a base da ETag
+        Instant updatedAt,
+        boolean complete,
+        Map<String, Map<String, Map<String, String>>> accounts
+) {}
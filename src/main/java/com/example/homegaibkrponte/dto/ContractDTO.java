@@ -0,0 +1,19 @@
+package com.example.homegaibkrponte.dto;
+
+import java.time.Instant;
+
+/**
+ * Contrato totalmente qualificado (com conId) guardado no cache de contratos.
+ */
+public record ContractDTO(
+        String key,            // notação SÍMBOLO:SECTYPE:BOLSA:MOEDA usada na consulta
+        int conId,
+        String symbol,
+        String secType,
+        String exchange,
+        String primaryExchange,
+        String currency,
+        String localSymbol,
+        String tradingClass,
+        Instant resolvedAt
+) {}
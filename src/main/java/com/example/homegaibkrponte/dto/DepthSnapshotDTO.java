@@ -0,0 +1,18 @@
+package com.example.homegaibkrponte.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Fotografia do livro de ofertas (L2) de um símbolo. Nível 0 é o melhor preço de cada lado.
+ */
+public record DepthSnapshotDTO(
+        String symbol,
+        List<Level> bids,
+        List<Level> asks,
+        Double imbalance,   // (bid - ask) / (bid + ask) nos níveis exibidos; nulo com o livro vazio
+        Instant updatedAt,
+        long version
+) {
+    public record Level(double price, double size, String marketMaker) {}
+}
@@ -5,12 +5,16 @@ import java.math.BigDecimal;
 /**
  * DTO (Data Transfer Object) que representa os dados de uma execução de ordem.
  * Este objeto será enviado via webhook para a aplicação principal.
+ *
+ * A entrega é pelo menos uma vez (o outbox reenvia o que não foi confirmado, inclusive após um reinício):
+ * a aplicação principal deve descartar relatórios com um {@code execId} já processado.
  */
 public record ExecutionReportDTO(
+        String execId, // ID da execução na IBKR; chave de idempotência
         int orderId,
         String symbol,
         String side, // "BOT" (Bought) ou "SLD" (Sold)
         BigDecimal filledQuantity,
         double avgFillPrice,
         String status // Ex: "Filled", "Cancelled"
-) {}
\ No newline at end of file
+) {}
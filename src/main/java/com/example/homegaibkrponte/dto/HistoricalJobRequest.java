@@ -0,0 +1,24 @@
+package com.example.homegaibkrponte.dto;
+
+import com.example.homegaibkrponte.data.history.HistoricalBarSize;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Pedido de carga de histórico em lote: todas as séries são buscadas para todos os símbolos.
+ * Ex: 200 símbolos x [5 anos de ONE_DAY, 1 ano de ONE_MIN].
+ */
+public record HistoricalJobRequest(
+        @JsonProperty("symbols") @NotNull(message = "A lista de símbolos (symbols) é obrigatória.") List<String> symbols,
+        @JsonProperty("series") @NotNull(message = "A lista de séries (series) é obrigatória.") List<Series> series
+) {
+
+    public record Series(
+            @JsonProperty("barSize") @NotNull HistoricalBarSize barSize,
+            @JsonProperty("start") @NotNull LocalDate start,
+            @JsonProperty("end") LocalDate end // Opcional: padrão é "agora"
+    ) {}
+}
@@ -0,0 +1,16 @@
+package com.example.homegaibkrponte.dto;
+
+/**
+ * Progresso e vazão (barras/segundo) de um job de histórico em lote.
+ */
+public record HistoricalJobStatus(
+        String jobId,
+        String state,          // "RUNNING", "COMPLETED" ou "COMPLETED_WITH_ERRORS"
+        int seriesTotal,
+        int seriesCompleted,
+        int seriesFailed,
+        long chunksRequested,
+        long bars,
+        long elapsedMillis,
+        double barsPerSecond
+) {}
@@ -0,0 +1,15 @@
+package com.example.homegaibkrponte.dto;
+
+/**
+ * Estado do escalonador de histórico: filas, vagas em voo e efeito das regras de pacing.
+ */
+public record HistoricalSchedulerStatus(
+        int queuedInteractive,
+        int queuedBulk,
+        int inFlight,
+        int rateLimitedInWindow,   // pedidos contados na janela global (60 / 10 min)
+        long dispatched,
+        long coalesced,            // pedidos idênticos servidos por um pedido já em voo
+        long pacingViolations,
+        long backoffRemainingMillis
+) {}
@@ -0,0 +1,18 @@
+package com.example.homegaibkrponte.dto;
+
+import java.time.Instant;
+
+/**
+ * Um tick histórico (reqHistoricalTicks). Os campos preenchidos dependem do whatToShow:
+ * TRADES -> price/size/exchange; BID_ASK -> bid/ask e tamanhos; MIDPOINT -> price.
+ */
+public record HistoricalTickDTO(
+        Instant time,
+        Double price,
+        Double size,
+        String exchange,
+        Double bidPrice,
+        Double askPrice,
+        Double bidSize,
+        Double askSize
+) {}
@@ -0,0 +1,30 @@
+package com.example.homegaibkrponte.dto;
+
+/**
+ * Resultado de uma ordem enviada em lote (/place-orders).
+ * 'order' traz o DTO com os IDs da IBKR preenchidos (inclusive das filhas de um bracket) quando enviada.
+ */
+public record OrderResultDTO(
+        String clientOrderId,
+        String symbol,
+        String status,  // "SUBMITTED", "REJECTED" (validação; nada do lote foi enviado) ou "FAILED" (erro no envio)
+        String error,
+        OrderDTO order
+) {
+
+    public static OrderResultDTO submitted(OrderDTO order) {
+        return new OrderResultDTO(order.clientOrderId(), order.symbol(), "SUBMITTED", null, order);
+    }
+
+    public static OrderResultDTO rejected(OrderDTO order, String error) {
+        // Uma posição nula no lote também é recusada, sem clientOrderId nem símbolo a devolver.
+        if (order == null) {
+            return new OrderResultDTO(null, null, "REJECTED", error, null);
+        }
+        return new OrderResultDTO(order.clientOrderId(), order.symbol(), "REJECTED", error, null);
+    }
+
+    public static OrderResultDTO failed(OrderDTO order, String error) {
+        return new OrderResultDTO(order.clientOrderId(), order.symbol(), "FAILED", error, order);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.homegaibkrponte.dto;
+
+import com.example.homegaibkrponte.order.OrderLifecycleState;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Fotografia de uma ordem na tabela de ciclo de vida (OrderLifecycleEngine).
+ * 'ackLatencyMicros' é o tempo entre o placeOrder e o primeiro status de aceite lido do socket
+ * (null enquanto não houver ack, ou para ordens que não foram enviadas por esta ponte).
+ */
+public record OrderStatusDTO(
+        int orderId,
+        int parentId,
+        String clientOrderId,
+        String orderType,   // tipo na ponte (ex: BUY_LIMIT); null para ordens de outras sessões
+        boolean bracket,
+        String symbol,
+        OrderLifecycleState state,
+        String ibStatus,
+        BigDecimal quantity,
+        BigDecimal filled,
+        BigDecimal remaining,
+        double avgFillPrice,
+        Integer lastErrorCode,
+        String lastErrorMessage,
+        Long ackLatencyMicros,
+        Instant updatedAt
+) {}
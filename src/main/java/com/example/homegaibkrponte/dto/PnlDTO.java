@@ -0,0 +1,19 @@
+package com.example.homegaibkrponte.dto;
+
+import java.time.Instant;
+
+/**
+ * P&L da conta: o calculado localmente a cada tick (soma das posições marcadas a mercado) e o
+ * último enviado pela IBKR (reqPnL). Campos da IBKR ainda não recebidos vêm nulos.
+ */
+public record PnlDTO(
+        String account,
+        double unrealizedPnl,       // local, marcado a cada tick
+        int positions,
+        int unmarkedPositions,      // posições ainda sem preço (contam zero no unrealizedPnl)
+        Double brokerDailyPnl,
+        Double brokerUnrealizedPnl,
+        Double brokerRealizedPnl,
+        Instant brokerUpdatedAt,
+        long version                // Cresce a cada remarcação; útil para pular leituras sem mudança
+) {}
@@ -0,0 +1,20 @@
+package com.example.homegaibkrponte.dto;
+
+import java.time.Instant;
+
+/**
+ * P&L de uma posição: quantidade (negativa = vendida), custo médio, preço de marcação e o não
+ * realizado calculado localmente, ao lado do último reqPnLSingle da IBKR. Campos ausentes vêm nulos.
+ */
+public record PositionPnlDTO(
+        String symbol,
+        double quantity,
+        double averageCost,
+        Double markPrice,
+        double unrealizedPnl,
+        Double brokerDailyPnl,
+        Double brokerUnrealizedPnl,
+        Double brokerRealizedPnl,
+        Double brokerValue,
+        Instant brokerUpdatedAt
+) {}
@@ -0,0 +1,24 @@
+package com.example.homegaibkrponte.dto;
+
+import java.time.Instant;
+
+/**
+ * Topo do livro (bid/ask/último) de um símbolo assinado. Campos ainda não recebidos vêm nulos.
+ */
+public record QuoteDTO(
+        String symbol,
+        Double bid,
+        Double ask,
+        Double last,
+        Double bidSize,
+        Double askSize,
+        Double lastSize,
+        Double volume,
+        Double open,
+        Double high,
+        Double low,
+        Double close,
+        boolean halted,
+        Instant updatedAt,
+        long version   // Cresce a cada tick; útil para detectar cotação parada
+) {}
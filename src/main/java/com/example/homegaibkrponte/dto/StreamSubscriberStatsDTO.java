@@ -0,0 +1,18 @@
+package com.example.homegaibkrponte.dto;
+
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Contadores de um assinante de stream. 'conflated' são cotações substituídas por outra mais nova
+ * antes da entrega; 'dropped' são barras fechadas perdidas pelo mesmo motivo (consumidor lento).
+ */
+public record StreamSubscriberStatsDTO(
+        String id,
+        Set<String> symbols,
+        long delivered,
+        long conflated,
+        long dropped,
+        int pending,
+        Instant connectedAt
+) {}
@@ -1,31 +1,101 @@
 package com.example.homegaibkrponte.factory;
 
+import com.example.homegaibkrponte.connector.IBKRConnector;
+import com.example.homegaibkrponte.data.contract.ContractCache;
+import com.example.homegaibkrponte.data.contract.ContractKey;
 import com.ib.client.Contract;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Padrão Factory: Responsável por criar o objeto Contract nativo da IBKR
  * a partir do símbolo do ativo, isolando o OrderService dos detalhes de configuração.
+ *
+ * O contrato devolvido é o totalmente qualificado (conId) do ContractCache: depois da primeira
+ * resolução (ou de um warm start pelo arquivo) nenhuma ordem paga uma consulta de contrato.
  */
 @Component
+@Slf4j
 public class ContractFactory {
 
+    private final ContractCache contractCache;
+    private final IBKRConnector connector;
+    private final long resolveTimeoutMillis;
+
+    public ContractFactory(ContractCache contractCache,
+                           IBKRConnector connector,
+                           @Value("${ibkr.contracts.resolve-timeout-millis:5000}") long resolveTimeoutMillis) {
+        this.contractCache = contractCache;
+        this.connector = connector;
+        this.resolveTimeoutMillis = resolveTimeoutMillis;
+    }
+
     /**
      * Cria um Contract IBKR configurado.
-     * @param symbol O ticker do ativo (ex: "NVDA").
-     * @return Objeto Contract configurado.
+     * @param symbol O ticker do ativo (ex: "NVDA") ou a notação completa (ex: "SAP:STK:IBIS:EUR", ver {@link ContractKey}).
+     * @return Contrato qualificado; se a resolução falhar, o contrato parcial (a IBKR resolve na ordem).
      */
     public Contract create(String symbol) {
-        Contract contract = new Contract();
-        contract.symbol(symbol);
-
-        // Configurações Padrão IBKR (Exemplo para Ações dos EUA - SMART/USD)
-        contract.secType("STK");        // Tipo de segurança: Ação
-        contract.currency("USD");       // Moeda
-        contract.exchange("SMART");     // Exchange principal/Roteamento inteligente
+        ContractKey key = ContractKey.parse(symbol);
+        Contract cached = contractCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        // Primeiro uso da chave: uma ida à IBKR (compartilhada entre chamadas concorrentes).
+        try {
+            return connector.resolveContract(key).get(resolveTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.warn("⚠️ Contrato {} não resolvido ({}). Usando contrato parcial.", key, e.getMessage());
+            return key.toQuery();
+        }
+    }
 
-        // Adicionar campos opcionais aqui, se necessário (ex: PrimaryExchange)
+    /**
+     * Contratos de vários símbolos de uma vez: os que faltam no cache são resolvidos em paralelo,
+     * com um único prazo para todos. Falhas caem no contrato parcial, como em {@link #create}.
+     */
+    public Map<String, Contract> createAll(Collection<String> symbols) {
+        Map<String, Contract> contracts = new HashMap<>();
+        Map<String, CompletableFuture<Contract>> pending = new LinkedHashMap<>();
+        for (String symbol : symbols) {
+            if (contracts.containsKey(symbol) || pending.containsKey(symbol)) {
+                continue;
+            }
+            ContractKey key = ContractKey.parse(symbol);
+            Contract cached = contractCache.get(key);
+            if (cached != null) {
+                contracts.put(symbol, cached);
+            } else {
+                pending.put(symbol, connector.resolveContract(key));
+            }
+        }
+        if (pending.isEmpty()) {
+            return contracts;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(resolveTimeoutMillis);
+        pending.forEach((symbol, future) -> {
+            try {
+                contracts.put(symbol, future.get(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            } catch (Exception e) {
+                log.warn("⚠️ Contrato {} não resolvido ({}). Usando contrato parcial.", symbol, e.getMessage());
+                contracts.put(symbol, ContractKey.parse(symbol).toQuery());
+            }
+        });
+        return contracts;
+    }
 
-        return contract;
+    /**
+     * Resolve (ou lê do cache) sem bloquear.
+     */
+    public CompletableFuture<Contract> resolve(String symbol) {
+        return connector.resolveContract(ContractKey.parse(symbol));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,15 @@
+package com.example.homegaibkrponte.model;
+
+import com.example.homegaibkrponte.data.history.HistoricalBarSize;
+
+/**
+ * Evento de Domínio: uma barra agregada (1m, 5m, ...) acabou de fechar.
+ * Publicado pelo BarAggregator na fronteira de cada período, a partir das barras de 5s da IBKR.
+ * {@code partial} indica que faltaram barras de 5s no início ou no fim do período (ex: a hora das 09:00
+ * com o pregão abrindo às 09:30, ou uma reconexão no meio do período).
+ */
+public record BarCompletedEvent(
+        HistoricalBarSize timeframe,
+        Candle candle,
+        boolean partial
+) {}
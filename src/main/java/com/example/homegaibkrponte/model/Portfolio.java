@@ -1,5 +1,6 @@
 package com.example.homegaibkrponte.model;
 
+import com.example.homegaibkrponte.util.PersistentHashMap;
 import lombok.Builder;
 
 import java.math.BigDecimal;
@@ -11,6 +12,8 @@ import java.util.Map;
  * Representa um snapshot imutável do estado do portfólio.
  * Utiliza o 'record' do Java para garantir imutabilidade e clareza.
  * AJUSTE: Não armazena mais 'totalCapital' para garantir consistência dos dados.
+ * As posições ficam num {@link PersistentHashMap}: um trade gera um portfólio novo em O(log n),
+ * compartilhando com o anterior tudo o que não mudou, sem copiar o mapa inteiro.
  */
 @Builder(toBuilder = true)
 public record Portfolio(
@@ -19,6 +22,10 @@ public record Portfolio(
         Map<String, Position> openPositions,
         List<Trade> tradeHistory
 ) {
+    public Portfolio {
+        openPositions = openPositions == null ? PersistentHashMap.empty() : PersistentHashMap.copyOf(openPositions);
+    }
+
     /**
      * Construtor de conveniência para iniciar um backtest para um símbolo específico.
      * Esta é a forma limpa e padrão para criar um novo portfólio de simulação.
@@ -27,7 +34,7 @@ public record Portfolio(
      * @param initialCapital O capital inicial para a simulação.
      */
     public Portfolio(String symbol, BigDecimal initialCapital) {
-        this(symbol, initialCapital, Collections.emptyMap(), Collections.emptyList());
+        this(symbol, initialCapital, PersistentHashMap.empty(), Collections.emptyList());
     }
 
     /**
@@ -0,0 +1,12 @@
+package com.example.homegaibkrponte.model;
+
+import java.util.Set;
+
+/**
+ * Evento de Domínio: as posições destes símbolos mudaram no LivePortfolioService (execução, replay
+ * do journal ou sincronização com o TWS). Só carrega os símbolos: quem ouve relê o estado atual do
+ * portfólio, então eventos entregues fora de ordem não deixam ninguém com uma posição velha.
+ */
+public record PositionsChangedEvent(
+        Set<String> symbols
+) {}
@@ -1,10 +1,16 @@
 package com.example.homegaibkrponte.monitoring;
 
+import com.example.homegaibkrponte.accounting.AccountingMode;
+import com.example.homegaibkrponte.accounting.CurrencyPrecision;
+import com.example.homegaibkrponte.accounting.FixedPoint;
+import com.example.homegaibkrponte.accounting.FixedPointLedger;
 import com.example.homegaibkrponte.model.Position;
 import com.example.homegaibkrponte.model.PositionDTO;
 import com.example.homegaibkrponte.model.PositionDirection;
 import com.example.homegaibkrponte.model.Portfolio;
+import com.example.homegaibkrponte.model.PositionsChangedEvent;
 import com.example.homegaibkrponte.model.TradeExecutedEvent;
+import com.example.homegaibkrponte.util.PersistentHashMap;
 import jakarta.annotation.PostConstruct;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -17,10 +23,11 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -32,7 +39,14 @@ import java.util.stream.Collectors;
 @Getter
 public class LivePortfolioService {
 
+    private static final int MAX_LOGGED_DIVERGENCES = 20;
+    private static final String PORTFOLIO_NAME = "LIVE_CONSOLIDADO";
+
+    // Estado no modo BIG_DECIMAL; no modo FIXED_POINT o estado é o ledgerState e o Portfolio é derivado dele.
     private final AtomicReference<Portfolio> portfolioState = new AtomicReference<>();
+    private final AtomicReference<FixedPointLedger> ledgerState = new AtomicReference<>();
+    private final AccountingMode accountingMode;
+    private final CurrencyPrecision precision;
     private final ApplicationEventPublisher eventPublisher;
     private final CountDownLatch initialSyncLatch = new CountDownLatch(1);
     private final AtomicBoolean isSynced = new AtomicBoolean(false);
@@ -43,16 +57,26 @@ public class LivePortfolioService {
     @Value("${trading.initial-capital:200000.0}")
     private double initialCapital;
 
-    public LivePortfolioService(ApplicationEventPublisher eventPublisher) {
+    public LivePortfolioService(ApplicationEventPublisher eventPublisher,
+                                @Value("${ibkr.portfolio.accounting:BIG_DECIMAL}") AccountingMode accountingMode,
+                                @Value("${ibkr.portfolio.currency:USD}") String currency) {
         this.eventPublisher = eventPublisher;
+        this.accountingMode = accountingMode;
+        this.precision = CurrencyPrecision.of(currency);
     }
 
     @PostConstruct
     public void init() {
+        if (accountingMode == AccountingMode.FIXED_POINT) {
+            ledgerState.set(FixedPointLedger.open(PORTFOLIO_NAME, precision, BigDecimal.valueOf(initialCapital)));
+            log.warn("🔄 Portfólio LIVE (ponto fixo, {} com caixa em {} casas) inicializado com capital PADRÃO. Aguardando sincronização... Capital: R$ {}",
+                    precision.currency(), precision.cashScale(), initialCapital);
+            return;
+        }
         Portfolio initialPortfolio = new Portfolio(
-                "LIVE_CONSOLIDADO",
+                PORTFOLIO_NAME,
                 BigDecimal.valueOf(initialCapital),
-                new ConcurrentHashMap<>(),
+                PersistentHashMap.empty(),
                 new ArrayList<>()
         );
         this.portfolioState.set(initialPortfolio);
@@ -77,10 +101,14 @@ public class LivePortfolioService {
 
     public void updateAccountValue(String key, BigDecimal value) {
         if ("BuyingPower".equalsIgnoreCase(key)) {
-            portfolioState.getAndUpdate(current -> current.toBuilder()
-                    .cashBalance(value)
-                    .build()
-            );
+            if (accountingMode == AccountingMode.FIXED_POINT) {
+                ledgerState.getAndUpdate(current -> current.withCash(value));
+            } else {
+                portfolioState.getAndUpdate(current -> current.toBuilder()
+                        .cashBalance(value)
+                        .build()
+                );
+            }
 
             if (isSynced.compareAndSet(false, true)) {
                 initialSyncLatch.countDown();
@@ -99,23 +127,64 @@ public class LivePortfolioService {
     public void updatePortfolioPositions(List<PositionDTO> ibkrPositions) {
         // Coleta as posições em um mapa, resolvendo conflitos de chaves duplicadas
         Map<String, Position> newPositionsMap = ibkrPositions.stream()
-                .collect(Collectors.toConcurrentMap(
+                .collect(Collectors.toMap(
                         PositionDTO::getTicker,               // A chave é o ticker do ativo
                         this::mapPositionDTOtoDomain,         // A função que converte o DTO para o objeto de domínio
                         (existingValue, newValue) -> newValue // <-- FUNÇÃO DE MESCLAGEM: Se houver duplicatas, use sempre o valor novo (o mais recente)
                 ));
 
         // Atualiza o estado do portfólio de forma atômica
-        portfolioState.getAndUpdate(current -> current.toBuilder()
-                .openPositions(new ConcurrentHashMap<>(newPositionsMap))
-                .build()
-        );
+        Map<String, Position> previousPositions;
+        if (accountingMode == AccountingMode.FIXED_POINT) {
+            previousPositions = ledgerState.getAndUpdate(current -> current.withPositions(newPositionsMap.values()))
+                    .toPortfolio().openPositions();
+        } else {
+            previousPositions = portfolioState.getAndUpdate(current -> current.toBuilder()
+                    .openPositions(PersistentHashMap.copyOf(newPositionsMap))
+                    .build()
+            ).openPositions();
+        }
+        reconcile(previousPositions, newPositionsMap);
+        Set<String> changed = new HashSet<>(previousPositions.keySet());
+        changed.addAll(newPositionsMap.keySet());
+        eventPublisher.publishEvent(new PositionsChangedEvent(changed));
 
         log.warn("SINERGIA: Posições sincronizadas. {} Posições Abertas.", newPositionsMap.size());
     }
 
+    /**
+     * Compara as posições locais (reconstruídas do journal e atualizadas pelas execuções) com as do TWS.
+     * O TWS sempre vence; as divergências só são registradas.
+     */
+    private void reconcile(Map<String, Position> local, Map<String, Position> broker) {
+        int divergences = 0;
+        Set<String> symbols = new HashSet<>(local.keySet());
+        symbols.addAll(broker.keySet());
+        for (String symbol : symbols) {
+            BigDecimal localQty = signedQuantity(local.get(symbol));
+            BigDecimal brokerQty = signedQuantity(broker.get(symbol));
+            if (localQty.compareTo(brokerQty) != 0) {
+                if (divergences++ < MAX_LOGGED_DIVERGENCES) {
+                    log.warn("⚖️ [RECONCILIAÇÃO] {}: local {} x TWS {}. Assumindo o TWS.", symbol, localQty, brokerQty);
+                }
+            }
+        }
+        if (divergences > 0) {
+            log.warn("⚖️ [RECONCILIAÇÃO] {} posição(ões) divergente(s) corrigida(s) pelo TWS.", divergences);
+        }
+    }
+
+    private static BigDecimal signedQuantity(Position position) {
+        if (position == null) {
+            return BigDecimal.ZERO;
+        }
+        return position.getDirection() == PositionDirection.SHORT ? position.getQuantity().negate() : position.getQuantity();
+    }
+
     public void finalizePositionSync() {
-        int positionCount = portfolioState.get().openPositions().size();
+        int positionCount = accountingMode == AccountingMode.FIXED_POINT
+                ? ledgerState.get().positionCount()
+                : portfolioState.get().openPositions().size();
         log.info("✅ Sincronização de posições finalizada. Portfólio agora contém {} posições.", positionCount);
         positionSyncLatch.countDown();
     }
@@ -132,7 +201,15 @@ public class LivePortfolioService {
 
     // --- OUTROS MÉTODOS ---
 
+    /**
+     * No modo FIXED_POINT o Portfolio (BigDecimal) é montado a partir do livro na primeira leitura
+     * de cada versão e reaproveitado até a próxima execução.
+     */
     public Portfolio getLivePortfolioSnapshot() {
+        if (accountingMode == AccountingMode.FIXED_POINT) {
+            FixedPointLedger ledger = ledgerState.get();
+            return ledger == null ? null : ledger.toPortfolio();
+        }
         return portfolioState.get();
     }
 
@@ -141,6 +218,11 @@ public class LivePortfolioService {
     }
 
     public BigDecimal getCurrentBuyingPower() {
+        if (accountingMode == AccountingMode.FIXED_POINT) {
+            return Optional.ofNullable(ledgerState.get())
+                    .map(FixedPointLedger::cashAmount)
+                    .orElse(BigDecimal.ZERO);
+        }
         return Optional.ofNullable(portfolioState.get())
                 .map(Portfolio::cashBalance)
                 .orElse(BigDecimal.ZERO);
@@ -149,20 +231,116 @@ public class LivePortfolioService {
     @EventListener
     public void onTradeExecuted(TradeExecutedEvent event) {
         log.info("🎧 Evento de trade recebido: Fonte [{}], Ativo [{}], Lado [{}]", event.executionSource(), event.symbol(), event.side());
-        portfolioState.getAndUpdate(currentPortfolio -> {
-            String side = event.side().toUpperCase();
-            if (side.contains("BUY") || side.contains("BOT")) {
-                return performBuyExecution(currentPortfolio, event.symbol(), event.quantity(), event.price());
-            } else {
-                return performSellExecution(currentPortfolio, event.symbol(), event.quantity(), event.price());
+        if (accountingMode == AccountingMode.FIXED_POINT) {
+            ledgerState.getAndUpdate(currentLedger -> applyExecution(currentLedger, event, true));
+        } else {
+            portfolioState.getAndUpdate(currentPortfolio -> applyExecution(currentPortfolio, event, true));
+        }
+        eventPublisher.publishEvent(new PositionsChangedEvent(Set.of(event.symbol())));
+    }
+
+    /**
+     * Dobra execuções sobre {@code from} com as mesmas regras do portfólio live, sem tocá-lo. É o estado que o
+     * checkpoint do journal guarda: o caixa é o fluxo acumulado das execuções (zero no início do journal),
+     * sem o capital inicial. Sem log por execução.
+     */
+    public Portfolio foldExecutions(Portfolio from, List<TradeExecutedEvent> events) {
+        if (events.isEmpty()) {
+            return from;
+        }
+        if (accountingMode == AccountingMode.FIXED_POINT) {
+            FixedPointLedger ledger = FixedPointLedger.open(PORTFOLIO_NAME, precision, from.cashBalance())
+                    .withPositions(from.openPositions().values());
+            for (TradeExecutedEvent event : events) {
+                ledger = applyExecution(ledger, event, false);
+            }
+            return ledger.toPortfolio();
+        }
+        Portfolio state = from;
+        for (TradeExecutedEvent event : events) {
+            state = applyExecution(state, event, false);
+        }
+        return state;
+    }
+
+    /**
+     * Reconstrói posições e caixa a partir do journal (checkpoint + execuções seguintes, já dobrados por
+     * {@link #foldExecutions}), na partida e antes da primeira conexão: o caixa é o capital inicial mais o
+     * fluxo do journal. A reconciliação com o TWS vem depois, no positionEnd.
+     */
+    public void restoreFromJournal(Portfolio journal) {
+        if (journal.openPositions().isEmpty() && journal.cashBalance().signum() == 0) {
+            return;
+        }
+        Set<String> symbols = new HashSet<>(journal.openPositions().keySet());
+        if (accountingMode == AccountingMode.FIXED_POINT) {
+            FixedPointLedger rebuilt = ledgerState.updateAndGet(current -> current
+                    .withCash(current.cashAmount().add(journal.cashBalance()))
+                    .withPositions(journal.openPositions().values()));
+            log.warn("♻️ [PORTFÓLIO LIVE] Reconstruído a partir do journal: {} posições, saldo R$ {}",
+                    rebuilt.positionCount(), rebuilt.cashAmount().setScale(2, RoundingMode.HALF_UP));
+            eventPublisher.publishEvent(new PositionsChangedEvent(symbols));
+            return;
+        }
+        Portfolio rebuilt = portfolioState.updateAndGet(current -> new Portfolio(current.symbolForBacktest(),
+                current.cashBalance().add(journal.cashBalance()), journal.openPositions(), current.tradeHistory()));
+        log.warn("♻️ [PORTFÓLIO LIVE] Reconstruído a partir do journal: {} posições, saldo R$ {}",
+                rebuilt.openPositions().size(), rebuilt.cashBalance().setScale(2, RoundingMode.HALF_UP));
+        eventPublisher.publishEvent(new PositionsChangedEvent(symbols));
+    }
+
+    private static boolean isBuy(TradeExecutedEvent event) {
+        String side = event.side().toUpperCase();
+        return side.contains("BUY") || side.contains("BOT");
+    }
+
+    /**
+     * Mesma regra do caminho BigDecimal, no livro de ponto fixo. Quantidade e preço entram sem arredondar:
+     * uma execução com mais casas que as escalas da moeda, ou que estoure um long, é descartada com log de
+     * erro (o positionEnd seguinte traz a posição certa do TWS).
+     */
+    private FixedPointLedger applyExecution(FixedPointLedger current, TradeExecutedEvent event, boolean verbose) {
+        String symbol = event.symbol();
+        try {
+            long quantity = FixedPoint.toScaledExact(event.quantity(), precision.quantityScale());
+            long price = FixedPoint.toScaledExact(event.price(), precision.priceScale());
+            if (isBuy(event)) {
+                FixedPointLedger next = current.buy(symbol, quantity, price);
+                if (verbose && log.isWarnEnabled()) {
+                    log.warn("✅ [PORTFÓLIO LIVE] COMPRA para {} registrada. Novo saldo: R$ {}", symbol, next.cashAmount().setScale(2, RoundingMode.HALF_UP));
+                }
+                return next;
+            }
+            if (current.position(symbol) == null) {
+                log.error("TENTATIVA DE VENDA INVÁLIDA: Posição {} não encontrada.", symbol);
+                return current;
             }
-        });
+            FixedPointLedger next = current.sell(symbol, quantity, price);
+            if (verbose && log.isWarnEnabled()) {
+                log.warn("✅ [PORTFÓLIO LIVE] VENDA {} para {} registrada. Novo saldo: R$ {}",
+                        next.position(symbol) == null ? "TOTAL" : "PARCIAL", symbol, next.cashAmount().setScale(2, RoundingMode.HALF_UP));
+            }
+            return next;
+        } catch (ArithmeticException e) {
+            log.error("💥 [PORTFÓLIO LIVE] Execução não representável no ponto fixo ({} {} {} @ {}): {}. Execução ignorada.",
+                    event.side(), event.quantity(), symbol, event.price(), e.getMessage());
+            return current;
+        }
     }
 
-    private Portfolio performBuyExecution(Portfolio current, String symbol, BigDecimal qty, BigDecimal price) {
+    private Portfolio applyExecution(Portfolio current, TradeExecutedEvent event, boolean verbose) {
+        if (isBuy(event)) {
+            return performBuyExecution(current, event.symbol(), event.quantity(), event.price(), verbose);
+        } else {
+            return performSellExecution(current, event.symbol(), event.quantity(), event.price(), verbose);
+        }
+    }
+
+    private Portfolio performBuyExecution(Portfolio current, String symbol, BigDecimal qty, BigDecimal price, boolean verbose) {
         BigDecimal cost = qty.multiply(price);
         BigDecimal newCash = current.cashBalance().subtract(cost);
-        Map<String, Position> newPositions = new ConcurrentHashMap<>(current.openPositions());
+        // Persistente: só o caminho até o símbolo é copiado, o resto é compartilhado com 'current'.
+        PersistentHashMap<String, Position> newPositions = PersistentHashMap.copyOf(current.openPositions());
 
         Position existingPosition = newPositions.get(symbol);
         if (existingPosition != null) {
@@ -170,17 +348,19 @@ public class LivePortfolioService {
             BigDecimal totalCost = existingPosition.getAverageEntryPrice().multiply(existingPosition.getQuantity()).add(cost);
             BigDecimal newAvgPrice = totalCost.divide(totalQty, 4, RoundingMode.HALF_UP);
             Position updatedPosition = new Position(symbol, totalQty, newAvgPrice, LocalDateTime.now(), existingPosition.getDirection(), null, null, "Aumento de Posição");
-            newPositions.put(symbol, updatedPosition);
+            newPositions = newPositions.plus(symbol, updatedPosition);
         } else {
             Position newPosition = new Position(symbol, qty, price, LocalDateTime.now(), PositionDirection.LONG, null, null, "Nova Posição");
-            newPositions.put(symbol, newPosition);
+            newPositions = newPositions.plus(symbol, newPosition);
         }
 
-        log.warn("✅ [PORTFÓLIO LIVE] COMPRA para {} registrada. Novo saldo: R$ {}", symbol, newCash.setScale(2, RoundingMode.HALF_UP));
+        if (verbose && log.isWarnEnabled()) {
+            log.warn("✅ [PORTFÓLIO LIVE] COMPRA para {} registrada. Novo saldo: R$ {}", symbol, newCash.setScale(2, RoundingMode.HALF_UP));
+        }
         return new Portfolio(current.symbolForBacktest(), newCash, newPositions, current.tradeHistory());
     }
 
-    private Portfolio performSellExecution(Portfolio current, String symbol, BigDecimal qty, BigDecimal price) {
+    private Portfolio performSellExecution(Portfolio current, String symbol, BigDecimal qty, BigDecimal price, boolean verbose) {
         Position positionToClose = current.openPositions().get(symbol);
         if (positionToClose == null) {
             log.error("TENTATIVA DE VENDA INVÁLIDA: Posição {} não encontrada.", symbol);
@@ -189,16 +369,20 @@ public class LivePortfolioService {
 
         BigDecimal revenue = qty.multiply(price);
         BigDecimal newCash = current.cashBalance().add(revenue);
-        Map<String, Position> newPositions = new ConcurrentHashMap<>(current.openPositions());
+        PersistentHashMap<String, Position> newPositions = PersistentHashMap.copyOf(current.openPositions());
 
         if (qty.compareTo(positionToClose.getQuantity()) >= 0) {
-            newPositions.remove(symbol);
-            log.warn("✅ [PORTFÓLIO LIVE] VENDA TOTAL para {} registrada. Novo saldo: R$ {}", symbol, newCash.setScale(2, RoundingMode.HALF_UP));
+            newPositions = newPositions.minus(symbol);
+            if (verbose && log.isWarnEnabled()) {
+                log.warn("✅ [PORTFÓLIO LIVE] VENDA TOTAL para {} registrada. Novo saldo: R$ {}", symbol, newCash.setScale(2, RoundingMode.HALF_UP));
+            }
         } else {
             BigDecimal remainingQty = positionToClose.getQuantity().subtract(qty);
             Position updatedPosition = new Position(symbol, remainingQty, positionToClose.getAverageEntryPrice(), positionToClose.getEntryTime(), positionToClose.getDirection(), null, null, "Venda Parcial");
-            newPositions.put(symbol, updatedPosition);
-            log.warn("✅ [PORTFÓLIO LIVE] VENDA PARCIAL para {} registrada. Novo saldo: R$ {}", symbol, newCash.setScale(2, RoundingMode.HALF_UP));
+            newPositions = newPositions.plus(symbol, updatedPosition);
+            if (verbose && log.isWarnEnabled()) {
+                log.warn("✅ [PORTFÓLIO LIVE] VENDA PARCIAL para {} registrada. Novo saldo: R$ {}", symbol, newCash.setScale(2, RoundingMode.HALF_UP));
+            }
         }
 
         return new Portfolio(current.symbolForBacktest(), newCash, newPositions, current.tradeHistory());
@@ -0,0 +1,65 @@
+package com.example.homegaibkrponte.monitoring;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers de latência do caminho das ordens: ibkr.order.latency{stage, order_type, structure, state}.
+ * Cada timer publica p50/p99/p99.9 em /actuator/prometheus; os percentis são calculados no cliente
+ * pelo histograma HdrHistogram do Micrometer (janela deslizante de {@code distributionStatisticExpiry}).
+ *
+ * Os timers são criados uma vez por combinação de tags e reaproveitados: registrar uma medida
+ * é um lookup no mapa e um record() no histograma, sem passar pelo registry.
+ */
+@Component
+public class OrderLatencyMetrics {
+
+    public static final String UNKNOWN_TYPE = "unknown";
+    private static final String NO_STATE = "none";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Key, Timer> timers = new ConcurrentHashMap<>();
+
+    public OrderLatencyMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void record(OrderLatencyStage stage, String orderType, boolean bracket, long nanos) {
+        record(stage, orderType, bracket, null, nanos);
+    }
+
+    /**
+     * @param orderType tipo da ordem na ponte (ex: BUY_LIMIT), ou null para ordens de outras sessões.
+     * @param state     estado atingido (só para STATUS).
+     */
+    public void record(OrderLatencyStage stage, String orderType, boolean bracket, String state, long nanos) {
+        if (nanos < 0L) {
+            return;
+        }
+        Key key = new Key(stage, orderType != null ? orderType : UNKNOWN_TYPE, bracket, state != null ? state : NO_STATE);
+        timers.computeIfAbsent(key, this::register).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer register(Key key) {
+        return Timer.builder("ibkr.order.latency")
+                .description("Latência de cada etapa do caminho de uma ordem, da requisição REST à entrega do webhook")
+                .tag("stage", key.stage().tag())
+                .tag("order_type", key.orderType())
+                .tag("structure", key.bracket() ? "bracket" : "simple")
+                .tag("state", key.state())
+                .publishPercentiles(0.5, 0.99, 0.999)
+                .percentilePrecision(2)
+                .minimumExpectedValue(Duration.ofNanos(1_000))
+                .maximumExpectedValue(Duration.ofMinutes(10))
+                .distributionStatisticExpiry(Duration.ofMinutes(5))
+                .register(meterRegistry);
+    }
+
+    private record Key(OrderLatencyStage stage, String orderType, boolean bracket, String state) {}
+}
@@ -0,0 +1,24 @@
+package com.example.homegaibkrponte.monitoring;
+
+/**
+ * Etapas medidas no caminho de uma ordem (tag "stage" do timer ibkr.order.latency).
+ *
+ * REST, BUILD e SEND são durações da própria etapa; OPEN_ORDER, STATUS e EXECUTION são medidas
+ * desde o placeOrder até o callback ser lido do socket; WEBHOOK vai da leitura do execDetails até
+ * a aplicação principal confirmar o recebimento.
+ */
+public enum OrderLatencyStage {
+    REST,        // IBKRController.placeOrder: do recebimento à resposta
+    BUILD,       // OrderFactory.create de todas as pernas
+    SEND,        // escrita do client.placeOrder no socket
+    OPEN_ORDER,  // primeiro openOrder
+    STATUS,      // cada transição de estado (tag "state")
+    EXECUTION,   // cada execDetails
+    WEBHOOK;     // entrega do relatório de execução
+
+    private final String tag = name().toLowerCase();
+
+    public String tag() {
+        return tag;
+    }
+}
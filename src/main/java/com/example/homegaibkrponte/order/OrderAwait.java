@@ -0,0 +1,14 @@
+package com.example.homegaibkrponte.order;
+
+/**
+ * Até quando OrderService.placeOrder(dto, until, timeout) espera.
+ * Uma ordem cancelada ou rejeitada também encerra a espera: o ack ou a execução nunca virão.
+ */
+public enum OrderAwait {
+    ACK,   // aceita pelo TWS (Submitted/PreSubmitted) ou estado final
+    FILL;  // totalmente executada ou estado final
+
+    public boolean isSatisfiedBy(OrderLifecycleState state) {
+        return state.isTerminal() || (this == ACK && state.isAcknowledged());
+    }
+}
@@ -0,0 +1,333 @@
+package com.example.homegaibkrponte.order;
+
+import com.example.homegaibkrponte.connector.dispatch.CallbackEvent;
+import com.example.homegaibkrponte.connector.dispatch.CallbackEventHandler;
+import com.example.homegaibkrponte.dto.OrderDTO;
+import com.example.homegaibkrponte.dto.OrderStatusDTO;
+import com.example.homegaibkrponte.monitoring.OrderLatencyMetrics;
+import com.example.homegaibkrponte.monitoring.OrderLatencyStage;
+import com.example.homegaibkrponte.util.IntObjectMap;
+import com.ib.client.Decimal;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tabela viva das ordens, indexada pelo orderId da IBKR (mapa int→ordem, sem boxing).
+ * Consome orderStatus, openOrder, execDetails e os error com orderId na thread "ibkr-dispatch-orders"
+ * e move cada ordem pela máquina de estados de {@link OrderLifecycleState}.
+ *
+ * OrderService registra a ordem (track) imediatamente antes do placeOrder; quem quiser pode esperar
+ * o ack ou a execução por um futuro (await) em vez de consultar a ponte em loop. Ordens enviadas
+ * por outras sessões também entram na tabela quando o TWS as anuncia.
+ *
+ * Ordens em estado final ficam consultáveis até serem despejadas (FIFO, {@code retain} ordens).
+ * Para as ordens enviadas pela ponte, o tempo do placeOrder até o primeiro openOrder, cada transição
+ * e cada execução vai para os timers de {@link OrderLatencyMetrics}.
+ */
+@Component
+@Slf4j
+public class OrderLifecycleEngine implements CallbackEventHandler {
+
+    // Códigos de erro que recusam uma ordem ainda não aceita (ex: 201 "Order rejected", 110 preço fora do tick).
+    private static final int[] REJECT_CODES = {103, 106, 107, 109, 110, 111, 113, 116, 117, 200, 201, 203, 321, 382, 383, 387, 388, 10006};
+    private static final int ORDER_CANCELLED = 202;
+
+    private final IntObjectMap<TrackedOrder> orders = new IntObjectMap<>(1024);
+    private final int[] retired;
+    private final Duration defaultAwaitTimeout;
+    private final OrderLatencyMetrics latencyMetrics;
+    private int retiredHead;
+    private int retiredCount;
+
+    public OrderLifecycleEngine(@Value("${ibkr.orders.lifecycle.retain:10000}") int retain,
+                                @Value("${ibkr.orders.lifecycle.await-timeout-millis:5000}") long awaitTimeoutMillis,
+                                OrderLatencyMetrics latencyMetrics) {
+        this.retired = new int[Math.max(1, retain)];
+        this.defaultAwaitTimeout = Duration.ofMillis(awaitTimeoutMillis);
+        this.latencyMetrics = latencyMetrics;
+    }
+
+    @Override
+    public String name() {
+        return "orders";
+    }
+
+    // --- LADO DO ENVIO (OrderService) ---
+
+    /**
+     * Registra a ordem como PendingSubmit. Deve ser chamado ANTES do placeOrder, para que nenhum
+     * callback chegue antes de a ordem existir na tabela e para medir a latência do ack.
+     */
+    public void track(int orderId, int parentId, OrderDTO dto, boolean bracket) {
+        synchronized (this) {
+            TrackedOrder order = orders.get(orderId);
+            if (order == null) {
+                order = new TrackedOrder(orderId);
+                orders.put(orderId, order);
+            }
+            order.parentId = parentId;
+            order.clientOrderId = dto.clientOrderId();
+            order.orderType = dto.type().name();
+            order.bracket = bracket;
+            order.symbol = dto.symbol();
+            order.quantity = dto.quantity();
+            order.submittedAtNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Marca como rejeitada uma ordem cujo placeOrder falhou localmente (nada chegou ao TWS).
+     */
+    public void fail(int orderId, String reason) {
+        List<Completion> completions = new ArrayList<>(1);
+        synchronized (this) {
+            TrackedOrder order = orders.get(orderId);
+            if (order == null) {
+                return;
+            }
+            order.lastErrorMessage = reason;
+            transition(order, OrderLifecycleState.REJECTED, System.nanoTime(), completions);
+        }
+        complete(completions);
+    }
+
+    /**
+     * Futuro completado quando a ordem atinge {@code until}, ou com o estado da ordem naquele momento
+     * quando o prazo expira (o chamador confere com {@link OrderAwait#isSatisfiedBy}).
+     *
+     * @param timeout prazo da espera; null usa {@code ibkr.orders.lifecycle.await-timeout-millis}.
+     */
+    public CompletableFuture<OrderStatusDTO> await(int orderId, OrderAwait until, Duration timeout) {
+        CompletableFuture<OrderStatusDTO> future = new CompletableFuture<>();
+        TrackedOrder.Waiter waiter = new TrackedOrder.Waiter(until, future);
+        synchronized (this) {
+            TrackedOrder order = orders.get(orderId);
+            if (order == null) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Ordem " + orderId + " não está na tabela de ordens."));
+            }
+            if (until.isSatisfiedBy(order.state)) {
+                return CompletableFuture.completedFuture(order.snapshot());
+            }
+            order.addWaiter(waiter);
+        }
+        Duration wait = timeout != null ? timeout : defaultAwaitTimeout;
+        CompletableFuture.delayedExecutor(wait.toMillis(), TimeUnit.MILLISECONDS).execute(() -> expire(orderId, waiter));
+        return future;
+    }
+
+    // --- LEITURA (REST) ---
+
+    public synchronized OrderStatusDTO get(int orderId) {
+        TrackedOrder order = orders.get(orderId);
+        return order != null ? order.snapshot() : null;
+    }
+
+    /**
+     * Ordens ainda não finalizadas, pela ordem do orderId.
+     */
+    public List<OrderStatusDTO> getActiveOrders() {
+        List<OrderStatusDTO> active = new ArrayList<>();
+        synchronized (this) {
+            orders.forEachValue(order -> {
+                if (!order.state.isTerminal()) {
+                    active.add(order.snapshot());
+                }
+            });
+        }
+        active.sort(Comparator.comparingInt(OrderStatusDTO::orderId));
+        return active;
+    }
+
+    public synchronized int size() {
+        return orders.size();
+    }
+
+    // --- CALLBACKS (thread "ibkr-dispatch-orders") ---
+
+    @Override
+    public void onEvent(CallbackEvent event) {
+        List<Completion> completions = new ArrayList<>(1);
+        synchronized (this) {
+            switch (event.getType()) {
+                case ORDER_STATUS -> onOrderStatus(event, completions);
+                case OPEN_ORDER -> onOpenOrder(event, completions);
+                case EXECUTION -> onExecution(event, completions);
+                case ORDER_ERROR -> onOrderError(event, completions);
+            }
+        }
+        complete(completions);
+    }
+
+    private void onOrderStatus(CallbackEvent event, List<Completion> completions) {
+        TrackedOrder order = getOrCreate(event.getOrderId());
+        order.ibStatus = event.getStatus();
+        if (Decimal.isValid(event.getFilled())) {
+            order.filled = event.getFilled();
+        }
+        order.remaining = event.getRemaining();
+        order.avgFillPrice = event.getAvgFillPrice();
+        order.permId = event.getPermId();
+        order.parentId = event.getParentId();
+        transition(order, OrderLifecycleState.fromIbStatus(event.getStatus(), order.hasFill()), event.getReceivedAtNanos(), completions);
+    }
+
+    private void onOpenOrder(CallbackEvent event, List<Completion> completions) {
+        TrackedOrder order = getOrCreate(event.getOrderId());
+        if (order.symbol == null) {
+            order.symbol = event.getSymbol();
+        }
+        if (order.quantity == null && Decimal.isValid(event.getTotalQuantity())) {
+            order.quantity = event.getTotalQuantity().value();
+        }
+        order.permId = event.getPermId();
+        order.parentId = event.getParentId();
+        order.ibStatus = event.getStatus();
+        if (!order.openOrderSeen) {
+            order.openOrderSeen = true;
+            recordLatency(order, OrderLatencyStage.OPEN_ORDER, null, event.getReceivedAtNanos());
+        }
+        transition(order, OrderLifecycleState.fromIbStatus(event.getStatus(), order.hasFill()), event.getReceivedAtNanos(), completions);
+    }
+
+    /**
+     * O execDetails pode chegar antes do orderStatus correspondente: a quantidade acumulada
+     * da execução já basta para marcar a ordem como parcial ou totalmente executada.
+     */
+    private void onExecution(CallbackEvent event, List<Completion> completions) {
+        TrackedOrder order = getOrCreate(event.getOrderId());
+        if (order.symbol == null) {
+            order.symbol = event.getSymbol();
+        }
+        Decimal cumQty = event.getCumQty();
+        if (!Decimal.isValidNotZeroValue(cumQty) || (Decimal.isValid(order.filled) && cumQty.compareTo(order.filled) <= 0)) {
+            return;
+        }
+        order.filled = cumQty;
+        order.avgFillPrice = event.getAvgPrice();
+        recordLatency(order, OrderLatencyStage.EXECUTION, null, event.getReceivedAtNanos());
+        boolean complete = order.quantity != null && cumQty.value().compareTo(order.quantity) >= 0;
+        if (order.quantity != null) {
+            order.remaining = Decimal.get(order.quantity.subtract(cumQty.value()).max(BigDecimal.ZERO));
+        }
+        transition(order, complete ? OrderLifecycleState.FILLED : OrderLifecycleState.PARTIALLY_FILLED,
+                event.getReceivedAtNanos(), completions);
+    }
+
+    /**
+     * Erros com orderId: 202 cancela; os códigos de recusa só rejeitam uma ordem ainda não aceita
+     * (os mesmos códigos numa alteração de ordem viva não matam a ordem original). Avisos como
+     * 399 ou 2109 ficam apenas registrados em lastError.
+     */
+    private void onOrderError(CallbackEvent event, List<Completion> completions) {
+        TrackedOrder order = orders.get(event.getOrderId());
+        if (order == null) {
+            return;
+        }
+        order.lastErrorCode = event.getErrorCode();
+        order.lastErrorMessage = event.getErrorMessage();
+        order.updatedAt = Instant.now();
+        if (event.getErrorCode() == ORDER_CANCELLED) {
+            transition(order, OrderLifecycleState.CANCELLED, event.getReceivedAtNanos(), completions);
+        } else if (order.state == OrderLifecycleState.PENDING_SUBMIT && Arrays.binarySearch(REJECT_CODES, event.getErrorCode()) >= 0) {
+            transition(order, OrderLifecycleState.REJECTED, event.getReceivedAtNanos(), completions);
+        }
+    }
+
+    // --- MÁQUINA DE ESTADOS (com o lock) ---
+
+    private TrackedOrder getOrCreate(int orderId) {
+        TrackedOrder order = orders.get(orderId);
+        if (order == null) {
+            order = new TrackedOrder(orderId);
+            orders.put(orderId, order);
+        }
+        return order;
+    }
+
+    private void transition(TrackedOrder order, OrderLifecycleState next, long nanos, List<Completion> completions) {
+        order.updatedAt = Instant.now();
+        if (next == null || !order.state.canMoveTo(next)) {
+            return;
+        }
+        OrderLifecycleState previous = order.state;
+        order.state = next;
+        recordLatency(order, OrderLatencyStage.STATUS, next.name(), nanos);
+        if (next.isAcknowledged() && order.ackedAtNanos == 0L) {
+            order.ackedAtNanos = nanos;
+        }
+        if (next.isTerminal()) {
+            retire(order.orderId);
+        }
+        if (next == OrderLifecycleState.REJECTED) {
+            log.warn("🚫 [ORDENS] Ordem {} ({}) rejeitada: {}", order.orderId, order.symbol, order.lastErrorMessage);
+        } else {
+            log.debug("🔄 [ORDENS] Ordem {}: {} -> {}", order.orderId, previous, next);
+        }
+        if (order.waiters == null) {
+            return;
+        }
+        OrderStatusDTO snapshot = null;
+        for (int i = order.waiters.size() - 1; i >= 0; i--) {
+            TrackedOrder.Waiter waiter = order.waiters.get(i);
+            if (waiter.until().isSatisfiedBy(next)) {
+                if (snapshot == null) {
+                    snapshot = order.snapshot();
+                }
+                completions.add(new Completion(waiter.future(), snapshot));
+                order.waiters.remove(i);
+            }
+        }
+    }
+
+    // Só as ordens enviadas por esta ponte têm o instante do placeOrder.
+    private void recordLatency(TrackedOrder order, OrderLatencyStage stage, String state, long nanos) {
+        if (order.submittedAtNanos != 0L) {
+            latencyMetrics.record(stage, order.orderType, order.bracket, state, nanos - order.submittedAtNanos);
+        }
+    }
+
+    // Fila circular dos orderIds finalizados: ao encher, a ordem final mais antiga sai da tabela.
+    private void retire(int orderId) {
+        if (retiredCount == retired.length) {
+            orders.remove(retired[retiredHead]);
+            retired[retiredHead] = orderId;
+            retiredHead = (retiredHead + 1) % retired.length;
+        } else {
+            retired[(retiredHead + retiredCount) % retired.length] = orderId;
+            retiredCount++;
+        }
+    }
+
+    private void expire(int orderId, TrackedOrder.Waiter waiter) {
+        OrderStatusDTO snapshot;
+        synchronized (this) {
+            TrackedOrder order = orders.get(orderId);
+            if (order == null || order.waiters == null || !order.waiters.remove(waiter)) {
+                return;
+            }
+            snapshot = order.snapshot();
+        }
+        log.warn("⏱️ [ORDENS] Ordem {} não atingiu {} dentro do prazo. Estado atual: {}", orderId, waiter.until(), snapshot.state());
+        waiter.future().complete(snapshot);
+    }
+
+    // Os futuros são completados fora do lock: os dependentes rodam na thread que completa.
+    private static void complete(List<Completion> completions) {
+        for (Completion completion : completions) {
+            completion.future().complete(completion.snapshot());
+        }
+    }
+
+    private record Completion(CompletableFuture<OrderStatusDTO> future, OrderStatusDTO snapshot) {}
+}
@@ -0,0 +1,58 @@
+package com.example.homegaibkrponte.order;
+
+/**
+ * Estados de uma ordem na ponte. O estado só avança (PendingSubmit → Submitted → PartiallyFilled)
+ * e os estados finais (Filled, Cancelled, Rejected) não mudam mais: um orderStatus atrasado ou
+ * repetido pela IBKR nunca faz a ordem "voltar".
+ */
+public enum OrderLifecycleState {
+    PENDING_SUBMIT(0, false),
+    SUBMITTED(1, false),
+    PARTIALLY_FILLED(2, false),
+    FILLED(3, true),
+    CANCELLED(3, true),
+    REJECTED(3, true);
+
+    private final int rank;
+    private final boolean terminal;
+
+    OrderLifecycleState(int rank, boolean terminal) {
+        this.rank = rank;
+        this.terminal = terminal;
+    }
+
+    public boolean isTerminal() {
+        return terminal;
+    }
+
+    /**
+     * A ordem já foi aceita pelo TWS (Submitted, parcialmente ou totalmente executada).
+     */
+    public boolean isAcknowledged() {
+        return this == SUBMITTED || this == PARTIALLY_FILLED || this == FILLED;
+    }
+
+    public boolean canMoveTo(OrderLifecycleState next) {
+        return !terminal && next != this && (next.terminal || next.rank > rank);
+    }
+
+    /**
+     * Traduz o status textual do orderStatus/openOrder da IBKR.
+     * @return o estado correspondente, ou null para status desconhecidos.
+     */
+    public static OrderLifecycleState fromIbStatus(String status, boolean hasFill) {
+        if (status == null) {
+            return null;
+        }
+        return switch (status) {
+            case "ApiPending", "PendingSubmit" -> PENDING_SUBMIT;
+            // PreSubmitted: aceita e retida pelo TWS (ex: stop ainda não disparado); PendingCancel ainda pode executar.
+            case "PreSubmitted", "Submitted", "PendingCancel" -> hasFill ? PARTIALLY_FILLED : SUBMITTED;
+            case "Filled" -> FILLED;
+            case "Cancelled", "ApiCancelled" -> CANCELLED;
+            // Inactive: recusada pelo TWS ou pela bolsa (o motivo vem num error com o orderId).
+            case "Inactive" -> REJECTED;
+            default -> null;
+        };
+    }
+}
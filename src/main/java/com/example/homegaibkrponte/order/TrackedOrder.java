@@ -0,0 +1,68 @@
+package com.example.homegaibkrponte.order;
+
+import com.example.homegaibkrponte.dto.OrderStatusDTO;
+import com.ib.client.Decimal;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Linha mutável da tabela de ordens. Só é lida/alterada com o lock do OrderLifecycleEngine.
+ */
+final class TrackedOrder {
+
+    final int orderId;
+    int parentId;
+    String clientOrderId;
+    String orderType;
+    boolean bracket;
+    String symbol;
+    BigDecimal quantity;
+    OrderLifecycleState state = OrderLifecycleState.PENDING_SUBMIT;
+    String ibStatus;
+    Decimal filled = Decimal.ZERO;
+    Decimal remaining;
+    double avgFillPrice;
+    long permId;
+    int lastErrorCode;
+    String lastErrorMessage;
+    long submittedAtNanos;
+    long ackedAtNanos;
+    boolean openOrderSeen;
+    Instant updatedAt = Instant.now();
+    List<Waiter> waiters;
+
+    TrackedOrder(int orderId) {
+        this.orderId = orderId;
+    }
+
+    boolean hasFill() {
+        return Decimal.isValidNotZeroValue(filled);
+    }
+
+    void addWaiter(Waiter waiter) {
+        if (waiters == null) {
+            waiters = new ArrayList<>(2);
+        }
+        waiters.add(waiter);
+    }
+
+    OrderStatusDTO snapshot() {
+        Long ackLatencyMicros = submittedAtNanos != 0L && ackedAtNanos != 0L
+                ? TimeUnit.NANOSECONDS.toMicros(ackedAtNanos - submittedAtNanos) : null;
+        return new OrderStatusDTO(orderId, parentId, clientOrderId, orderType, bracket, symbol, state, ibStatus, quantity,
+                toBigDecimal(filled), toBigDecimal(remaining), avgFillPrice,
+                lastErrorCode != 0 ? lastErrorCode : null, lastErrorMessage, ackLatencyMicros, updatedAt);
+    }
+
+    private static BigDecimal toBigDecimal(Decimal value) {
+        return Decimal.isValid(value) ? value.value().stripTrailingZeros() : null;
+    }
+
+    // Um chamador esperando a ordem atingir um estado.
+    record Waiter(OrderAwait until, CompletableFuture<OrderStatusDTO> future) {}
+}
@@ -1,22 +1,44 @@
 package com.example.homegaibkrponte.rest;
 
 import com.example.homegaibkrponte.connector.IBKRConnector;
+import com.example.homegaibkrponte.connector.dto.AccountSummaryDTO;
+import com.example.homegaibkrponte.data.account.AccountValueStore;
+import com.example.homegaibkrponte.data.contract.ContractCache;
+import com.example.homegaibkrponte.dto.AccountValuesDTO;
+import com.example.homegaibkrponte.dto.ContractDTO;
 import com.example.homegaibkrponte.dto.OrderDTO;
+import com.example.homegaibkrponte.dto.OrderResultDTO;
+import com.example.homegaibkrponte.dto.OrderStatusDTO;
+import com.example.homegaibkrponte.dto.PnlDTO;
+import com.example.homegaibkrponte.dto.PositionPnlDTO;
+import com.example.homegaibkrponte.factory.ContractFactory;
 import com.example.homegaibkrponte.model.Position;
 import com.example.homegaibkrponte.model.PositionDTO;
 import com.example.homegaibkrponte.monitoring.LivePortfolioService;
+import com.example.homegaibkrponte.monitoring.OrderLatencyMetrics;
+import com.example.homegaibkrponte.monitoring.OrderLatencyStage;
+import com.example.homegaibkrponte.order.OrderAwait;
+import com.example.homegaibkrponte.order.OrderLifecycleEngine;
+import com.example.homegaibkrponte.service.LivePnlService;
 import com.example.homegaibkrponte.service.OrderIdManager;
 import com.example.homegaibkrponte.service.OrderService;
+import com.ib.client.Contract;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 /**
@@ -33,6 +55,12 @@ public class IBKRController {
     private final OrderService orderService;
     private final LivePortfolioService portfolioService;
     private final OrderIdManager orderIdManager;
+    private final ContractFactory contractFactory;
+    private final ContractCache contractCache;
+    private final OrderLifecycleEngine orderLifecycle;
+    private final OrderLatencyMetrics latencyMetrics;
+    private final LivePnlService pnlService;
+    private final AccountValueStore accountValueStore;
 
     @GetMapping("/status")
     public ResponseEntity<String> getStatus() {
@@ -62,16 +90,12 @@ public class IBKRController {
                 return ResponseEntity.ok(currentBuyingPower);
             }
 
-            // Se for a primeira sincronização, usa o mecanismo de espera.
-            log.warn("⏳ Sistema ainda não sincronizado. Disparando 'reqAccountUpdates' e aguardando...");
-            connector.getClient().reqAccountUpdates(true, "All"); // Inicia a subscrição de dados da conta
+            // Se for a primeira sincronização, aguarda o resumo da conta (reqAccountSummary, aberto na conexão).
+            log.warn("⏳ Sistema ainda não sincronizado. Aguardando o resumo da conta...");
 
             // Aguarda o sinal do LivePortfolioService
             boolean syncCompleted = portfolioService.awaitInitialSync(15000); // Timeout de 15 segundos
 
-            // Cancela a subscrição para não consumir recursos desnecessariamente
-            connector.getClient().reqAccountUpdates(false, "All");
-
             if (!syncCompleted) {
                 log.error("❌ TIMEOUT! A sincronização de saldo não ocorreu em 15 segundos.");
                 return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(BigDecimal.ZERO);
@@ -150,10 +174,12 @@ public class IBKRController {
 
     @PostMapping("/place-order")
     public ResponseEntity<OrderDTO> placeOrder(@RequestBody OrderDTO orderDto) {
+        long receivedAt = System.nanoTime();
         log.info("🛒 [Ponte | Controller] Recebida requisição REST para executar ordem: {}", orderDto.clientOrderId());
         try {
             OrderDTO resultDto = orderService.placeOrder(orderDto);
             log.info("✅ [Ponte | Controller] Ordem {} processada com sucesso. DTO com ID IBKR: {}", resultDto.clientOrderId(), resultDto.orderId());
+            latencyMetrics.record(OrderLatencyStage.REST, orderDto.type().name(), orderDto.isBracketOrder(), System.nanoTime() - receivedAt);
             return ResponseEntity.ok(resultDto);
         } catch (IllegalStateException e) {
             log.error("🚫 [Ponte | Controller] Ordem Rejeitada (BAD_REQUEST): {}", e.getMessage());
@@ -164,6 +190,172 @@ public class IBKRController {
         }
     }
 
+    /**
+     * Envia a ordem e só responde quando o TWS a aceita ({@code until=ACK}) ou ela é executada
+     * ({@code until=FILL}), sem prender a thread do servlet. Responde 504 com o estado atual se o prazo expirar.
+     */
+    @PostMapping("/place-order/await")
+    public CompletableFuture<ResponseEntity<OrderStatusDTO>> placeOrderAndAwait(@RequestBody OrderDTO orderDto,
+                                                                               @RequestParam(defaultValue = "ACK") OrderAwait until,
+                                                                               @RequestParam(required = false) Long timeoutMillis) {
+        log.info("🛒 [Ponte | Controller] Recebida ordem {} com espera por {}.", orderDto.clientOrderId(), until);
+        try {
+            return orderService.placeOrder(orderDto, until, timeoutMillis != null ? Duration.ofMillis(timeoutMillis) : null)
+                    .thenApply(status -> until.isSatisfiedBy(status.state())
+                            ? ResponseEntity.ok(status)
+                            : ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(status));
+        } catch (IllegalStateException e) {
+            log.error("🚫 [Ponte | Controller] Ordem Rejeitada (BAD_REQUEST): {}", e.getMessage());
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null));
+        } catch (Exception e) {
+            log.error("💥 [Ponte | Controller] Erro crítico ao processar ordem (INTERNAL_SERVER_ERROR): {}", e.getMessage(), e);
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null));
+        }
+    }
+
+    /**
+     * Ordens ainda não finalizadas segundo os callbacks do TWS.
+     */
+    @GetMapping("/orders")
+    public ResponseEntity<List<OrderStatusDTO>> getActiveOrders() {
+        return ResponseEntity.ok(orderLifecycle.getActiveOrders());
+    }
+
+    @GetMapping("/orders/{orderId}")
+    public ResponseEntity<OrderStatusDTO> getOrder(@PathVariable int orderId) {
+        OrderStatusDTO status = orderLifecycle.get(orderId);
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
+
+    /**
+     * Envia uma cesta de ordens numa única requisição. Responde 400 se alguma ordem for inválida
+     * (nesse caso nenhuma é enviada) e 200 com um resultado por ordem caso contrário.
+     */
+    @PostMapping("/place-orders")
+    public ResponseEntity<List<OrderResultDTO>> placeOrders(@RequestBody List<OrderDTO> orders) {
+        log.info("🧺 [Ponte | Controller] Recebido lote REST com {} ordens.", orders.size());
+        try {
+            List<OrderResultDTO> results = orderService.placeOrders(orders);
+            boolean rejected = results.stream().anyMatch(result -> "REJECTED".equals(result.status()));
+            return ResponseEntity.status(rejected ? HttpStatus.BAD_REQUEST : HttpStatus.OK).body(results);
+        } catch (IllegalStateException e) {
+            log.error("🚫 [Ponte | Controller] Lote Rejeitado (BAD_REQUEST): {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        } catch (Exception e) {
+            log.error("💥 [Ponte | Controller] Erro crítico ao processar lote (INTERNAL_SERVER_ERROR): {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
+        }
+    }
+
+    // --- P&L EM TEMPO REAL (PnlEngine; leitura O(1), sem reavaliar o portfólio) ---
+
+    /**
+     * P&L da conta: não realizado local (marcado a cada tick) e o último reqPnL da IBKR.
+     */
+    @GetMapping("/pnl")
+    public ResponseEntity<PnlDTO> getPnl() {
+        return ResponseEntity.ok(pnlService.getPortfolioPnl());
+    }
+
+    @GetMapping("/pnl/positions")
+    public ResponseEntity<List<PositionPnlDTO>> getPositionsPnl() {
+        return ResponseEntity.ok(pnlService.getPositionsPnl());
+    }
+
+    @GetMapping("/pnl/positions/{symbol}")
+    public ResponseEntity<PositionPnlDTO> getPositionPnl(@PathVariable String symbol) {
+        return pnlService.getPositionPnl(symbol)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Todos os valores da conta (reqAccountSummary), por conta, tag e moeda. GET condicional: com
+     * If-None-Match igual à versão atual responde 304 sem corpo, sem montar nem serializar nada.
+     */
+    @GetMapping("/account/values")
+    public ResponseEntity<AccountValuesDTO> getAccountValues(
+            @RequestParam(required = false) String account,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (notModified(ifNoneMatch)) {
+            return notModifiedResponse();
+        }
+        AccountValuesDTO values = account == null ? accountValueStore.snapshot() : accountValueStore.snapshot(account);
+        return ResponseEntity.ok()
+                .eTag(accountValueStore.etagOf(values.version()))
+                .cacheControl(CacheControl.noCache())
+                .body(values);
+    }
+
+    /**
+     * Resumo da conta (padrão: a conta principal) no formato do AccountSummaryDTO, com o mesmo GET condicional.
+     */
+    @GetMapping("/account/summary")
+    public ResponseEntity<AccountSummaryDTO> getAccountSummary(
+            @RequestParam(required = false) String account,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        if (notModified(ifNoneMatch)) {
+            return notModifiedResponse();
+        }
+        // Versão lida antes do snapshot: se mudar no meio, a próxima consulta recebe o corpo de novo.
+        String etag = accountValueStore.currentEtag();
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(accountValueStore.summary(account == null ? connector.getPnlAccount() : account));
+    }
+
+    private boolean notModified(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String etag = accountValueStore.currentEtag();
+        if (ifNoneMatch.equals(etag)) {
+            return true;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag) || tag.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private <T> ResponseEntity<T> notModifiedResponse() {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(accountValueStore.currentEtag())
+                .cacheControl(CacheControl.noCache())
+                .build();
+    }
+
+    /**
+     * Contratos já qualificados (conId) no cache persistente.
+     */
+    @GetMapping("/contracts")
+    public ResponseEntity<List<ContractDTO>> getContracts() {
+        return ResponseEntity.ok(contractCache.snapshot());
+    }
+
+    /**
+     * Resolve o contrato (ex: "NVDA", "SAP:STK:IBIS:EUR", "SPY:STK:SMART/ARCA") e devolve o conId.
+     */
+    @GetMapping("/contracts/{spec}")
+    public ResponseEntity<Map<String, Object>> resolveContract(@PathVariable String spec) {
+        try {
+            Contract contract = contractFactory.resolve(spec).join();
+            return ResponseEntity.ok(Map.of("conId", contract.conid(), "symbol", contract.symbol(),
+                    "exchange", contract.exchange(), "primaryExchange", String.valueOf(contract.primaryExch()),
+                    "currency", contract.currency()));
+        } catch (CompletionException e) {
+            log.error("❌ [Ponte | Controller] Falha ao resolver contrato {}: {}", spec, e.getCause().getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getCause().getMessage()));
+        }
+    }
+
     @GetMapping("/order/next-id")
     public ResponseEntity<NextOrderIdResponse> getNextOrderId() {
         try {
@@ -0,0 +1,296 @@
+package com.example.homegaibkrponte.rest;
+
+import com.example.homegaibkrponte.connector.IBKRConnector;
+import com.example.homegaibkrponte.data.bars.BarAggregator;
+import com.example.homegaibkrponte.data.depth.OrderBookStore;
+import com.example.homegaibkrponte.data.history.HistoricalBarSize;
+import com.example.homegaibkrponte.data.history.HistoricalBarTime;
+import com.example.homegaibkrponte.data.history.HistoricalJob;
+import com.example.homegaibkrponte.data.quote.QuoteStore;
+import com.example.homegaibkrponte.data.ticks.TickCaptureType;
+import com.example.homegaibkrponte.data.ticks.TickJournal;
+import com.example.homegaibkrponte.dto.DepthSnapshotDTO;
+import com.example.homegaibkrponte.dto.HistoricalJobRequest;
+import com.example.homegaibkrponte.dto.HistoricalJobStatus;
+import com.example.homegaibkrponte.dto.HistoricalSchedulerStatus;
+import com.example.homegaibkrponte.dto.HistoricalTickDTO;
+import com.example.homegaibkrponte.dto.QuoteDTO;
+import com.example.homegaibkrponte.model.Candle;
+import com.example.homegaibkrponte.service.MarketDataLineManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Endpoints de dados de mercado (histórico, cotações, barras em tempo real, livro L2 e captura de ticks)
+ * servidos pela ponte IBKR.
+ */
+@RestController
+@RequestMapping("/api/ibkr/market-data")
+@RequiredArgsConstructor
+@Slf4j
+public class MarketDataController {
+
+    private final IBKRConnector connector;
+    private final QuoteStore quoteStore;
+    private final MarketDataLineManager lineManager;
+    private final BarAggregator barAggregator;
+    private final OrderBookStore orderBookStore;
+    private final TickJournal tickJournal;
+
+    @GetMapping("/history/{symbol}")
+    public ResponseEntity<List<Candle>> getHistory(@PathVariable String symbol,
+                                                   @RequestParam(defaultValue = "ONE_DAY") HistoricalBarSize barSize,
+                                                   @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate start,
+                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate end) {
+        if (!connector.isConnected()) {
+            log.error("❌ Abortando: Conexão com a corretora não está ativa.");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Collections.emptyList());
+        }
+        LocalDateTime endDateTime = end != null ? end.atStartOfDay() : HistoricalBarTime.nowUtc();
+        List<Candle> candles = connector.getHistoricalData(symbol, barSize, start.atStartOfDay(), endDateTime);
+        log.info("⬅️  Retornando {} barras {} de {} via API REST.", candles.size(), barSize, symbol);
+        return ResponseEntity.ok(candles);
+    }
+
+    /**
+     * Dispara uma carga em lote e responde 202 imediatamente; acompanhe o progresso e a vazão
+     * (barras/segundo) por GET /history/jobs/{jobId}. Responde 400 se o pedido estiver incompleto.
+     */
+    @PostMapping("/history/jobs")
+    public ResponseEntity<HistoricalJobStatus> submitHistoryJob(@RequestBody HistoricalJobRequest request) {
+        String error = validate(request);
+        if (error != null) {
+            log.warn("🚫 Job de histórico recusado (BAD_REQUEST): {}", error);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+        if (!connector.isConnected()) {
+            log.error("❌ Abortando: Conexão com a corretora não está ativa.");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(null);
+        }
+        HistoricalJob job = connector.getHistoricalDataEngine().submitJob(request);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job.toStatus());
+    }
+
+    /**
+     * @return a mensagem de erro, ou null se o pedido pode virar um job.
+     */
+    static String validate(HistoricalJobRequest request) {
+        if (request == null || request.symbols() == null) {
+            return "A lista de símbolos (symbols) é obrigatória.";
+        }
+        if (request.series() == null) {
+            return "A lista de séries (series) é obrigatória.";
+        }
+        for (String symbol : request.symbols()) {
+            if (symbol == null || symbol.isBlank()) {
+                return "Símbolo nulo ou vazio em symbols.";
+            }
+        }
+        for (HistoricalJobRequest.Series series : request.series()) {
+            if (series == null || series.barSize() == null || series.start() == null) {
+                return "Cada série precisa de barSize e start.";
+            }
+            if (series.end() != null && series.end().isBefore(series.start())) {
+                return "Série " + series.barSize() + " com end antes de start.";
+            }
+        }
+        return null;
+    }
+
+    @GetMapping("/history/jobs/{jobId}")
+    public ResponseEntity<HistoricalJobStatus> getHistoryJob(@PathVariable String jobId) {
+        return connector.getHistoricalDataEngine().getJob(jobId)
+                .map(job -> ResponseEntity.ok(job.toStatus()))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(null));
+    }
+
+    /**
+     * Filas, pedidos em voo e efeito das regras de pacing (coalescidos, violações, backoff restante).
+     */
+    @GetMapping("/history/scheduler")
+    public ResponseEntity<HistoricalSchedulerStatus> getHistoryScheduler() {
+        return ResponseEntity.ok(connector.getHistoricalScheduler().getStatus());
+    }
+
+    /**
+     * Até 1000 ticks históricos a partir de {@code start} ou até {@code end} (UTC; informe só um).
+     */
+    @GetMapping("/ticks/history/{symbol}")
+    public ResponseEntity<List<HistoricalTickDTO>> getHistoricalTicks(@PathVariable String symbol,
+                                                                      @RequestParam(defaultValue = "TRADES") String whatToShow,
+                                                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+                                                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end,
+                                                                      @RequestParam(defaultValue = "1000") int count) {
+        if (!connector.isConnected()) {
+            log.error("❌ Abortando: Conexão com a corretora não está ativa.");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Collections.emptyList());
+        }
+        if ((start == null) == (end == null)) {
+            return ResponseEntity.badRequest().body(Collections.emptyList());
+        }
+        List<HistoricalTickDTO> ticks = connector.getHistoricalTicks(symbol, start, end, whatToShow.toUpperCase(), count);
+        log.info("⬅️  Retornando {} ticks {} de {} via API REST.", ticks.size(), whatToShow, symbol);
+        return ResponseEntity.ok(ticks);
+    }
+
+    // --- COTAÇÕES (topo do livro) ---
+
+    @GetMapping("/quotes")
+    public ResponseEntity<List<QuoteDTO>> getQuotes() {
+        return ResponseEntity.ok(quoteStore.snapshotAll());
+    }
+
+    /**
+     * Última cotação do símbolo. Se não houver linha aberta (nunca assinado ou despejado pelo LRU),
+     * ela é aberta e a resposta é 202: o primeiro tick costuma chegar em poucas centenas de milissegundos.
+     */
+    @GetMapping("/quotes/{symbol}")
+    public ResponseEntity<QuoteDTO> getQuote(@PathVariable String symbol) {
+        if (!quoteStore.isSubscribed(symbol) && !connector.isConnected()) {
+            log.error("❌ Abortando: Conexão com a corretora não está ativa.");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(null);
+        }
+        return lineManager.snapshot(symbol)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.ACCEPTED).body(null));
+    }
+
+    /**
+     * Registra uma referência ao símbolo: a linha só é despejada por LRU e é reaberta ao ser lida de novo.
+     */
+    @PostMapping("/quotes/{symbol}")
+    public ResponseEntity<Map<String, Integer>> acquireQuote(@PathVariable String symbol) {
+        boolean open = lineManager.acquire(symbol);
+        return ResponseEntity.status(open ? HttpStatus.OK : HttpStatus.ACCEPTED)
+                .body(Map.of("references", lineManager.getRefCount(symbol), "linesInUse", quoteStore.getLineCount()));
+    }
+
+    @DeleteMapping("/quotes/{symbol}")
+    public ResponseEntity<Void> releaseQuote(@PathVariable String symbol) {
+        lineManager.release(symbol);
+        return ResponseEntity.noContent().build();
+    }
+
+    // --- BARRAS EM TEMPO REAL (5s agregadas) ---
+
+    /**
+     * Últimas barras fechadas do timeframe, da mais antiga para a mais recente. Se o símbolo ainda
+     * não estiver assinado, a assinatura é aberta e a resposta é 202 (o histórico começa vazio).
+     */
+    @GetMapping("/bars/{symbol}")
+    public ResponseEntity<List<Candle>> getBars(@PathVariable String symbol,
+                                                @RequestParam(defaultValue = "ONE_MIN") HistoricalBarSize timeframe,
+                                                @RequestParam(defaultValue = "100") int limit,
+                                                @RequestParam(defaultValue = "false") boolean includeForming) {
+        if (!barAggregator.getTimeframes().contains(timeframe)) {
+            return ResponseEntity.badRequest().body(Collections.emptyList());
+        }
+        if (!barAggregator.isSubscribed(symbol)) {
+            if (!connector.isConnected()) {
+                log.error("❌ Abortando: Conexão com a corretora não está ativa.");
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Collections.emptyList());
+            }
+            connector.subscribeBars(symbol);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(barAggregator.history(symbol, timeframe, limit));
+        }
+        List<Candle> candles = new ArrayList<>(barAggregator.history(symbol, timeframe, limit));
+        if (includeForming) {
+            barAggregator.forming(symbol, timeframe).ifPresent(candles::add);
+        }
+        return ResponseEntity.ok(candles);
+    }
+
+    @DeleteMapping("/bars/{symbol}")
+    public ResponseEntity<Void> unsubscribeBars(@PathVariable String symbol) {
+        connector.unsubscribeBars(symbol);
+        return ResponseEntity.noContent().build();
+    }
+
+    // --- LIVRO DE OFERTAS (L2) ---
+
+    /**
+     * Fotografia do livro. Se o símbolo ainda não estiver assinado, a assinatura é aberta e a resposta é 202.
+     */
+    @GetMapping("/depth/{symbol}")
+    public ResponseEntity<DepthSnapshotDTO> getDepth(@PathVariable String symbol) {
+        if (!orderBookStore.isSubscribed(symbol)) {
+            if (!connector.isConnected()) {
+                log.error("❌ Abortando: Conexão com a corretora não está ativa.");
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(null);
+            }
+            connector.subscribeDepth(symbol);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(null);
+        }
+        return orderBookStore.snapshot(symbol)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.ACCEPTED).body(null));
+    }
+
+    /**
+     * Stream SSE conflacionado do livro: no máximo uma fotografia por intervalo, e só quando houve mudança.
+     */
+    @GetMapping(value = "/depth/{symbol}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<DepthSnapshotDTO> streamDepth(@PathVariable String symbol,
+                                              @RequestParam(defaultValue = "250") long intervalMillis) {
+        if (!orderBookStore.isSubscribed(symbol) && connector.isConnected()) {
+            connector.subscribeDepth(symbol);
+        }
+        return orderBookStore.stream(symbol, Duration.ofMillis(Math.max(intervalMillis, 10)));
+    }
+
+    /**
+     * Desequilíbrio dos primeiros níveis de todos os livros assinados, de -1 (venda) a +1 (compra).
+     */
+    @GetMapping("/depth/imbalance")
+    public ResponseEntity<Map<String, Double>> getImbalances(@RequestParam(defaultValue = "5") int levels) {
+        return ResponseEntity.ok(orderBookStore.imbalances(levels));
+    }
+
+    @DeleteMapping("/depth/{symbol}")
+    public ResponseEntity<Void> unsubscribeDepth(@PathVariable String symbol) {
+        connector.unsubscribeDepth(symbol);
+        return ResponseEntity.noContent().build();
+    }
+
+    // --- CAPTURA TICK-BY-TICK (TickJournal) ---
+
+    @PostMapping("/ticks/capture/{symbol}")
+    public ResponseEntity<Map<String, List<Integer>>> startTickCapture(@PathVariable String symbol,
+                                                                       @RequestParam(defaultValue = "ALL_LAST,BID_ASK") List<TickCaptureType> types) {
+        if (!connector.isConnected()) {
+            log.error("❌ Abortando: Conexão com a corretora não está ativa.");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(null);
+        }
+        connector.captureTicks(symbol, EnumSet.copyOf(types));
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(tickJournal.getCaptures());
+    }
+
+    /**
+     * Capturas ativas (símbolo -> reqIds) e total de ticks gravados.
+     */
+    @GetMapping("/ticks/capture")
+    public ResponseEntity<Map<String, Object>> getTickCaptures() {
+        return ResponseEntity.ok(Map.of("captures", tickJournal.getCaptures(), "recordsWritten", tickJournal.getRecordsWritten()));
+    }
+
+    @DeleteMapping("/ticks/capture/{symbol}")
+    public ResponseEntity<Void> stopTickCapture(@PathVariable String symbol) {
+        connector.stopTickCapture(symbol);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.homegaibkrponte.rest;
+
+import com.example.homegaibkrponte.connector.IBKRConnector;
+import com.example.homegaibkrponte.data.bars.BarAggregator;
+import com.example.homegaibkrponte.data.history.HistoricalBarSize;
+import com.example.homegaibkrponte.dto.StreamSubscriberStatsDTO;
+import com.example.homegaibkrponte.service.MarketDataLineManager;
+import com.example.homegaibkrponte.stream.MarketDataStreamHub;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Streams SSE de cotações e barras por conjunto de símbolos, para o app principal parar de fazer polling.
+ * Ex: GET /api/ibkr/stream?symbols=AAPL,MSFT&bars=ONE_MIN,FIVE_MINS
+ */
+@RestController
+@RequestMapping("/api/ibkr/stream")
+@RequiredArgsConstructor
+@Slf4j
+public class StreamController {
+
+    private final IBKRConnector connector;
+    private final MarketDataStreamHub streamHub;
+    private final MarketDataLineManager lineManager;
+    private final BarAggregator barAggregator;
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Object>> stream(@RequestParam List<String> symbols,
+                                                @RequestParam(defaultValue = "true") boolean quotes,
+                                                @RequestParam(required = false) List<HistoricalBarSize> bars) {
+        Set<String> normalized = new LinkedHashSet<>();
+        symbols.forEach(symbol -> normalized.add(symbol.trim().toUpperCase()));
+        Set<HistoricalBarSize> timeframes = bars == null || bars.isEmpty() ? EnumSet.noneOf(HistoricalBarSize.class) : EnumSet.copyOf(bars);
+
+        // As linhas na IBKR são compartilhadas: cada stream só soma uma referência por símbolo.
+        if (quotes) {
+            normalized.forEach(lineManager::acquire);
+        }
+        if (connector.isConnected()) {
+            for (String symbol : normalized) {
+                if (!timeframes.isEmpty() && !barAggregator.isSubscribed(symbol)) {
+                    connector.subscribeBars(symbol);
+                }
+            }
+        } else {
+            log.warn("⚠️ Stream aberto sem conexão com a corretora: só valores já em cache serão enviados.");
+        }
+        return streamHub.open(normalized, quotes, timeframes)
+                .doFinally(signal -> {
+                    if (quotes) {
+                        normalized.forEach(lineManager::release);
+                    }
+                });
+    }
+
+    @GetMapping("/subscribers")
+    public ResponseEntity<List<StreamSubscriberStatsDTO>> getSubscribers() {
+        return ResponseEntity.ok(streamHub.getSubscriberStats());
+    }
+}
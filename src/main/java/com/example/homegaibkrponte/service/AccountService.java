@@ -30,10 +30,9 @@ public class AccountService {
 
         BigDecimal balance = connector.getBuyingPowerCache();
 
-        // Se o saldo for ZERO, dispara o callback de atualização na IBKR
+        // Saldo ZERO: o resumo da conta (reqAccountSummary, aberto na conexão) ainda não chegou.
         if (BigDecimal.ZERO.compareTo(balance) == 0) {
-            log.warn("⚠️ Saldo em cache é ZERO. Disparando reqAccountUpdates para forçar sincronização do TWS.");
-            connector.getClient().reqAccountUpdates(true, connector.getManagedAccounts());
+            log.warn("⚠️ Saldo em cache é ZERO. Resumo da conta ainda não recebido do TWS.");
         }
         return balance;
     }
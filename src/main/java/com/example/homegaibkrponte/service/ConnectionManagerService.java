@@ -1,12 +1,25 @@
 package com.example.homegaibkrponte.service;
 
 import com.example.homegaibkrponte.connector.IBKRConnector;
+import com.example.homegaibkrponte.data.executions.ExecutionCheckpoint;
+import com.example.homegaibkrponte.data.executions.ExecutionJournal;
+import com.example.homegaibkrponte.data.executions.ExecutionRecord;
+import com.example.homegaibkrponte.model.Portfolio;
+import com.example.homegaibkrponte.model.Position;
+import com.example.homegaibkrponte.model.TradeExecutedEvent;
+import com.example.homegaibkrponte.monitoring.LivePortfolioService;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 /**
  * SRP: Orquestra e gerencia o ciclo de vida da conexão com o TWS/Gateway.
  * Garante que a conexão esteja sempre ativa, acionando a reconexão quando necessário.
@@ -17,12 +30,33 @@ import org.springframework.stereotype.Service;
 public class ConnectionManagerService {
 
     private final IBKRConnector ibkrConnector;
+    private final ExecutionJournal executionJournal;
+    private final LivePortfolioService portfolioService;
+
+    // Estado do journal dobrado até journalMark (o do último checkpoint gravado). Só o @PostConstruct e o
+    // checkpoint agendado (uma thread do scheduler por vez) mexem nele.
+    private Portfolio journalState;
+    private long journalMark;
 
     /**
-     * Inicia a primeira tentativa de conexão no arranque da aplicação.
+     * Reconstrói o portfólio a partir do journal de execuções (último checkpoint + execuções seguintes) e
+     * inicia a primeira tentativa de conexão no arranque da aplicação (a conexão reconcilia o resultado com
+     * o reqPositions).
      */
     @PostConstruct
     public void initialConnect() {
+        long start = System.nanoTime();
+        ExecutionJournal.Replay replay = executionJournal.replay();
+        journalState = portfolioService.foldExecutions(journalState(replay.checkpoint()), tradeEvents(replay));
+        journalMark = replay.mark();
+        portfolioService.restoreFromJournal(journalState);
+        log.info("♻️ [GESTOR DE CONEXÃO] Replay de {} execuções do journal em {} ms (checkpoint: {}).",
+                replay.records().size(), (System.nanoTime() - start) / 1_000_000,
+                replay.checkpoint() == null ? "nenhum" : replay.checkpoint().createdAt());
+        if (!replay.records().isEmpty()) {
+            writeCheckpoint();
+        }
+
         log.info("▶️ [GESTOR DE CONEXÃO] Iniciando primeira tentativa de conexão...");
         ibkrConnector.connect();
     }
@@ -40,4 +74,43 @@ public class ConnectionManagerService {
             log.trace("🟢 [GESTOR DE CONEXÃO] Verificação de saúde: Conexão ativa.");
         }
     }
+
+    /**
+     * Dobra as execuções gravadas desde o último checkpoint e grava um novo, para que o replay da próxima
+     * partida leia só o que veio depois. Sem execuções novas, não grava nada.
+     */
+    @Scheduled(fixedDelayString = "${ibkr.executions.checkpoint-interval-millis:300000}",
+            initialDelayString = "${ibkr.executions.checkpoint-interval-millis:300000}")
+    public void checkpointJournal() {
+        ExecutionJournal.Replay tail = executionJournal.readSince(journalMark);
+        if (tail.records().isEmpty()) {
+            return;
+        }
+        journalState = portfolioService.foldExecutions(journalState, tradeEvents(tail));
+        journalMark = tail.mark();
+        writeCheckpoint();
+    }
+
+    private void writeCheckpoint() {
+        try {
+            executionJournal.checkpoint(journalMark, journalState.cashBalance(), journalState.openPositions().values());
+            log.info("🧾 [GESTOR DE CONEXÃO] Checkpoint do journal gravado: {} posições.", journalState.openPositions().size());
+        } catch (RuntimeException e) {
+            // O estado em memória continua válido; a próxima tentativa grava tudo de uma vez.
+            log.error("💥 [GESTOR DE CONEXÃO] Falha ao gravar o checkpoint do journal: {}", e.getMessage(), e);
+        }
+    }
+
+    private static List<TradeExecutedEvent> tradeEvents(ExecutionJournal.Replay replay) {
+        return replay.records().stream().map(ExecutionRecord::toTradeEvent).toList();
+    }
+
+    private static Portfolio journalState(ExecutionCheckpoint checkpoint) {
+        if (checkpoint == null) {
+            return new Portfolio("JOURNAL", BigDecimal.ZERO);
+        }
+        Map<String, Position> positions = checkpoint.positions().stream()
+                .collect(Collectors.toMap(Position::getSymbol, Function.identity()));
+        return new Portfolio("JOURNAL", checkpoint.cash(), positions, List.of());
+    }
 }
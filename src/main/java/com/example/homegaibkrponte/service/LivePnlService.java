@@ -0,0 +1,140 @@
+package com.example.homegaibkrponte.service;
+
+import com.example.homegaibkrponte.connector.IBKRConnector;
+import com.example.homegaibkrponte.data.contract.ContractKey;
+import com.example.homegaibkrponte.data.pnl.PnlEngine;
+import com.example.homegaibkrponte.dto.PnlDTO;
+import com.example.homegaibkrponte.dto.PositionPnlDTO;
+import com.example.homegaibkrponte.model.Portfolio;
+import com.example.homegaibkrponte.model.Position;
+import com.example.homegaibkrponte.model.PositionDirection;
+import com.example.homegaibkrponte.model.PositionsChangedEvent;
+import com.example.homegaibkrponte.monitoring.LivePortfolioService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Liga o PnlEngine ao portfólio LIVE:
+ *
+ * - A cada PositionsChangedEvent, relê as posições dos símbolos no LivePortfolioService e atualiza o
+ *   engine. Uma posição nova ganha uma referência no MarketDataLineManager (os ticks marcam o P&L)
+ *   e um reqPnLSingle; uma posição fechada devolve os dois.
+ * - A manutenção periódica mantém essas linhas "lidas" (para o LRU não despejá-las e para serem
+ *   reabertas depois de uma queda) e assina o que ficou pendente: reqPnL da conta e reqPnLSingle de
+ *   posições abertas antes da conexão (ex: replay do journal na partida).
+ */
+@Service
+@Slf4j
+public class LivePnlService {
+
+    private final PnlEngine pnlEngine;
+    private final IBKRConnector connector;
+    private final MarketDataLineManager lineManager;
+    private final LivePortfolioService portfolioService;
+    private final Set<String> resolving = ConcurrentHashMap.newKeySet();
+
+    public LivePnlService(PnlEngine pnlEngine,
+                          IBKRConnector connector,
+                          MarketDataLineManager lineManager,
+                          LivePortfolioService portfolioService) {
+        this.pnlEngine = pnlEngine;
+        this.connector = connector;
+        this.lineManager = lineManager;
+        this.portfolioService = portfolioService;
+    }
+
+    @EventListener
+    public void onPositionsChanged(PositionsChangedEvent event) {
+        Portfolio portfolio = portfolioService.getLivePortfolioSnapshot();
+        if (portfolio == null) {
+            return;
+        }
+        for (String symbol : event.symbols()) {
+            try {
+                refresh(symbol, portfolio.openPositions().get(symbol));
+            } catch (RuntimeException e) {
+                log.error("💥 [P&L] Falha ao atualizar a posição de {}: {}", symbol, e.getMessage(), e);
+            }
+        }
+    }
+
+    private void refresh(String symbol, Position position) {
+        if (position == null) {
+            if (pnlEngine.close(symbol)) {
+                lineManager.release(symbol);
+                connector.unsubscribePositionPnl(symbol);
+            }
+            return;
+        }
+        double quantity = position.getQuantity().doubleValue();
+        double signedQuantity = position.getDirection() == PositionDirection.SHORT ? -quantity : quantity;
+        if (pnlEngine.update(symbol, signedQuantity, position.getAverageEntryPrice().doubleValue())) {
+            lineManager.acquire(symbol);
+            subscribePositionPnl(symbol);
+        }
+    }
+
+    /**
+     * reqPnLSingle precisa do conId: vem do ContractCache ou de um reqContractDetails (uma vez por símbolo).
+     */
+    private void subscribePositionPnl(String symbol) {
+        if (!connector.isConnected() || !resolving.add(symbol)) {
+            return;
+        }
+        connector.resolveContract(ContractKey.parse(symbol)).whenComplete((contract, error) -> {
+            resolving.remove(symbol);
+            if (error != null) {
+                log.warn("⚠️ [P&L] Sem conId para {}: {}. Só o P&L local será calculado.", symbol, error.getMessage());
+                return;
+            }
+            if (pnlEngine.isOpen(symbol)) {
+                connector.subscribePositionPnl(symbol, contract.conid());
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${ibkr.pnl.maintenance-millis:1000}")
+    public void maintain() {
+        int[] slots = pnlEngine.heldSlots();
+        for (int slot : slots) {
+            lineManager.touch(slot);
+        }
+        if (!connector.isConnected()) {
+            return;
+        }
+        connector.subscribeAccountPnl();
+        for (int slot : slots) {
+            if (!pnlEngine.isPositionBound(slot)) {
+                subscribePositionPnl(pnlEngine.symbolOf(slot));
+            }
+        }
+        // reqPnLSingle que sobrou de uma posição fechada enquanto o conId era resolvido.
+        pnlEngine.forEachPositionRequest((reqId, slot) -> {
+            String symbol = pnlEngine.symbolOf(slot);
+            if (!pnlEngine.isOpen(symbol)) {
+                connector.unsubscribePositionPnl(symbol);
+            }
+        });
+    }
+
+    // --- LEITURA (REST) ---
+
+    public PnlDTO getPortfolioPnl() {
+        return pnlEngine.portfolioSnapshot(connector.getPnlAccount());
+    }
+
+    public Optional<PositionPnlDTO> getPositionPnl(String symbol) {
+        return pnlEngine.snapshot(symbol);
+    }
+
+    public List<PositionPnlDTO> getPositionsPnl() {
+        return pnlEngine.snapshotAll();
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.homegaibkrponte.service;
+
+import com.example.homegaibkrponte.connector.IBKRConnector;
+import com.example.homegaibkrponte.data.quote.Quote;
+import com.example.homegaibkrponte.data.quote.QuoteStore;
+import com.example.homegaibkrponte.dto.QuoteDTO;
+import com.example.homegaibkrponte.util.IntIntMap;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Orçamento de linhas de dados de mercado (reqMktData) da conta IBKR, compartilhado entre todos os clientes.
+ *
+ * - Deduplica: cada símbolo tem no máximo uma linha, com contagem de referências (acquire/release).
+ * - Ao atingir o teto, devolve a linha menos lida recentemente com cancelMktData, preferindo as sem referência.
+ * - Uma linha despejada que ainda tem referências é reassinada de forma transparente no próximo acesso
+ *   (read/snapshot) ou, para streams, pela manutenção periódica.
+ * - Uma linha só pode ser despejada depois de um tempo mínimo de residência, para evitar tempestades
+ *   de assinar/cancelar quando há mais interesse do que linhas.
+ */
+@Service
+@Slf4j
+public class MarketDataLineManager {
+
+    private final IBKRConnector connector;
+    private final QuoteStore quoteStore;
+    private final int maxLines;
+    private final long minResidencyNanos;
+    private final long activeWindowNanos;
+
+    // Indexados pelo slot do QuoteStore.
+    private final int[] refCounts;
+    private final long[] lastReadNanos;
+    private final long[] subscribedAtNanos;
+    private final boolean[] evicted;
+
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong resubscriptions = new AtomicLong();
+    private final AtomicLong rejections = new AtomicLong();
+
+    public MarketDataLineManager(IBKRConnector connector,
+                                 QuoteStore quoteStore,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${ibkr.marketdata.max-lines:100}") int maxLines,
+                                 @Value("${ibkr.marketdata.min-residency-seconds:30}") long minResidencySeconds,
+                                 @Value("${ibkr.marketdata.active-window-seconds:10}") long activeWindowSeconds) {
+        this.connector = connector;
+        this.quoteStore = quoteStore;
+        this.maxLines = maxLines;
+        this.minResidencyNanos = TimeUnit.SECONDS.toNanos(minResidencySeconds);
+        this.activeWindowNanos = TimeUnit.SECONDS.toNanos(activeWindowSeconds);
+        int capacity = quoteStore.getCapacity();
+        this.refCounts = new int[capacity];
+        this.lastReadNanos = new long[capacity];
+        this.subscribedAtNanos = new long[capacity];
+        this.evicted = new boolean[capacity];
+
+        Gauge.builder("ibkr.marketdata.lines.used", quoteStore, QuoteStore::getLineCount)
+                .description("Linhas de reqMktData abertas")
+                .register(meterRegistry);
+        Gauge.builder("ibkr.marketdata.lines.max", this, manager -> manager.maxLines)
+                .register(meterRegistry);
+        FunctionCounter.builder("ibkr.marketdata.lines.evictions", evictions, AtomicLong::get)
+                .register(meterRegistry);
+        FunctionCounter.builder("ibkr.marketdata.lines.resubscriptions", resubscriptions, AtomicLong::get)
+                .register(meterRegistry);
+        FunctionCounter.builder("ibkr.marketdata.lines.rejections", rejections, AtomicLong::get)
+                .description("Pedidos de linha negados: teto atingido e nenhuma linha elegível para despejo")
+                .register(meterRegistry);
+    }
+
+    // --- REFERÊNCIAS ---
+
+    /**
+     * Registra interesse no símbolo e garante a linha (se houver orçamento).
+     *
+     * @return false se a linha não pôde ser aberta agora (desconectado ou sem linha livre).
+     */
+    public synchronized boolean acquire(String symbol) {
+        int slot = quoteStore.register(symbol);
+        refCounts[slot]++;
+        touch(slot);
+        return ensureLine(slot);
+    }
+
+    /**
+     * Remove uma referência. A linha continua aberta ("quente") e vira a primeira candidata a despejo.
+     */
+    public synchronized void release(String symbol) {
+        int slot = quoteStore.slotOf(symbol);
+        if (slot >= 0 && refCounts[slot] > 0) {
+            refCounts[slot]--;
+        }
+    }
+
+    public synchronized int getRefCount(String symbol) {
+        int slot = quoteStore.slotOf(symbol);
+        return slot >= 0 ? refCounts[slot] : 0;
+    }
+
+    // --- LEITURA (marca o uso e reassina se a linha tiver sido despejada) ---
+
+    /**
+     * Marca o slot como lido agora. Sem lock: pode ser chamado do caminho quente.
+     */
+    public void touch(int slot) {
+        lastReadNanos[slot] = System.nanoTime();
+    }
+
+    public boolean read(String symbol, Quote into) {
+        int slot = quoteStore.slotOf(symbol);
+        if (slot < 0) {
+            return false;
+        }
+        touch(slot);
+        if (quoteStore.reqIdOf(slot) == IntIntMap.MISSING) {
+            synchronized (this) {
+                ensureLine(slot);
+            }
+        }
+        return quoteStore.read(slot, into);
+    }
+
+    /**
+     * Última cotação do símbolo, abrindo (ou reabrindo) a linha se preciso. Vazio até o primeiro tick.
+     */
+    public Optional<QuoteDTO> snapshot(String symbol) {
+        int slot;
+        synchronized (this) {
+            slot = quoteStore.register(symbol);
+            touch(slot);
+            ensureLine(slot);
+        }
+        return quoteStore.snapshot(symbol);
+    }
+
+    // --- ORÇAMENTO ---
+
+    /**
+     * Garante a linha do slot, despejando a menos lida se o teto foi atingido.
+     */
+    private boolean ensureLine(int slot) {
+        if (quoteStore.reqIdOf(slot) != IntIntMap.MISSING) {
+            return true;
+        }
+        if (!connector.isConnected()) {
+            return false;
+        }
+        if (quoteStore.getLineCount() >= maxLines && !evictOne(slot)) {
+            rejections.incrementAndGet();
+            log.warn("⚠️ [LINHAS] Sem linha de dados livre para {} ({} de {} em uso, todas abaixo da residência mínima).",
+                    quoteStore.symbolOf(slot), quoteStore.getLineCount(), maxLines);
+            return false;
+        }
+        connector.subscribe(quoteStore.symbolOf(slot));
+        subscribedAtNanos[slot] = System.nanoTime();
+        if (evicted[slot]) {
+            evicted[slot] = false;
+            resubscriptions.incrementAndGet();
+            log.info("🔁 [LINHAS] {} reassinado após despejo.", quoteStore.symbolOf(slot));
+        }
+        return true;
+    }
+
+    private boolean evictOne(int requester) {
+        long now = System.nanoTime();
+        int[] victim = {-1};
+        boolean[] victimReferenced = {true};
+        long[] victimLastRead = {Long.MAX_VALUE};
+        quoteStore.forEachBinding((reqId, slot) -> {
+            if (slot == requester || now - subscribedAtNanos[slot] < minResidencyNanos) {
+                return;
+            }
+            boolean referenced = refCounts[slot] > 0;
+            // Sem referência ganha de com referência; empate decidido pela leitura mais antiga.
+            if ((victimReferenced[0] && !referenced)
+                    || (victimReferenced[0] == referenced && lastReadNanos[slot] < victimLastRead[0])) {
+                victim[0] = slot;
+                victimReferenced[0] = referenced;
+                victimLastRead[0] = lastReadNanos[slot];
+            }
+        });
+        if (victim[0] < 0) {
+            return false;
+        }
+        String symbol = quoteStore.symbolOf(victim[0]);
+        connector.unsubscribe(symbol);
+        evicted[victim[0]] = refCounts[victim[0]] > 0;
+        evictions.incrementAndGet();
+        log.info("♻️ [LINHAS] Linha de {} devolvida (LRU, {} referências) para abrir {}.",
+                symbol, refCounts[victim[0]], quoteStore.symbolOf(requester));
+        return true;
+    }
+
+    /**
+     * Reabre linhas que têm referências e foram lidas recentemente (ex: streams ativos) mas estão fechadas:
+     * despejadas, recusadas pela IBKR ou pedidas enquanto a conexão estava fora.
+     */
+    @Scheduled(fixedDelayString = "${ibkr.marketdata.maintenance-millis:1000}")
+    public synchronized void restoreLines() {
+        if (!connector.isConnected()) {
+            return;
+        }
+        long now = System.nanoTime();
+        for (int slot = 0; slot < quoteStore.size(); slot++) {
+            if (refCounts[slot] > 0 && now - lastReadNanos[slot] < activeWindowNanos
+                    && quoteStore.reqIdOf(slot) == IntIntMap.MISSING) {
+                ensureLine(slot);
+            }
+        }
+    }
+}
@@ -1,20 +1,103 @@
 package com.example.homegaibkrponte.service;
 
-import com.ib.client.EClientSocket;
+import com.example.homegaibkrponte.properties.IBKRProperties;
+import com.example.homegaibkrponte.util.RequestIds;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Gerencia a sequência de IDs de ordem de forma centralizada e thread-safe.
  * Utiliza o padrão Singleton (gerenciado pelo Spring).
  * SRP: Sua única responsabilidade é fornecer IDs de ordem válidos.
+ *
+ * Leasing de faixas (hi/lo): o teto da faixa arrendada é gravado (com fsync) em
+ * {@code order-ids-<clientId>.hwm} ANTES de qualquer ID abaixo dele ser entregue, e só uma vez
+ * a cada {@code lease-size} IDs. Depois de um reinício, os IDs recomeçam no teto gravado: nenhum ID
+ * já usado é reaproveitado e as ordens não esperam o nextValidId. Quando o nextValidId chega, a
+ * sequência só avança (nunca volta).
+ *
+ * Os IDs da IBKR são por clientId, então cada clientId tem seu arquivo; um lock no arquivo impede
+ * que duas instâncias com o mesmo clientId arrendem a mesma faixa.
+ *
+ * IDs de ordem ficam abaixo de {@link RequestIds#DATA_BASE}; dali para cima são os reqIds de dados.
  */
 @Service
+@Slf4j
 public class OrderIdManager {
 
     // Utiliza AtomicInteger para garantir operações atômicas e seguras em ambiente multi-thread.
     private final AtomicInteger nextOrderId = new AtomicInteger(-1);
+    // Todos os IDs abaixo do teto já estão "pagos" no arquivo. Só cresce.
+    private volatile int leasedCeiling = -1;
+    private volatile boolean reconciled;
+    private int firstIssuedBeforeReconcile = -1;
+
+    private final Path file;
+    private final int leaseSize;
+    private final ByteBuffer ceilingBuffer = ByteBuffer.allocate(Long.BYTES);
+    private FileChannel channel;
+    private FileLock lock;
+
+    public OrderIdManager(IBKRProperties props,
+                          @Value("${ibkr.orders.id-dir:./data/orders}") String directory,
+                          @Value("${ibkr.orders.id-lease-size:1000}") int leaseSize) {
+        this.file = Path.of(directory).resolve("order-ids-" + props.clientId() + ".hwm");
+        this.leaseSize = leaseSize;
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            Files.createDirectories(file.getParent());
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                lock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if (lock == null) {
+                throw new IllegalStateException("Outra instância já usa " + file + ". Cada instância precisa de um clientId próprio.");
+            }
+            if (channel.size() >= Long.BYTES) {
+                ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+                channel.read(buffer, 0);
+                int ceiling = (int) buffer.flip().getLong();
+                leasedCeiling = ceiling;
+                nextOrderId.set(ceiling);
+                log.info("🆔 IDs de ordem retomados do teto persistido {} (sem esperar o nextValidId).", ceiling);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível abrir o arquivo de IDs de ordem: " + file, e);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        try {
+            if (lock != null) {
+                lock.release();
+            }
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            log.warn("⚠️ Falha ao fechar o arquivo de IDs de ordem: {}", e.getMessage());
+        }
+    }
 
     /**
      * Inicializa ou atualiza o contador com o próximo ID válido fornecido pela API da IBKR.
@@ -23,10 +106,22 @@ public class OrderIdManager {
      */
     public synchronized void initializeOrUpdate(int validId) {
         // Garante que o ID só seja definido uma vez ou atualizado se o novo for maior.
-        if (this.nextOrderId.get() < validId) {
-            this.nextOrderId.set(validId);
-            System.out.println("✅ Contador de ID de Ordem inicializado com: " + validId);
+        if (validId >= RequestIds.DATA_BASE) {
+            log.error("🛑 nextValidId {} está na faixa de reqIds de dados (>= {}). Novas ordens serão recusadas.",
+                    validId, RequestIds.DATA_BASE);
+        }
+        int previous = nextOrderId.getAndAccumulate(validId, Math::max);
+        if (previous < validId) {
+            log.info("✅ Contador de ID de Ordem inicializado com: {}", validId);
         }
+        if (!reconciled && firstIssuedBeforeReconcile >= 0 && firstIssuedBeforeReconcile < validId) {
+            // Alguém (outra sessão/TWS manual) usou IDs acima do nosso teto: as ordens desse intervalo podem voltar com erro 103.
+            log.warn("⚠️ IDs {}..{} foram emitidos antes do nextValidId {} e podem colidir (erro 103 'Duplicate order id').",
+                    firstIssuedBeforeReconcile, Math.min(previous, validId) - 1, validId);
+        }
+        reconciled = true;
+        // Um nextValidId já na faixa de dados só arrenda até DATA_BASE; o reserveBlock recusa o resto.
+        extendLease(Math.min(nextOrderId.get(), RequestIds.DATA_BASE));
     }
 
     /**
@@ -34,11 +129,73 @@ public class OrderIdManager {
      * @return O próximo ID de ordem único.
      */
     public int getNextOrderId() {
-        if (nextOrderId.get() == -1) {
-            // Lança uma exceção se o serviço for usado antes da inicialização.
-            throw new IllegalStateException("O OrderIdManager não foi inicializado com um ID válido da IBKR.");
+        return reserveBlock(1);
+    }
+
+    /**
+     * Reserva {@code count} IDs contíguos com um único CAS (lotes e brackets). Só quando o bloco
+     * ultrapassa o teto arrendado há um passo lento (sincronizado) que grava o novo teto.
+     * @return O primeiro ID do bloco; o bloco é [primeiro, primeiro + count).
+     */
+    public int reserveBlock(int count) {
+        while (true) {
+            int current = nextOrderId.get();
+            if (current == -1) {
+                // Lança uma exceção se o serviço for usado antes da inicialização (sem teto persistido e sem nextValidId).
+                throw new IllegalStateException("O OrderIdManager não foi inicializado com um ID válido da IBKR.");
+            }
+            int end = current + count;
+            if (end > RequestIds.DATA_BASE || end < current) {
+                throw new IllegalStateException("Faixa de IDs de ordem esgotada: " + current + " + " + count
+                        + " alcançaria os reqIds de dados (" + RequestIds.DATA_BASE + ").");
+            }
+            if (end > leasedCeiling) {
+                extendLease(end);
+                continue;
+            }
+            if (nextOrderId.compareAndSet(current, end)) {
+                if (!reconciled) {
+                    markIssuedBeforeReconcile(current);
+                }
+                return current;
+            }
+        }
+    }
+
+    public boolean isReconciled() {
+        return reconciled;
+    }
+
+    public int getLeasedCeiling() {
+        return leasedCeiling;
+    }
+
+    /**
+     * Grava um novo teto que cubra {@code required} mais uma faixa inteira, antes de liberar os IDs.
+     * O teto nunca passa de {@link RequestIds#DATA_BASE}: perto do fim, a faixa arrendada encolhe.
+     */
+    private synchronized void extendLease(int required) {
+        if (required <= leasedCeiling) {
+            return;
+        }
+        if (required > RequestIds.DATA_BASE) {
+            throw new IllegalStateException("Faixa de IDs de ordem esgotada: o teto " + required
+                    + " alcançaria os reqIds de dados (" + RequestIds.DATA_BASE + ").");
+        }
+        int ceiling = (int) Math.min((long) required + leaseSize, RequestIds.DATA_BASE);
+        try {
+            ceilingBuffer.clear().putLong(ceiling).flip();
+            channel.write(ceilingBuffer, 0);
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao persistir o teto de IDs de ordem em " + file, e);
+        }
+        leasedCeiling = ceiling;
+    }
+
+    private synchronized void markIssuedBeforeReconcile(int id) {
+        if (!reconciled && (firstIssuedBeforeReconcile < 0 || id < firstIssuedBeforeReconcile)) {
+            firstIssuedBeforeReconcile = id;
         }
-        // Incrementa e depois retorna o valor, garantindo que cada chamada receba um ID único.
-        return this.nextOrderId.getAndIncrement();
     }
-}
\ No newline at end of file
+}
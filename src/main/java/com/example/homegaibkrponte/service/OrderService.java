@@ -2,17 +2,35 @@ package com.example.homegaibkrponte.service;
 
 import com.example.homegaibkrponte.connector.IBKRConnector;
 import com.example.homegaibkrponte.dto.OrderDTO;
+import com.example.homegaibkrponte.dto.OrderResultDTO;
+import com.example.homegaibkrponte.dto.OrderStatusDTO;
 import com.example.homegaibkrponte.factory.ContractFactory;
 import com.example.homegaibkrponte.factory.OrderFactory;
+import com.example.homegaibkrponte.model.OrderType;
+import com.example.homegaibkrponte.model.PositionSide;
+import com.example.homegaibkrponte.monitoring.OrderLatencyMetrics;
+import com.example.homegaibkrponte.monitoring.OrderLatencyStage;
+import com.example.homegaibkrponte.order.OrderAwait;
+import com.example.homegaibkrponte.order.OrderLifecycleEngine;
 import com.ib.client.Contract;
+import com.ib.client.EClientSocket;
 import com.ib.client.Order;
 import com.ib.client.Types;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @Slf4j
@@ -23,6 +41,11 @@ public class OrderService {
     private final OrderIdManager orderIdManager;
     private final ContractFactory contractFactory;
     private final OrderFactory orderFactory;
+    private final OrderLifecycleEngine orderLifecycle;
+    private final OrderLatencyMetrics latencyMetrics;
+
+    // Tipos enviados como LMT a partir de 'price' (as filhas de TP usam takeProfitPrice).
+    private static final Set<OrderType> PRICED_TYPES = EnumSet.of(OrderType.BUY_LIMIT, OrderType.SELL_LIMIT);
 
     /**
      * Ponto de entrada para receber ordens via REST.
@@ -33,6 +56,12 @@ public class OrderService {
             throw new IllegalStateException("Não é possível enviar ordem: Desconectado do TWS/Gateway.");
         }
 
+        // Mesmas regras do lote (/place-orders); IllegalStateException vira 400 no controller.
+        String error = validate(orderDto);
+        if (error != null) {
+            throw new IllegalStateException(error);
+        }
+
         log.info("⚙️ [Ponte | ORDER-SERVICE] Recebendo ordem {}: {}", orderDto.clientOrderId(), orderDto.symbol());
 
         if (orderDto.isBracketOrder()) {
@@ -42,17 +71,194 @@ public class OrderService {
         return handleSimpleOrder(orderDto);
     }
 
+    /**
+     * Envia a ordem e devolve um futuro completado quando o TWS a aceita (ACK) ou ela é executada
+     * (FILL), em vez de o chamador consultar a ponte em loop. Se o prazo expirar, o futuro traz o
+     * estado atual da ordem, que não satisfaz {@code until}. Para um bracket, espera pela ordem mestra.
+     *
+     * @param timeout prazo da espera; null usa {@code ibkr.orders.lifecycle.await-timeout-millis}.
+     */
+    public CompletableFuture<OrderStatusDTO> placeOrder(OrderDTO orderDto, OrderAwait until, Duration timeout) {
+        OrderDTO placed = placeOrder(orderDto);
+        return orderLifecycle.await(placed.orderId(), until, timeout);
+    }
+
+    // --- LOTE (/place-orders) ---
+
+    /**
+     * Envia uma cesta de ordens de uma vez. Tudo é validado antes de qualquer envio (uma ordem inválida
+     * recusa o lote inteiro), os IDs saem de um único bloco contíguo, os contratos são resolvidos em paralelo
+     * e só então os placeOrder vão para o socket em sequência, sem logs nem consultas entre eles.
+     * Um lote vazio é recusado com IllegalStateException (400 no controller).
+     *
+     * @return um resultado por ordem, na ordem recebida, com os IDs da IBKR (inclusive das filhas de bracket).
+     */
+    public List<OrderResultDTO> placeOrders(List<OrderDTO> batch) {
+        if (!connector.isConnected()) {
+            throw new IllegalStateException("Não é possível enviar ordens: Desconectado do TWS/Gateway.");
+        }
+        if (batch.isEmpty()) {
+            throw new IllegalStateException("Lote vazio: nenhuma ordem para enviar.");
+        }
+
+        // 1. Validação de todo o lote antes de consumir IDs
+        List<String> errors = new ArrayList<>(batch.size());
+        Set<String> clientOrderIds = new HashSet<>();
+        boolean valid = true;
+        for (OrderDTO dto : batch) {
+            String error = validate(dto);
+            if (error == null && !clientOrderIds.add(dto.clientOrderId())) {
+                error = "clientOrderId repetido no lote.";
+            }
+            errors.add(error);
+            valid &= error == null;
+        }
+        if (!valid) {
+            log.warn("🚫 [Ponte | ORDER-SERVICE] Lote de {} ordens recusado na validação; nada foi enviado.", batch.size());
+            List<OrderResultDTO> rejected = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                OrderDTO dto = batch.get(i);
+                rejected.add(OrderResultDTO.rejected(dto, errors.get(i) != null ? errors.get(i) : "Lote não enviado: outra ordem do lote é inválida."));
+            }
+            return rejected;
+        }
+
+        // 2. Bloco contíguo de IDs e contratos (resolvidos em paralelo, normalmente já no cache)
+        int idCount = batch.stream().mapToInt(dto -> dto.isBracketOrder() ? 3 : 1).sum();
+        int firstId = orderIdManager.reserveBlock(idCount);
+        Map<String, Contract> contracts = contractFactory.createAll(batch.stream().map(OrderDTO::symbol).toList());
+
+        // 3. Objetos IBKR montados fora do caminho de envio
+        List<PreparedOrder> prepared = new ArrayList<>(batch.size());
+        int nextId = firstId;
+        for (OrderDTO dto : batch) {
+            Contract contract = contracts.get(dto.symbol());
+            PreparedOrder order = dto.isBracketOrder() ? prepareBracket(dto, contract, nextId) : prepareSimple(dto, contract, nextId);
+            nextId += order.orderIds().length;
+            prepared.add(order);
+        }
+
+        // 4. Envio em sequência
+        EClientSocket client = connector.getClient();
+        List<OrderResultDTO> results = new ArrayList<>(prepared.size());
+        long start = System.nanoTime();
+        int failed = 0;
+        for (PreparedOrder order : prepared) {
+            try {
+                send(client, order);
+                results.add(OrderResultDTO.submitted(order.result()));
+            } catch (Exception e) {
+                failed++;
+                results.add(OrderResultDTO.failed(order.result(), e.getMessage()));
+            }
+        }
+        long elapsedMicros = (System.nanoTime() - start) / 1_000L;
+
+        log.info("🧺 [Ponte | ORDER-SERVICE] Lote de {} ordens (IDs {}..{}) enviado ao TWS em {} µs. Falhas: {}.",
+                batch.size(), firstId, nextId - 1, elapsedMicros, failed);
+        return results;
+    }
+
+    /**
+     * Validação estrutural de uma ordem (e das filhas de um bracket).
+     *
+     * @return a mensagem de erro, ou null se a ordem é válida.
+     */
+    private String validate(OrderDTO dto) {
+        if (dto == null) {
+            return "Ordem nula no lote.";
+        }
+        if (dto.symbol() == null || dto.symbol().isBlank()) {
+            return "O símbolo (symbol) é obrigatório.";
+        }
+        if (dto.type() == null) {
+            return "O tipo da ordem (type) é obrigatório.";
+        }
+        if (dto.quantity() == null || dto.quantity().signum() <= 0) {
+            return "A quantidade (quantity) deve ser positiva.";
+        }
+        if (dto.clientOrderId() == null) {
+            return "O ID da Ordem do Cliente (clientOrderId) é obrigatório.";
+        }
+        if (PRICED_TYPES.contains(dto.type()) && !isPositive(dto.price())) {
+            return "Ordem limitada sem preço (price).";
+        }
+        if (dto.isBracketOrder()) {
+            if (dto.childOrders().size() != 2
+                    || dto.childOrders().stream().anyMatch(Objects::isNull)
+                    || dto.childOrders().stream().noneMatch(OrderDTO::isStopLoss)
+                    || dto.childOrders().stream().noneMatch(OrderDTO::isTakeProfit)) {
+                return "Ordem Composta inválida. Esperado 2 ordens filhas (SL e TP).";
+            }
+            return validateBracketPrices(dto);
+        }
+        return null;
+    }
+
+    /**
+     * Os preços das filhas precisam ser positivos e, com preço de entrada, ficar do lado certo dele:
+     * numa compra o SL fica abaixo e o TP acima; numa venda, o contrário.
+     */
+    private String validateBracketPrices(OrderDTO master) {
+        BigDecimal stopLoss = master.childOrders().stream().filter(OrderDTO::isStopLoss).findFirst().orElseThrow().stopLossPrice();
+        BigDecimal takeProfit = master.childOrders().stream().filter(OrderDTO::isTakeProfit).findFirst().orElseThrow().takeProfitPrice();
+        if (!isPositive(stopLoss)) {
+            return "Stop loss sem preço (stopLossPrice) positivo.";
+        }
+        if (!isPositive(takeProfit)) {
+            return "Take profit sem preço (takeProfitPrice) positivo.";
+        }
+        BigDecimal entry = master.price();
+        if (!isPositive(entry)) {
+            return null;
+        }
+        PositionSide side = master.type().getSide();
+        if (side == PositionSide.BUY && (stopLoss.compareTo(entry) >= 0 || takeProfit.compareTo(entry) <= 0)) {
+            return "Bracket de compra exige stopLossPrice abaixo e takeProfitPrice acima do preço de entrada.";
+        }
+        if (side == PositionSide.SELL && (stopLoss.compareTo(entry) <= 0 || takeProfit.compareTo(entry) >= 0)) {
+            return "Bracket de venda exige stopLossPrice acima e takeProfitPrice abaixo do preço de entrada.";
+        }
+        return null;
+    }
+
+    private static boolean isPositive(BigDecimal value) {
+        return value != null && value.signum() > 0;
+    }
+
     // --- LÓGICA ATÔMICA BRACKET ORDER (Fase 9) ---
 
     private OrderDTO handleBracketOrder(OrderDTO masterOrderDto) {
 
-        // 1. Validação (Apenas da estrutura)
-        if (masterOrderDto.childOrders().size() != 2) {
-            log.error("❌ [Ponte | VAL-BRACKET] A Ordem Bracket para {} não contém as 2 ordens de proteção (SL/TP).", masterOrderDto.symbol());
-            throw new IllegalStateException("Ordem Composta inválida. Esperado 2 ordens filhas, recebido: " + masterOrderDto.childOrders().size());
+        // 1. Validação já feita em placeOrder (validate: SL + TP, preços positivos e do lado certo da entrada)
+
+        // 2-4. Contrato, bloco de 3 IDs e objetos IBKR (Parent/Child e OCO)
+        Contract contract = contractFactory.create(masterOrderDto.symbol());
+        PreparedOrder bracket = prepareBracket(masterOrderDto, contract, orderIdManager.reserveBlock(3));
+
+        // 5. ENVIO ATÔMICO
+        try {
+            send(connector.getClient(), bracket);
+
+            log.info("✅ [Ponte | EXEC-BRACKET] Ordem Bracket atômica enviada para {}. Mestra ID: {}. Retornando DTO com IDs.", masterOrderDto.symbol(), bracket.orderIds()[0]);
+
+            // Retorna o DTO final, imutável e completo.
+            return bracket.result();
+
+        } catch (Exception e) {
+            log.error("❌ [Ponte | API-IBKR] Falha CRÍTICA ao enviar Bracket Order para {}. Detalhes: {}", masterOrderDto.symbol(), e.getMessage(), e);
+            throw new RuntimeException("Erro ao enviar Bracket Order para a IBKR: " + e.getMessage(), e);
         }
+    }
+
+    /**
+     * Monta mestra + SL + TP com os IDs {@code masterOrderId}, +1 e +2. Só a última perna transmite,
+     * então a IBKR recebe o bracket inteiro ou nada.
+     */
+    private PreparedOrder prepareBracket(OrderDTO masterOrderDto, Contract contract, int masterOrderId) {
+        long start = System.nanoTime();
 
-        // 2. Separação dos DTOs
+        // Separação dos DTOs
         OrderDTO slDto = masterOrderDto.childOrders().stream()
                 .filter(OrderDTO::isStopLoss).findFirst()
                 .orElseThrow(() -> new IllegalStateException("SL Order faltando."));
@@ -61,20 +267,16 @@ public class OrderService {
                 .filter(OrderDTO::isTakeProfit).findFirst()
                 .orElseThrow(() -> new IllegalStateException("TP Order faltando."));
 
-        // 3. Geração de IDs e Criação dos objetos IBKR
-        Contract contract = contractFactory.create(masterOrderDto.symbol());
-
-        int masterOrderId = orderIdManager.getNextOrderId();
+        // Criação dos objetos IBKR
         Order parentOrder = orderFactory.create(masterOrderDto, String.valueOf(masterOrderId));
 
-        int slOrderId = orderIdManager.getNextOrderId();
+        int slOrderId = masterOrderId + 1;
         Order slOrder = orderFactory.create(slDto, String.valueOf(slOrderId));
 
-        int tpOrderId = orderIdManager.getNextOrderId();
+        int tpOrderId = masterOrderId + 2;
         Order tpOrder = orderFactory.create(tpDto, String.valueOf(tpOrderId));
 
-        // 4. Configuração Parent/Child e OCO (IBKR)
-        parentOrder.transmit(false);
+        // Configuração Parent/Child e OCO (IBKR)
         slOrder.parentId(masterOrderId);
         tpOrder.parentId(masterOrderId);
 
@@ -85,38 +287,18 @@ public class OrderService {
         slOrder.ocaType(Types.OcaType.CancelWithBlocking);
         tpOrder.ocaType(Types.OcaType.CancelWithBlocking);
 
-        // 5. ENVIO ATÔMICO
-        try {
-            parentOrder.transmit(false);
-            slOrder.transmit(false);
-            tpOrder.transmit(true);
-
-            connector.getClient().placeOrder(masterOrderId, contract, parentOrder);
-            connector.getClient().placeOrder(slOrderId, contract, slOrder);
-            connector.getClient().placeOrder(tpOrderId, contract, tpOrder);
-
-            // 💡 AJUSTE CRÍTICO (SINERGIA/IMUTABILIDADE): Cria NOVOS DTOs com os IDs preenchidos.
-
-            // 6. Atualiza as filhas com o ID da IBKR
-            OrderDTO updatedSlDto = slDto.withOrderId(slOrderId);
-            OrderDTO updatedTpDto = tpDto.withOrderId(tpOrderId);
-            List<OrderDTO> updatedChildOrders = List.of(updatedSlDto, updatedTpDto);
-
-            // 7. Cria o DTO Mestra final com o ID da Mestra e a nova lista de filhos.
-            // (Isto requer o uso do construtor ou helper 'withOrderId' e um helper para 'withChildOrders' no Record)
-            OrderDTO finalResultDto = masterOrderDto
-                    .withOrderId(masterOrderId) // Atualiza o ID da ordem mestra
-                    .withChildOrders(updatedChildOrders); // Assume o helper para atualizar a lista de filhos
+        parentOrder.transmit(false);
+        slOrder.transmit(false);
+        tpOrder.transmit(true);
 
-            log.info("✅ [Ponte | EXEC-BRACKET] Ordem Bracket atômica enviada para {}. Mestra ID: {}. Retornando DTO com IDs.", masterOrderDto.symbol(), masterOrderId);
+        // 💡 AJUSTE CRÍTICO (SINERGIA/IMUTABILIDADE): DTO mestra e filhas com os IDs da IBKR preenchidos.
+        OrderDTO result = masterOrderDto
+                .withOrderId(masterOrderId)
+                .withChildOrders(List.of(slDto.withOrderId(slOrderId), tpDto.withOrderId(tpOrderId)));
 
-            // Retorna o DTO final, imutável e completo.
-            return finalResultDto;
-
-        } catch (Exception e) {
-            log.error("❌ [Ponte | API-IBKR] Falha CRÍTICA ao enviar Bracket Order para {}. Detalhes: {}", masterOrderDto.symbol(), e.getMessage(), e);
-            throw new RuntimeException("Erro ao enviar Bracket Order para a IBKR: " + e.getMessage(), e);
-        }
+        latencyMetrics.record(OrderLatencyStage.BUILD, masterOrderDto.type().name(), true, System.nanoTime() - start);
+        return new PreparedOrder(result, contract, new int[]{masterOrderId, slOrderId, tpOrderId},
+                new Order[]{parentOrder, slOrder, tpOrder}, new OrderDTO[]{result, result.childOrders().get(0), result.childOrders().get(1)});
     }
 
     // --- LÓGICA SIMPLES ---
@@ -127,17 +309,16 @@ public class OrderService {
 
         // 2. Criação dos objetos IBKR
         Contract contract = contractFactory.create(orderDto.symbol());
-        Order ibkrOrder = orderFactory.create(orderDto, String.valueOf(ibkrOrderId));
+        PreparedOrder order = prepareSimple(orderDto, contract, ibkrOrderId);
 
         try {
             log.info("Validação OK. Enviando ordem simples para o TWS: ID {}, Tipo {}, Ativo {}",
-                    ibkrOrderId, ibkrOrder.orderType(), contract.symbol());
+                    ibkrOrderId, order.orders()[0].orderType(), contract.symbol());
 
-            connector.getClient().placeOrder(ibkrOrderId, contract, ibkrOrder);
+            send(connector.getClient(), order);
 
-            // 💡 AJUSTE CRÍTICO (SINERGIA/IMUTABILIDADE): Cria um NOVO DTO
-            // com o ID da IBKR preenchido, mantendo a imutabilidade do Record.
-            OrderDTO resultDto = orderDto.withOrderId(ibkrOrderId);
+            // 💡 AJUSTE CRÍTICO (SINERGIA/IMUTABILIDADE): DTO com o ID da IBKR preenchido.
+            OrderDTO resultDto = order.result();
 
             log.info("✅ [Ponte | ORDER-SERVICE] Ordem {} ({}) enviada com sucesso ao TWS. Retornando DTO com ID IBKR: {}",
                     resultDto.clientOrderId(), resultDto.symbol(), resultDto.orderId());
@@ -150,4 +331,36 @@ public class OrderService {
             throw new RuntimeException("Erro ao enviar Ordem Simples para a IBKR: " + e.getMessage(), e);
         }
     }
-}
\ No newline at end of file
+
+    private PreparedOrder prepareSimple(OrderDTO orderDto, Contract contract, int ibkrOrderId) {
+        long start = System.nanoTime();
+        Order ibkrOrder = orderFactory.create(orderDto, String.valueOf(ibkrOrderId));
+        latencyMetrics.record(OrderLatencyStage.BUILD, orderDto.type().name(), false, System.nanoTime() - start);
+        OrderDTO result = orderDto.withOrderId(ibkrOrderId);
+        return new PreparedOrder(result, contract, new int[]{ibkrOrderId}, new Order[]{ibkrOrder}, new OrderDTO[]{result});
+    }
+
+    /**
+     * Registra cada perna na tabela de ordens imediatamente antes do placeOrder (o ack pode chegar
+     * antes de o método retornar) e a marca como rejeitada se o envio falhar localmente.
+     */
+    private void send(EClientSocket client, PreparedOrder order) {
+        boolean bracket = order.orderIds().length > 1;
+        for (int i = 0; i < order.orderIds().length; i++) {
+            int orderId = order.orderIds()[i];
+            OrderDTO leg = order.legs()[i];
+            orderLifecycle.track(orderId, order.orders()[i].parentId(), leg, bracket);
+            try {
+                long start = System.nanoTime();
+                client.placeOrder(orderId, order.contract(), order.orders()[i]);
+                latencyMetrics.record(OrderLatencyStage.SEND, leg.type().name(), bracket, System.nanoTime() - start);
+            } catch (RuntimeException e) {
+                orderLifecycle.fail(orderId, "Falha no envio: " + e.getMessage());
+                throw e;
+            }
+        }
+    }
+
+    // Ordem (simples ou bracket) pronta para envio: IDs, objetos IBKR e DTOs de cada perna na ordem de transmissão.
+    private record PreparedOrder(OrderDTO result, Contract contract, int[] orderIds, Order[] orders, OrderDTO[] legs) {}
+}
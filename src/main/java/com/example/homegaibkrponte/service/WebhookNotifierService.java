@@ -1,70 +1,460 @@
 package com.example.homegaibkrponte.service;
 
 import com.example.homegaibkrponte.dto.ExecutionReportDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 import reactor.util.retry.Retry;
 
+import java.nio.file.Path;
+import java.sql.SQLException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.StringJoiner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 /**
  * SRP: Serviço responsável por notificar a aplicação principal sobre eventos
  * importantes, como a execução de uma ordem, através de um webhook.
  *
- * VERSÃO CORRIGIDA:
- * 1.  **URL Ajustada:** A URL de destino agora aponta para o endpoint correto na aplicação principal.
- * 2.  **Assíncrono e Resiliente:** Mantém a lógica de retentativas para garantir a entrega da notificação.
+ * Os relatórios entram numa fila limitada; a thread "ibkr-webhook-outbox" os grava em grupo no outbox
+ * H2 ({@link WebhookOutbox}, uma transação por grupo) e os repassa à thread "ibkr-webhook-batcher", que
+ * os agrupa por tamanho ({@code batch-size}) ou janela de tempo ({@code linger-millis}) e envia cada
+ * lote por um pool de conexões keep-alive, com no máximo {@code max-in-flight} requisições em voo: por
+ * padrão um POST por relatório no endpoint de relatório único ({@code url}); com {@code batch-url}
+ * configurado (opt-in, exige o endpoint na aplicação principal), o lote vai como UM array JSON. As
+ * confirmações voltam para a thread do outbox, que as marca em lote.
+ *
+ * Uma linha só sai do outbox depois de confirmada: lotes que esgotam as retentativas e o que ficou
+ * pendente antes de um reinício são relidos do outbox (a partir da última sequência entregue) quando
+ * o batcher fica ocioso. Fila cheia: o relatório vai direto para o outbox (SPILL) ou quem chama espera (BLOCK).
  */
 @Service
 @Slf4j
 public class WebhookNotifierService {
 
+    /**
+     * O que fazer quando a fila está cheia.
+     */
+    public enum OverflowPolicy {
+        /** Grava direto no outbox, na thread de quem chama; o batcher o encontra na próxima releitura. */
+        SPILL,
+        /** Espera por espaço na fila: a pressão volta para o ring buffer do CallbackDispatcher. */
+        BLOCK
+    }
+
+    private static final long IDLE_POLL_MILLIS = 50;
+    private static final int MAX_RETRIES = 3;
+    // Teto de relatórios por transação do outbox.
+    private static final int MAX_GROUP = 1_000;
+    private static final Runnable NO_CALLBACK = () -> { };
+
+    private record PendingReport(ExecutionReportDTO report, Runnable onDelivered, long enqueuedNanos) {
+    }
+
+    /**
+     * Relatório já gravado no outbox; seq 0 = não entrou no outbox (falha do H2), entrega só em memória.
+     */
+    private record OutboxEntry(long seq, String payload, Runnable onDelivered, long enqueuedNanos) {
+    }
+
     private final WebClient webClient;
+    private final ConnectionProvider connectionProvider;
+    private final ObjectMapper objectMapper;
     private final String fullWebhookUrl;
+    private final String batchUrl;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final int maxInFlight;
+    private final OverflowPolicy overflowPolicy;
+    private final long retryPauseNanos;
+    private final BlockingQueue<PendingReport> queue;
+    private final BlockingQueue<OutboxEntry> ready;
+    private final Semaphore inFlight;
+    private final WebhookOutbox outbox;
+    private final Queue<long[]> acknowledged = new ConcurrentLinkedQueue<>();
+    private Thread writer;
+    private Thread batcher;
+    private volatile boolean running;
+    private volatile long retryAfterNanos;
+
+    private final DistributionSummary batchSizes;
+    private final DistributionSummary groupSizes;
+    private final Timer deliveryLatency;
+    private final Counter delivered;
+    private final Counter overflowed;
+    private final Counter resent;
+    private final Counter failedBatches;
 
     public WebhookNotifierService(
-            // --- CORREÇÃO CRÍTICA AQUI ---
-            // A URL padrão agora corresponde ao endpoint correto na aplicação principal.
-            @Value("${homega.app.webhook.url:http://localhost:8080/api/v1/callbacks/ibkr/execution-report}") String webhookUrl
+            // A URL padrão corresponde ao endpoint de relatório único na aplicação principal.
+            @Value("${homega.app.webhook.url:http://localhost:8080/api/v1/callbacks/ibkr/execution-report}") String webhookUrl,
+            // Vazio: um POST por relatório na URL acima. O lote como array JSON só vale se a aplicação principal expuser o endpoint.
+            @Value("${homega.app.webhook.batch-url:}") String batchUrl,
+            @Value("${homega.app.webhook.batch-size:100}") int batchSize,
+            @Value("${homega.app.webhook.linger-millis:20}") long lingerMillis,
+            @Value("${homega.app.webhook.queue-capacity:10000}") int queueCapacity,
+            @Value("${homega.app.webhook.max-in-flight:4}") int maxInFlight,
+            @Value("${homega.app.webhook.overflow:SPILL}") OverflowPolicy overflowPolicy,
+            @Value("${homega.app.webhook.outbox-file:./data/webhook/outbox}") String outboxFile,
+            @Value("${homega.app.webhook.outbox-retry-seconds:5}") long outboxRetrySeconds,
+            @Value("${homega.app.webhook.response-timeout-millis:10000}") long responseTimeoutMillis,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry
     ) {
         this.fullWebhookUrl = webhookUrl;
+        this.batchUrl = batchUrl;
+        this.batchSize = batchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.maxInFlight = maxInFlight;
+        this.overflowPolicy = overflowPolicy;
+        this.retryPauseNanos = TimeUnit.SECONDS.toNanos(outboxRetrySeconds);
+        this.objectMapper = objectMapper;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.ready = new ArrayBlockingQueue<>(queueCapacity);
+        this.inFlight = new Semaphore(maxInFlight);
+        this.outbox = new WebhookOutbox(Path.of(outboxFile));
+
+        // Pool dimensionado pelo teto de requisições em voo: as conexões ficam abertas (keep-alive) entre lotes.
+        this.connectionProvider = ConnectionProvider.builder("homega-webhook")
+                .maxConnections(maxInFlight)
+                .pendingAcquireMaxCount(maxInFlight * 4)
+                .maxIdleTime(Duration.ofSeconds(30))
+                .evictInBackground(Duration.ofSeconds(60))
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .keepAlive(true)
+                .compress(true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 2_000)
+                .responseTimeout(Duration.ofMillis(responseTimeoutMillis));
         this.webClient = WebClient.builder()
-                .baseUrl(this.fullWebhookUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .build();
-        log.info("Webhook Notifier configurado para enviar notificações para: {}", this.fullWebhookUrl);
+
+        this.batchSizes = DistributionSummary.builder("ibkr.webhook.batch.size")
+                .description("Relatórios por requisição ao webhook")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.groupSizes = DistributionSummary.builder("ibkr.webhook.outbox.group.size")
+                .description("Relatórios gravados por transação do outbox")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.deliveryLatency = Timer.builder("ibkr.webhook.delivery.latency")
+                .description("Da entrada na fila até a confirmação da aplicação principal")
+                .publishPercentiles(0.5, 0.9, 0.99)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.delivered = Counter.builder("ibkr.webhook.delivered").register(meterRegistry);
+        this.overflowed = Counter.builder("ibkr.webhook.overflowed")
+                .description("Relatórios gravados direto no outbox com a fila cheia")
+                .register(meterRegistry);
+        this.resent = Counter.builder("ibkr.webhook.outbox.resent")
+                .description("Relatórios relidos do outbox e reenviados")
+                .register(meterRegistry);
+        this.failedBatches = Counter.builder("ibkr.webhook.failed.batches")
+                .description("Lotes que esgotaram as retentativas")
+                .register(meterRegistry);
+        Gauge.builder("ibkr.webhook.queue.depth", queue, BlockingQueue::size).register(meterRegistry);
+        Gauge.builder("ibkr.webhook.outbox.pending", outbox, WebhookOutbox::pending)
+                .description("Relatórios no outbox ainda sem confirmação")
+                .register(meterRegistry);
+        Gauge.builder("ibkr.webhook.in.flight", inFlight, permits -> maxInFlight - permits.availablePermits()).register(meterRegistry);
+
+        log.info("Webhook Notifier configurado para enviar lotes de até {} relatórios para: {} (outbox em {}, {} pendente(s))",
+                batchSize, batchUrl.isBlank() ? this.fullWebhookUrl + " (um por requisição)" : batchUrl,
+                outboxFile, outbox.pending());
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::outboxLoop, "ibkr-webhook-outbox");
+        writer.setDaemon(true);
+        writer.start();
+        batcher = new Thread(this::batchLoop, "ibkr-webhook-batcher");
+        batcher.setDaemon(true);
+        batcher.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        // O batcher para de mandar lotes novos; o que ele não mandou já está no outbox.
+        join(batcher);
+        // Dá às requisições em voo a chance de confirmar, para não reenviá-las na próxima partida.
+        try {
+            if (inFlight.tryAcquire(maxInFlight, 5, TimeUnit.SECONDS)) {
+                inFlight.release(maxInFlight);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // A thread do outbox grava o resto da fila e as últimas confirmações antes de sair.
+        join(writer);
+        outbox.close();
+        connectionProvider.disposeLater().block(Duration.ofSeconds(5));
     }
 
     public void sendExecutionReport(ExecutionReportDTO report) {
-        log.warn("▶️  [WEBHOOK-OUT] Enviando notificação de execução para a aplicação principal. Ordem: {}", report.orderId());
+        sendExecutionReport(report, NO_CALLBACK);
+    }
+
+    /**
+     * Enfileira o relatório para o outbox e o próximo lote.
+     *
+     * @param onDelivered chamado quando a aplicação principal confirma o recebimento (após eventuais retentativas).
+     *                    Não é chamado para relatórios reenviados a partir do outbox (falha, transbordo ou reinício).
+     */
+    public void sendExecutionReport(ExecutionReportDTO report, Runnable onDelivered) {
+        log.debug("▶️  [WEBHOOK-OUT] Relatório de execução da ordem {} enfileirado.", report.orderId());
+        PendingReport pending = new PendingReport(report, onDelivered, System.nanoTime());
+        if (queue.offer(pending)) {
+            return;
+        }
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+            try {
+                queue.put(pending);
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        log.warn("⚠️ [WEBHOOK-OUT] Fila cheia ({} relatórios). Ordem {} vai direto para o outbox.", queue.size(), report.orderId());
+        try {
+            outbox.insert(List.of(objectMapper.writeValueAsString(report)), false);
+            overflowed.increment();
+        } catch (Exception e) {
+            // Último recurso: não há para onde mais mandar, então ao menos fica no log.
+            log.error("💥 [WEBHOOK-OUT] Falha ao gravar no outbox o relatório da ordem {}: {}. Relatório: {}",
+                    report.orderId(), e.getMessage(), report);
+        }
+    }
+
+    // --- THREAD "ibkr-webhook-outbox" (group commit) ---
+
+    private void outboxLoop() {
+        List<PendingReport> group = new ArrayList<>(MAX_GROUP);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingReport first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    // Tudo o que chegou enquanto a transação anterior rodava vai na mesma transação.
+                    group.add(first);
+                    queue.drainTo(group, MAX_GROUP - 1);
+                    persist(group);
+                    group.clear();
+                }
+                markAcknowledged();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("💥 [WEBHOOK-OUT] Falha na thread do outbox: {}", e.getMessage(), e);
+                group.clear();
+            }
+        }
+        markAcknowledged();
+    }
+
+    private void persist(List<PendingReport> group) {
+        List<String> payloads = new ArrayList<>(group.size());
+        List<PendingReport> serialized = new ArrayList<>(group.size());
+        for (PendingReport pending : group) {
+            try {
+                payloads.add(objectMapper.writeValueAsString(pending.report()));
+                serialized.add(pending);
+            } catch (JsonProcessingException e) {
+                log.error("💥 [WEBHOOK-OUT] Relatório da ordem {} não serializável, descartado: {}", pending.report().orderId(), e.getMessage());
+            }
+        }
+        long[] seqs;
+        try {
+            seqs = outbox.insert(payloads, true);
+            groupSizes.record(seqs.length);
+        } catch (SQLException e) {
+            // Sem outbox, o lote ainda é tentado (só em memória): melhor do que segurar a entrega.
+            log.error("💥 [WEBHOOK-OUT] Falha ao gravar {} relatório(s) no outbox: {}. Seguem sem durabilidade.",
+                    payloads.size(), e.getMessage());
+            seqs = new long[payloads.size()];
+        }
+        for (int i = 0; i < seqs.length; i++) {
+            PendingReport pending = serialized.get(i);
+            OutboxEntry entry = new OutboxEntry(seqs[i], payloads.get(i), pending.onDelivered(), pending.enqueuedNanos());
+            if (!ready.offer(entry)) {
+                // O batcher está atrasado: a linha fica no outbox e entra numa releitura.
+                outbox.release(new long[]{entry.seq()});
+            }
+        }
+    }
+
+    private void markAcknowledged() {
+        if (acknowledged.isEmpty()) {
+            return;
+        }
+        List<long[]> batches = new ArrayList<>();
+        long[] seqs;
+        while ((seqs = acknowledged.poll()) != null) {
+            batches.add(seqs);
+        }
+        try {
+            outbox.markDelivered(batches);
+        } catch (SQLException e) {
+            // As linhas continuam pendentes e serão reenviadas: entrega pelo menos uma vez.
+            log.error("💥 [WEBHOOK-OUT] Falha ao marcar {} lote(s) como entregues no outbox: {}", batches.size(), e.getMessage());
+        }
+    }
 
-        webClient.post()
-                .bodyValue(report)
-                .retrieve()
-                .toBodilessEntity()
-                .retryWhen(Retry.backoff(3, Duration.ofSeconds(2))
+    // --- THREAD "ibkr-webhook-batcher" ---
+
+    private void batchLoop() {
+        List<OutboxEntry> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                OutboxEntry first = ready.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    resendPending();
+                    continue;
+                }
+                batch.add(first);
+                // Junta o que chegar até o lote encher ou a janela (contada do primeiro relatório) fechar.
+                long deadline = first.enqueuedNanos() + lingerNanos;
+                while (batch.size() < batchSize) {
+                    ready.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    OutboxEntry next = ready.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                dispatch(List.copyOf(batch));
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("💥 [WEBHOOK-OUT] Falha no batcher: {}", e.getMessage(), e);
+                outbox.release(seqs(batch));
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Quando o batcher está ocioso, relê do outbox (acima da última sequência entregue) o que está pendente
+     * e não está na fila nem em voo: lotes que falharam, transbordo e o que sobrou do último reinício.
+     * Depois de uma falha espera {@code outbox-retry-seconds}, sem martelar a aplicação principal se ela ainda estiver fora.
+     */
+    private void resendPending() throws InterruptedException, SQLException {
+        if (System.nanoTime() < retryAfterNanos) {
+            return;
+        }
+        List<WebhookOutbox.Row> rows = outbox.claimPending(batchSize);
+        if (rows.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        List<OutboxEntry> batch = rows.stream()
+                .map(row -> new OutboxEntry(row.seq(), row.payload(), NO_CALLBACK, now))
+                .toList();
+        log.info("♻️ [WEBHOOK-OUT] Reenviando {} relatório(s) do outbox (seq {}..{}, {} pendente(s)).",
+                batch.size(), batch.get(0).seq(), batch.get(batch.size() - 1).seq(), outbox.pending());
+        resent.increment(batch.size());
+        dispatch(batch);
+    }
+
+    /**
+     * Envia o lote; espera por uma vaga se já houver {@code max-in-flight} requisições em voo
+     * (a fila enche nesse meio tempo e a política de transbordo entra em ação).
+     */
+    private void dispatch(List<OutboxEntry> batch) throws InterruptedException {
+        inFlight.acquire();
+        batchSizes.record(batch.size());
+        post(batch)
+                .retryWhen(Retry.backoff(MAX_RETRIES, Duration.ofSeconds(2))
                         .doBeforeRetry(retrySignal -> log.warn(
-                                "Falha ao enviar webhook para ordem {}. Tentando novamente... (Tentativa {} de 3)",
-                                report.orderId(),
-                                retrySignal.totalRetries() + 1
-                        ))
+                                "Falha ao enviar lote de {} relatório(s) ao webhook. Tentando novamente... (Tentativa {} de {})",
+                                batch.size(), retrySignal.totalRetries() + 1, MAX_RETRIES))
                         .onRetryExhaustedThrow((retryBackoffSpec, retrySignal) -> new IllegalStateException(
-                                "Retries exhausted: " + retrySignal.totalRetries() + "/" + 3,
-                                retrySignal.failure()
-                        ))
-                )
+                                "Retries exhausted: " + retrySignal.totalRetries() + "/" + MAX_RETRIES, retrySignal.failure())))
                 .subscribe(
-                        response -> log.info(
-                                "✅ [WEBHOOK-OUT] Notificação para ordem {} confirmada pela aplicação principal (Status: {}).",
-                                report.orderId(),
-                                response.getStatusCode()
-                        ),
-                        error -> log.error(
-                                "❌ Falha definitiva ao enviar notificação de webhook para a ordem {}: {}",
-                                report.orderId(),
-                                error.getMessage()
-                        )
-                );
+                        ignored -> { },
+                        error -> {
+                            inFlight.release();
+                            failedBatches.increment();
+                            retryAfterNanos = System.nanoTime() + retryPauseNanos;
+                            outbox.release(seqs(batch));
+                            log.error("❌ Falha definitiva ao enviar lote de {} relatório(s) ao webhook: {}. Ficam no outbox para reenvio.",
+                                    batch.size(), error.getMessage());
+                        },
+                        () -> {
+                            inFlight.release();
+                            acknowledged.add(seqs(batch));
+                            long now = System.nanoTime();
+                            for (OutboxEntry entry : batch) {
+                                deliveryLatency.record(now - entry.enqueuedNanos(), TimeUnit.NANOSECONDS);
+                                entry.onDelivered().run();
+                            }
+                            delivered.increment(batch.size());
+                            log.info("✅ [WEBHOOK-OUT] Lote de {} relatório(s) confirmado pela aplicação principal.", batch.size());
+                        });
+    }
+
+    /**
+     * Os relatórios já saem serializados do outbox: o corpo é montado sem passar de novo pelo Jackson.
+     */
+    private Mono<Void> post(List<OutboxEntry> batch) {
+        if (!batchUrl.isBlank()) {
+            StringJoiner body = new StringJoiner(",", "[", "]");
+            batch.forEach(entry -> body.add(entry.payload()));
+            return webClient.post().uri(batchUrl).contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(body.toString()).retrieve().toBodilessEntity().then();
+        }
+        // Sem endpoint de lote: um POST por relatório, em sequência, ainda pelo mesmo pool e dentro da mesma vaga.
+        return Flux.fromIterable(batch)
+                .concatMap(entry -> webClient.post().uri(fullWebhookUrl).contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(entry.payload()).retrieve().toBodilessEntity())
+                .then();
+    }
+
+    private static long[] seqs(List<OutboxEntry> batch) {
+        return batch.stream().mapToLong(OutboxEntry::seq).filter(seq -> seq != 0).toArray();
+    }
+
+    private static void join(Thread thread) {
+        if (thread == null) {
+            return;
+        }
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 }
@@ -0,0 +1,260 @@
+package com.example.homegaibkrponte.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Outbox do webhook numa base H2 em arquivo: cada relatório ganha uma sequência e só sai da tabela
+ * depois que a aplicação principal confirma o recebimento.
+ *
+ * Tudo é feito em lote: {@link #insert} grava um grupo inteiro de relatórios numa transação e
+ * {@link #markDelivered} marca as confirmações acumuladas numa só. A maior sequência abaixo da qual
+ * tudo foi entregue fica em WEBHOOK_OUTBOX_STATE; as linhas até ela são apagadas e, depois de um
+ * reinício, a leitura recomeça logo acima dela.
+ *
+ * Linhas na fila do batcher ou em voo ficam "reservadas" (em memória, sob o mesmo monitor das gravações),
+ * e {@link #claimPending} só devolve as que ninguém reservou: uma linha nunca está em dois lotes ao mesmo tempo.
+ *
+ * Uma única conexão JDBC, serializada pelo monitor do objeto (a thread do outbox, o batcher e, no
+ * transbordo, quem chama o WebhookNotifierService).
+ */
+@Slf4j
+final class WebhookOutbox implements AutoCloseable {
+
+    /**
+     * Linha pendente do outbox (sequência + relatório serializado).
+     */
+    record Row(long seq, String payload) {
+    }
+
+    private final Connection connection;
+    private final PreparedStatement insert;
+    private final PreparedStatement markDelivered;
+    private final PreparedStatement selectPending;
+    private final PreparedStatement minPending;
+    private final PreparedStatement deleteUpTo;
+    private final PreparedStatement saveLastDelivered;
+    private long lastSeq;
+    private long lastDeliveredSeq;
+    private long pending;
+    private final Set<Long> claimed = new HashSet<>();
+    // Releituras começam acima desta sequência (abaixo dela não há linha pendente sem reserva); MAX_VALUE = nada a reler.
+    private long rescanAfter;
+
+    WebhookOutbox(Path file) {
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            // WRITE_DELAY=0: cada commit chega ao arquivo (o grupo paga por ele uma vez só).
+            // DB_CLOSE_ON_EXIT=FALSE: quem fecha é o @PreDestroy, depois de gravar a fila que sobrou.
+            this.connection = DriverManager.getConnection(
+                    "jdbc:h2:file:" + file.toAbsolutePath() + ";WRITE_DELAY=0;DB_CLOSE_ON_EXIT=FALSE");
+            try (Statement ddl = connection.createStatement()) {
+                ddl.execute("CREATE TABLE IF NOT EXISTS WEBHOOK_OUTBOX ("
+                        + "SEQ BIGINT PRIMARY KEY, CREATED_AT TIMESTAMP NOT NULL, "
+                        + "DELIVERED_AT TIMESTAMP, PAYLOAD VARCHAR NOT NULL)");
+                ddl.execute("CREATE TABLE IF NOT EXISTS WEBHOOK_OUTBOX_STATE (ID INT PRIMARY KEY, LAST_DELIVERED_SEQ BIGINT NOT NULL)");
+                ddl.execute("INSERT INTO WEBHOOK_OUTBOX_STATE SELECT 1, 0 WHERE NOT EXISTS (SELECT 1 FROM WEBHOOK_OUTBOX_STATE)");
+                lastDeliveredSeq = queryLong(ddl, "SELECT LAST_DELIVERED_SEQ FROM WEBHOOK_OUTBOX_STATE WHERE ID = 1");
+                lastSeq = Math.max(lastDeliveredSeq, queryLong(ddl, "SELECT COALESCE(MAX(SEQ), 0) FROM WEBHOOK_OUTBOX"));
+                pending = queryLong(ddl, "SELECT COUNT(*) FROM WEBHOOK_OUTBOX WHERE DELIVERED_AT IS NULL");
+                rescanAfter = pending > 0 ? lastDeliveredSeq : Long.MAX_VALUE;
+            }
+            connection.setAutoCommit(false);
+            this.insert = connection.prepareStatement(
+                    "INSERT INTO WEBHOOK_OUTBOX (SEQ, CREATED_AT, PAYLOAD) VALUES (?, ?, ?)");
+            this.markDelivered = connection.prepareStatement(
+                    "UPDATE WEBHOOK_OUTBOX SET DELIVERED_AT = ? WHERE SEQ BETWEEN ? AND ? AND DELIVERED_AT IS NULL");
+            this.selectPending = connection.prepareStatement(
+                    "SELECT SEQ, PAYLOAD FROM WEBHOOK_OUTBOX WHERE SEQ > ? AND DELIVERED_AT IS NULL ORDER BY SEQ LIMIT ?");
+            // Percorre a chave primária em ordem e para na primeira pendente (as entregues abaixo dela já foram apagadas).
+            this.minPending = connection.prepareStatement(
+                    "SELECT SEQ FROM WEBHOOK_OUTBOX WHERE DELIVERED_AT IS NULL ORDER BY SEQ LIMIT 1");
+            this.deleteUpTo = connection.prepareStatement("DELETE FROM WEBHOOK_OUTBOX WHERE SEQ <= ?");
+            this.saveLastDelivered = connection.prepareStatement(
+                    "UPDATE WEBHOOK_OUTBOX_STATE SET LAST_DELIVERED_SEQ = ? WHERE ID = 1");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível preparar o diretório do outbox do webhook: " + file, e);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Não foi possível abrir o outbox do webhook em " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Grava o grupo numa única transação.
+     *
+     * @param claim reserva as linhas para quem grava (que as entrega direto ao batcher).
+     * @return as sequências atribuídas, na ordem dos payloads.
+     */
+    synchronized long[] insert(List<String> payloads, boolean claim) throws SQLException {
+        long[] seqs = new long[payloads.size()];
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        long seq = lastSeq;
+        try {
+            for (int i = 0; i < payloads.size(); i++) {
+                seqs[i] = ++seq;
+                insert.setLong(1, seq);
+                insert.setTimestamp(2, now);
+                insert.setString(3, payloads.get(i));
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            connection.commit();
+        } catch (SQLException e) {
+            rollback();
+            throw e;
+        }
+        lastSeq = seq;
+        pending += seqs.length;
+        if (claim) {
+            for (long assigned : seqs) {
+                claimed.add(assigned);
+            }
+        } else if (seqs.length > 0) {
+            rescanAfter = Math.min(rescanAfter, seqs[0] - 1);
+        }
+        return seqs;
+    }
+
+    /**
+     * Marca as sequências como entregues numa única transação, avança a última sequência entregue
+     * e apaga as linhas até ela. Se a transação falhar, as reservas são liberadas e as linhas voltam
+     * numa releitura (entrega pelo menos uma vez).
+     *
+     * @return quantas linhas passaram de pendentes para entregues.
+     */
+    synchronized int markDelivered(List<long[]> deliveredSeqs) throws SQLException {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        int marked = 0;
+        try {
+            // Os lotes são quase sempre sequências contíguas: um UPDATE por faixa, não por linha.
+            for (long[] seqs : deliveredSeqs) {
+                int from = 0;
+                for (int i = 1; i <= seqs.length; i++) {
+                    if (i == seqs.length || seqs[i] != seqs[i - 1] + 1) {
+                        markDelivered.setTimestamp(1, now);
+                        markDelivered.setLong(2, seqs[from]);
+                        markDelivered.setLong(3, seqs[i - 1]);
+                        markDelivered.addBatch();
+                        from = i;
+                    }
+                }
+            }
+            for (int count : markDelivered.executeBatch()) {
+                marked += Math.max(count, 0);
+            }
+            long watermark;
+            try (ResultSet rs = minPending.executeQuery()) {
+                watermark = rs.next() ? rs.getLong(1) - 1 : lastSeq;
+            }
+            if (watermark > lastDeliveredSeq) {
+                deleteUpTo.setLong(1, watermark);
+                deleteUpTo.executeUpdate();
+                saveLastDelivered.setLong(1, watermark);
+                saveLastDelivered.executeUpdate();
+            }
+            connection.commit();
+            lastDeliveredSeq = Math.max(lastDeliveredSeq, watermark);
+        } catch (SQLException e) {
+            rollback();
+            deliveredSeqs.forEach(this::release);
+            throw e;
+        }
+        for (long[] seqs : deliveredSeqs) {
+            for (long seq : seqs) {
+                claimed.remove(seq);
+            }
+        }
+        pending -= marked;
+        return marked;
+    }
+
+    /**
+     * Reserva e devolve, em ordem, até {@code max} linhas pendentes que ninguém reservou, a partir da
+     * última sequência entregue.
+     */
+    synchronized List<Row> claimPending(int max) throws SQLException {
+        List<Row> rows = new ArrayList<>(max);
+        if (pending <= claimed.size() || rescanAfter == Long.MAX_VALUE) {
+            return rows;
+        }
+        long after = Math.max(rescanAfter, lastDeliveredSeq);
+        boolean more = true;
+        while (more && rows.size() < max) {
+            selectPending.setLong(1, after);
+            selectPending.setInt(2, max);
+            int read = 0;
+            try (ResultSet rs = selectPending.executeQuery()) {
+                while (rs.next() && rows.size() < max) {
+                    read++;
+                    after = rs.getLong(1);
+                    if (claimed.add(after)) {
+                        rows.add(new Row(after, rs.getString(2)));
+                    }
+                }
+            }
+            more = read == max;
+        }
+        connection.commit();
+        // Lote cheio: pode haver mais acima do último lido; senão a tabela foi percorrida até o fim.
+        rescanAfter = rows.size() == max ? after : Long.MAX_VALUE;
+        return rows;
+    }
+
+    /**
+     * Libera a reserva das sequências (lote que falhou ou que não coube na fila do batcher).
+     */
+    synchronized void release(long[] seqs) {
+        for (long seq : seqs) {
+            if (claimed.remove(seq)) {
+                rescanAfter = Math.min(rescanAfter, seq - 1);
+            }
+        }
+    }
+
+    synchronized long pending() {
+        return pending;
+    }
+
+    synchronized long lastDeliveredSeq() {
+        return lastDeliveredSeq;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.warn("⚠️ [WEBHOOK-OUT] Falha ao fechar o outbox: {}", e.getMessage());
+        }
+    }
+
+    private void rollback() {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            log.warn("⚠️ [WEBHOOK-OUT] Falha no rollback do outbox: {}", e.getMessage());
+        }
+    }
+
+    private static long queryLong(Statement statement, String sql) throws SQLException {
+        try (ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.homegaibkrponte.stream;
+
+import com.example.homegaibkrponte.data.history.HistoricalBarSize;
+import com.example.homegaibkrponte.data.quote.Quote;
+import com.example.homegaibkrponte.data.quote.QuoteStore;
+import com.example.homegaibkrponte.dto.StreamSubscriberStatsDTO;
+import com.example.homegaibkrponte.model.BarCompletedEvent;
+import com.example.homegaibkrponte.service.MarketDataLineManager;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fan-out de dados de mercado para os streams SSE. Há UMA fonte compartilhada por símbolo, não por cliente:
+ * a thread "ibkr-stream" varre as versões do QuoteStore dos símbolos assistidos e monta cada cotação
+ * alterada uma única vez; barras fechadas chegam pelo BarCompletedEvent. Cada StreamSubscriber conflaciona
+ * por chave, então um cliente lento só recebe o valor mais recente e nunca acumula fila.
+ */
+@Component
+@Slf4j
+public class MarketDataStreamHub {
+
+    private final QuoteStore quoteStore;
+    private final MarketDataLineManager lineManager;
+    private final MeterRegistry meterRegistry;
+    private final long quoteIntervalMillis;
+
+    private final Map<String, StreamSubscriber> subscribers = new ConcurrentHashMap<>();
+    private final Map<StreamSubscriber, List<Meter>> subscriberMeters = new ConcurrentHashMap<>();
+    private final Map<String, QuoteInterest> quoteInterest = new ConcurrentHashMap<>();
+    private final Map<String, Set<StreamSubscriber>> barInterest = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService executor;
+
+    public MarketDataStreamHub(QuoteStore quoteStore,
+                               MarketDataLineManager lineManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${ibkr.stream.quote-interval-millis:50}") long quoteIntervalMillis) {
+        this.quoteStore = quoteStore;
+        this.lineManager = lineManager;
+        this.meterRegistry = meterRegistry;
+        this.quoteIntervalMillis = quoteIntervalMillis;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ibkr-stream");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("ibkr.stream.subscribers", subscribers, Map::size)
+                .description("Clientes conectados aos streams de dados de mercado")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        executor.scheduleWithFixedDelay(this::scanQuotes, quoteIntervalMillis, quoteIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Abre um stream para o cliente. Eventos SSE: "quote" (QuoteDTO) e "bar" (BarCompletedEvent).
+     * A escrita na resposta roda em boundedElastic com prefetch 1, para que um cliente lento
+     * não segure a thread de fan-out e a conflação aconteça antes da rede.
+     */
+    public Flux<ServerSentEvent<Object>> open(Set<String> symbols, boolean quotes, Set<HistoricalBarSize> timeframes) {
+        StreamSubscriber subscriber = new StreamSubscriber(UUID.randomUUID().toString().substring(0, 8), symbols, quotes, timeframes);
+        return Flux.<ServerSentEvent<Object>>create(sink -> {
+                    register(subscriber);
+                    subscriber.attach(sink);
+                    sink.onDispose(() -> unregister(subscriber));
+                })
+                .publishOn(Schedulers.boundedElastic(), 1);
+    }
+
+    public List<StreamSubscriberStatsDTO> getSubscriberStats() {
+        return subscribers.values().stream().map(StreamSubscriber::toStats).toList();
+    }
+
+    // --- FONTES COMPARTILHADAS ---
+
+    private void scanQuotes() {
+        try {
+            Quote quote = new Quote();
+            for (QuoteInterest interest : quoteInterest.values()) {
+                if (interest.subscribers.isEmpty()) {
+                    continue;
+                }
+                if (interest.slot < 0) {
+                    interest.slot = quoteStore.slotOf(interest.symbol);
+                    if (interest.slot < 0) {
+                        continue;
+                    }
+                }
+                // Símbolo com assinante conta como lido: mantém a linha longe do despejo LRU.
+                lineManager.touch(interest.slot);
+                if (quoteStore.version(interest.slot) == interest.lastVersion || !quoteStore.read(interest.slot, quote)) {
+                    continue;
+                }
+                interest.lastVersion = quote.getVersion();
+                ServerSentEvent<Object> event = ServerSentEvent.<Object>builder(QuoteStore.toDto(quote)).event("quote").build();
+                for (StreamSubscriber subscriber : interest.subscribers) {
+                    subscriber.offer(interest.key, event, true);
+                }
+            }
+        } catch (Exception e) {
+            log.error("💥 [STREAM] Falha na varredura de cotações: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Chega na thread do leitor TWS; o fan-out é repassado para a thread do stream.
+     */
+    @EventListener
+    public void onBarCompleted(BarCompletedEvent event) {
+        Set<StreamSubscriber> interested = barInterest.get(event.candle().symbol());
+        if (interested == null || interested.isEmpty()) {
+            return;
+        }
+        executor.execute(() -> {
+            ServerSentEvent<Object> sse = ServerSentEvent.<Object>builder(event).event("bar").build();
+            String key = "B:" + event.candle().symbol() + ":" + event.timeframe();
+            for (StreamSubscriber subscriber : interested) {
+                if (subscriber.getTimeframes().contains(event.timeframe())) {
+                    subscriber.offer(key, sse, false);
+                }
+            }
+        });
+    }
+
+    // --- REGISTRO DE ASSINANTES ---
+
+    private void register(StreamSubscriber subscriber) {
+        subscribers.put(subscriber.getId(), subscriber);
+        for (String symbol : subscriber.getSymbols()) {
+            if (subscriber.isQuotes()) {
+                QuoteInterest interest = quoteInterest.computeIfAbsent(symbol, QuoteInterest::new);
+                interest.subscribers.add(subscriber);
+                // Entrega a última cotação conhecida de imediato, sem esperar o próximo tick.
+                quoteStore.snapshot(symbol).ifPresent(quote ->
+                        subscriber.offer(interest.key, ServerSentEvent.<Object>builder(quote).event("quote").build(), true));
+            }
+            if (!subscriber.getTimeframes().isEmpty()) {
+                barInterest.computeIfAbsent(symbol, key -> new CopyOnWriteArraySet<>()).add(subscriber);
+            }
+        }
+
+        List<Meter> meters = new ArrayList<>();
+        meters.add(FunctionCounter.builder("ibkr.stream.delivered", subscriber, s -> s.delivered.get())
+                .tag("subscriber", subscriber.getId()).register(meterRegistry));
+        meters.add(FunctionCounter.builder("ibkr.stream.conflated", subscriber, s -> s.conflated.get())
+                .description("Cotações substituídas por uma mais nova antes da entrega")
+                .tag("subscriber", subscriber.getId()).register(meterRegistry));
+        meters.add(FunctionCounter.builder("ibkr.stream.dropped", subscriber, s -> s.dropped.get())
+                .description("Barras fechadas perdidas por consumidor lento")
+                .tag("subscriber", subscriber.getId()).register(meterRegistry));
+        subscriberMeters.put(subscriber, meters);
+        log.info("📡 [STREAM] Assinante {} conectado: {} (cotações={}, barras={}).",
+                subscriber.getId(), subscriber.getSymbols(), subscriber.isQuotes(), subscriber.getTimeframes());
+    }
+
+    private void unregister(StreamSubscriber subscriber) {
+        subscribers.remove(subscriber.getId());
+        for (String symbol : subscriber.getSymbols()) {
+            QuoteInterest interest = quoteInterest.get(symbol);
+            if (interest != null) {
+                interest.subscribers.remove(subscriber);
+            }
+            Set<StreamSubscriber> interested = barInterest.get(symbol);
+            if (interested != null) {
+                interested.remove(subscriber);
+            }
+        }
+        List<Meter> meters = subscriberMeters.remove(subscriber);
+        if (meters != null) {
+            meters.forEach(meterRegistry::remove);
+        }
+        log.info("📴 [STREAM] Assinante {} desconectado: {}", subscriber.getId(), subscriber.toStats());
+    }
+
+    // Cotação de um símbolo assistida por um ou mais assinantes (estado da thread "ibkr-stream").
+    private static final class QuoteInterest {
+        private final String symbol;
+        private final String key;
+        private final Set<StreamSubscriber> subscribers = new CopyOnWriteArraySet<>();
+        private int slot = -1;
+        private long lastVersion = -1L;
+
+        private QuoteInterest(String symbol) {
+            this.symbol = symbol;
+            this.key = "Q:" + symbol;
+        }
+    }
+}
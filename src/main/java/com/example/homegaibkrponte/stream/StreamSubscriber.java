@@ -0,0 +1,101 @@
+package com.example.homegaibkrponte.stream;
+
+import com.example.homegaibkrponte.data.history.HistoricalBarSize;
+import com.example.homegaibkrponte.dto.StreamSubscriberStatsDTO;
+import lombok.Getter;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.FluxSink;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Um cliente conectado ao stream. Guarda no máximo UM valor pendente por chave (símbolo para cotações,
+ * símbolo+timeframe para barras): um valor novo substitui o pendente em vez de entrar numa fila.
+ * A entrega respeita a demanda do cliente (backpressure do Reactor), então a memória por assinante
+ * é limitada ao número de chaves assinadas, por mais lento que ele seja.
+ */
+final class StreamSubscriber {
+
+    @Getter
+    private final String id;
+    @Getter
+    private final Set<String> symbols;
+    @Getter
+    private final boolean quotes;
+    @Getter
+    private final Set<HistoricalBarSize> timeframes;
+    private final Instant connectedAt = Instant.now();
+
+    private final Map<String, ServerSentEvent<Object>> pending = new ConcurrentHashMap<>();
+    private final Queue<String> ready = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile FluxSink<ServerSentEvent<Object>> sink;
+
+    final AtomicLong delivered = new AtomicLong();
+    final AtomicLong conflated = new AtomicLong();
+    final AtomicLong dropped = new AtomicLong();
+
+    StreamSubscriber(String id, Set<String> symbols, boolean quotes, Set<HistoricalBarSize> timeframes) {
+        this.id = id;
+        this.symbols = symbols;
+        this.quotes = quotes;
+        this.timeframes = timeframes;
+    }
+
+    void attach(FluxSink<ServerSentEvent<Object>> sink) {
+        this.sink = sink;
+        sink.onRequest(ignored -> drain());
+    }
+
+    /**
+     * Oferece um valor; se já havia um pendente para a mesma chave, ele é descartado.
+     *
+     * @param lossy true para cotações (conflação esperada), false para barras (perda contada como drop).
+     */
+    void offer(String key, ServerSentEvent<Object> event, boolean lossy) {
+        if (pending.put(key, event) == null) {
+            ready.offer(key);
+        } else if (lossy) {
+            conflated.incrementAndGet();
+        } else {
+            dropped.incrementAndGet();
+        }
+        drain();
+    }
+
+    /**
+     * Entrega o que estiver pendente enquanto houver demanda. Só uma thread drena por vez.
+     */
+    private void drain() {
+        FluxSink<ServerSentEvent<Object>> target = sink;
+        if (target == null || wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            while (target.requestedFromDownstream() > 0 && !target.isCancelled()) {
+                String key = ready.poll();
+                if (key == null) {
+                    break;
+                }
+                ServerSentEvent<Object> event = pending.remove(key);
+                if (event != null) {
+                    target.next(event);
+                    delivered.incrementAndGet();
+                }
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    StreamSubscriberStatsDTO toStats() {
+        return new StreamSubscriberStatsDTO(id, symbols, delivered.get(), conflated.get(), dropped.get(), pending.size(), connectedAt);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.homegaibkrponte.util;
+
+/**
+ * Conjunto de longs com capacidade fixa: ao passar dela, o elemento mais antigo sai (FIFO).
+ * Tabela de endereçamento aberto (sondagem linear, remoção por deslocamento para trás) mais um anel
+ * com a ordem de inserção; nenhuma alocação depois da construção, ~24 bytes por elemento.
+ * Pensado para "já vi este ID?" sobre uma janela recente (ex: impressões digitais de execId).
+ *
+ * 0 é reservado para slot vazio e não pode ser inserido. NÃO é thread-safe.
+ */
+public final class BoundedLongSet {
+
+    private final long[] table;
+    private final long[] ring;
+    private int head;
+    private int size;
+
+    public BoundedLongSet(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacidade deve ser positiva: " + capacity);
+        }
+        int slots = 16;
+        while (slots < capacity * 2) {
+            slots <<= 1;
+        }
+        table = new long[slots];
+        ring = new long[capacity];
+    }
+
+    public boolean contains(long value) {
+        int mask = table.length - 1;
+        for (int i = mix(value) & mask; table[i] != 0; i = (i + 1) & mask) {
+            if (table[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Insere o valor, despejando o mais antigo se o conjunto estiver cheio.
+     * @return false se o valor já estava presente (nada muda).
+     */
+    public boolean add(long value) {
+        if (value == 0) {
+            throw new IllegalArgumentException("BoundedLongSet não aceita 0.");
+        }
+        int mask = table.length - 1;
+        int i = mix(value) & mask;
+        for (; table[i] != 0; i = (i + 1) & mask) {
+            if (table[i] == value) {
+                return false;
+            }
+        }
+        if (size == ring.length) {
+            remove(ring[head]);
+            size--;
+            // O deslocamento pode ter aberto um slot mais cedo no cluster do novo valor.
+            i = mix(value) & mask;
+            while (table[i] != 0) {
+                i = (i + 1) & mask;
+            }
+        }
+        table[i] = value;
+        ring[head] = value;
+        head = head + 1 == ring.length ? 0 : head + 1;
+        size++;
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return ring.length;
+    }
+
+    private void remove(long value) {
+        int mask = table.length - 1;
+        for (int i = mix(value) & mask; table[i] != 0; i = (i + 1) & mask) {
+            if (table[i] == value) {
+                shiftBack(i);
+                return;
+            }
+        }
+    }
+
+    // Puxa para trás as entradas seguintes do mesmo cluster, para que a sondagem continue achando-as.
+    private void shiftBack(int hole) {
+        int mask = table.length - 1;
+        int i = hole;
+        while (true) {
+            i = (i + 1) & mask;
+            if (table[i] == 0) {
+                break;
+            }
+            int home = mix(table[i]) & mask;
+            // A entrada só pode ocupar o buraco se o buraco estiver entre a posição ideal dela e a atual.
+            if (((i - home) & mask) >= ((i - hole) & mask)) {
+                table[hole] = table[i];
+                hole = i;
+            }
+        }
+        table[hole] = 0;
+    }
+
+    private static int mix(long value) {
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
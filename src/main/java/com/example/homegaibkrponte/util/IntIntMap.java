@@ -0,0 +1,125 @@
+package com.example.homegaibkrponte.util;
+
+/**
+ * Mapa int→int imutável com endereçamento aberto, sem boxing na leitura.
+ * Pensado para tabelas lidas a cada callback (ex: reqId→slot) e alteradas raramente:
+ * with()/without() devolvem uma cópia, que é publicada por uma referência volatile.
+ * Os valores devem ser não negativos: -1 ({@link #MISSING}) indica ausência.
+ */
+public final class IntIntMap {
+
+    public static final int MISSING = -1;
+
+    private static final IntIntMap EMPTY = new IntIntMap(new int[16], new int[16], new boolean[16], 0);
+
+    private final int[] keys;
+    private final int[] values;
+    private final boolean[] used;
+    private final int size;
+
+    private IntIntMap(int[] keys, int[] values, boolean[] used, int size) {
+        this.keys = keys;
+        this.values = values;
+        this.used = used;
+        this.size = size;
+    }
+
+    public static IntIntMap empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Valor associado à chave, ou {@link #MISSING}.
+     */
+    public int get(int key) {
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; used[i]; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return MISSING;
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != MISSING;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public IntIntMap with(int key, int value) {
+        boolean present = containsKey(key);
+        int capacity = keys.length;
+        while ((size + 1) * 2 > capacity) {
+            capacity <<= 1;
+        }
+        IntIntMap copy = new IntIntMap(new int[capacity], new int[capacity], new boolean[capacity], present ? size : size + 1);
+        copyInto(copy, key);
+        copy.insert(key, value);
+        return copy;
+    }
+
+    public IntIntMap without(int key) {
+        if (!containsKey(key)) {
+            return this;
+        }
+        int capacity = keys.length;
+        IntIntMap copy = new IntIntMap(new int[capacity], new int[capacity], new boolean[capacity], size - 1);
+        copyInto(copy, key);
+        return copy;
+    }
+
+    /**
+     * Chama o visitante para cada par (ordem indefinida).
+     */
+    public void forEach(Visitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                visitor.visit(keys[i], values[i]);
+            }
+        }
+    }
+
+    private void copyInto(IntIntMap target, int skipKey) {
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i] && keys[i] != skipKey) {
+                target.insert(keys[i], values[i]);
+            }
+        }
+    }
+
+    // Só é chamado durante a construção da cópia, antes de ela ser publicada.
+    private void insert(int key, int value) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (used[i]) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        used[i] = true;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        forEach((key, value) -> builder.append(builder.length() > 1 ? ", " : "").append(key).append('=').append(value));
+        return builder.append('}').toString();
+    }
+
+    @FunctionalInterface
+    public interface Visitor {
+        void visit(int key, int value);
+    }
+}
@@ -0,0 +1,521 @@
+package com.example.homegaibkrponte.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Mapa imutável e persistente (hash-trie CHAMP, 32 ramos por nível): {@link #plus} e {@link #minus}
+ * devolvem um mapa novo que compartilha com o anterior tudo fora do caminho alterado, então cada
+ * atualização custa O(log32 n) em tempo e alocação, e a versão antiga continua válida para quem a
+ * estiver lendo. Colisões de hash de 32 bits ficam numa lista no último nível.
+ *
+ * Os métodos de escrita de {@link Map} (put, remove, clear...) lançam UnsupportedOperationException.
+ * Chaves nulas não são aceitas.
+ */
+public final class PersistentHashMap<K, V> extends AbstractMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int HASH_BITS = 32;
+    // 7 níveis com bitmap (deslocamentos 0..30) + o nó de colisões.
+    private static final int MAX_DEPTH = 8;
+    private static final Object NOT_FOUND = new Object();
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(null, 0);
+
+    private final Node root;
+    private final int size;
+    private Set<Entry<K, V>> entrySet;
+
+    private PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    /**
+     * O próprio mapa se já for persistente (O(1)); senão uma cópia.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> copyOf(Map<? extends K, ? extends V> map) {
+        if (map instanceof PersistentHashMap<?, ?> persistent) {
+            return (PersistentHashMap<K, V>) persistent;
+        }
+        PersistentHashMap<K, V> result = empty();
+        for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            result = result.plus(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Mapa com {@code key -> value}; devolve este mesmo mapa se o valor já era esse (mesma referência).
+     */
+    public PersistentHashMap<K, V> plus(K key, V value) {
+        Objects.requireNonNull(key, "PersistentHashMap não aceita chave nula");
+        int hash = hash(key);
+        Change change = new Change();
+        Node newRoot = root == null
+                ? BitmapNode.single(key, value, hash)
+                : root.updated(key, value, hash, 0, change);
+        if (root == null) {
+            return new PersistentHashMap<>(newRoot, 1);
+        }
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentHashMap<>(newRoot, change.replaced ? size : size + 1);
+    }
+
+    /**
+     * Mapa sem {@code key}; devolve este mesmo mapa se a chave não existia.
+     */
+    public PersistentHashMap<K, V> minus(Object key) {
+        if (root == null || key == null) {
+            return this;
+        }
+        Change change = new Change();
+        Node newRoot = root.removed(key, hash(key), 0, change);
+        if (!change.modified) {
+            return this;
+        }
+        return size == 1 ? empty() : new PersistentHashMap<>(newRoot, size - 1);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (root == null || key == null) {
+            return null;
+        }
+        Object value = root.find(key, hash(key), 0);
+        return value == NOT_FOUND ? null : (V) value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return root != null && key != null && root.find(key, hash(key), 0) != NOT_FOUND;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        Set<Entry<K, V>> entries = entrySet;
+        if (entries == null) {
+            entries = new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return new EntryIterator<>(root);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+            entrySet = entries;
+        }
+        return entries;
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int mask(int hash, int shift) {
+        return (hash >>> shift) & 31;
+    }
+
+    private static int bitpos(int mask) {
+        return 1 << mask;
+    }
+
+    /**
+     * O que a operação fez (evita recalcular o tamanho).
+     */
+    private static final class Change {
+        boolean modified;
+        boolean replaced;
+    }
+
+    // --- NÓS ---
+
+    private abstract static class Node {
+
+        abstract Object find(Object key, int hash, int shift);
+
+        abstract Node updated(Object key, Object value, int hash, int shift, Change change);
+
+        abstract Node removed(Object key, int hash, int shift, Change change);
+
+        abstract int payloadArity();
+
+        abstract int nodeArity();
+
+        abstract Object keyAt(int index);
+
+        abstract Object valueAt(int index);
+
+        abstract Node nodeAt(int index);
+
+        /**
+         * Um único par e nenhum filho: o pai o recolhe para dentro de si (forma canônica).
+         */
+        final boolean isSingleEntry() {
+            return payloadArity() == 1 && nodeArity() == 0;
+        }
+    }
+
+    /**
+     * Nó CHAMP: pares chave/valor no início de {@code content}, filhos no fim (em ordem inversa).
+     */
+    private static final class BitmapNode extends Node {
+
+        private final int dataMap;
+        private final int nodeMap;
+        private final Object[] content;
+
+        BitmapNode(int dataMap, int nodeMap, Object[] content) {
+            this.dataMap = dataMap;
+            this.nodeMap = nodeMap;
+            this.content = content;
+        }
+
+        /**
+         * Nó de um só par, posicionado para o nível 0 (pode virar raiz ao subir numa remoção).
+         */
+        static BitmapNode single(Object key, Object value, int hash) {
+            return new BitmapNode(bitpos(mask(hash, 0)), 0, new Object[]{key, value});
+        }
+
+        @Override
+        Object find(Object key, int hash, int shift) {
+            int bit = bitpos(mask(hash, shift));
+            if ((dataMap & bit) != 0) {
+                int index = dataIndex(bit);
+                return key.equals(content[2 * index]) ? content[2 * index + 1] : NOT_FOUND;
+            }
+            if ((nodeMap & bit) != 0) {
+                return nodeAt(nodeIndex(bit)).find(key, hash, shift + BITS);
+            }
+            return NOT_FOUND;
+        }
+
+        @Override
+        Node updated(Object key, Object value, int hash, int shift, Change change) {
+            int bit = bitpos(mask(hash, shift));
+            if ((dataMap & bit) != 0) {
+                int index = dataIndex(bit);
+                Object currentKey = content[2 * index];
+                if (key.equals(currentKey)) {
+                    if (content[2 * index + 1] == value) {
+                        return this;
+                    }
+                    Object[] copy = content.clone();
+                    copy[2 * index + 1] = value;
+                    change.modified = true;
+                    change.replaced = true;
+                    return new BitmapNode(dataMap, nodeMap, copy);
+                }
+                Node sub = merge(currentKey, content[2 * index + 1], hash(currentKey), key, value, hash, shift + BITS);
+                change.modified = true;
+                return migrateInlineToNode(bit, sub);
+            }
+            if ((nodeMap & bit) != 0) {
+                int index = nodeIndex(bit);
+                Node child = nodeAt(index);
+                Node updatedChild = child.updated(key, value, hash, shift + BITS, change);
+                return updatedChild == child ? this : withNode(index, updatedChild);
+            }
+            change.modified = true;
+            return insertValue(bit, key, value);
+        }
+
+        @Override
+        Node removed(Object key, int hash, int shift, Change change) {
+            int bit = bitpos(mask(hash, shift));
+            if ((dataMap & bit) != 0) {
+                int index = dataIndex(bit);
+                if (!key.equals(content[2 * index])) {
+                    return this;
+                }
+                change.modified = true;
+                if (payloadArity() == 2 && nodeArity() == 0) {
+                    // Sobra um par: já no formato do nível 0, caso suba até a raiz.
+                    int other = 1 - index;
+                    return single(content[2 * other], content[2 * other + 1], hash(content[2 * other]));
+                }
+                return removeValue(bit, index);
+            }
+            if ((nodeMap & bit) != 0) {
+                int index = nodeIndex(bit);
+                Node child = nodeAt(index);
+                Node updatedChild = child.removed(key, hash, shift + BITS, change);
+                if (!change.modified) {
+                    return this;
+                }
+                if (updatedChild.isSingleEntry()) {
+                    if (payloadArity() == 0 && nodeArity() == 1) {
+                        // Este nó só existia para o filho: o par sobe mais um nível.
+                        return updatedChild;
+                    }
+                    return migrateNodeToInline(bit, index, updatedChild);
+                }
+                return withNode(index, updatedChild);
+            }
+            return this;
+        }
+
+        @Override
+        int payloadArity() {
+            return Integer.bitCount(dataMap);
+        }
+
+        @Override
+        int nodeArity() {
+            return Integer.bitCount(nodeMap);
+        }
+
+        @Override
+        Object keyAt(int index) {
+            return content[2 * index];
+        }
+
+        @Override
+        Object valueAt(int index) {
+            return content[2 * index + 1];
+        }
+
+        @Override
+        Node nodeAt(int index) {
+            return (Node) content[content.length - 1 - index];
+        }
+
+        private int dataIndex(int bit) {
+            return Integer.bitCount(dataMap & (bit - 1));
+        }
+
+        private int nodeIndex(int bit) {
+            return Integer.bitCount(nodeMap & (bit - 1));
+        }
+
+        private BitmapNode withNode(int nodeIndex, Node node) {
+            Object[] copy = content.clone();
+            copy[content.length - 1 - nodeIndex] = node;
+            return new BitmapNode(dataMap, nodeMap, copy);
+        }
+
+        private BitmapNode insertValue(int bit, Object key, Object value) {
+            int at = 2 * dataIndex(bit);
+            Object[] copy = new Object[content.length + 2];
+            System.arraycopy(content, 0, copy, 0, at);
+            copy[at] = key;
+            copy[at + 1] = value;
+            System.arraycopy(content, at, copy, at + 2, content.length - at);
+            return new BitmapNode(dataMap | bit, nodeMap, copy);
+        }
+
+        private BitmapNode removeValue(int bit, int index) {
+            int at = 2 * index;
+            Object[] copy = new Object[content.length - 2];
+            System.arraycopy(content, 0, copy, 0, at);
+            System.arraycopy(content, at + 2, copy, at, content.length - at - 2);
+            return new BitmapNode(dataMap ^ bit, nodeMap, copy);
+        }
+
+        private BitmapNode migrateInlineToNode(int bit, Node node) {
+            int dataAt = 2 * dataIndex(bit);
+            // Posição do novo filho no array já sem o par (filhos ficam no fim, em ordem inversa).
+            int nodeAt = content.length - 2 - nodeIndex(bit);
+            Object[] copy = new Object[content.length - 1];
+            System.arraycopy(content, 0, copy, 0, dataAt);
+            System.arraycopy(content, dataAt + 2, copy, dataAt, nodeAt - dataAt);
+            copy[nodeAt] = node;
+            System.arraycopy(content, nodeAt + 2, copy, nodeAt + 1, content.length - nodeAt - 2);
+            return new BitmapNode(dataMap ^ bit, nodeMap | bit, copy);
+        }
+
+        private BitmapNode migrateNodeToInline(int bit, int nodeIndex, Node node) {
+            int oldNodeAt = content.length - 1 - nodeIndex;
+            int dataAt = 2 * dataIndex(bit);
+            Object[] copy = new Object[content.length + 1];
+            System.arraycopy(content, 0, copy, 0, dataAt);
+            copy[dataAt] = node.keyAt(0);
+            copy[dataAt + 1] = node.valueAt(0);
+            System.arraycopy(content, dataAt, copy, dataAt + 2, oldNodeAt - dataAt);
+            System.arraycopy(content, oldNodeAt + 1, copy, oldNodeAt + 2, content.length - oldNodeAt - 1);
+            return new BitmapNode(dataMap | bit, nodeMap ^ bit, copy);
+        }
+
+        private static Node merge(Object key0, Object value0, int hash0, Object key1, Object value1, int hash1, int shift) {
+            if (shift >= HASH_BITS) {
+                return new CollisionNode(hash0, new Object[]{key0, value0, key1, value1});
+            }
+            int mask0 = mask(hash0, shift);
+            int mask1 = mask(hash1, shift);
+            if (mask0 != mask1) {
+                int dataMap = bitpos(mask0) | bitpos(mask1);
+                return mask0 < mask1
+                        ? new BitmapNode(dataMap, 0, new Object[]{key0, value0, key1, value1})
+                        : new BitmapNode(dataMap, 0, new Object[]{key1, value1, key0, value0});
+            }
+            Node sub = merge(key0, value0, hash0, key1, value1, hash1, shift + BITS);
+            return new BitmapNode(0, bitpos(mask0), new Object[]{sub});
+        }
+    }
+
+    /**
+     * Chaves com o mesmo hash de 32 bits: lista linear de pares.
+     */
+    private static final class CollisionNode extends Node {
+
+        private final int hash;
+        private final Object[] content;
+
+        CollisionNode(int hash, Object[] content) {
+            this.hash = hash;
+            this.content = content;
+        }
+
+        @Override
+        Object find(Object key, int hash, int shift) {
+            int index = indexOf(key);
+            return index < 0 ? NOT_FOUND : content[index + 1];
+        }
+
+        @Override
+        Node updated(Object key, Object value, int hash, int shift, Change change) {
+            int index = indexOf(key);
+            if (index >= 0) {
+                if (content[index + 1] == value) {
+                    return this;
+                }
+                Object[] copy = content.clone();
+                copy[index + 1] = value;
+                change.modified = true;
+                change.replaced = true;
+                return new CollisionNode(this.hash, copy);
+            }
+            Object[] copy = new Object[content.length + 2];
+            System.arraycopy(content, 0, copy, 0, content.length);
+            copy[content.length] = key;
+            copy[content.length + 1] = value;
+            change.modified = true;
+            return new CollisionNode(this.hash, copy);
+        }
+
+        @Override
+        Node removed(Object key, int hash, int shift, Change change) {
+            int index = indexOf(key);
+            if (index < 0) {
+                return this;
+            }
+            change.modified = true;
+            if (content.length == 4) {
+                int other = index == 0 ? 2 : 0;
+                return BitmapNode.single(content[other], content[other + 1], this.hash);
+            }
+            Object[] copy = new Object[content.length - 2];
+            System.arraycopy(content, 0, copy, 0, index);
+            System.arraycopy(content, index + 2, copy, index, content.length - index - 2);
+            return new CollisionNode(this.hash, copy);
+        }
+
+        @Override
+        int payloadArity() {
+            return content.length / 2;
+        }
+
+        @Override
+        int nodeArity() {
+            return 0;
+        }
+
+        @Override
+        Object keyAt(int index) {
+            return content[2 * index];
+        }
+
+        @Override
+        Object valueAt(int index) {
+            return content[2 * index + 1];
+        }
+
+        @Override
+        Node nodeAt(int index) {
+            throw new IndexOutOfBoundsException(index);
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < content.length; i += 2) {
+                if (key.equals(content[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Percorre a trie em profundidade: os pares de cada nó, depois os filhos.
+     */
+    private static final class EntryIterator<K, V> implements Iterator<Entry<K, V>> {
+
+        private final Node[] nodes = new Node[MAX_DEPTH];
+        private final int[] nextChild = new int[MAX_DEPTH];
+        private int depth = -1;
+        private Node payloadNode;
+        private int nextPayload;
+
+        EntryIterator(Node root) {
+            if (root != null) {
+                depth = 0;
+                nodes[0] = root;
+                payloadNode = root;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (payloadNode != null && nextPayload >= payloadNode.payloadArity()) {
+                payloadNode = null;
+                while (depth >= 0) {
+                    Node node = nodes[depth];
+                    if (nextChild[depth] < node.nodeArity()) {
+                        Node child = node.nodeAt(nextChild[depth]++);
+                        depth++;
+                        nodes[depth] = child;
+                        nextChild[depth] = 0;
+                        payloadNode = child;
+                        nextPayload = 0;
+                        break;
+                    }
+                    nodes[depth--] = null;
+                }
+            }
+            return payloadNode != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int index = nextPayload++;
+            return new SimpleImmutableEntry<>((K) payloadNode.keyAt(index), (V) payloadNode.valueAt(index));
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.homegaibkrponte.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Espaços de ID da sessão TWS. A IBKR usa o mesmo número para ordens e pedidos de dados (o id do
+ * error() pode ser qualquer um dos dois), então as faixas são disjuntas:
+ *
+ * - ordens: [1, DATA_BASE), emitidas pelo OrderIdManager a partir do nextValidId;
+ * - dados (histórico, cotações, P&L, contratos...): [DATA_BASE, Integer.MAX_VALUE], emitidos aqui.
+ *
+ * Assim um erro de ordem nunca é confundido com o de uma assinatura de dados, e vice-versa.
+ */
+public final class RequestIds {
+
+    public static final int DATA_BASE = 1 << 30;
+
+    private final AtomicInteger next;
+
+    public RequestIds() {
+        this(DATA_BASE);
+    }
+
+    RequestIds(int first) {
+        this.next = new AtomicInteger(first);
+    }
+
+    /**
+     * Próximo reqId de dados; ao chegar em Integer.MAX_VALUE volta para DATA_BASE (nunca entra na faixa de ordens).
+     */
+    public int next() {
+        return next.getAndUpdate(id -> id == Integer.MAX_VALUE ? DATA_BASE : id + 1);
+    }
+
+    public static boolean isDataRequest(int id) {
+        return id >= DATA_BASE;
+    }
+
+    public static boolean isOrderId(int id) {
+        return id > 0 && id < DATA_BASE;
+    }
+}
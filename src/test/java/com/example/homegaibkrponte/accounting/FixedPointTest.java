@@ -0,0 +1,46 @@
+package com.example.homegaibkrponte.accounting;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FixedPointTest {
+
+    @Test
+    void toScaledRoundsHalfUp() {
+        assertEquals(1_812_500, FixedPoint.toScaled(new BigDecimal("181.24995"), 4));
+        assertEquals(-1_812_500, FixedPoint.toScaled(new BigDecimal("-181.24995"), 4));
+    }
+
+    @Test
+    void toScaledExactAcceptsValuesUpToTheScale() {
+        assertEquals(1_812_500, FixedPoint.toScaledExact(new BigDecimal("181.25"), 4));
+        assertEquals(1_250, FixedPoint.toScaledExact(new BigDecimal("0.12500000"), 4), "zeros à direita não contam");
+        assertEquals(5_000_000, FixedPoint.toScaledExact(new BigDecimal("5E+2"), 4));
+    }
+
+    @Test
+    void toScaledExactRejectsExtraDecimalsAndOverflow() {
+        ArithmeticException extra = assertThrows(ArithmeticException.class,
+                () -> FixedPoint.toScaledExact(new BigDecimal("0.00001"), 4));
+        assertEquals("0.00001 tem mais de 4 casas decimais", extra.getMessage());
+        assertThrows(ArithmeticException.class, () -> FixedPoint.toScaledExact(new BigDecimal("1E+20"), 4));
+    }
+
+    @Test
+    void divideHalfUpMatchesBigDecimal() {
+        long[] values = {7, -7, 5, -5, 15, -15, Long.MAX_VALUE, Long.MIN_VALUE + 1};
+        long[] divisors = {2, -2, 3, -3, 10, -10, 7};
+        for (long value : values) {
+            for (long divisor : divisors) {
+                long expected = BigDecimal.valueOf(value)
+                        .divide(BigDecimal.valueOf(divisor), 0, RoundingMode.HALF_UP).longValueExact();
+                assertEquals(expected, FixedPoint.divideHalfUp(value, divisor), value + " / " + divisor);
+            }
+        }
+    }
+}
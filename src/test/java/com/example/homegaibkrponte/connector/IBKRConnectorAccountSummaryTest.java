@@ -0,0 +1,47 @@
+package com.example.homegaibkrponte.connector;
+
+import com.example.homegaibkrponte.simulator.ConnectedBridge;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * O poder de compra tem uma só fonte: o reqAccountSummary aberto no nextValidId. Sem reqAccountUpdates,
+ * ele basta para a primeira sincronização do portfólio.
+ */
+class IBKRConnectorAccountSummaryTest {
+
+    @TempDir
+    Path directory;
+
+    private ConnectedBridge bridge;
+
+    @BeforeEach
+    void connect() {
+        bridge = ConnectedBridge.connect(directory, ConnectedBridge.Settings.defaults().toBuilder()
+                .accountSummaryTags("NetLiquidation,BuyingPower")
+                .build());
+    }
+
+    @AfterEach
+    void disconnect() {
+        bridge.close();
+    }
+
+    @Test
+    void accountSummaryAloneSyncsTheBuyingPower() throws InterruptedException {
+        assertTrue(bridge.portfolio().awaitInitialSync(5_000), "o resumo da conta não sincronizou o saldo");
+
+        // FakeTwsSettings.defaults(): caixa de 1.000.000, BuyingPower = 4x o caixa.
+        BigDecimal expected = new BigDecimal("4000000");
+        assertEquals(0, expected.compareTo(bridge.connector().getBuyingPowerCache()));
+        assertEquals(0, expected.compareTo(bridge.portfolio().getCurrentBuyingPower()));
+    }
+}
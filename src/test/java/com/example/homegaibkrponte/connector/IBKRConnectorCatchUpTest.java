@@ -0,0 +1,53 @@
+package com.example.homegaibkrponte.connector;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * O reqExecutions só devolve as execuções do dia do TWS: a cobertura do catch-up é decidida no fuso
+ * do TWS, qualquer que seja o fuso da JVM.
+ */
+class IBKRConnectorCatchUpTest {
+
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+
+    private TimeZone hostZone;
+
+    @BeforeEach
+    void moveTheHostToTokyo() {
+        hostZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone("Asia/Tokyo"));
+    }
+
+    @AfterEach
+    void restoreTheHostZone() {
+        TimeZone.setDefault(hostZone);
+    }
+
+    @Test
+    void sameTwsDayIsCoveredEvenAfterMidnightOnTheHost() {
+        // 20:00 em Nova York (00:00 UTC, 09:00 em Tóquio); a última execução foi às 10:00 de Nova York.
+        Instant now = Instant.parse("2026-03-11T00:00:00Z");
+        Instant from = Instant.parse("2026-03-10T14:00:00Z");
+
+        assertTrue(IBKRConnector.coversExecutionGap(from, now, NEW_YORK));
+    }
+
+    @Test
+    void previousTwsDayIsNotCoveredEvenIfItIsTodayOnTheHost() {
+        // 02:00 em Nova York (06:00 UTC, 15:00 em Tóquio); a última execução foi às 23:30 da véspera em Nova York,
+        // já no mesmo dia de Tóquio.
+        Instant now = Instant.parse("2026-03-11T06:00:00Z");
+        Instant from = Instant.parse("2026-03-11T03:30:00Z");
+
+        assertFalse(IBKRConnector.coversExecutionGap(from, now, NEW_YORK));
+    }
+}
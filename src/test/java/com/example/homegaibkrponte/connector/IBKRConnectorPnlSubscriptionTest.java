@@ -0,0 +1,56 @@
+package com.example.homegaibkrponte.connector;
+
+import com.example.homegaibkrponte.simulator.ConnectedBridge;
+import com.example.homegaibkrponte.util.IntIntMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * O LivePnlService chama subscribeAccountPnl/subscribePositionPnl a cada segundo: com a assinatura já
+ * ativa, nenhum reqId de dados pode ser consumido.
+ */
+class IBKRConnectorPnlSubscriptionTest {
+
+    @TempDir
+    Path directory;
+
+    private ConnectedBridge bridge;
+    private IBKRConnector connector;
+
+    @BeforeEach
+    void connect() {
+        bridge = ConnectedBridge.connect(directory, ConnectedBridge.Settings.defaults());
+        connector = bridge.connector();
+    }
+
+    @AfterEach
+    void disconnect() {
+        bridge.close();
+    }
+
+    @Test
+    void repeatedSubscriptionsAllocateOneReqIdEach() {
+        assertTrue(connector.isConnected());
+        // O spy só vê as chamadas deste teste; os pedidos da conexão seguem pelo conector original.
+        IBKRConnector subscriber = spy(connector);
+
+        for (int second = 0; second < 5; second++) {
+            subscriber.subscribeAccountPnl();
+            subscriber.subscribePositionPnl("NVDA", 4815747);
+        }
+
+        verify(subscriber, times(2)).getNextReqId();
+        assertNotEquals(IntIntMap.MISSING, bridge.pnlEngine().getAccountRequest());
+        assertTrue(bridge.pnlEngine().isPositionBound("NVDA"));
+    }
+}
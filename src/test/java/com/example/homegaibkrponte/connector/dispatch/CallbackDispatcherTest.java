@@ -0,0 +1,82 @@
+package com.example.homegaibkrponte.connector.dispatch;
+
+import com.ib.client.Contract;
+import com.ib.client.Decimal;
+import com.ib.client.Execution;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CallbackDispatcherTest {
+
+    // Cópia do que o consumidor viu no slot (o slot em si é reutilizado).
+    private record Seen(CallbackEventType type, int orderId, String symbol, String execId, double price,
+                        String status, int errorCode) {}
+
+    private final List<Seen> seen = new CopyOnWriteArrayList<>();
+    private CallbackDispatcher dispatcher;
+
+    @AfterEach
+    void stop() {
+        if (dispatcher != null) {
+            dispatcher.stop();
+        }
+    }
+
+    @Test
+    void reusedSlotDoesNotLeakFieldsOfThePreviousEvent() throws InterruptedException {
+        CallbackEventHandler handler = new CallbackEventHandler() {
+            @Override
+            public String name() {
+                return "test";
+            }
+
+            @Override
+            public void onEvent(CallbackEvent event) {
+                seen.add(new Seen(event.getType(), event.getOrderId(), event.getSymbol(), event.getExecId(),
+                        event.getPrice(), event.getStatus(), event.getErrorCode()));
+            }
+        };
+        // Ring de 2 slots: o terceiro evento cai no slot da execução.
+        dispatcher = new CallbackDispatcher(List.of(handler), new SimpleMeterRegistry(), 2);
+        dispatcher.start();
+
+        Contract contract = new Contract();
+        contract.symbol("NVDA");
+        Execution execution = new Execution();
+        execution.orderId(7);
+        execution.execId("0001.01");
+        execution.price(181.25);
+        execution.shares(Decimal.get(100));
+        dispatcher.publishExecution(contract, execution);
+        dispatcher.publishOrderStatus(7, "Filled", Decimal.get(100), Decimal.ZERO, 181.25, 1L, 0, 181.25);
+        dispatcher.publishOrderError(8, 201, "Order rejected");
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (seen.size() < 3 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(3, seen.size());
+
+        Seen error = seen.get(2);
+        assertEquals(CallbackEventType.ORDER_ERROR, error.type());
+        assertEquals(8, error.orderId());
+        assertEquals(201, error.errorCode());
+        assertNull(error.symbol());
+        assertNull(error.execId());
+        assertNull(error.status());
+        assertEquals(0.0, error.price());
+
+        Seen status = seen.get(1);
+        assertNull(status.symbol());
+        assertNull(status.execId());
+        assertEquals(0, status.errorCode());
+    }
+}
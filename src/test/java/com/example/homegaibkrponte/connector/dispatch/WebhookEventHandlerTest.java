@@ -0,0 +1,49 @@
+package com.example.homegaibkrponte.connector.dispatch;
+
+import com.example.homegaibkrponte.dto.ExecutionReportDTO;
+import com.example.homegaibkrponte.monitoring.OrderLatencyMetrics;
+import com.example.homegaibkrponte.order.OrderLifecycleEngine;
+import com.example.homegaibkrponte.service.WebhookNotifierService;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.ib.client.Contract;
+import com.ib.client.Decimal;
+import com.ib.client.Execution;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class WebhookEventHandlerTest {
+
+    @Test
+    void reportCarriesTheExecIdAsIdempotencyKey() throws Exception {
+        WebhookNotifierService notifier = mock(WebhookNotifierService.class);
+        OrderLatencyMetrics metrics = new OrderLatencyMetrics(new SimpleMeterRegistry());
+        WebhookEventHandler handler = new WebhookEventHandler(notifier, new OrderLifecycleEngine(16, 1_000, metrics), metrics);
+
+        Contract contract = new Contract();
+        contract.symbol("NVDA");
+        Execution execution = new Execution();
+        execution.orderId(7);
+        execution.execId("0000e0d5.6716a2c1.01.01");
+        execution.side("BOT");
+        execution.price(181.25);
+        execution.shares(Decimal.get(100));
+        CallbackEvent event = new CallbackEvent();
+        event.setExecution(contract, execution, System.nanoTime());
+
+        handler.onEvent(event);
+
+        ArgumentCaptor<ExecutionReportDTO> report = ArgumentCaptor.forClass(ExecutionReportDTO.class);
+        verify(notifier).sendExecutionReport(report.capture(), any(Runnable.class));
+        assertEquals("0000e0d5.6716a2c1.01.01", report.getValue().execId());
+        assertEquals(7, report.getValue().orderId());
+        String json = JsonMapper.builder().build().writeValueAsString(report.getValue());
+        assertTrue(json.contains("\"execId\":\"0000e0d5.6716a2c1.01.01\""), json);
+    }
+}
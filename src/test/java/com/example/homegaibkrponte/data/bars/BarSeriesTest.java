@@ -0,0 +1,58 @@
+package com.example.homegaibkrponte.data.bars;
+
+import com.example.homegaibkrponte.data.history.HistoricalBarSize;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BarSeriesTest {
+
+    private static final int FIVE = BarAggregator.REALTIME_BAR_SECONDS;
+
+    @Test
+    void sessionOpenInTheMiddleOfTheHourIsEmittedAsPartial() {
+        BarSeries hour = new BarSeries(HistoricalBarSize.ONE_HOUR, 10);
+        // Pregão com RTH: a primeira barra de 5s é das 09:30, meia hora depois do início do balde das 09:00.
+        long open = epoch(LocalDateTime.of(2025, 6, 2, 9, 30));
+        long end = epoch(LocalDateTime.of(2025, 6, 2, 10, 0));
+
+        boolean completed = false;
+        for (long t = open; t < end; t += FIVE) {
+            completed = hour.update(t, FIVE, 100, 101, 99, 100, 1);
+        }
+
+        assertTrue(completed);
+        assertEquals(1, hour.size());
+        assertTrue(hour.isLatestPartial());
+        assertEquals(LocalDateTime.of(2025, 6, 2, 9, 0), hour.latest("NVDA").timestamp());
+        assertEquals(360, hour.latest("NVDA").volume());
+    }
+
+    @Test
+    void gapBeforeTheLastFiveSecondBarClosesThePeriodAsPartial() {
+        BarSeries minute = new BarSeries(HistoricalBarSize.ONE_MIN, 10);
+        long start = epoch(LocalDateTime.of(2025, 6, 2, 14, 0));
+
+        for (long t = start; t < start + 60; t += FIVE) {
+            minute.update(t, FIVE, 100, 100, 100, 100, 1);
+        }
+        assertFalse(minute.isLatestPartial());
+
+        // Reconexão: o minuto seguinte perde as últimas barras e o próximo chega direto.
+        minute.update(start + 60, FIVE, 100, 100, 100, 100, 1);
+        boolean completed = minute.update(start + 125, FIVE, 100, 100, 100, 100, 1);
+
+        assertTrue(completed);
+        assertEquals(2, minute.size());
+        assertTrue(minute.isLatestPartial());
+    }
+
+    private static long epoch(LocalDateTime utc) {
+        return utc.toEpochSecond(ZoneOffset.UTC);
+    }
+}
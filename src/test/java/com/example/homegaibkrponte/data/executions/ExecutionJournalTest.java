@@ -0,0 +1,133 @@
+package com.example.homegaibkrponte.data.executions;
+
+import com.example.homegaibkrponte.model.Position;
+import com.example.homegaibkrponte.model.PositionDirection;
+import com.ib.client.Contract;
+import com.ib.client.Decimal;
+import com.ib.client.Execution;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExecutionJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private ExecutionJournal journal;
+
+    @AfterEach
+    void close() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    private ExecutionJournal open() {
+        if (journal != null) {
+            journal.close();
+        }
+        journal = new ExecutionJournal(directory.toString(), 1, 65_536, new SimpleMeterRegistry());
+        journal.init();
+        return journal;
+    }
+
+    @Test
+    void nextSegmentIsPreallocatedByTheCommitter() {
+        ExecutionJournal journal = open();
+        awaitTrue(() -> Files.exists(ExecutionJournalSegment.fileFor(directory, 2)));
+
+        // ~1 MB de registros: enche o segmento 1 e passa para o 2, já criado.
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(journal.append(contract("NVDA"), execution("exec-" + i, "BOT", 1)));
+        }
+
+        assertEquals(0, journal.getInlineRolls());
+        awaitTrue(() -> Files.exists(ExecutionJournalSegment.fileFor(directory, 3)));
+        awaitTrue(() -> journal.getCommitted() == 10_000);
+        assertEquals(10_000, journal.replay().records().size());
+    }
+
+    @Test
+    void replayStartsFromTheLastCheckpoint() {
+        ExecutionJournal journal = open();
+        journal.append(contract("NVDA"), execution("a", "BOT", 10));
+        journal.append(contract("NVDA"), execution("b", "BOT", 5));
+        awaitTrue(() -> journal.getCommitted() == 2);
+
+        ExecutionJournal.Replay first = journal.replay();
+        assertNull(first.checkpoint());
+        assertEquals(2, first.records().size());
+        Position nvda = new Position("NVDA", new BigDecimal("15"), new BigDecimal("100"), LocalDateTime.of(2026, 1, 2, 10, 0),
+                PositionDirection.LONG, null, null, "teste");
+        journal.checkpoint(first.mark(), new BigDecimal("-1500"), List.of(nvda));
+
+        journal.append(contract("NVDA"), execution("c", "SLD", 3));
+        awaitTrue(() -> journal.getCommitted() == 3);
+        assertEquals(List.of("c"), journal.readSince(first.mark()).records().stream().map(ExecutionRecord::execId).toList());
+
+        ExecutionJournal.Replay restarted = open().replay();
+        ExecutionCheckpoint checkpoint = restarted.checkpoint();
+        assertNotNull(checkpoint);
+        assertEquals(0, new BigDecimal("-1500").compareTo(checkpoint.cash()));
+        assertEquals(1, checkpoint.positions().size());
+        assertEquals(0, new BigDecimal("15").compareTo(checkpoint.positions().get(0).getQuantity()));
+        assertEquals(List.of("c"), restarted.records().stream().map(ExecutionRecord::execId).toList());
+    }
+
+    @Test
+    void restartAppendsAfterTheLastRecordAndKeepsDeduplicating() {
+        ExecutionJournal journal = open();
+        journal.append(contract("AAPL"), execution("x", "BOT", 1));
+        awaitTrue(() -> journal.getCommitted() == 1);
+
+        ExecutionJournal reopened = open();
+        assertTrue(!reopened.append(contract("AAPL"), execution("x", "BOT", 1)));
+        assertTrue(reopened.append(contract("AAPL"), execution("y", "BOT", 1)));
+        awaitTrue(() -> reopened.getCommitted() == 1);
+
+        assertEquals(List.of("x", "y"), open().replay().records().stream().map(ExecutionRecord::execId).toList());
+    }
+
+    private static Contract contract(String symbol) {
+        Contract contract = new Contract();
+        contract.symbol(symbol);
+        contract.conid(symbol.hashCode() & 0x7fffffff);
+        return contract;
+    }
+
+    private static Execution execution(String execId, String side, long shares) {
+        Execution execution = new Execution();
+        execution.execId(execId);
+        execution.side(side);
+        execution.shares(Decimal.get(shares));
+        execution.cumQty(Decimal.get(shares));
+        execution.price(100.0);
+        execution.avgPrice(100.0);
+        execution.time("20260102 10:00:00 UTC");
+        execution.acctNumber("DU0000000");
+        execution.exchange("SMART");
+        return execution;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condição não atingida em 5 s");
+            Thread.onSpinWait();
+        }
+    }
+}
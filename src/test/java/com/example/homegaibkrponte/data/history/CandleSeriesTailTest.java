@@ -0,0 +1,60 @@
+package com.example.homegaibkrponte.data.history;
+
+import com.example.homegaibkrponte.model.Candle;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A última barra é reescrita no lugar a cada download: quem lê ao mesmo tempo vê a versão anterior
+ * ou a nova inteira, nunca uma mistura das duas.
+ */
+class CandleSeriesTailTest {
+
+    private static final LocalDateTime OPEN = LocalDateTime.of(2025, 6, 2, 13, 30);
+    private static final LocalDateTime FORMING = OPEN.plusMinutes(1);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readersNeverSeeAHalfWrittenLastBar() throws InterruptedException {
+        CandleSeries series = new CandleSeries(directory.resolve("NVDA_1min.bin"), "NVDA", HistoricalBarSize.ONE_MIN);
+        series.write(List.of(bar(OPEN, 1), bar(FORMING, 2)), OPEN, FORMING.plusMinutes(1));
+
+        Thread writer = new Thread(() -> {
+            for (int i = 3; i < 5_000; i++) {
+                series.write(List.of(bar(FORMING, i)), OPEN, FORMING.plusMinutes(1));
+            }
+        });
+        writer.start();
+
+        AtomicLong torn = new AtomicLong();
+        while (writer.isAlive()) {
+            series.scan(0, Long.MAX_VALUE, (epoch, open, high, low, close, volume) -> {
+                if (open != close || (long) open != volume) {
+                    torn.incrementAndGet();
+                }
+            });
+            CandleColumns columns = series.columns(0, Long.MAX_VALUE);
+            if (columns.open().get(1) != columns.close().get(1) || (long) columns.open().get(1) != columns.volume().get(1)) {
+                torn.incrementAndGet();
+            }
+        }
+        writer.join();
+
+        assertEquals(0, torn.get());
+        assertEquals(2, series.size());
+    }
+
+    // Todos os campos carregam o mesmo valor: uma leitura rasgada mistura dois deles.
+    private static Candle bar(LocalDateTime time, long value) {
+        return new Candle("NVDA", time, value, value, value, value, value);
+    }
+}
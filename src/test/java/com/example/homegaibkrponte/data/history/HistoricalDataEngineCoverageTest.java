@@ -0,0 +1,68 @@
+package com.example.homegaibkrponte.data.history;
+
+import com.example.homegaibkrponte.model.Candle;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HistoricalDataEngineCoverageTest {
+
+    @TempDir
+    Path directory;
+
+    private HistoricalDataEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        CandleStore store = new CandleStore(directory.toString());
+        store.init();
+        // Uma barra por hora no dia anterior a cada chunkEnd (suficiente para checar a cobertura).
+        HistoricalChunkRequester requester = (symbol, barSize, chunkEnd, priority) -> {
+            List<Candle> candles = new ArrayList<>();
+            for (LocalDateTime t = chunkEnd.minusDays(1); t.isBefore(chunkEnd); t = t.plusHours(1)) {
+                candles.add(new Candle(symbol, t, 1, 1, 1, 1, 1));
+            }
+            return CompletableFuture.completedFuture(candles);
+        };
+        engine = new HistoricalDataEngine(requester, store);
+    }
+
+    @AfterEach
+    void shutdown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void requestAfterCoveredRangeDoesNotLeaveAHoleMarkedAsCovered() {
+        // Seg 2025-06-02 e, depois, qui 2025-06-05: o meio (ter/qua) nunca foi pedido explicitamente.
+        engine.fetch("NVDA", HistoricalBarSize.ONE_MIN, LocalDateTime.of(2025, 6, 2, 0, 0), LocalDateTime.of(2025, 6, 3, 0, 0)).join();
+        engine.fetch("NVDA", HistoricalBarSize.ONE_MIN, LocalDateTime.of(2025, 6, 5, 0, 0), LocalDateTime.of(2025, 6, 6, 0, 0)).join();
+
+        List<Candle> middle = engine.fetch("NVDA", HistoricalBarSize.ONE_MIN,
+                LocalDateTime.of(2025, 6, 3, 0, 0), LocalDateTime.of(2025, 6, 5, 0, 0)).join();
+
+        assertEquals(48, middle.size());
+    }
+
+    @Test
+    void requestBeforeCoveredRangeIsFetched() {
+        engine.fetch("NVDA", HistoricalBarSize.ONE_MIN, LocalDateTime.of(2025, 6, 5, 0, 0), LocalDateTime.of(2025, 6, 6, 0, 0)).join();
+
+        List<Candle> earlier = engine.fetch("NVDA", HistoricalBarSize.ONE_MIN,
+                LocalDateTime.of(2025, 6, 2, 0, 0), LocalDateTime.of(2025, 6, 3, 0, 0)).join();
+        List<Candle> middle = engine.fetch("NVDA", HistoricalBarSize.ONE_MIN,
+                LocalDateTime.of(2025, 6, 3, 0, 0), LocalDateTime.of(2025, 6, 5, 0, 0)).join();
+
+        assertEquals(24, earlier.size());
+        assertEquals(48, middle.size());
+    }
+}
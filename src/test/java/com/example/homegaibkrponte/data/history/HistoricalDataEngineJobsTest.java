@@ -0,0 +1,73 @@
+package com.example.homegaibkrponte.data.history;
+
+import com.example.homegaibkrponte.dto.HistoricalJobRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Jobs terminados saem do mapa depois da retenção; os que ainda rodam ficam, qualquer que seja a idade.
+ */
+class HistoricalDataEngineJobsTest {
+
+    private static final HistoricalJobRequest EMPTY = new HistoricalJobRequest(List.of(), List.of());
+
+    @TempDir
+    Path directory;
+
+    private HistoricalDataEngine engine;
+
+    @AfterEach
+    void shutdown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void finishedJobsAreEvictedAfterTheRetention() {
+        engine = new HistoricalDataEngine(null, null, Duration.ZERO);
+
+        HistoricalJob first = engine.submitJob(EMPTY);
+        assertTrue(first.getCompletion().isDone());
+        HistoricalJob second = engine.submitJob(EMPTY);
+
+        assertFalse(engine.getJob(first.getId()).isPresent());
+        assertTrue(engine.getJob(second.getId()).isPresent());
+        assertEquals(1, engine.getJobCount());
+    }
+
+    @Test
+    void finishedJobsStayQueryableWithinTheRetention() {
+        engine = new HistoricalDataEngine(null, null, Duration.ofHours(1));
+
+        HistoricalJob first = engine.submitJob(EMPTY);
+        engine.submitJob(EMPTY);
+
+        assertTrue(engine.getJob(first.getId()).isPresent());
+        assertEquals(2, engine.getJobCount());
+    }
+
+    @Test
+    void runningJobsAreNeverEvicted() {
+        CandleStore store = new CandleStore(directory.toString());
+        store.init();
+        // O chunk nunca responde: o job fica rodando.
+        engine = new HistoricalDataEngine((symbol, barSize, chunkEnd, priority) -> new CompletableFuture<>(),
+                store, Duration.ZERO);
+
+        HistoricalJob running = engine.submitJob(new HistoricalJobRequest(List.of("NVDA"),
+                List.of(new HistoricalJobRequest.Series(HistoricalBarSize.ONE_DAY, LocalDate.of(2025, 6, 2), LocalDate.of(2025, 6, 3)))));
+        engine.submitJob(EMPTY);
+
+        assertTrue(engine.getJob(running.getId()).isPresent());
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.homegaibkrponte.data.history;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class HistoricalDataEnginePlanTest {
+
+    private final HistoricalDataEngine engine = new HistoricalDataEngine(null, null);
+
+    @AfterEach
+    void shutdown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void skipsOnlyChunksEntirelyOnTheWeekend() {
+        // 2025-06-09 é segunda-feira.
+        LocalDateTime start = LocalDateTime.of(2025, 6, 5, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2025, 6, 9, 15, 30);
+
+        List<LocalDateTime> chunks = engine.planChunks(HistoricalBarSize.ONE_MIN, start, end);
+
+        // Dom 15:30 -> Seg 15:30 cobre a manhã de segunda; Sáb 15:30 -> Dom 15:30 é só fim de semana.
+        assertEquals(List.of(
+                LocalDateTime.of(2025, 6, 9, 15, 30),
+                LocalDateTime.of(2025, 6, 7, 15, 30),
+                LocalDateTime.of(2025, 6, 6, 15, 30),
+                LocalDateTime.of(2025, 6, 5, 15, 30)), chunks);
+    }
+
+    @Test
+    void midnightBoundariesSkipSaturdayAndSunday() {
+        LocalDateTime start = LocalDateTime.of(2025, 6, 6, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2025, 6, 10, 0, 0);
+
+        List<LocalDateTime> chunks = engine.planChunks(HistoricalBarSize.ONE_MIN, start, end);
+
+        assertEquals(List.of(LocalDateTime.of(2025, 6, 10, 0, 0), LocalDateTime.of(2025, 6, 7, 0, 0)), chunks);
+    }
+
+    @Test
+    void weeklyChunksAreNeverSkipped() {
+        LocalDateTime start = LocalDateTime.of(2025, 6, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2025, 6, 15, 0, 0);
+
+        assertEquals(2, engine.planChunks(HistoricalBarSize.FIVE_MINS, start, end).size());
+    }
+}
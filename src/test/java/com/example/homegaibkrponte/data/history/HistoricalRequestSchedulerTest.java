@@ -0,0 +1,37 @@
+package com.example.homegaibkrponte.data.history;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HistoricalRequestSchedulerTest {
+
+    private final HistoricalRequestScheduler scheduler =
+            new HistoricalRequestScheduler(50, Duration.ofMillis(100), 60, Duration.ofMinutes(10), 5, Duration.ofSeconds(15));
+
+    @AfterEach
+    void shutdown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void timeoutCompletesTheSendersFutureSoItCanCancelTheRequest() {
+        CompletableFuture<List<String>> sent = new CompletableFuture<>();
+        CompletableFuture<List<String>> result = scheduler.submit(
+                HistoricalRequestKey.bars("NVDA", HistoricalBarSize.ONE_MIN, "20250609-00:00:00", "TRADES", 1),
+                HistoricalPriority.INTERACTIVE, () -> sent);
+
+        CompletionException error = assertThrows(CompletionException.class, result::join);
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        // O conector reage a este futuro (o que ele registrou no envio) com cancelHistoricalData.
+        assertInstanceOf(TimeoutException.class, assertThrows(CompletionException.class, sent::join).getCause());
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.homegaibkrponte.monitoring;
+
+import com.example.homegaibkrponte.accounting.AccountingMode;
+import com.example.homegaibkrponte.model.Portfolio;
+import com.example.homegaibkrponte.model.Position;
+import com.example.homegaibkrponte.model.TradeExecutedEvent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Propriedade: para execuções representáveis na precisão da moeda (USD: 4 casas em quantidade e
+ * preço), o livro de ponto fixo e o caminho BigDecimal produzem exatamente o mesmo caixa, as mesmas
+ * quantidades e os mesmos preços médios depois de cada execução de uma sequência aleatória de
+ * compras, aumentos, vendas parciais e totais.
+ */
+class AccountingEquivalenceTest {
+
+    private static final int SYMBOLS = 16;
+    private static final int FILLS = 400;
+    private static final Portfolio START = new Portfolio("EQUIVALENCIA", new BigDecimal("1000000"));
+
+    static LongStream seeds() {
+        return LongStream.range(0, 200);
+    }
+
+    @ParameterizedTest
+    @MethodSource("seeds")
+    void fixedPointMatchesBigDecimalAfterEveryFill(long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        LivePortfolioService reference = service(AccountingMode.BIG_DECIMAL);
+        LivePortfolioService fixed = service(AccountingMode.FIXED_POINT);
+        Portfolio expected = START;
+        Portfolio actual = START;
+        List<TradeExecutedEvent> events = new ArrayList<>(FILLS);
+        for (int i = 0; i < FILLS; i++) {
+            TradeExecutedEvent event = randomFill(random, expected);
+            events.add(event);
+            expected = reference.foldExecutions(expected, List.of(event));
+            actual = fixed.foldExecutions(actual, List.of(event));
+            assertSameBook(expected, actual, "execução " + i + " (" + event + ")");
+        }
+        // Um único livro para a sequência inteira, sem voltar ao BigDecimal entre execuções.
+        assertSameBook(expected, fixed.foldExecutions(START, events), "sequência inteira");
+    }
+
+    @ParameterizedTest
+    @EnumSource(AccountingMode.class)
+    void fillsAtTheCurrencyScaleAreApplied(AccountingMode mode) {
+        Portfolio after = service(mode).foldExecutions(START, List.of(trade("NVDA", "BOT", "0.1250", "181.2500")));
+
+        Position nvda = after.openPositions().get("NVDA");
+        assertNotNull(nvda);
+        assertEquals(0, new BigDecimal("0.125").compareTo(nvda.getQuantity()));
+    }
+
+    @Test
+    void fixedPointRejectsFillsBeyondTheCurrencyScale() {
+        LivePortfolioService fixed = service(AccountingMode.FIXED_POINT);
+        Portfolio open = fixed.foldExecutions(START, List.of(trade("NVDA", "BOT", "10", "181.25")));
+
+        Portfolio fractionalQuantity = fixed.foldExecutions(open, List.of(trade("AAPL", "BOT", "0.00001", "227.10")));
+        Portfolio subTickPrice = fixed.foldExecutions(open, List.of(trade("NVDA", "SLD", "5", "181.25005")));
+
+        // Recusadas, não arredondadas: livro igual ao de antes da execução.
+        assertNull(fractionalQuantity.openPositions().get("AAPL"));
+        assertEquals(0, open.cashBalance().compareTo(fractionalQuantity.cashBalance()));
+        assertEquals(0, new BigDecimal("10").compareTo(subTickPrice.openPositions().get("NVDA").getQuantity()));
+        assertEquals(0, open.cashBalance().compareTo(subTickPrice.cashBalance()));
+    }
+
+    private static TradeExecutedEvent randomFill(SplittableRandom random, Portfolio current) {
+        String symbol = "SYM" + random.nextInt(SYMBOLS);
+        Position position = current.openPositions().get(symbol);
+        boolean sell = position != null && random.nextInt(3) == 0;
+        BigDecimal quantity;
+        if (sell) {
+            // Metade das vendas fecha a posição (às vezes com quantidade maior que a aberta).
+            quantity = random.nextBoolean()
+                    ? position.getQuantity().add(BigDecimal.valueOf(random.nextInt(3)))
+                    : position.getQuantity().multiply(BigDecimal.valueOf(random.nextInt(1, 100), 2)).setScale(4, RoundingMode.DOWN);
+            if (quantity.signum() == 0) {
+                quantity = BigDecimal.ONE;
+            }
+        } else {
+            quantity = random.nextInt(5) == 0
+                    ? BigDecimal.valueOf(random.nextLong(1, 100_000), 4)   // fracionária
+                    : BigDecimal.valueOf(random.nextLong(1, 5_000));
+        }
+        BigDecimal price = BigDecimal.valueOf(random.nextLong(1, 50_000_000), 4);
+        return new TradeExecutedEvent(symbol, sell ? "SLD" : "BOT", quantity, price, LocalDateTime.of(2026, 1, 2, 10, 0), "LIVE", "prop");
+    }
+
+    private static void assertSameBook(Portfolio expected, Portfolio actual, String where) {
+        assertEquals(0, expected.cashBalance().compareTo(actual.cashBalance()),
+                () -> "caixa em " + where + ": esperado " + expected.cashBalance() + ", obtido " + actual.cashBalance());
+        Map<String, Position> want = expected.openPositions();
+        Map<String, Position> got = actual.openPositions();
+        assertEquals(want.keySet(), got.keySet(), () -> "posições em " + where);
+        for (Position position : want.values()) {
+            Position other = got.get(position.getSymbol());
+            assertEquals(0, position.getQuantity().compareTo(other.getQuantity()),
+                    () -> "quantidade de " + position.getSymbol() + " em " + where);
+            assertEquals(0, position.getAverageEntryPrice().compareTo(other.getAverageEntryPrice()),
+                    () -> "preço médio de " + position.getSymbol() + " em " + where + ": esperado "
+                            + position.getAverageEntryPrice() + ", obtido " + other.getAverageEntryPrice());
+        }
+    }
+
+    private static LivePortfolioService service(AccountingMode mode) {
+        LivePortfolioService service = new LivePortfolioService(event -> { }, mode, "USD");
+        service.init();
+        return service;
+    }
+
+    private static TradeExecutedEvent trade(String symbol, String side, String quantity, String price) {
+        return new TradeExecutedEvent(symbol, side, new BigDecimal(quantity), new BigDecimal(price),
+                LocalDateTime.of(2026, 1, 2, 10, 0), "LIVE", "1");
+    }
+}
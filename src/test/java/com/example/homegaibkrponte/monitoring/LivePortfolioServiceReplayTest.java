@@ -0,0 +1,72 @@
+package com.example.homegaibkrponte.monitoring;
+
+import com.example.homegaibkrponte.accounting.AccountingMode;
+import com.example.homegaibkrponte.model.Portfolio;
+import com.example.homegaibkrponte.model.Position;
+import com.example.homegaibkrponte.model.TradeExecutedEvent;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * O replay a partir de um checkpoint tem de dar o mesmo portfólio que o replay do journal inteiro.
+ */
+class LivePortfolioServiceReplayTest {
+
+    private static final List<TradeExecutedEvent> EVENTS = List.of(
+            trade("NVDA", "BOT", "100", "181.25"),
+            trade("AAPL", "BOT", "40", "227.10"),
+            trade("NVDA", "BOT", "50", "183.3333"),
+            trade("NVDA", "SLD", "30", "185.00"),
+            trade("AAPL", "SLD", "40", "230.05"),
+            trade("MSFT", "BOT", "7", "411.99"));
+
+    @ParameterizedTest
+    @EnumSource(AccountingMode.class)
+    void foldingFromACheckpointMatchesTheFullFold(AccountingMode mode) {
+        LivePortfolioService service = service(mode);
+        Portfolio empty = new Portfolio("JOURNAL", BigDecimal.ZERO);
+
+        Portfolio full = service.foldExecutions(empty, EVENTS);
+        Portfolio checkpoint = service.foldExecutions(empty, EVENTS.subList(0, 3));
+        Portfolio resumed = service.foldExecutions(checkpoint, EVENTS.subList(3, EVENTS.size()));
+
+        assertEquals(0, full.cashBalance().compareTo(resumed.cashBalance()));
+        assertEquals(full.openPositions().keySet(), resumed.openPositions().keySet());
+        for (Position position : full.openPositions().values()) {
+            Position other = resumed.openPositions().get(position.getSymbol());
+            assertEquals(0, position.getQuantity().compareTo(other.getQuantity()), position.getSymbol());
+            assertEquals(0, position.getAverageEntryPrice().compareTo(other.getAverageEntryPrice()), position.getSymbol());
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(AccountingMode.class)
+    void restoreAddsTheJournalCashFlowToTheInitialCapital(AccountingMode mode) {
+        LivePortfolioService service = service(mode);
+        BigDecimal initial = service.getLivePortfolioSnapshot().cashBalance();
+        Portfolio journal = service.foldExecutions(new Portfolio("JOURNAL", BigDecimal.ZERO), EVENTS);
+
+        service.restoreFromJournal(journal);
+
+        Portfolio live = service.getLivePortfolioSnapshot();
+        assertEquals(0, initial.add(journal.cashBalance()).compareTo(live.cashBalance()));
+        assertEquals(journal.openPositions().keySet(), live.openPositions().keySet());
+    }
+
+    private static LivePortfolioService service(AccountingMode mode) {
+        LivePortfolioService service = new LivePortfolioService(event -> { }, mode, "USD");
+        service.init();
+        return service;
+    }
+
+    private static TradeExecutedEvent trade(String symbol, String side, String quantity, String price) {
+        return new TradeExecutedEvent(symbol, side, new BigDecimal(quantity), new BigDecimal(price),
+                LocalDateTime.of(2026, 1, 2, 10, 0), "JOURNAL", "1");
+    }
+}
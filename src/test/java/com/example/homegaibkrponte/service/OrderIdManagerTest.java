@@ -0,0 +1,78 @@
+package com.example.homegaibkrponte.service;
+
+import com.example.homegaibkrponte.properties.IBKRProperties;
+import com.example.homegaibkrponte.util.RequestIds;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderIdManagerTest {
+
+    @TempDir
+    Path directory;
+
+    private OrderIdManager manager;
+
+    @AfterEach
+    void close() {
+        if (manager != null) {
+            manager.close();
+        }
+    }
+
+    private OrderIdManager manager(int leaseSize) {
+        manager = new OrderIdManager(new IBKRProperties("127.0.0.1", null, null, 7497, 7), directory.toString(), leaseSize);
+        manager.init();
+        return manager;
+    }
+
+    @Test
+    void orderIdsNeverReachTheDataRequestRange() {
+        OrderIdManager ids = manager(10);
+        ids.initializeOrUpdate(RequestIds.DATA_BASE - 5);
+
+        int first = ids.reserveBlock(3);
+        int last = ids.getNextOrderId();
+
+        assertEquals(RequestIds.DATA_BASE - 5, first);
+        assertEquals(RequestIds.DATA_BASE - 2, last);
+        assertTrue(RequestIds.isOrderId(first) && RequestIds.isOrderId(last));
+        // O bloco seguinte terminaria em DATA_BASE + 1: recusado em vez de invadir a faixa de dados.
+        assertThrows(IllegalStateException.class, () -> ids.reserveBlock(2));
+        assertEquals(RequestIds.DATA_BASE - 1, ids.getNextOrderId());
+        assertThrows(IllegalStateException.class, ids::getNextOrderId);
+    }
+
+    @Test
+    void leasedCeilingIsCappedAtTheDataRequestRange() {
+        OrderIdManager ids = manager(1_000_000);
+        ids.initializeOrUpdate(RequestIds.DATA_BASE - 10);
+
+        assertEquals(RequestIds.DATA_BASE, ids.getLeasedCeiling());
+        ids.close();
+
+        // O teto persistido também respeita a faixa: a retomada começa em DATA_BASE e recusa novas ordens.
+        OrderIdManager restarted = manager(1_000_000);
+        assertEquals(RequestIds.DATA_BASE, restarted.getLeasedCeiling());
+        assertThrows(IllegalStateException.class, restarted::getNextOrderId);
+    }
+
+    @Test
+    void orderAndDataSequencesDoNotOverlap() {
+        OrderIdManager orders = manager(1000);
+        orders.initializeOrUpdate(1);
+        RequestIds data = new RequestIds();
+        for (int i = 0; i < 10_000; i++) {
+            int orderId = orders.getNextOrderId();
+            int reqId = data.next();
+            assertTrue(RequestIds.isOrderId(orderId), "orderId " + orderId);
+            assertTrue(RequestIds.isDataRequest(reqId), "reqId " + reqId);
+        }
+    }
+}
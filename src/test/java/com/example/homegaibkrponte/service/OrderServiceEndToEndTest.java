@@ -0,0 +1,137 @@
+package com.example.homegaibkrponte.service;
+
+import com.example.homegaibkrponte.connector.IBKRConnector;
+import com.example.homegaibkrponte.dto.OrderDTO;
+import com.example.homegaibkrponte.dto.OrderResultDTO;
+import com.example.homegaibkrponte.dto.OrderStatusDTO;
+import com.example.homegaibkrponte.factory.ContractFactory;
+import com.example.homegaibkrponte.factory.OrderFactory;
+import com.example.homegaibkrponte.model.OrderType;
+import com.example.homegaibkrponte.monitoring.OrderLatencyMetrics;
+import com.example.homegaibkrponte.order.OrderAwait;
+import com.example.homegaibkrponte.order.OrderLifecycleEngine;
+import com.example.homegaibkrponte.order.OrderLifecycleState;
+import com.example.homegaibkrponte.simulator.ConnectedBridge;
+import com.example.homegaibkrponte.simulator.FakeOrderScript;
+import com.example.homegaibkrponte.simulator.FakeTwsSettings;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ordem de ponta a ponta contra o FakeTwsGateway: OrderService -> EClientSocket -> socket local -> TWS
+ * simulado -> EReader -> CallbackDispatcher -> OrderLifecycleEngine.
+ */
+class OrderServiceEndToEndTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @TempDir
+    Path directory;
+
+    private ConnectedBridge bridge;
+    private OrderService orderService;
+
+    @BeforeEach
+    void connect() {
+        OrderLatencyMetrics metrics = new OrderLatencyMetrics(new SimpleMeterRegistry());
+        OrderLifecycleEngine lifecycle = new OrderLifecycleEngine(1_000, 5_000, metrics);
+        bridge = ConnectedBridge.connect(directory, ConnectedBridge.Settings.defaults().toBuilder()
+                .gateway(FakeTwsSettings.defaults().toBuilder()
+                        .fillLatency(Duration.ZERO)
+                        .tickInterval(Duration.ZERO)
+                        .scripts(Map.of("AMD", FakeOrderScript.REJECT))
+                        .build())
+                .handlers(List.of(lifecycle))
+                .build());
+        IBKRConnector connector = bridge.connector();
+        orderService = new OrderService(connector, bridge.orderIds(),
+                new ContractFactory(bridge.contracts(), connector, 5_000), new OrderFactory(connector), lifecycle, metrics);
+    }
+
+    @AfterEach
+    void disconnect() {
+        bridge.close();
+    }
+
+    @Test
+    void simpleOrderIsFilledByTheSimulatedTws() {
+        OrderStatusDTO status = orderService.placeOrder(limit("NVDA", "e2e-fill", null), OrderAwait.FILL, TIMEOUT).join();
+
+        assertEquals(OrderLifecycleState.FILLED, status.state());
+        assertEquals(0, new BigDecimal("10").compareTo(status.filled()));
+        assertEquals(1, bridge.gateway().stats().executions());
+    }
+
+    @Test
+    void bracketIsAcknowledgedWithItsChildrenHeld() {
+        OrderDTO stopLoss = new OrderDTO("NVDA", OrderType.SELL_STOP_LOSS, new BigDecimal("10"), null, null,
+                null, null, new BigDecimal("90.00"), null, "e2e", "e2e-bracket-sl", null);
+        OrderDTO takeProfit = new OrderDTO("NVDA", OrderType.SELL_TAKE_PROFIT, new BigDecimal("10"), null, null,
+                null, null, null, new BigDecimal("110.00"), "e2e", "e2e-bracket-tp", null);
+
+        OrderStatusDTO master = orderService.placeOrder(limit("NVDA", "e2e-bracket", List.of(stopLoss, takeProfit)),
+                OrderAwait.ACK, TIMEOUT).join();
+
+        assertTrue(master.state().isAcknowledged() || master.state().isTerminal(), "estado: " + master.state());
+        assertTrue(master.bracket());
+        assertEquals(3, bridge.gateway().stats().orders());
+    }
+
+    @Test
+    void rejectionEndsTheWait() {
+        OrderStatusDTO status = orderService.placeOrder(limit("AMD", "e2e-reject", null), OrderAwait.FILL, TIMEOUT).join();
+
+        assertEquals(OrderLifecycleState.REJECTED, status.state());
+        assertEquals(201, status.lastErrorCode());
+    }
+
+    @Test
+    void invalidBatchesAreRejectedBeforeAnythingIsSent() {
+        assertThrows(IllegalStateException.class, () -> orderService.placeOrders(List.of()));
+
+        List<OrderDTO> withNull = new ArrayList<>();
+        withNull.add(limit("NVDA", "e2e-batch-ok", null));
+        withNull.add(null);
+        List<OrderResultDTO> nullResults = orderService.placeOrders(withNull);
+        assertEquals("REJECTED", nullResults.get(1).status());
+
+        OrderDTO stopAboveEntry = new OrderDTO("NVDA", OrderType.SELL_STOP_LOSS, new BigDecimal("10"), null, null,
+                null, null, new BigDecimal("105.00"), null, "e2e", "e2e-batch-sl", null);
+        OrderDTO takeProfit = new OrderDTO("NVDA", OrderType.SELL_TAKE_PROFIT, new BigDecimal("10"), null, null,
+                null, null, null, new BigDecimal("110.00"), "e2e", "e2e-batch-tp", null);
+        List<OrderResultDTO> bracketResults = orderService.placeOrders(
+                List.of(limit("NVDA", "e2e-batch-bracket", List.of(stopAboveEntry, takeProfit))));
+        assertEquals("REJECTED", bracketResults.get(0).status());
+
+        assertEquals(0, bridge.gateway().stats().orders());
+    }
+
+    @Test
+    void singleBracketFollowsTheBatchRules() {
+        OrderDTO takeProfit = new OrderDTO("NVDA", OrderType.SELL_TAKE_PROFIT, new BigDecimal("10"), null, null,
+                null, null, null, new BigDecimal("110.00"), "e2e", "e2e-single-tp", null);
+
+        assertThrows(IllegalStateException.class,
+                () -> orderService.placeOrder(limit("NVDA", "e2e-single-bracket", List.of(takeProfit, takeProfit))));
+        assertEquals(0, bridge.gateway().stats().orders());
+    }
+
+    private static OrderDTO limit(String symbol, String clientOrderId, List<OrderDTO> children) {
+        return new OrderDTO(symbol, OrderType.BUY_LIMIT, new BigDecimal("10"), new BigDecimal("100.00"), null,
+                null, null, null, null, "e2e", clientOrderId, children);
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.homegaibkrponte.simulator;
+
+import com.example.homegaibkrponte.accounting.AccountingMode;
+import com.example.homegaibkrponte.connector.IBKRConnector;
+import com.example.homegaibkrponte.connector.dispatch.CallbackDispatcher;
+import com.example.homegaibkrponte.connector.dispatch.CallbackEventHandler;
+import com.example.homegaibkrponte.data.account.AccountValueStore;
+import com.example.homegaibkrponte.data.bars.BarAggregator;
+import com.example.homegaibkrponte.data.contract.ContractCache;
+import com.example.homegaibkrponte.data.depth.OrderBookStore;
+import com.example.homegaibkrponte.data.executions.ExecutionJournal;
+import com.example.homegaibkrponte.data.history.CandleStore;
+import com.example.homegaibkrponte.data.history.HistoricalBarSize;
+import com.example.homegaibkrponte.data.pnl.PnlEngine;
+import com.example.homegaibkrponte.data.pnl.PnlMarkSource;
+import com.example.homegaibkrponte.data.quote.QuoteStore;
+import com.example.homegaibkrponte.data.ticks.TickJournal;
+import com.example.homegaibkrponte.monitoring.LivePortfolioService;
+import com.example.homegaibkrponte.properties.IBKRProperties;
+import com.example.homegaibkrponte.service.OrderIdManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.Builder;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Ponte completa conectada a um {@link FakeTwsGateway}: monta o IBKRConnector com os mesmos componentes
+ * que o Spring injetaria (journals, caches e stores em {@code directory}) e o conecta. Os testes partem de
+ * {@link Settings#defaults()} e sobrepõem só o que interessa a eles; {@link #close()} desmonta tudo na
+ * ordem inversa, inclusive os arquivos mapeados.
+ *
+ * <pre>
+ * try (ConnectedBridge bridge = ConnectedBridge.connect(directory, ConnectedBridge.Settings.defaults())) {
+ *     bridge.connector().subscribeAccountPnl();
+ * }
+ * </pre>
+ */
+public final class ConnectedBridge implements AutoCloseable {
+
+    /**
+     * @param gateway             configuração do TWS simulado.
+     * @param clientId            clientId da conexão.
+     * @param handlers            handlers do CallbackDispatcher (ex.: o OrderLifecycleEngine).
+     * @param accountSummaryTags  tags do reqAccountSummary aberto no nextValidId.
+     * @param markSource          preço usado pelo PnlEngine para marcar as posições.
+     */
+    @Builder(toBuilder = true)
+    public record Settings(
+            FakeTwsSettings gateway,
+            int clientId,
+            List<CallbackEventHandler> handlers,
+            String accountSummaryTags,
+            PnlMarkSource markSource
+    ) {
+
+        public static Settings defaults() {
+            return new Settings(FakeTwsSettings.defaults(), 11, List.of(), IBKRConnector.DEFAULT_SUMMARY_TAGS,
+                    PnlMarkSource.LAST);
+        }
+    }
+
+    private final FakeTwsGateway gateway;
+    private final CallbackDispatcher dispatcher;
+    private final OrderIdManager orderIds;
+    private final ContractCache contracts;
+    private final ExecutionJournal executionJournal;
+    private final TickJournal tickJournal;
+    private final LivePortfolioService portfolio;
+    private final PnlEngine pnlEngine;
+    private final IBKRConnector connector;
+
+    private ConnectedBridge(Path directory, Settings settings) {
+        gateway = new FakeTwsGateway(settings.gateway());
+        int port = gateway.start();
+
+        String dir = directory.toString();
+        IBKRProperties props = new IBKRProperties("127.0.0.1", null, null, port, settings.clientId());
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        dispatcher = new CallbackDispatcher(settings.handlers(), registry, 1024);
+        dispatcher.start();
+        orderIds = new OrderIdManager(props, dir, 100);
+        orderIds.init();
+        contracts = new ContractCache(dir, 30);
+        contracts.init();
+        executionJournal = new ExecutionJournal(dir, 4, 65_536, registry);
+        executionJournal.init();
+        tickJournal = new TickJournal(dir, 1, 1000, registry);
+        tickJournal.init();
+        portfolio = new LivePortfolioService(event -> { }, AccountingMode.BIG_DECIMAL, "USD");
+        portfolio.init();
+        QuoteStore quoteStore = new QuoteStore(64);
+        pnlEngine = new PnlEngine(quoteStore, settings.markSource());
+
+        connector = new IBKRConnector(props, portfolio, dispatcher, orderIds,
+                new CandleStore(dir),
+                50, 120, true, 60, 600, 5, 15,
+                quoteStore, 1, pnlEngine,
+                new BarAggregator(event -> { }, List.of(HistoricalBarSize.ONE_MIN), 10), false,
+                new OrderBookStore(8, 10), true,
+                tickJournal,
+                executionJournal, 60, "America/New_York",
+                contracts, List.of(), 5000,
+                new AccountValueStore(), settings.accountSummaryTags());
+        connector.connect();
+    }
+
+    public static ConnectedBridge connect(Path directory, Settings settings) {
+        return new ConnectedBridge(directory, settings);
+    }
+
+    public FakeTwsGateway gateway() { return gateway; }
+    public OrderIdManager orderIds() { return orderIds; }
+    public ContractCache contracts() { return contracts; }
+    public LivePortfolioService portfolio() { return portfolio; }
+    public PnlEngine pnlEngine() { return pnlEngine; }
+    public IBKRConnector connector() { return connector; }
+
+    @Override
+    public void close() {
+        connector.disconnect();
+        dispatcher.stop();
+        executionJournal.close();
+        tickJournal.close();
+        contracts.close();
+        orderIds.close();
+        gateway.close();
+    }
+}
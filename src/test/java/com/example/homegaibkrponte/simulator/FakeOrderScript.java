@@ -0,0 +1,14 @@
+package com.example.homegaibkrponte.simulator;
+
+/**
+ * Roteiro que o {@link FakeTwsGateway} segue para cada placeOrder recebido.
+ * Filhas de bracket (parentId != 0) sempre ficam em PreSubmitted, como no TWS, até a mestra ser executada.
+ */
+public enum FakeOrderScript {
+    /** openOrder + orderStatus Submitted; depois da latência de execução, execDetails + orderStatus (em fatias, se configurado). */
+    FILL,
+    /** openOrder + orderStatus Submitted e a ordem fica aberta até cancelOrder/reqGlobalCancel. */
+    ACK_ONLY,
+    /** error 201 (Order rejected) seguido de orderStatus Inactive. */
+    REJECT
+}
@@ -0,0 +1,362 @@
+package com.example.homegaibkrponte.simulator;
+
+import com.ib.client.protobuf.ContractProto;
+import com.ib.client.protobuf.ExecutionDetailsProto;
+import com.ib.client.protobuf.ExecutionProto;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * TWS/IB Gateway falso, embutível, para testes de carga sem rede: fala o handshake e o enquadramento
+ * do socket da API (versão de servidor 203), então o {@code EClientSocket} real do IBKRConnector se
+ * conecta a ele como a um TWS.
+ *
+ * Responde startAPI/reqIds (managedAccounts + nextValidId), reqContractDetails (contrato sintético
+ * com conId estável), reqMktData (bid/ask/last em passeio aleatório a cada {@code tickInterval}),
+ * reqPositions, reqAccountUpdates, reqExecutions, reqPnL/reqPnLSingle e reqAccountSummary (reenviados a
+ * cada segundo) e reqCurrentTime. Cada placeOrder segue um {@link FakeOrderScript}: openOrder/orderStatus, execDetails após {@code fillLatency}, cancelamento
+ * com error 202. As execuções atualizam posições e caixa da conta simulada.
+ *
+ * Uso em teste/benchmark:
+ * <pre>
+ * try (FakeTwsGateway tws = new FakeTwsGateway(FakeTwsSettings.defaults())) {
+ *     int port = tws.start();
+ *     // IBKRProperties("127.0.0.1", null, null, port, clientId) ...
+ * }
+ * </pre>
+ * Fica só nas fontes de teste (src/test/java): os testes e os benchmarks (src/jmh) o usam, o jar da ponte não o leva.
+ */
+@Slf4j
+public class FakeTwsGateway implements AutoCloseable {
+
+    static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd HH:mm:ss VV").withZone(ZoneId.of("UTC"));
+
+    private final FakeTwsSettings settings;
+    private final ScheduledExecutorService scheduler;
+    private final List<FakeTwsSession> sessions = new CopyOnWriteArrayList<>();
+    private final ConcurrentHashMap<String, Instrument> instruments = new ConcurrentHashMap<>();
+    private final AtomicInteger nextConId = new AtomicInteger(100_000);
+    private final AtomicInteger nextValidId;
+    private final AtomicLong nextPermId = new AtomicLong(1_000_000_000L);
+    private final AtomicLong nextExecId = new AtomicLong();
+    private final long execIdPrefix = System.currentTimeMillis() / 1000;
+    private final ArrayDeque<ExecutionRecord> executions = new ArrayDeque<>();
+    private final SplittableRandom random = new SplittableRandom(42);
+    private double cash;
+
+    private final LongAdder connections = new LongAdder();
+    private final LongAdder messagesIn = new LongAdder();
+    private final LongAdder messagesOut = new LongAdder();
+    private final LongAdder orders = new LongAdder();
+    private final LongAdder fills = new LongAdder();
+
+    private ServerSocket serverSocket;
+    private volatile boolean running;
+
+    /**
+     * Contadores acumulados desde o start().
+     */
+    public record Stats(long connections, long messagesIn, long messagesOut, long orders, long executions) {
+    }
+
+    record ExecutionRecord(Instant time, int clientId, ExecutionDetailsProto.ExecutionDetails details) {
+    }
+
+    public FakeTwsGateway(FakeTwsSettings settings) {
+        this.settings = settings;
+        this.nextValidId = new AtomicInteger(settings.firstOrderId());
+        this.cash = settings.initialCash();
+        for (FakeTwsSettings.Position position : settings.positions()) {
+            Instrument instrument = instrument(position.symbol());
+            instrument.position = position.quantity();
+            instrument.averageCost = position.averageCost();
+        }
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fake-tws-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Abre o socket e passa a aceitar conexões.
+     * @return a porta efetiva (útil com port = 0).
+     */
+    public synchronized int start() {
+        if (running) {
+            return port();
+        }
+        try {
+            serverSocket = new ServerSocket(settings.port(), 50, InetAddress.getLoopbackAddress());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível abrir a porta " + settings.port() + " do TWS simulado", e);
+        }
+        running = true;
+        Thread acceptor = new Thread(this::acceptLoop, "fake-tws-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        if (!settings.tickInterval().isZero()) {
+            long micros = settings.tickInterval().toNanos() / 1000;
+            scheduler.scheduleAtFixedRate(this::publishTicks, micros, micros, TimeUnit.MICROSECONDS);
+        }
+        log.info("🧪 [FAKE-TWS] Escutando em 127.0.0.1:{} (versão de servidor {}, roteiro {}, execução em {} ms, ticks a cada {} ms)",
+                port(), TwsWire.SERVER_VERSION, settings.script(), settings.fillLatency().toMillis(), settings.tickInterval().toMillis());
+        return port();
+    }
+
+    public int port() {
+        return serverSocket == null ? -1 : serverSocket.getLocalPort();
+    }
+
+    public Stats stats() {
+        return new Stats(connections.sum(), messagesIn.sum(), messagesOut.sum(), orders.sum(), fills.sum());
+    }
+
+    @Override
+    public synchronized void close() {
+        running = false;
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            log.debug("Falha ao fechar o socket do TWS simulado: {}", e.getMessage());
+        }
+        sessions.forEach(FakeTwsSession::close);
+        scheduler.shutdownNow();
+        log.info("🧪 [FAKE-TWS] Encerrado: {}", stats());
+    }
+
+    private void acceptLoop() {
+        int sequence = 0;
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                FakeTwsSession session = new FakeTwsSession(this, socket);
+                sessions.add(session);
+                connections.increment();
+                Thread thread = new Thread(session, "fake-tws-session-" + (++sequence));
+                thread.setDaemon(true);
+                thread.start();
+            } catch (SocketException e) {
+                if (running) {
+                    log.warn("⚠️ [FAKE-TWS] Erro no accept: {}", e.getMessage());
+                }
+            } catch (IOException e) {
+                log.warn("⚠️ [FAKE-TWS] Erro no accept: {}", e.getMessage());
+            }
+        }
+    }
+
+    // --- Estado compartilhado pelas sessões ---
+
+    FakeTwsSettings settings() {
+        return settings;
+    }
+
+    ScheduledExecutorService scheduler() {
+        return scheduler;
+    }
+
+    void removeSession(FakeTwsSession session) {
+        sessions.remove(session);
+    }
+
+    void countIn() {
+        messagesIn.increment();
+    }
+
+    void countOut() {
+        messagesOut.increment();
+    }
+
+    /** Registra o ID usado pelo cliente, para que o próximo nextValidId fique acima dele. */
+    void orderReceived(int orderId) {
+        orders.increment();
+        nextValidId.accumulateAndGet(orderId + 1, Math::max);
+    }
+
+    int nextValidId() {
+        return nextValidId.get();
+    }
+
+    long nextPermId() {
+        return nextPermId.incrementAndGet();
+    }
+
+    Instrument instrument(String symbol) {
+        return instruments.computeIfAbsent(symbol, key -> new Instrument(key, nextConId.getAndIncrement(), settings.initialPrice(key)));
+    }
+
+    Instrument instrumentByConId(int conId) {
+        for (Instrument instrument : instruments.values()) {
+            if (instrument.conId == conId) {
+                return instrument;
+            }
+        }
+        return null;
+    }
+
+    List<Instrument> instruments() {
+        return new ArrayList<>(instruments.values());
+    }
+
+    /** Contrato do pedido completado como o TWS devolve (conId, localSymbol, tradingClass). */
+    ContractProto.Contract qualify(ContractProto.Contract contract) {
+        Instrument instrument = instrument(contract.getSymbol());
+        return contract.toBuilder()
+                .setConId(instrument.conId)
+                .setSecType(contract.getSecType().isEmpty() ? "STK" : contract.getSecType())
+                .setCurrency(contract.getCurrency().isEmpty() ? "USD" : contract.getCurrency())
+                .setLocalSymbol(instrument.symbol)
+                .setTradingClass(instrument.symbol)
+                .build();
+    }
+
+    /**
+     * Uma execução: atualiza posição e caixa e guarda o execDetails para reqExecutions.
+     */
+    ExecutionDetailsProto.ExecutionDetails execute(int clientId, int orderId, long permId, ContractProto.Contract contract,
+                                                   boolean buy, BigDecimal shares, double price, BigDecimal cumQty,
+                                                   double avgPrice, String orderRef) {
+        Instant now = Instant.now();
+        double signed = buy ? shares.doubleValue() : -shares.doubleValue();
+        synchronized (this) {
+            cash -= signed * price;
+        }
+        instrument(contract.getSymbol()).fill(signed, price);
+        ExecutionProto.Execution execution = ExecutionProto.Execution.newBuilder()
+                .setOrderId(orderId)
+                .setExecId(String.format("%08x.%08x.01.01", execIdPrefix, nextExecId.incrementAndGet()))
+                .setTime(TIME_FORMAT.format(now))
+                .setAcctNumber(settings.account())
+                .setExchange("SIM")
+                .setSide(buy ? "BOT" : "SLD")
+                .setShares(shares.toPlainString())
+                .setPrice(price)
+                .setPermId(permId)
+                .setClientId(clientId)
+                .setCumQty(cumQty.toPlainString())
+                .setAvgPrice(avgPrice)
+                .setOrderRef(orderRef)
+                .setLastLiquidity(1)
+                .build();
+        ExecutionDetailsProto.ExecutionDetails details = ExecutionDetailsProto.ExecutionDetails.newBuilder()
+                .setReqId(-1)
+                .setContract(contract)
+                .setExecution(execution)
+                .build();
+        synchronized (executions) {
+            executions.addLast(new ExecutionRecord(now, clientId, details));
+            while (executions.size() > settings.executionHistory()) {
+                executions.removeFirst();
+            }
+        }
+        fills.increment();
+        return details;
+    }
+
+    List<ExecutionRecord> executions(Predicate<ExecutionRecord> filter) {
+        synchronized (executions) {
+            return executions.stream().filter(filter).toList();
+        }
+    }
+
+    synchronized double cash() {
+        return cash;
+    }
+
+    private void publishTicks() {
+        for (Instrument instrument : instruments.values()) {
+            instrument.step(random);
+        }
+        for (FakeTwsSession session : sessions) {
+            session.publishTicks();
+        }
+    }
+
+    /**
+     * Preço (passeio aleatório) e posição da conta simulada para um símbolo.
+     */
+    static final class Instrument {
+        final String symbol;
+        final int conId;
+        private double price;
+        private double position;
+        private double averageCost;
+        private double realizedPnl;
+
+        Instrument(String symbol, int conId, double price) {
+            this.symbol = symbol;
+            this.conId = conId;
+            this.price = price;
+        }
+
+        synchronized double price() {
+            return price;
+        }
+
+        synchronized double position() {
+            return position;
+        }
+
+        synchronized double averageCost() {
+            return averageCost;
+        }
+
+        synchronized double realizedPnl() {
+            return realizedPnl;
+        }
+
+        synchronized double unrealizedPnl() {
+            return (price - averageCost) * position;
+        }
+
+        /** Passo de ±5 bps (desvio-padrão), arredondado ao centavo. */
+        synchronized void step(SplittableRandom random) {
+            double next = price * (1 + random.nextGaussian() * 0.0005);
+            price = Math.max(0.01, Math.round(next * 100) / 100.0);
+        }
+
+        synchronized void fill(double signedQuantity, double fillPrice) {
+            double next = position + signedQuantity;
+            if (position == 0 || Math.signum(position) == Math.signum(signedQuantity)) {
+                averageCost = (averageCost * position + fillPrice * signedQuantity) / next;
+            } else {
+                double closed = Math.min(Math.abs(signedQuantity), Math.abs(position));
+                realizedPnl += closed * (fillPrice - averageCost) * Math.signum(position);
+                if (Math.signum(next) != Math.signum(position) && next != 0) {
+                    averageCost = fillPrice; // virou de lado: o resto abre a nova posição
+                }
+            }
+            position = next;
+            if (position == 0) {
+                averageCost = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,625 @@
+package com.example.homegaibkrponte.simulator;
+
+import com.ib.client.protobuf.CancelOrderRequestProto;
+import com.ib.client.protobuf.ContractProto;
+import com.ib.client.protobuf.ExecutionDetailsEndProto;
+import com.ib.client.protobuf.ExecutionDetailsProto;
+import com.ib.client.protobuf.ExecutionFilterProto;
+import com.ib.client.protobuf.ExecutionRequestProto;
+import com.ib.client.protobuf.OpenOrderProto;
+import com.ib.client.protobuf.OrderProto;
+import com.ib.client.protobuf.OrderStateProto;
+import com.ib.client.protobuf.OrderStatusProto;
+import com.ib.client.protobuf.PlaceOrderRequestProto;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Uma conexão de cliente no {@link FakeTwsGateway}: lê as mensagens na própria thread e responde como o TWS.
+ * As respostas atrasadas (ACK, execuções) e os ticks saem da thread do agendador do gateway; a escrita no
+ * socket é serializada.
+ */
+@Slf4j
+final class FakeTwsSession implements Runnable {
+
+    private static final DateTimeFormatter FILTER_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HH:mm:ss");
+    private static final DateTimeFormatter ACCOUNT_TIME = DateTimeFormatter.ofPattern("HH:mm");
+    // Tipos de tick do TWS: preço e o tamanho correspondente (o EDecoder emite o tickSize a partir do tickPrice).
+    private static final int TICK_BID = 1;
+    private static final int TICK_ASK = 2;
+    private static final int TICK_LAST = 4;
+
+    private final FakeTwsGateway gateway;
+    private final FakeTwsSettings settings;
+    private final Socket socket;
+    private final OutputStream out;
+    private final ConcurrentHashMap<Integer, String> quoteLines = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, SimulatedOrder> openOrders = new ConcurrentHashMap<>();
+    // reqPnL (reqId -> conta) e reqPnLSingle (reqId -> instrumento); reenviados a cada segundo, como no TWS.
+    private final ConcurrentHashMap<Integer, String> pnlLines = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, FakeTwsGateway.Instrument> pnlSingleLines = new ConcurrentHashMap<>();
+    // reqAccountSummary (reqId -> tags pedidas); o resumo é reenviado junto com o P&L.
+    private final ConcurrentHashMap<Integer, Set<String>> summaryLines = new ConcurrentHashMap<>();
+    private volatile long lastPnlNanos;
+    private volatile boolean accountUpdates;
+    private volatile boolean closed;
+    private int clientId;
+    // Limite de mensagens por segundo (somente a thread de leitura)
+    private long windowStart;
+    private int windowCount;
+
+    FakeTwsSession(FakeTwsGateway gateway, Socket socket) throws IOException {
+        this.gateway = gateway;
+        this.settings = gateway.settings();
+        this.socket = socket;
+        this.out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024);
+    }
+
+    /**
+     * Ordem aberta nesta conexão. Campos mutáveis só são alterados na thread do agendador.
+     */
+    private static final class SimulatedOrder {
+        final int orderId;
+        final ContractProto.Contract contract;
+        final OrderProto.Order order;
+        final BigDecimal quantity;
+        final long permId;
+        BigDecimal filled = BigDecimal.ZERO;
+        double avgFillPrice;
+        String status = "PendingSubmit";
+
+        SimulatedOrder(int orderId, ContractProto.Contract contract, OrderProto.Order order, long permId) {
+            this.orderId = orderId;
+            this.contract = contract;
+            this.order = order;
+            this.quantity = new BigDecimal(order.getTotalQuantity().isEmpty() ? "0" : order.getTotalQuantity());
+            this.permId = permId;
+        }
+
+        boolean isBuy() {
+            return "BUY".equalsIgnoreCase(order.getAction());
+        }
+
+        BigDecimal remaining() {
+            return quantity.subtract(filled).max(BigDecimal.ZERO);
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 64 * 1024));
+            if (!handshake(in)) {
+                return;
+            }
+            while (!closed) {
+                TwsWire.Inbound message = TwsWire.parse(TwsWire.readFrame(in));
+                gateway.countIn();
+                if (!withinRate(message)) {
+                    continue;
+                }
+                handle(message);
+            }
+        } catch (EOFException | SocketException e) {
+            log.debug("🧪 [FAKE-TWS] Cliente {} desconectou.", clientId);
+        } catch (IOException e) {
+            log.warn("⚠️ [FAKE-TWS] Conexão do cliente {} encerrada: {}", clientId, e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("💥 [FAKE-TWS] Falha ao tratar mensagem do cliente {}", clientId, e);
+        } finally {
+            close();
+        }
+    }
+
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        gateway.removeSession(this);
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // socket já fechado
+        }
+    }
+
+    /**
+     * "API\0" seguido de "v100..203" (com opções de conexão opcionais); a resposta traz a versão do
+     * servidor e a hora da conexão.
+     */
+    private boolean handshake(DataInputStream in) throws IOException {
+        byte[] prefix = new byte[TwsWire.API_PREFIX.length];
+        in.readFully(prefix);
+        if (!Arrays.equals(prefix, TwsWire.API_PREFIX)) {
+            log.warn("⚠️ [FAKE-TWS] Handshake inválido (cliente anterior à API v100?). Conexão recusada.");
+            return false;
+        }
+        String versions = new String(TwsWire.readFrame(in), StandardCharsets.US_ASCII).trim();
+        String range = versions.split("\\s+")[0];
+        int maxVersion = Integer.parseInt(range.substring(range.indexOf("..") + 2));
+        if (maxVersion < TwsWire.SERVER_VERSION) {
+            log.warn("⚠️ [FAKE-TWS] Cliente com versões {} não suporta a versão {} (ordens em protobuf). Conexão recusada.",
+                    versions, TwsWire.SERVER_VERSION);
+            return false;
+        }
+        send(TwsWire.handshake(TwsWire.SERVER_VERSION, FakeTwsGateway.TIME_FORMAT.format(Instant.now())));
+        return true;
+    }
+
+    private boolean withinRate(TwsWire.Inbound message) throws IOException {
+        int max = settings.maxInboundPerSecond();
+        if (max <= 0) {
+            return true;
+        }
+        long now = System.nanoTime();
+        if (now - windowStart >= TimeUnit.SECONDS.toNanos(1)) {
+            windowStart = now;
+            windowCount = 0;
+        }
+        if (++windowCount <= max) {
+            return true;
+        }
+        int id = message.protobuf() && message.msgId() == TwsWire.PLACE_ORDER
+                ? PlaceOrderRequestProto.PlaceOrderRequest.parseFrom(message.protobufBytes()).getOrderId()
+                : -1;
+        error(id, 100, "Max rate of messages per second has been exceeded:max=" + max + " rec=" + windowCount);
+        return false;
+    }
+
+    private void handle(TwsWire.Inbound message) throws IOException {
+        if (message.protobuf()) {
+            switch (message.msgId()) {
+                case TwsWire.PLACE_ORDER -> placeOrder(PlaceOrderRequestProto.PlaceOrderRequest.parseFrom(message.protobufBytes()));
+                case TwsWire.CANCEL_ORDER -> cancelOrder(CancelOrderRequestProto.CancelOrderRequest.parseFrom(message.protobufBytes()).getOrderId());
+                case TwsWire.REQ_EXECUTIONS -> executions(ExecutionRequestProto.ExecutionRequest.parseFrom(message.protobufBytes()));
+                case TwsWire.REQ_GLOBAL_CANCEL -> openOrders.keySet().forEach(this::cancelOrder);
+                default -> log.debug("🧪 [FAKE-TWS] Mensagem protobuf {} ignorada.", message.msgId());
+            }
+            return;
+        }
+        String[] fields = message.fields();
+        switch (message.msgId()) {
+            case TwsWire.START_API -> {
+                clientId = Integer.parseInt(fields[1]);
+                log.info("🧪 [FAKE-TWS] Cliente {} conectado.", clientId);
+                managedAccounts();
+                nextValidId();
+            }
+            case TwsWire.REQ_IDS -> nextValidId();
+            case TwsWire.REQ_MANAGED_ACCTS -> managedAccounts();
+            case TwsWire.REQ_CURRENT_TIME -> send(TwsWire.text(TwsWire.CURRENT_TIME, 1, Instant.now().getEpochSecond()));
+            case TwsWire.REQ_CONTRACT_DATA -> contractDetails(Integer.parseInt(fields[1]), fields[3], fields[4]);
+            case TwsWire.REQ_MKT_DATA -> {
+                int reqId = Integer.parseInt(fields[1]);
+                quoteLines.put(reqId, fields[3]);
+                ticks(reqId, gateway.instrument(fields[3]));
+            }
+            case TwsWire.CANCEL_MKT_DATA -> quoteLines.remove(Integer.parseInt(fields[1]));
+            case TwsWire.REQ_POSITIONS -> positions();
+            case TwsWire.REQ_PNL -> {
+                int reqId = Integer.parseInt(fields[0]);
+                pnlLines.put(reqId, fields[1]);
+                accountPnl(reqId);
+            }
+            case TwsWire.REQ_PNL_SINGLE -> {
+                int reqId = Integer.parseInt(fields[0]);
+                FakeTwsGateway.Instrument instrument = gateway.instrumentByConId(Integer.parseInt(fields[3]));
+                if (instrument == null) {
+                    error(reqId, 200, "No security definition has been found for the request");
+                } else {
+                    pnlSingleLines.put(reqId, instrument);
+                    positionPnl(reqId, instrument);
+                }
+            }
+            case TwsWire.CANCEL_PNL -> pnlLines.remove(Integer.parseInt(fields[0]));
+            case TwsWire.CANCEL_PNL_SINGLE -> pnlSingleLines.remove(Integer.parseInt(fields[0]));
+            case TwsWire.REQ_ACCOUNT_SUMMARY -> {
+                int reqId = Integer.parseInt(fields[1]);
+                summaryLines.put(reqId, Set.of(fields[3].split(",")));
+                accountSummary(reqId, summaryLines.get(reqId));
+                send(TwsWire.text(TwsWire.ACCOUNT_SUMMARY_END, 1, reqId));
+            }
+            case TwsWire.CANCEL_ACCOUNT_SUMMARY -> summaryLines.remove(Integer.parseInt(fields[1]));
+            case TwsWire.REQ_ACCOUNT_UPDATES -> {
+                accountUpdates = "1".equals(fields[1]);
+                if (accountUpdates) {
+                    accountSnapshot();
+                }
+            }
+            case TwsWire.CANCEL_POSITIONS, TwsWire.REQ_MARKET_DATA_TYPE -> { }
+            default -> log.debug("🧪 [FAKE-TWS] Mensagem {} ignorada.", message.msgId());
+        }
+    }
+
+    // --- CONEXÃO E CONTA ---
+
+    private void managedAccounts() {
+        send(TwsWire.text(TwsWire.MANAGED_ACCTS, 1, settings.account()));
+    }
+
+    private void nextValidId() {
+        send(TwsWire.text(TwsWire.NEXT_VALID_ID, 1, gateway.nextValidId()));
+    }
+
+    private void contractDetails(int reqId, String symbol, String secType) {
+        FakeTwsGateway.Instrument instrument = gateway.instrument(symbol);
+        String type = secType.isEmpty() ? "STK" : secType;
+        // Campos na ordem do EDecoder para a versão de servidor 203 (sem o campo de versão da mensagem).
+        send(TwsWire.text(TwsWire.CONTRACT_DATA, reqId, symbol, type, "", "", 0.0, "", "SMART", "USD", symbol,
+                "NMS", symbol, instrument.conId, 0.01, "", "ACTIVETIM,LMT,MKT,STP,STPLMT,TRAIL", "SMART,SIM", 1, 0,
+                symbol + " SIMULATED", "SIM", "", "", "", "", "US/Eastern", "", "", "", 0.0, 0, 1, "", "", "26,26",
+                "", "COMMON", 1, 1, 100, 0));
+        send(TwsWire.text(TwsWire.CONTRACT_DATA_END, 1, reqId));
+    }
+
+    private void positions() {
+        for (FakeTwsGateway.Instrument instrument : gateway.instruments()) {
+            double position = instrument.position();
+            if (position != 0) {
+                send(TwsWire.text(TwsWire.POSITION, 3, settings.account(), instrument.conId, instrument.symbol, "STK", "",
+                        0.0, "", "", "", "USD", instrument.symbol, "NMS", decimal(position), instrument.averageCost()));
+            }
+        }
+        send(TwsWire.text(TwsWire.POSITION_END, 1));
+    }
+
+    /** Resposta ao reqAccountUpdates(true): valores da conta, portfólio e accountDownloadEnd. */
+    private void accountSnapshot() {
+        accountValues();
+        for (FakeTwsGateway.Instrument instrument : gateway.instruments()) {
+            if (instrument.position() != 0) {
+                portfolioValue(instrument);
+            }
+        }
+        send(TwsWire.text(TwsWire.ACCT_UPDATE_TIME, 1, LocalDateTime.now().format(ACCOUNT_TIME)));
+        send(TwsWire.text(TwsWire.ACCT_DOWNLOAD_END, 1, settings.account()));
+    }
+
+    private void accountValues() {
+        accountValues(this::accountValue);
+    }
+
+    private void accountValues(ObjDoubleConsumer<String> sink) {
+        double cash = gateway.cash();
+        double gross = 0;
+        for (FakeTwsGateway.Instrument instrument : gateway.instruments()) {
+            gross += Math.abs(instrument.position() * instrument.price());
+        }
+        sink.accept("TotalCashValue", cash);
+        sink.accept("GrossPositionValue", gross);
+        sink.accept("NetLiquidation", cash + gross);
+        sink.accept("AvailableFunds", cash);
+        sink.accept("BuyingPower", Math.max(0, cash) * 4);
+    }
+
+    /**
+     * Resposta ao reqAccountSummary (versão 1): só as tags pedidas; com $LEDGER, o caixa por moeda
+     * (a conta simulada só tem USD, que também é a BASE).
+     */
+    private void accountSummary(int reqId, Set<String> tags) {
+        if (tags.contains("AccountType")) {
+            send(TwsWire.text(TwsWire.ACCOUNT_SUMMARY, 1, reqId, settings.account(), "AccountType", "INDIVIDUAL", ""));
+        }
+        accountValues((tag, value) -> {
+            if (tags.contains(tag)) {
+                summaryValue(reqId, tag, value, "USD");
+            }
+        });
+        if (tags.contains("$LEDGER") || tags.contains("$LEDGER:ALL")) {
+            double cash = gateway.cash();
+            double gross = 0;
+            for (FakeTwsGateway.Instrument instrument : gateway.instruments()) {
+                gross += instrument.position() * instrument.price();
+            }
+            for (String currency : tags.contains("$LEDGER:ALL") ? new String[]{"BASE", "USD"} : new String[]{"BASE"}) {
+                summaryValue(reqId, "CashBalance", cash, currency);
+                summaryValue(reqId, "TotalCashBalance", cash, currency);
+                summaryValue(reqId, "StockMarketValue", gross, currency);
+                summaryValue(reqId, "NetLiquidationByCurrency", cash + gross, currency);
+            }
+        }
+    }
+
+    private void summaryValue(int reqId, String tag, double value, String currency) {
+        send(TwsWire.text(TwsWire.ACCOUNT_SUMMARY, 1, reqId, settings.account(), tag, String.format("%.2f", value), currency));
+    }
+
+    private void accountValue(String key, double value) {
+        send(TwsWire.text(TwsWire.ACCT_VALUE, 2, key, String.format("%.2f", value), "USD", settings.account()));
+    }
+
+    private void portfolioValue(FakeTwsGateway.Instrument instrument) {
+        double position = instrument.position();
+        double price = instrument.price();
+        send(TwsWire.text(TwsWire.PORTFOLIO_VALUE, 8, instrument.conId, instrument.symbol, "STK", "", 0.0, "", "", "SIM",
+                "USD", instrument.symbol, "NMS", decimal(position), price, position * price, instrument.averageCost(),
+                instrument.unrealizedPnl(), instrument.realizedPnl(), settings.account()));
+    }
+
+    // --- COTAÇÕES ---
+
+    void publishTicks() {
+        quoteLines.forEach((reqId, symbol) -> ticks(reqId, gateway.instrument(symbol)));
+        long now = System.nanoTime();
+        if (now - lastPnlNanos >= TimeUnit.SECONDS.toNanos(1)) {
+            lastPnlNanos = now;
+            pnlLines.keySet().forEach(this::accountPnl);
+            pnlSingleLines.forEach(this::positionPnl);
+            summaryLines.forEach(this::accountSummary);
+        }
+    }
+
+    private void ticks(int reqId, FakeTwsGateway.Instrument instrument) {
+        double price = instrument.price();
+        // Versão 3: reqId, tipo, preço, tamanho, máscara de atributos
+        send(TwsWire.text(TwsWire.TICK_PRICE, 3, reqId, TICK_BID, round(price - 0.01), 300, 0));
+        send(TwsWire.text(TwsWire.TICK_PRICE, 3, reqId, TICK_ASK, round(price + 0.01), 300, 0));
+        send(TwsWire.text(TwsWire.TICK_PRICE, 3, reqId, TICK_LAST, price, 100, 0));
+    }
+
+    // --- P&L (sem campo de versão; diário = não realizado + realizado desde a partida do gateway) ---
+
+    private void accountPnl(int reqId) {
+        double unrealized = 0;
+        double realized = 0;
+        for (FakeTwsGateway.Instrument instrument : gateway.instruments()) {
+            unrealized += instrument.unrealizedPnl();
+            realized += instrument.realizedPnl();
+        }
+        send(TwsWire.text(TwsWire.PNL, reqId, round(unrealized + realized), round(unrealized), round(realized)));
+    }
+
+    private void positionPnl(int reqId, FakeTwsGateway.Instrument instrument) {
+        double position = instrument.position();
+        double unrealized = instrument.unrealizedPnl();
+        double realized = instrument.realizedPnl();
+        send(TwsWire.text(TwsWire.PNL_SINGLE, reqId, decimal(position), round(unrealized + realized), round(unrealized),
+                round(realized), round(position * instrument.price())));
+    }
+
+    // --- ORDENS ---
+
+    private void placeOrder(PlaceOrderRequestProto.PlaceOrderRequest request) {
+        int orderId = request.getOrderId();
+        gateway.orderReceived(orderId);
+        SimulatedOrder order = new SimulatedOrder(orderId, gateway.qualify(request.getContract()), request.getOrder(), gateway.nextPermId());
+        int parentId = order.order.getParentId();
+        FakeOrderScript script = settings.scriptFor(order.contract.getSymbol());
+        if (script == FakeOrderScript.REJECT) {
+            later(settings.ackLatency().toNanos(), () -> {
+                error(orderId, 201, "Order rejected - reason:Rejeitada pelo roteiro do TWS simulado");
+                order.status = "Inactive";
+                orderStatus(order, 0);
+            });
+            return;
+        }
+        openOrders.put(orderId, order);
+        later(settings.ackLatency().toNanos(), () -> {
+            // Filha de bracket espera a mestra ser executada, como no TWS.
+            boolean held = parentId != 0 && openOrders.containsKey(parentId);
+            order.status = held ? "PreSubmitted" : "Submitted";
+            openOrder(order);
+            orderStatus(order, 0);
+            if (script == FakeOrderScript.FILL && parentId == 0) {
+                later(settings.fillLatency().toNanos(), () -> fillSlice(order));
+            }
+        });
+    }
+
+    private void fillSlice(SimulatedOrder order) {
+        if (openOrders.get(order.orderId) != order || order.remaining().signum() == 0) {
+            return; // cancelada no meio do caminho
+        }
+        int slices = Math.max(1, settings.fillSlices());
+        BigDecimal slice = order.quantity.divide(BigDecimal.valueOf(slices), 0, RoundingMode.UP).max(BigDecimal.ONE).min(order.remaining());
+        double price = fillPrice(order);
+        BigDecimal filled = order.filled.add(slice);
+        order.avgFillPrice = (order.avgFillPrice * order.filled.doubleValue() + price * slice.doubleValue()) / filled.doubleValue();
+        order.filled = filled;
+        ExecutionDetailsProto.ExecutionDetails execution = gateway.execute(clientId, order.orderId, order.permId, order.contract,
+                order.isBuy(), slice, price, filled, order.avgFillPrice, order.order.getOrderRef());
+        send(TwsWire.protobuf(TwsWire.EXECUTION_DATA, execution));
+        boolean complete = order.remaining().signum() == 0;
+        order.status = complete ? "Filled" : "Submitted";
+        orderStatus(order, price);
+        if (accountUpdates) {
+            portfolioValue(gateway.instrument(order.contract.getSymbol()));
+            accountValues();
+        }
+        if (!complete) {
+            later(settings.fillLatency().toNanos(), () -> fillSlice(order));
+            return;
+        }
+        openOrders.remove(order.orderId);
+        openOrder(order);
+        // Mestra executada: as filhas do bracket passam a trabalhar.
+        for (SimulatedOrder child : openOrders.values()) {
+            if (child.order.getParentId() == order.orderId && "PreSubmitted".equals(child.status)) {
+                child.status = "Submitted";
+                orderStatus(child, 0);
+            }
+        }
+    }
+
+    private double fillPrice(SimulatedOrder order) {
+        String type = order.order.getOrderType();
+        if (type.startsWith("LMT") || type.equals("STP LMT")) {
+            return order.order.getLmtPrice();
+        }
+        if (type.startsWith("STP")) {
+            return order.order.getAuxPrice();
+        }
+        return gateway.instrument(order.contract.getSymbol()).price();
+    }
+
+    private void cancelOrder(int orderId) {
+        later(settings.ackLatency().toNanos(), () -> {
+            SimulatedOrder order = openOrders.remove(orderId);
+            if (order == null) {
+                error(orderId, 10147, "OrderId " + orderId + " that needs to be cancelled is not found.");
+                return;
+            }
+            order.status = "Cancelled";
+            orderStatus(order, 0);
+            error(orderId, 202, "Order Canceled - reason:");
+            // Cancelar a mestra derruba as filhas.
+            for (SimulatedOrder child : openOrders.values()) {
+                if (child.order.getParentId() == orderId) {
+                    openOrders.remove(child.orderId);
+                    child.status = "Cancelled";
+                    orderStatus(child, 0);
+                    error(child.orderId, 202, "Order Canceled - reason:");
+                }
+            }
+        });
+    }
+
+    private void openOrder(SimulatedOrder order) {
+        OrderProto.Order ack = order.order.toBuilder()
+                .setOrderId(order.orderId)
+                .setClientId(clientId)
+                .setPermId(order.permId)
+                .setAccount(settings.account())
+                .setFilledQuantity(order.filled.toPlainString())
+                .build();
+        send(TwsWire.protobuf(TwsWire.OPEN_ORDER, OpenOrderProto.OpenOrder.newBuilder()
+                .setOrderId(order.orderId)
+                .setContract(order.contract)
+                .setOrder(ack)
+                .setOrderState(OrderStateProto.OrderState.newBuilder().setStatus(order.status))
+                .build()));
+    }
+
+    private void orderStatus(SimulatedOrder order, double lastFillPrice) {
+        send(TwsWire.protobuf(TwsWire.ORDER_STATUS, OrderStatusProto.OrderStatus.newBuilder()
+                .setOrderId(order.orderId)
+                .setStatus(order.status)
+                .setFilled(order.filled.toPlainString())
+                .setRemaining("Filled".equals(order.status) || "Cancelled".equals(order.status) || "Inactive".equals(order.status)
+                        ? "0" : order.remaining().toPlainString())
+                .setAvgFillPrice(order.avgFillPrice)
+                .setPermId(order.permId)
+                .setParentId(order.order.getParentId())
+                .setLastFillPrice(lastFillPrice)
+                .setClientId(clientId)
+                .build()));
+    }
+
+    // --- EXECUÇÕES (reqExecutions) ---
+
+    private void executions(ExecutionRequestProto.ExecutionRequest request) {
+        int reqId = request.getReqId();
+        Predicate<FakeTwsGateway.ExecutionRecord> filter = filter(request.getExecutionFilter());
+        for (FakeTwsGateway.ExecutionRecord record : gateway.executions(filter)) {
+            send(TwsWire.protobuf(TwsWire.EXECUTION_DATA, record.details().toBuilder().setReqId(reqId).build()));
+        }
+        send(TwsWire.protobuf(TwsWire.EXECUTION_DATA_END, ExecutionDetailsEndProto.ExecutionDetailsEnd.newBuilder().setReqId(reqId).build()));
+    }
+
+    /** clientId, conta, símbolo, lado e hora ("yyyyMMdd-HH:mm:ss" em UTC ou "yyyyMMdd HH:mm:ss zona"). */
+    private Predicate<FakeTwsGateway.ExecutionRecord> filter(ExecutionFilterProto.ExecutionFilter filter) {
+        Predicate<FakeTwsGateway.ExecutionRecord> predicate = record -> true;
+        if (filter.getClientId() != 0) {
+            predicate = predicate.and(record -> record.clientId() == filter.getClientId());
+        }
+        if (!filter.getSymbol().isEmpty()) {
+            predicate = predicate.and(record -> filter.getSymbol().equalsIgnoreCase(record.details().getContract().getSymbol()));
+        }
+        if (!filter.getSide().isEmpty()) {
+            String side = filter.getSide().toUpperCase().startsWith("B") ? "BOT" : "SLD";
+            predicate = predicate.and(record -> side.equals(record.details().getExecution().getSide()));
+        }
+        Instant since = parseFilterTime(filter.getTime());
+        if (since != null) {
+            predicate = predicate.and(record -> !record.time().isBefore(since));
+        }
+        return predicate;
+    }
+
+    private static Instant parseFilterTime(String time) {
+        if (time == null || time.isBlank()) {
+            return null;
+        }
+        try {
+            if (time.length() == 17 && time.charAt(8) == '-') {
+                return LocalDateTime.parse(time, FILTER_TIME).toInstant(ZoneOffset.UTC);
+            }
+            String[] parts = time.trim().split("\\s+");
+            ZoneId zone = parts.length > 2 ? ZoneId.of(parts[2]) : ZoneOffset.UTC;
+            return LocalDateTime.parse(parts[0] + "-" + parts[1], FILTER_TIME).atZone(zone).toInstant();
+        } catch (DateTimeException | IndexOutOfBoundsException e) {
+            log.warn("⚠️ [FAKE-TWS] Hora de filtro de execuções inválida '{}'; filtro de hora ignorado.", time);
+            return null;
+        }
+    }
+
+    // --- ESCRITA ---
+
+    private void error(int id, int code, String message) {
+        // Versão de servidor >= 194: sem campo de versão; id, código, mensagem, JSON de rejeição, hora (ms)
+        send(TwsWire.text(TwsWire.ERR_MSG, id, code, message, "", System.currentTimeMillis()));
+    }
+
+    private void send(byte[] frame) {
+        if (closed) {
+            return;
+        }
+        try {
+            synchronized (out) {
+                out.write(frame);
+                out.flush();
+            }
+            gateway.countOut();
+        } catch (IOException e) {
+            log.debug("🧪 [FAKE-TWS] Falha de escrita para o cliente {}: {}", clientId, e.getMessage());
+            close();
+        }
+    }
+
+    private void later(long delayNanos, Runnable task) {
+        Runnable guarded = () -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.error("💥 [FAKE-TWS] Falha em resposta agendada para o cliente {}", clientId, e);
+            }
+        };
+        if (delayNanos <= 0) {
+            gateway.scheduler().execute(guarded);
+        } else {
+            gateway.scheduler().schedule(guarded, delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static double round(double price) {
+        return Math.round(price * 100) / 100.0;
+    }
+
+    private static String decimal(double value) {
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+}
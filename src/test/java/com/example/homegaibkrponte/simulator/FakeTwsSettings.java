@@ -0,0 +1,64 @@
+package com.example.homegaibkrponte.simulator;
+
+import lombok.Builder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Configuração do {@link FakeTwsGateway}. Parta de {@link #defaults()} e ajuste com toBuilder().
+ *
+ * @param port                 porta do socket; 0 escolhe uma porta livre (veja {@link FakeTwsGateway#port()}).
+ * @param account              conta devolvida em managedAccounts, posições e execuções.
+ * @param firstOrderId         primeiro nextValidId anunciado.
+ * @param ackLatency           atraso entre o placeOrder e o openOrder/orderStatus Submitted.
+ * @param fillLatency          atraso entre o ACK e a primeira execução (roteiro FILL).
+ * @param fillSlices           em quantas execuções parciais a ordem é preenchida (1 = de uma vez).
+ * @param script               roteiro padrão das ordens.
+ * @param scripts              roteiro por símbolo, sobrepõe {@code script}.
+ * @param tickInterval         intervalo entre ticks (bid/ask/last) de cada reqMktData; ZERO desliga os ticks.
+ * @param basePrice            preço inicial dos símbolos sem entrada em {@code prices}.
+ * @param prices               preço inicial por símbolo.
+ * @param positions            posições iniciais da conta (reqPositions/reqAccountUpdates); as execuções as atualizam.
+ * @param initialCash          caixa inicial (TotalCashValue); BuyingPower é 4x o caixa.
+ * @param maxInboundPerSecond  limite de mensagens por segundo por conexão (o TWS real usa 50); 0 = sem limite.
+ *                             Acima dele a mensagem é descartada com error 100, como no TWS.
+ * @param executionHistory     quantas execuções ficam guardadas para reqExecutions.
+ */
+@Builder(toBuilder = true)
+public record FakeTwsSettings(
+        int port,
+        String account,
+        int firstOrderId,
+        Duration ackLatency,
+        Duration fillLatency,
+        int fillSlices,
+        FakeOrderScript script,
+        Map<String, FakeOrderScript> scripts,
+        Duration tickInterval,
+        double basePrice,
+        Map<String, Double> prices,
+        List<Position> positions,
+        double initialCash,
+        int maxInboundPerSecond,
+        int executionHistory
+) {
+
+    public record Position(String symbol, double quantity, double averageCost) {
+    }
+
+    public static FakeTwsSettings defaults() {
+        return new FakeTwsSettings(0, "DU0000000", 1, Duration.ZERO, Duration.ofMillis(5), 1,
+                FakeOrderScript.FILL, Map.of(), Duration.ofMillis(250), 100.0, Map.of(), List.of(),
+                1_000_000.0, 0, 10_000);
+    }
+
+    FakeOrderScript scriptFor(String symbol) {
+        return scripts.getOrDefault(symbol, script);
+    }
+
+    double initialPrice(String symbol) {
+        return prices.getOrDefault(symbol, basePrice);
+    }
+}
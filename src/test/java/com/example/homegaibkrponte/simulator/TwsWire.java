@@ -0,0 +1,170 @@
+package com.example.homegaibkrponte.simulator;
+
+import com.google.protobuf.MessageLite;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Enquadramento do protocolo de socket do TWS (API v100+), do lado do servidor.
+ *
+ * Toda mensagem é [tamanho int32 big-endian][corpo]. A partir da versão de servidor 201 o corpo começa
+ * com o ID da mensagem em int32 cru; IDs acima de 200 indicam protobuf (ID - 200) e o resto do corpo é a
+ * mensagem serializada. Nos demais, o resto são campos de texto terminados em \0.
+ */
+final class TwsWire {
+
+    // Maior versão do TwsApi 10.37: placeOrder, cancelOrder e reqExecutions chegam em protobuf.
+    static final int SERVER_VERSION = 203;
+    static final int PROTOBUF_OFFSET = 200;
+    static final int MAX_MSG_LENGTH = 0xFFFFFF;
+    static final byte[] API_PREFIX = "API\0".getBytes(StandardCharsets.US_ASCII);
+
+    // --- Cliente -> servidor (EClient) ---
+    static final int REQ_MKT_DATA = 1;
+    static final int CANCEL_MKT_DATA = 2;
+    static final int PLACE_ORDER = 3;
+    static final int CANCEL_ORDER = 4;
+    static final int REQ_ACCOUNT_UPDATES = 6;
+    static final int REQ_EXECUTIONS = 7;
+    static final int REQ_IDS = 8;
+    static final int REQ_CONTRACT_DATA = 9;
+    static final int REQ_MANAGED_ACCTS = 17;
+    static final int REQ_CURRENT_TIME = 49;
+    static final int REQ_GLOBAL_CANCEL = 58;
+    static final int REQ_MARKET_DATA_TYPE = 59;
+    static final int REQ_POSITIONS = 61;
+    static final int REQ_ACCOUNT_SUMMARY = 62;
+    static final int CANCEL_ACCOUNT_SUMMARY = 63;
+    static final int CANCEL_POSITIONS = 64;
+    static final int START_API = 71;
+    static final int REQ_PNL = 92;
+    static final int CANCEL_PNL = 93;
+    static final int REQ_PNL_SINGLE = 94;
+    static final int CANCEL_PNL_SINGLE = 95;
+
+    // --- Servidor -> cliente (EDecoder) ---
+    static final int TICK_PRICE = 1;
+    static final int ORDER_STATUS = 3;
+    static final int ERR_MSG = 4;
+    static final int OPEN_ORDER = 5;
+    static final int ACCT_VALUE = 6;
+    static final int PORTFOLIO_VALUE = 7;
+    static final int ACCT_UPDATE_TIME = 8;
+    static final int NEXT_VALID_ID = 9;
+    static final int CONTRACT_DATA = 10;
+    static final int EXECUTION_DATA = 11;
+    static final int MANAGED_ACCTS = 15;
+    static final int CURRENT_TIME = 49;
+    static final int CONTRACT_DATA_END = 52;
+    static final int ACCT_DOWNLOAD_END = 54;
+    static final int EXECUTION_DATA_END = 55;
+    static final int POSITION = 61;
+    static final int POSITION_END = 62;
+    static final int ACCOUNT_SUMMARY = 63;
+    static final int ACCOUNT_SUMMARY_END = 64;
+    static final int PNL = 94;
+    static final int PNL_SINGLE = 95;
+
+    private TwsWire() {
+    }
+
+    /**
+     * Mensagem recebida: ID (sem o deslocamento de protobuf) e o corpo a partir do byte {@code offset}.
+     */
+    record Inbound(int msgId, boolean protobuf, byte[] body, int offset) {
+
+        byte[] protobufBytes() {
+            return Arrays.copyOfRange(body, offset, body.length);
+        }
+
+        /** Campos de texto (cada um terminado em \0). */
+        String[] fields() {
+            List<String> fields = new ArrayList<>();
+            int start = offset;
+            for (int i = offset; i < body.length; i++) {
+                if (body[i] == 0) {
+                    fields.add(new String(body, start, i - start, StandardCharsets.UTF_8));
+                    start = i + 1;
+                }
+            }
+            return fields.toArray(String[]::new);
+        }
+    }
+
+    static byte[] readFrame(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_MSG_LENGTH) {
+            throw new IOException("Tamanho de mensagem inválido: " + length);
+        }
+        byte[] body = new byte[length];
+        in.readFully(body);
+        return body;
+    }
+
+    static Inbound parse(byte[] body) throws IOException {
+        if (body.length < Integer.BYTES) {
+            throw new IOException("Mensagem sem ID (" + body.length + " bytes)");
+        }
+        int msgId = ((body[0] & 0xFF) << 24) | ((body[1] & 0xFF) << 16) | ((body[2] & 0xFF) << 8) | (body[3] & 0xFF);
+        boolean protobuf = msgId > PROTOBUF_OFFSET;
+        return new Inbound(protobuf ? msgId - PROTOBUF_OFFSET : msgId, protobuf, body, Integer.BYTES);
+    }
+
+    /** Corpo da resposta ao handshake: "versão\0horaDeConexão\0". */
+    static byte[] handshake(int serverVersion, String connectionTime) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64);
+        writeInt(out, 0); // tamanho, preenchido em withLength
+        writeField(out, Integer.toString(serverVersion));
+        writeField(out, connectionTime);
+        return withLength(out);
+    }
+
+    /** Mensagem de texto já enquadrada. Os campos são escritos com toString (null vira campo vazio). */
+    static byte[] text(int msgId, Object... fields) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 + fields.length * 8);
+        writeInt(out, 0); // tamanho, preenchido em withLength
+        writeInt(out, msgId);
+        for (Object field : fields) {
+            writeField(out, field == null ? "" : field.toString());
+        }
+        return withLength(out);
+    }
+
+    /** Mensagem protobuf já enquadrada (ID + 200). */
+    static byte[] protobuf(int msgId, MessageLite message) {
+        byte[] payload = message.toByteArray();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(8 + payload.length);
+        writeInt(out, 0); // tamanho, preenchido em withLength
+        writeInt(out, msgId + PROTOBUF_OFFSET);
+        out.writeBytes(payload);
+        return withLength(out);
+    }
+
+    private static void writeField(ByteArrayOutputStream out, String value) {
+        out.writeBytes(value.getBytes(StandardCharsets.UTF_8));
+        out.write(0);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private static byte[] withLength(ByteArrayOutputStream out) {
+        byte[] frame = out.toByteArray();
+        int length = frame.length - Integer.BYTES;
+        frame[0] = (byte) (length >>> 24);
+        frame[1] = (byte) (length >>> 16);
+        frame[2] = (byte) (length >>> 8);
+        frame[3] = (byte) length;
+        return frame;
+    }
+}
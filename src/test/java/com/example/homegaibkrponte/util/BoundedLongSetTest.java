@@ -0,0 +1,100 @@
+package com.example.homegaibkrponte.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedLongSetTest {
+
+    @Test
+    void evictsTheOldestWhenFull() {
+        BoundedLongSet set = new BoundedLongSet(3);
+        assertTrue(set.add(1));
+        assertTrue(set.add(2));
+        assertTrue(set.add(3));
+
+        assertTrue(set.add(4));
+
+        assertEquals(3, set.size());
+        assertFalse(set.contains(1));
+        assertTrue(set.contains(2));
+        assertTrue(set.contains(3));
+        assertTrue(set.contains(4));
+        // O despejado pode voltar, e agora quem sai é o 2.
+        assertTrue(set.add(1));
+        assertFalse(set.contains(2));
+    }
+
+    @Test
+    void duplicateDoesNotRefreshNorEvict() {
+        BoundedLongSet set = new BoundedLongSet(2);
+        set.add(10);
+        set.add(20);
+
+        assertFalse(set.add(10));
+        assertEquals(2, set.size());
+        assertTrue(set.contains(20));
+
+        set.add(30);
+        assertFalse(set.contains(10), "a repetição não renova a posição na fila");
+        assertTrue(set.contains(20));
+    }
+
+    @Test
+    void rejectsZero() {
+        assertThrows(IllegalArgumentException.class, () -> new BoundedLongSet(4).add(0));
+    }
+
+    /**
+     * Poucos slots e valores num intervalo estreito: clusters longos, despejos a cada inserção e remoções
+     * por deslocamento para trás no meio dos clusters. Depois de cada operação, todo valor do intervalo é
+     * conferido contra um modelo FIFO.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 5, 7, 8, 31})
+    void matchesAFifoModelUnderChurn(int capacity) {
+        BoundedLongSet set = new BoundedLongSet(capacity);
+        ArrayDeque<Long> order = new ArrayDeque<>();
+        Set<Long> model = new HashSet<>();
+        SplittableRandom random = new SplittableRandom(capacity);
+        long range = capacity * 4L + 3;
+
+        for (int op = 0; op < 20_000; op++) {
+            long value = 1 + random.nextLong(range);
+            boolean added = model.add(value);
+            if (added) {
+                order.addLast(value);
+                if (order.size() > capacity) {
+                    model.remove(order.removeFirst());
+                }
+            }
+            assertEquals(added, set.add(value), "add(" + value + ") na operação " + op);
+            assertEquals(model.size(), set.size());
+            for (long probe = 1; probe <= range; probe++) {
+                assertEquals(model.contains(probe), set.contains(probe), "contains(" + probe + ") na operação " + op);
+            }
+        }
+    }
+
+    @Test
+    void largeValuesAndNegativesAreTracked() {
+        BoundedLongSet set = new BoundedLongSet(4);
+        long[] values = {Long.MIN_VALUE, -1, Long.MAX_VALUE, 0x9E3779B97F4A7C15L};
+        for (long value : values) {
+            assertTrue(set.add(value));
+        }
+        for (long value : values) {
+            assertTrue(set.contains(value));
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.homegaibkrponte.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PersistentHashMapTest {
+
+    /**
+     * Chave com hashCode escolhido: permite forçar colisões completas (nó de colisões) e prefixos
+     * comuns longos (caminhos até o último nível da trie).
+     */
+    private record Key(int hash, int id) {
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    @Test
+    void plusAndMinusReturnTheSameMapWhenNothingChanges() {
+        String value = "v";
+        PersistentHashMap<String, String> map = PersistentHashMap.<String, String>empty().plus("a", value);
+
+        assertSame(map, map.plus("a", value));
+        assertSame(map, map.minus("b"));
+        assertSame(map, map.minus(null));
+        assertThrows(NullPointerException.class, () -> map.plus(null, value));
+        assertThrows(UnsupportedOperationException.class, () -> map.put("b", value));
+        assertSame(PersistentHashMap.empty(), map.minus("a"));
+    }
+
+    @Test
+    void fullHashCollisionsLiveInTheSameNode() {
+        Key a = new Key(42, 1);
+        Key b = new Key(42, 2);
+        Key c = new Key(42, 3);
+        PersistentHashMap<Key, Integer> map = PersistentHashMap.<Key, Integer>empty().plus(a, 1).plus(b, 2).plus(c, 3);
+
+        assertEquals(3, map.size());
+        assertEquals(2, map.get(b));
+        assertEquals(20, map.plus(b, 20).get(b));
+        assertEquals(3, map.plus(b, 20).size());
+
+        PersistentHashMap<Key, Integer> withoutB = map.minus(b);
+        assertEquals(Map.of(a, 1, c, 3), withoutB);
+        // Sobra um par: o nó de colisões é recolhido e o par sobe até a raiz.
+        PersistentHashMap<Key, Integer> onlyC = withoutB.minus(a);
+        assertEquals(Map.of(c, 3), onlyC);
+        assertEquals(Set.of(c), new HashSet<>(onlyC.keySet()));
+        assertFalse(onlyC.containsKey(a));
+        assertNull(onlyC.get(new Key(42, 4)));
+    }
+
+    @Test
+    void oldVersionsAreUnaffectedByLaterUpdates() {
+        PersistentHashMap<Integer, Integer> map = PersistentHashMap.empty();
+        List<PersistentHashMap<Integer, Integer>> versions = new ArrayList<>();
+        List<Map<Integer, Integer>> models = new ArrayList<>();
+        Map<Integer, Integer> model = new HashMap<>();
+        for (int i = 0; i < 2_000; i++) {
+            map = i % 3 == 2 ? map.minus(i / 2) : map.plus(i, i * 7);
+            if (i % 3 == 2) {
+                model.remove(i / 2);
+            } else {
+                model.put(i, i * 7);
+            }
+            if (i % 100 == 0) {
+                versions.add(map);
+                models.add(new HashMap<>(model));
+            }
+        }
+        for (int v = 0; v < versions.size(); v++) {
+            assertEquals(models.get(v), versions.get(v), "versão " + v);
+        }
+    }
+
+    @Test
+    void copyOfKeepsPersistentMapsAndCopiesOthers() {
+        Map<String, Integer> source = Map.of("a", 1, "b", 2, "c", 3);
+        PersistentHashMap<String, Integer> copy = PersistentHashMap.copyOf(source);
+
+        assertEquals(source, copy);
+        assertSame(copy, PersistentHashMap.copyOf(copy));
+    }
+
+    /**
+     * Sequência aleatória de plus/minus conferida contra um HashMap a cada operação. Os hashCodes vêm
+     * de um conjunto pequeno que difere só nos bits altos, então as chaves descem até o fim da trie,
+     * colidem por completo e voltam a subir nas remoções.
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 17, 99})
+    void matchesAHashMapModel(int seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] hashes = new int[6];
+        for (int i = 0; i < hashes.length; i++) {
+            // Mesmo valor nos 16 bits baixos; o espalhamento h ^ (h >>> 16) mantém os prefixos parecidos.
+            hashes[i] = (random.nextInt(4) << 28) | (random.nextInt(2) << 20) | 0x1234;
+        }
+        List<Key> keys = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            keys.add(new Key(hashes[random.nextInt(hashes.length)], i));
+        }
+        for (int i = 0; i < 64; i++) {
+            keys.add(new Key(random.nextInt(), 1_000 + i));
+        }
+
+        PersistentHashMap<Key, Integer> map = PersistentHashMap.empty();
+        Map<Key, Integer> model = new HashMap<>();
+        for (int op = 0; op < 5_000; op++) {
+            Key key = keys.get(random.nextInt(keys.size()));
+            if (random.nextInt(5) < 3) {
+                Integer value = random.nextInt(4);
+                map = map.plus(key, value);
+                model.put(key, value);
+            } else {
+                map = map.minus(key);
+                model.remove(key);
+            }
+            assertEquals(model.size(), map.size(), "tamanho na operação " + op);
+            for (Key probe : keys) {
+                assertEquals(model.get(probe), map.get(probe), probe + " na operação " + op);
+                assertEquals(model.containsKey(probe), map.containsKey(probe));
+            }
+            assertIteratesExactly(model, map);
+        }
+
+        // Esvaziar tem de voltar ao mapa vazio canônico.
+        for (Key key : keys) {
+            map = map.minus(key);
+        }
+        assertSame(PersistentHashMap.empty(), map);
+        assertFalse(map.entrySet().iterator().hasNext());
+    }
+
+    private static void assertIteratesExactly(Map<Key, Integer> model, PersistentHashMap<Key, Integer> map) {
+        Map<Key, Integer> seen = new HashMap<>();
+        for (Map.Entry<Key, Integer> entry : map.entrySet()) {
+            assertNull(seen.put(entry.getKey(), entry.getValue()), "chave repetida na iteração: " + entry.getKey());
+        }
+        assertEquals(model, seen);
+        assertTrue(map.equals(model) && model.equals(map));
+    }
+}
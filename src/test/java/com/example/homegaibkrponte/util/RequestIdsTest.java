@@ -0,0 +1,36 @@
+package com.example.homegaibkrponte.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestIdsTest {
+
+    @Test
+    void dataIdsStartAboveTheOrderRange() {
+        RequestIds ids = new RequestIds();
+        int first = ids.next();
+        assertEquals(RequestIds.DATA_BASE, first);
+        assertTrue(RequestIds.isDataRequest(first));
+        assertFalse(RequestIds.isOrderId(first));
+    }
+
+    @Test
+    void dataIdsWrapBackToTheDataBaseInsteadOfOverflowing() {
+        RequestIds ids = new RequestIds(Integer.MAX_VALUE - 1);
+        assertEquals(Integer.MAX_VALUE - 1, ids.next());
+        assertEquals(Integer.MAX_VALUE, ids.next());
+        assertEquals(RequestIds.DATA_BASE, ids.next());
+    }
+
+    @Test
+    void everyPositiveIdBelongsToExactlyOneRange() {
+        for (int id : new int[]{1, 2, RequestIds.DATA_BASE - 1, RequestIds.DATA_BASE, RequestIds.DATA_BASE + 1, Integer.MAX_VALUE}) {
+            assertTrue(RequestIds.isOrderId(id) ^ RequestIds.isDataRequest(id), "id " + id);
+        }
+        assertFalse(RequestIds.isOrderId(-1));
+        assertFalse(RequestIds.isDataRequest(-1));
+    }
+}